@@ -17,7 +17,8 @@ import org.junit.runners.Suite;
 @Suite.SuiteClasses({ //
 	LogServiceTest.class, //
 	LogReaderServiceTest.class, //
-	LogPermissionCollectionTest.class //
+	LogPermissionCollectionTest.class, //
+	AsyncLogWriterTest.class //
 	})
 public class AllLogServiceTests {
 }
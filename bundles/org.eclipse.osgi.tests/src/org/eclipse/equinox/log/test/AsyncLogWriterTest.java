@@ -0,0 +1,187 @@
+/*******************************************************************************
+ * Copyright (c) 2026 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors: IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.log.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.eclipse.core.runtime.adaptor.EclipseStarter;
+import org.eclipse.osgi.framework.log.FrameworkLog;
+import org.eclipse.osgi.framework.log.FrameworkLogEntry;
+import org.eclipse.osgi.launch.Equinox;
+import org.eclipse.osgi.tests.OSGiTestsActivator;
+import org.eclipse.osgi.tests.bundles.AbstractBundleTests;
+import org.junit.Test;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.BundleException;
+import org.osgi.framework.Constants;
+
+public class AsyncLogWriterTest extends AbstractBundleTests {
+	private static final String MESSAGE_PREFIX = "!MESSAGE entry "; //$NON-NLS-1$
+	/* 100 two byte and 100 three byte characters; 200 characters but 500 bytes in UTF-8 */
+	private static final String NON_ASCII;
+	static {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 100; i++) {
+			sb.append('\u00e9').append('\u4e2d');
+		}
+		NON_ASCII = sb.toString();
+	}
+
+	@Test
+	public void testOrderAndFlushOnClose() throws Exception {
+		File config = OSGiTestsActivator.getContext().getDataFile(getName());
+		File logFile = new File(config, "test.log"); //$NON-NLS-1$
+		Map<String, Object> configuration = createConfiguration(config, logFile);
+		// no rotation and no flush by interval or size; closing must write and flush all entries
+		configuration.put("eclipse.log.size.max", "0"); //$NON-NLS-1$ //$NON-NLS-2$
+		configuration.put("eclipse.log.async.flush.interval", "600000"); //$NON-NLS-1$ //$NON-NLS-2$
+		configuration.put("eclipse.log.async.flush.size", "100000"); //$NON-NLS-1$ //$NON-NLS-2$
+		Equinox equinox = new Equinox(configuration);
+		equinox.start();
+		try {
+			FrameworkLog log = getFrameworkLog(equinox.getBundleContext());
+			int numEntries = 500;
+			for (int i = 0; i < numEntries; i++) {
+				log.log(createEntry(i));
+			}
+			log.close();
+			assertEquals("Wrong entries.", createExpected(numEntries), readEntries(logFile));
+		} finally {
+			stop(equinox);
+		}
+	}
+
+	@Test
+	public void testOrderFromMultipleThreads() throws Exception {
+		File config = OSGiTestsActivator.getContext().getDataFile(getName());
+		File logFile = new File(config, "test.log"); //$NON-NLS-1$
+		Map<String, Object> configuration = createConfiguration(config, logFile);
+		configuration.put("eclipse.log.size.max", "0"); //$NON-NLS-1$ //$NON-NLS-2$
+		configuration.put("eclipse.log.async.buffer", "16"); //$NON-NLS-1$ //$NON-NLS-2$
+		Equinox equinox = new Equinox(configuration);
+		equinox.start();
+		final int numThreads = 4;
+		final int numEntries = 250;
+		try {
+			final FrameworkLog log = getFrameworkLog(equinox.getBundleContext());
+			Thread[] threads = new Thread[numThreads];
+			for (int t = 0; t < numThreads; t++) {
+				final int first = t * numEntries;
+				threads[t] = new Thread(() -> {
+					for (int i = first; i < first + numEntries; i++) {
+						log.log(createEntry(i));
+					}
+				}, getName() + '-' + t);
+				threads[t].start();
+			}
+			for (Thread thread : threads) {
+				thread.join();
+			}
+		} finally {
+			stop(equinox);
+		}
+		// stopping the framework writes all buffered entries
+		List<String> entries = readEntries(logFile);
+		assertEquals("Wrong number of entries.", numThreads * numEntries, entries.size());
+		// entries logged by the same thread are written in order
+		int[] last = new int[numThreads];
+		Arrays.fill(last, -1);
+		for (String entry : entries) {
+			int i = Integer.parseInt(entry.substring(MESSAGE_PREFIX.length(), entry.indexOf(' ', MESSAGE_PREFIX.length())));
+			int t = i / numEntries;
+			assertTrue("Entry out of order: " + i, i > last[t]);
+			last[t] = i;
+		}
+	}
+
+	@Test
+	public void testRotation() throws Exception {
+		File config = OSGiTestsActivator.getContext().getDataFile(getName());
+		File logFile = new File(config, "test.log"); //$NON-NLS-1$
+		Map<String, Object> configuration = createConfiguration(config, logFile);
+		configuration.put("eclipse.log.size.max", "10"); //$NON-NLS-1$ //$NON-NLS-2$
+		configuration.put("eclipse.log.backup.max", "50"); //$NON-NLS-1$ //$NON-NLS-2$
+		Equinox equinox = new Equinox(configuration);
+		equinox.start();
+		int numEntries = 200;
+		try {
+			FrameworkLog log = getFrameworkLog(equinox.getBundleContext());
+			for (int i = 0; i < numEntries; i++) {
+				log.log(createEntry(i));
+			}
+		} finally {
+			stop(equinox);
+		}
+
+		List<String> entries = new ArrayList<>();
+		int backups = 0;
+		for (File backup = new File(config, "test.bak_0.log"); backup.exists(); backup = new File(config, "test.bak_" + (++backups) + ".log")) { //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+			// the log is rotated once it exceeds 10 KB; it only grows by one more entry
+			assertTrue("Backup log is too large: " + backup.length(), backup.length() < 12 * 1024);
+			entries.addAll(readEntries(backup));
+		}
+		// each entry is larger than 500 bytes
+		assertTrue("Not enough backups: " + backups, backups >= (numEntries * 500) / (11 * 1024));
+		entries.addAll(readEntries(logFile));
+		assertEquals("Wrong entries.", createExpected(numEntries), entries);
+	}
+
+	private Map<String, Object> createConfiguration(File config, File logFile) {
+		Map<String, Object> configuration = new HashMap<>();
+		configuration.put(Constants.FRAMEWORK_STORAGE, config.getAbsolutePath());
+		configuration.put(EclipseStarter.PROP_LOGFILE, logFile.getAbsolutePath());
+		configuration.put("eclipse.log.async", "true"); //$NON-NLS-1$ //$NON-NLS-2$
+		return configuration;
+	}
+
+	private FrameworkLog getFrameworkLog(BundleContext context) {
+		return context.getService(context.getServiceReference(FrameworkLog.class));
+	}
+
+	FrameworkLogEntry createEntry(int i) {
+		return new FrameworkLogEntry(getName(), FrameworkLogEntry.ERROR, 0, "entry " + i + ' ' + NON_ASCII, 0, null, null); //$NON-NLS-1$
+	}
+
+	private List<String> createExpected(int numEntries) {
+		List<String> expected = new ArrayList<>();
+		for (int i = 0; i < numEntries; i++) {
+			expected.add(MESSAGE_PREFIX + i + ' ' + NON_ASCII);
+		}
+		return expected;
+	}
+
+	private List<String> readEntries(File file) throws IOException {
+		List<String> entries = new ArrayList<>();
+		for (String line : Files.readAllLines(file.toPath(), StandardCharsets.UTF_8)) {
+			if (line.startsWith(MESSAGE_PREFIX)) {
+				entries.add(line);
+			}
+		}
+		return entries;
+	}
+
+	private void stop(Equinox equinox) throws BundleException, InterruptedException {
+		equinox.stop();
+		equinox.waitForStop(10000);
+	}
+}
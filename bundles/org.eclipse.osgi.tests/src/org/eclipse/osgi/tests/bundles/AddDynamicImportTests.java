@@ -15,6 +15,7 @@ package org.eclipse.osgi.tests.bundles;
 
 import static org.eclipse.osgi.util.ManifestElement.parseHeader;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertThrows;
 
 import java.io.File;
@@ -107,6 +108,22 @@ public class AddDynamicImportTests extends AbstractBundleTests {
 		});
 	}
 
+	@Test
+	public void testAddDynamicImportClearsMissCache() throws Exception {
+		ManifestElement[] packageImport = parseHeader(Constants.DYNAMICIMPORT_PACKAGE, "org.osgi.framework");
+		Map<String, String> missCacheConfig = Collections.singletonMap(EquinoxConfiguration.PROP_CLASS_LOADER_MISS_CACHE_SIZE, "100");
+		runTest(1, missCacheConfig, (a, b, threadPool) -> {
+			BundleLoader bl = ((ModuleClassLoader) a.adapt(BundleWiring.class).getClassLoader()).getBundleLoader();
+			// the miss was cached by the first load attempt
+			long hits = bl.getMissCacheHits();
+			assertThrows(ClassNotFoundException.class, () -> a.loadClass("org.osgi.framework.Bundle"));
+			assertEquals("Wrong number of miss cache hits", hits + 1, bl.getMissCacheHits());
+
+			bl.addDynamicImportPackage(packageImport);
+			assertNotNull("Class not found after adding dynamic import", a.loadClass("org.osgi.framework.Bundle"));
+		});
+	}
+
 	private void refresh(BundleLoader bl) {
 		Module module = bl.getWiring().getRevision().getRevisions().getModule();
 		module.getContainer().refresh(Collections.singletonList(module));
@@ -117,6 +134,10 @@ public class AddDynamicImportTests extends AbstractBundleTests {
 	}
 
 	private void runTest(int threads, ThrowingBiConsumer<Bundle, Bundle> testConsumer) throws Exception {
+		runTest(threads, Collections.emptyMap(), testConsumer);
+	}
+
+	private void runTest(int threads, Map<String, String> extraConfig, ThrowingBiConsumer<Bundle, Bundle> testConsumer) throws Exception {
 		File config = OSGiTestsActivator.getContext().getDataFile(getName());
 
 		Map<String, String> headersA = new HashMap<>();
@@ -138,6 +159,7 @@ public class AddDynamicImportTests extends AbstractBundleTests {
 		Map<String, String> fwkConfig = new HashMap<>();
 		fwkConfig.put(Constants.FRAMEWORK_STORAGE, config.getAbsolutePath());
 		fwkConfig.put(EquinoxConfiguration.PROP_RESOLVER_BATCH_TIMEOUT, "10000000");
+		fwkConfig.putAll(extraConfig);
 		Equinox equinox = new Equinox(fwkConfig);
 		ExecutorService executor = Executors.newFixedThreadPool(threads);
 		try {
@@ -838,6 +838,43 @@ public class MultiReleaseJarTests extends AbstractBundleTests {
 		}
 	}
 
+	@Test
+	public void testMultiReleaseBundleSameManifestChangeRuntime() throws Exception {
+		System.setProperty("java.specification.version", "11");
+
+		File config = OSGiTestsActivator.getContext().getDataFile(getName()); //$NON-NLS-1$
+		Map<String, String> configMap = Collections.singletonMap(Constants.FRAMEWORK_STORAGE, config.getAbsolutePath());
+		Equinox equinox = new Equinox(configMap);
+		long lastModified;
+		try {
+			equinox.start();
+			BundleContext systemContext = equinox.getBundleContext();
+			Bundle mrBundle = systemContext.installBundle(mrJarBundle.toURI().toString());
+			mrBundle.start();
+			lastModified = mrBundle.getLastModified();
+		} finally {
+			stop(equinox);
+		}
+
+		// there is no versioned manifest for 12; the manifest for 11 is still used
+		System.setProperty("java.specification.version", "12");
+
+		equinox = new Equinox(configMap);
+		try {
+			equinox.start();
+			BundleContext systemContext = equinox.getBundleContext();
+			Bundle mrBundle = systemContext.getBundle(mrJarBundle.toURI().toString());
+			assertNotNull("No mrBundle found.", mrBundle);
+			assertEquals("Wrong state of mrBundle.", Bundle.ACTIVE, mrBundle.getState());
+			assertEquals("The mrBundle was refreshed.", lastModified, mrBundle.getLastModified());
+
+			List<BundleWire> capWires = mrBundle.adapt(BundleWiring.class).getRequiredWires("cap11");
+			assertEquals("Wrong number of capability wires.", 1, capWires.size());
+		} finally {
+			stopQuietly(equinox);
+		}
+	}
+
 	@Test
 	public void testMultiReleaseBundleDeletedRestart() throws Exception {
 		File copyMrJarBundle = OSGiTestsActivator.getContext().getDataFile("copy-" + mrJarBundle.getName());
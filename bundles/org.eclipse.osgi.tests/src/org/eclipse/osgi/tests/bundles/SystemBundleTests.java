@@ -72,6 +72,7 @@ import java.util.jar.Attributes;
 import java.util.jar.JarEntry;
 import java.util.jar.JarOutputStream;
 import java.util.jar.Manifest;
+import java.util.stream.Stream;
 import javax.net.SocketFactory;
 import junit.framework.AssertionFailedError;
 import org.eclipse.core.runtime.adaptor.EclipseStarter;
@@ -79,17 +80,25 @@ import org.eclipse.equinox.log.ExtendedLogReaderService;
 import org.eclipse.equinox.log.ExtendedLogService;
 import org.eclipse.equinox.log.test.TestListener;
 import org.eclipse.equinox.log.test.TestListener2;
+import org.eclipse.osgi.container.BulkResolverHook;
 import org.eclipse.osgi.container.Module;
 import org.eclipse.osgi.framework.util.FilePath;
 import org.eclipse.osgi.internal.debug.Debug;
+import org.eclipse.osgi.internal.framework.BundleContextImpl;
 import org.eclipse.osgi.internal.framework.EquinoxConfiguration;
 import org.eclipse.osgi.internal.location.EquinoxLocations;
 import org.eclipse.osgi.launch.Equinox;
 import org.eclipse.osgi.service.datalocation.Location;
 import org.eclipse.osgi.service.environment.EnvironmentInfo;
 import org.eclipse.osgi.service.urlconversion.URLConverter;
+import org.eclipse.osgi.storage.Storage;
+import org.eclipse.osgi.storage.bundlefile.BundleEntry;
+import org.eclipse.osgi.storage.bundlefile.BundleFile;
+import org.eclipse.osgi.storage.bundlefile.MRUBundleFileList;
+import org.eclipse.osgi.storage.bundlefile.ZipBundleFile;
 import org.eclipse.osgi.storage.url.reference.Handler;
 import org.eclipse.osgi.tests.OSGiTestsActivator;
+import org.eclipse.osgi.tests.container.dummys.DummyDebugOptions;
 import org.eclipse.osgi.tests.security.BaseSecurityTest;
 import org.junit.Assert;
 import org.junit.Ignore;
@@ -2885,6 +2894,110 @@ public class SystemBundleTests extends AbstractBundleTests {
 		assertTrue("Test took too long: " + timeTaken, timeTaken < 30);
 	}
 
+	@Test
+	public void testMRUBundleFileListClock() throws Exception {
+		final int limit = 10;
+		final CountDownLatch closeGate = new CountDownLatch(1);
+		final CountDownLatch closed = new CountDownLatch(limit + 1);
+		MRUBundleFileList mru = new MRUBundleFileList(limit, new Debug(new DummyDebugOptions(Collections.emptyMap())));
+		try {
+			List<BlockingBundleFile> bundleFiles = new ArrayList<>();
+			for (int i = 0; i < limit; i++) {
+				BlockingBundleFile bundleFile = new BlockingBundleFile(closeGate, closed);
+				bundleFiles.add(bundleFile);
+				assertFalse("Unexpected back pressure.", mru.add(bundleFile));
+			}
+			// adding a bundle file already in the list does nothing
+			assertFalse("Unexpected back pressure.", mru.add(bundleFiles.get(0)));
+			assertEquals("Wrong open count.", limit, mru.getOpenCount());
+			assertEquals("Wrong eviction count.", 0, mru.getEvictionCount());
+
+			// all bundle files were used when added; the clock clears all reference bits and evicts the first
+			BlockingBundleFile bundleFile = new BlockingBundleFile(closeGate, closed);
+			bundleFiles.add(bundleFile);
+			assertFalse("Unexpected back pressure.", mru.add(bundleFile));
+			assertEquals("Wrong eviction count.", 1, mru.getEvictionCount());
+			assertFalse("Bundle file should be evicted.", mru.remove(bundleFiles.get(0)));
+
+			// a used bundle file gets a second chance; the next one is evicted
+			mru.use(bundleFiles.get(1));
+			bundleFile = new BlockingBundleFile(closeGate, closed);
+			bundleFiles.add(bundleFile);
+			assertFalse("Unexpected back pressure.", mru.add(bundleFile));
+			assertEquals("Wrong eviction count.", 2, mru.getEvictionCount());
+			assertFalse("Bundle file should be evicted.", mru.remove(bundleFiles.get(2)));
+			// the second chance bundle file is still in the list
+			assertFalse("Unexpected back pressure.", mru.add(bundleFiles.get(1)));
+			assertEquals("Wrong open count.", limit + 2, mru.getOpenCount());
+
+			// the closer is blocked; back pressure is needed once more than the limit of evicted bundle files are pending
+			int evictions = 2;
+			do {
+				evictions++;
+				assertTrue("No back pressure needed after evictions: " + evictions, evictions <= limit + 1);
+			} while (!mru.add(new BlockingBundleFile(closeGate, closed)));
+			assertEquals("Wrong eviction count.", limit + 1, mru.getEvictionCount());
+			assertEquals("Wrong back pressure wait count.", 0, mru.getBackPressureWaitCount());
+			mru.applyBackpressure();
+			assertEquals("Wrong back pressure wait count.", 1, mru.getBackPressureWaitCount());
+
+			// once the evicted bundle files are closed opening does not wait
+			closeGate.countDown();
+			assertTrue("Evicted bundle files not closed.", closed.await(10, TimeUnit.SECONDS));
+			mru.applyBackpressure();
+			assertEquals("Wrong back pressure wait count.", 1, mru.getBackPressureWaitCount());
+		} finally {
+			closeGate.countDown();
+			mru.shutdown();
+		}
+	}
+
+	static class BlockingBundleFile extends BundleFile {
+		private final CountDownLatch closeGate;
+		private final CountDownLatch closed;
+
+		BlockingBundleFile(CountDownLatch closeGate, CountDownLatch closed) {
+			super(new File("blocking")); //$NON-NLS-1$
+			this.closeGate = closeGate;
+			this.closed = closed;
+		}
+
+		@Override
+		public File getFile(String path, boolean nativeCode) {
+			return null;
+		}
+
+		@Override
+		public BundleEntry getEntry(String path) {
+			return null;
+		}
+
+		@Override
+		public Enumeration<String> getEntryPaths(String path, boolean recurse) {
+			return null;
+		}
+
+		@Override
+		public void close() throws IOException {
+			try {
+				closeGate.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			closed.countDown();
+		}
+
+		@Override
+		public void open() throws IOException {
+			// nothing
+		}
+
+		@Override
+		public boolean containsDir(String dir) {
+			return false;
+		}
+	}
+
 	@Test
 	public void testZipBundleFileOpenLock() throws Exception {
 		File config = OSGiTestsActivator.getContext().getDataFile(getName()); //$NON-NLS-1$
@@ -2973,6 +3086,198 @@ public class SystemBundleTests extends AbstractBundleTests {
 		}
 	}
 
+	@Test
+	public void testBulkAndSingleResolverHooks() throws Exception {
+		File config = OSGiTestsActivator.getContext().getDataFile(getName()); //$NON-NLS-1$
+		config.mkdirs();
+		Map<String, Object> configuration = new HashMap<>();
+		configuration.put(Constants.FRAMEWORK_STORAGE, config.getAbsolutePath());
+		Equinox equinox = new Equinox(configuration);
+		equinox.start();
+		BundleContext systemContext = equinox.getBundleContext();
+
+		final AtomicInteger bulkCalls = new AtomicInteger();
+		final Map<String, List<String>> bulkCandidates = new ConcurrentHashMap<>();
+		final List<String> singleCandidates = new CopyOnWriteArrayList<>();
+		final AtomicInteger singleCalls = new AtomicInteger();
+		// the bulk hook has the higher ranking; it is called first and removes export1
+		Dictionary<String, Object> props = new Hashtable<>();
+		props.put(Constants.SERVICE_RANKING, Integer.valueOf(10));
+		systemContext.registerService(ResolverHookFactory.class, triggers -> new BulkResolverHook() {
+			@Override
+			public void filterMatches(Map<BundleRequirement, Collection<BundleCapability>> matches) {
+				bulkCalls.incrementAndGet();
+				for (Map.Entry<BundleRequirement, Collection<BundleCapability>> match : matches.entrySet()) {
+					if (PackageNamespace.PACKAGE_NAMESPACE.equals(match.getKey().getNamespace())) {
+						bulkCandidates.put(match.getKey().getRevision().getSymbolicName(), getSymbolicNames(match.getValue()));
+						match.getValue().removeIf(c -> "export1".equals(c.getRevision().getSymbolicName()));
+					}
+				}
+			}
+
+			@Override
+			public void filterMatches(BundleRequirement requirement, Collection<BundleCapability> candidates) {
+				fail("Unexpected call for a single requirement: " + requirement);
+			}
+
+			@Override
+			public void filterResolvable(Collection<BundleRevision> candidates) {
+				// nothing
+			}
+
+			@Override
+			public void filterSingletonCollisions(BundleCapability singleton, Collection<BundleCapability> collisionCandidates) {
+				// nothing
+			}
+
+			@Override
+			public void end() {
+				// nothing
+			}
+		}, props);
+		// the per-requirement hook is given each requirement of the bulk call and removes export2
+		systemContext.registerService(ResolverHookFactory.class, triggers -> new ResolverHook() {
+			@Override
+			public void filterMatches(BundleRequirement requirement, Collection<BundleCapability> candidates) {
+				if (PackageNamespace.PACKAGE_NAMESPACE.equals(requirement.getNamespace()) && "importer".equals(requirement.getRevision().getSymbolicName())) {
+					singleCalls.incrementAndGet();
+					singleCandidates.addAll(getSymbolicNames(candidates));
+					candidates.removeIf(c -> "export2".equals(c.getRevision().getSymbolicName()));
+				}
+			}
+
+			@Override
+			public void filterResolvable(Collection<BundleRevision> candidates) {
+				// nothing
+			}
+
+			@Override
+			public void filterSingletonCollisions(BundleCapability singleton, Collection<BundleCapability> collisionCandidates) {
+				// nothing
+			}
+
+			@Override
+			public void end() {
+				// nothing
+			}
+		}, null);
+
+		try {
+			for (int i = 1; i <= 3; i++) {
+				Map<String, String> headers = new HashMap<>();
+				headers.put(Constants.BUNDLE_MANIFESTVERSION, "2");
+				headers.put(Constants.BUNDLE_SYMBOLICNAME, "export" + i);
+				headers.put(Constants.EXPORT_PACKAGE, "p");
+				systemContext.installBundle(createBundle(config, "export" + i, headers).toURI().toString());
+			}
+			Map<String, String> headers = new HashMap<>();
+			headers.put(Constants.BUNDLE_MANIFESTVERSION, "2");
+			headers.put(Constants.BUNDLE_SYMBOLICNAME, "importer");
+			headers.put(Constants.IMPORT_PACKAGE, "p");
+			Bundle importer = systemContext.installBundle(createBundle(config, "importer", headers).toURI().toString());
+
+			assertTrue("Could not resolve importer.", systemContext.getBundle().adapt(FrameworkWiring.class).resolveBundles(Collections.singleton(importer)));
+			assertEquals("Wrong number of bulk calls.", 1, bulkCalls.get());
+			assertEquals("Wrong candidates for the bulk hook.", Arrays.asList("export1", "export2", "export3"), bulkCandidates.get("importer"));
+			assertEquals("Wrong number of calls for a single requirement.", 1, singleCalls.get());
+			assertEquals("Wrong candidates for the single requirement hook.", Arrays.asList("export2", "export3"), singleCandidates);
+			List<BundleWire> wires = importer.adapt(BundleWiring.class).getRequiredWires(PackageNamespace.PACKAGE_NAMESPACE);
+			assertEquals("Wrong number of wires.", 1, wires.size());
+			assertEquals("Wrong provider.", "export3", wires.get(0).getProvider().getSymbolicName());
+		} finally {
+			stop(equinox);
+		}
+	}
+
+	static List<String> getSymbolicNames(Collection<BundleCapability> capabilities) {
+		List<String> result = new ArrayList<>();
+		for (BundleCapability capability : capabilities) {
+			result.add(capability.getRevision().getSymbolicName());
+		}
+		Collections.sort(result);
+		return result;
+	}
+
+	@Test
+	public void testZipBundleFileIndex() throws Exception {
+		File config = OSGiTestsActivator.getContext().getDataFile(getName()); //$NON-NLS-1$
+		config.mkdirs();
+
+		Map<String, String> bundleHeaders = new HashMap<>();
+		bundleHeaders.put(Constants.BUNDLE_MANIFESTVERSION, "2");
+		bundleHeaders.put(Constants.BUNDLE_SYMBOLICNAME, getName());
+		Map<String, String> bundleEntries = new LinkedHashMap<>();
+		bundleEntries.put("dirA/", null);
+		bundleEntries.put("dirA/fileA", "fileA");
+		bundleEntries.put("dirA/dirB/", null);
+		bundleEntries.put("dirA/dirB/fileB", "fileB");
+		// file in a directory with no directory entry
+		bundleEntries.put("dirA/dirC/fileC", "fileC");
+		// directory sharing a prefix with dirA; sorts before the dirA/ entries
+		bundleEntries.put("dirA-other/fileD", "fileD");
+		bundleEntries.put("dirA/fileE", "fileE");
+		File testBundleFile = SystemBundleTests.createBundle(config, getName(), bundleHeaders, bundleEntries);
+
+		ZipBundleFile bundleFile = new ZipBundleFile(testBundleFile, null, null, new Debug(new DummyDebugOptions(Collections.emptyMap())), false);
+		try {
+			assertZipBundleFileIndex(bundleFile);
+
+			// the index is kept when closed; the content must be the same after reopen
+			bundleFile.close();
+			assertZipBundleFileIndex(bundleFile);
+
+			// change the content of the jar; the index must be discarded on reopen
+			bundleFile.close();
+			long lastModified = testBundleFile.lastModified();
+			bundleEntries.clear();
+			bundleEntries.put("dirX/", null);
+			bundleEntries.put("dirX/fileX", "fileX");
+			bundleEntries.put("dirA/dirB/fileY", "fileY");
+			testBundleFile = SystemBundleTests.createBundle(config, getName(), bundleHeaders, bundleEntries);
+			// make sure the change is detected even on file systems with a coarse time stamp
+			testBundleFile.setLastModified(lastModified + 10000);
+
+			assertNull("Found removed entry.", bundleFile.getEntry("dirA/fileA"));
+			assertNotNull("Entry not found.", bundleFile.getEntry("dirX/fileX"));
+			assertNotNull("Entry not found.", bundleFile.getEntry("dirA/dirB/fileY"));
+			assertTrue("Directory not found.", bundleFile.containsDir("dirX"));
+			assertTrue("Directory not found.", bundleFile.containsDir("dirA/dirB"));
+			assertFalse("Found removed directory.", bundleFile.containsDir("dirA/dirC"));
+			assertFalse("Found removed directory.", bundleFile.containsDir("dirA-other"));
+			assertEquals("Wrong entry paths.", Arrays.asList("dirA/dirB/"), Collections.list(bundleFile.getEntryPaths("dirA", false)));
+			assertEquals("Wrong entry paths.", Arrays.asList("dirA/dirB/", "dirA/dirB/fileY"), Collections.list(bundleFile.getEntryPaths("dirA", true)));
+			assertEquals("Wrong entry paths.", Arrays.asList("dirX/fileX"), Collections.list(bundleFile.getEntryPaths("dirX/", false)));
+		} finally {
+			bundleFile.close();
+		}
+	}
+
+	private void assertZipBundleFileIndex(ZipBundleFile bundleFile) {
+		assertNotNull("Entry not found.", bundleFile.getEntry("dirA/fileA"));
+		assertNotNull("Entry not found.", bundleFile.getEntry("dirA/dirB/"));
+		assertNotNull("Entry not found.", bundleFile.getEntry("dirA/dirB/fileB"));
+		assertNotNull("Entry not found.", bundleFile.getEntry("dirA/dirC/fileC"));
+		assertNull("Found missing entry.", bundleFile.getEntry("dirA/fileB"));
+		assertNull("Found missing entry.", bundleFile.getEntry("dirA/dirX/fileA"));
+
+		assertTrue("Directory not found.", bundleFile.containsDir("dirA"));
+		assertTrue("Directory not found.", bundleFile.containsDir("dirA/"));
+		assertTrue("Directory not found.", bundleFile.containsDir("dirA/dirB"));
+		assertTrue("Directory not found.", bundleFile.containsDir("dirA/dirC"));
+		assertTrue("Directory not found.", bundleFile.containsDir("dirA-other"));
+		assertFalse("Found missing directory.", bundleFile.containsDir("dir"));
+		assertFalse("Found missing directory.", bundleFile.containsDir("dirA/dir"));
+		assertFalse("Found missing directory.", bundleFile.containsDir("dirA/fileA"));
+		assertFalse("Found missing directory.", bundleFile.containsDir("dirZ"));
+
+		// paths are returned in the order of the jar, not sorted
+		assertEquals("Wrong entry paths.", Arrays.asList("dirA/fileA", "dirA/dirB/", "dirA/dirC/", "dirA/fileE"), Collections.list(bundleFile.getEntryPaths("dirA", false)));
+		assertEquals("Wrong entry paths.", Arrays.asList("dirA/fileA", "dirA/dirB/", "dirA/dirB/fileB", "dirA/dirC/", "dirA/dirC/fileC", "dirA/fileE"), Collections.list(bundleFile.getEntryPaths("/dirA/", true)));
+		assertEquals("Wrong entry paths.", Arrays.asList("dirA-other/fileD"), Collections.list(bundleFile.getEntryPaths("dirA-other", false)));
+		assertNull("Found missing entry paths.", bundleFile.getEntryPaths("dirA/dir", false));
+		assertNull("Found missing entry paths.", bundleFile.getEntryPaths("dirZ", true));
+	}
+
 	@Test
 	public void testContextFinderGetResource() throws Exception {
 		File config = OSGiTestsActivator.getContext().getDataFile(getName()); //$NON-NLS-1$
@@ -3290,4 +3595,91 @@ public class SystemBundleTests extends AbstractBundleTests {
 		assertEquals("Unexpected bundle count", 0, testContext.getBundles().length);
 	}
 
+	@Test
+	public void testStorageJournal() throws Exception {
+		File config = OSGiTestsActivator.getContext().getDataFile(getName());
+		Map<String, Object> configuration = new HashMap<>();
+		configuration.put(Constants.FRAMEWORK_STORAGE, config.getAbsolutePath());
+		// only the journal is saved until the framework is stopped
+		configuration.put(EquinoxConfiguration.PROP_STATE_SAVE_DELAY_INTERVAL, "600000"); //$NON-NLS-1$
+		configuration.put(EquinoxConfiguration.PROP_STATE_SAVE_JOURNAL_LIMIT, "10"); //$NON-NLS-1$
+
+		Map<String, String> headers = new HashMap<>();
+		headers.put(Constants.BUNDLE_MANIFESTVERSION, "2"); //$NON-NLS-1$
+		headers.put(Constants.BUNDLE_SYMBOLICNAME, getName() + ".exporter"); //$NON-NLS-1$
+		headers.put(Constants.EXPORT_PACKAGE, "journal.test"); //$NON-NLS-1$
+		String exporterLocation = createBundle(config, getName() + ".exporter", headers).toURI().toString(); //$NON-NLS-1$
+		headers.put(Constants.BUNDLE_SYMBOLICNAME, getName() + ".other"); //$NON-NLS-1$
+		String otherLocation = createBundle(config, getName() + ".other", headers).toURI().toString(); //$NON-NLS-1$
+		headers.remove(Constants.EXPORT_PACKAGE);
+		headers.put(Constants.BUNDLE_SYMBOLICNAME, getName() + ".importer"); //$NON-NLS-1$
+		headers.put(Constants.IMPORT_PACKAGE, "journal.test"); //$NON-NLS-1$
+		String importerLocation = createBundle(config, getName() + ".importer", headers).toURI().toString(); //$NON-NLS-1$
+
+		Equinox equinox = new Equinox(configuration);
+		equinox.start();
+		equinox.getBundleContext().installBundle(exporterLocation);
+		equinox.getBundleContext().installBundle(otherLocation);
+		// saves framework.info
+		stop(equinox);
+
+		equinox = new Equinox(configuration);
+		equinox.start();
+		BundleContext systemContext = equinox.getBundleContext();
+		Storage storage = ((BundleContextImpl) systemContext).getContainer().getStorage();
+		Bundle importer = systemContext.installBundle(importerLocation);
+		importer.adapt(BundleStartLevel.class).setStartLevel(3);
+		storage.saveJournal();
+		systemContext.getBundle(otherLocation).uninstall();
+		assertTrue("Could not resolve.", equinox.adapt(FrameworkWiring.class).resolveBundles(null)); //$NON-NLS-1$
+		storage.saveJournal();
+		// copy the storage as if the framework crashed before saving framework.info
+		File crashed = new File(config.getParentFile(), getName() + ".crashed"); //$NON-NLS-1$
+		copyStorage(config, crashed);
+		File torn = new File(config.getParentFile(), getName() + ".torn"); //$NON-NLS-1$
+		copyStorage(config, torn);
+		stop(equinox);
+
+		configuration.put(Constants.FRAMEWORK_STORAGE, crashed.getAbsolutePath());
+		equinox = new Equinox(configuration);
+		equinox.init();
+		try {
+			systemContext = equinox.getBundleContext();
+			importer = systemContext.getBundle(importerLocation);
+			assertNotNull("Missing journaled install.", importer); //$NON-NLS-1$
+			assertEquals("Wrong start level.", 3, importer.adapt(BundleStartLevel.class).getStartLevel()); //$NON-NLS-1$
+			assertEquals("Wrong state.", Bundle.RESOLVED, importer.getState()); //$NON-NLS-1$
+			assertNull("Found journaled uninstall.", systemContext.getBundle(otherLocation)); //$NON-NLS-1$
+		} finally {
+			stop(equinox);
+		}
+
+		// tear the last entry of the journal; only the first entry is loaded
+		File[] journals = new File(torn, "org.eclipse.osgi").listFiles((dir, name) -> name.startsWith(Storage.FRAMEWORK_JOURNAL + '.')); //$NON-NLS-1$
+		assertEquals("Wrong number of journals.", 1, journals.length); //$NON-NLS-1$
+		byte[] journal = Files.readAllBytes(journals[0].toPath());
+		Files.write(journals[0].toPath(), Arrays.copyOf(journal, journal.length - 5));
+		configuration.put(Constants.FRAMEWORK_STORAGE, torn.getAbsolutePath());
+		equinox = new Equinox(configuration);
+		equinox.init();
+		try {
+			systemContext = equinox.getBundleContext();
+			importer = systemContext.getBundle(importerLocation);
+			assertNotNull("Missing journaled install.", importer); //$NON-NLS-1$
+			assertEquals("Wrong start level.", 3, importer.adapt(BundleStartLevel.class).getStartLevel()); //$NON-NLS-1$
+			assertEquals("Wrong state.", Bundle.INSTALLED, importer.getState()); //$NON-NLS-1$
+			assertNotNull("Missing exporter.", systemContext.getBundle(exporterLocation)); //$NON-NLS-1$
+		} finally {
+			stop(equinox);
+		}
+	}
+
+	private static void copyStorage(File source, File target) throws IOException {
+		try (Stream<Path> paths = Files.walk(source.toPath())) {
+			for (Path path : (Iterable<Path>) paths::iterator) {
+				Files.copy(path, target.toPath().resolve(source.toPath().relativize(path)));
+			}
+		}
+	}
+
 }
@@ -21,6 +21,7 @@ import static org.junit.Assert.assertTrue;
 import java.util.*;
 import org.eclipse.osgi.container.Module;
 import org.eclipse.osgi.container.ModuleContainer;
+import org.eclipse.osgi.report.resolution.ResolutionProfile;
 import org.eclipse.osgi.report.resolution.ResolutionReport;
 import org.eclipse.osgi.tests.container.dummys.*;
 import org.junit.Test;
@@ -201,6 +202,55 @@ public class ResolutionReportTest extends AbstractTest {
 		assertResolutionReportEntryDataMissingCapability(entry.getData(), "does.not.exist", null);
 	}
 
+	@Test
+	public void testResolutionProfile() throws Exception {
+		DummyResolverHook hook = new DummyResolverHook();
+		DummyContainerAdaptor adaptor = createDummyAdaptor(hook);
+		ModuleContainer container = adaptor.getContainer();
+
+		Map<String, String> manifest = new HashMap<>();
+		manifest.put(Constants.BUNDLE_MANIFESTVERSION, "2");
+		manifest.put(Constants.BUNDLE_SYMBOLICNAME, "profile.a1");
+		manifest.put(Constants.EXPORT_PACKAGE, "a; version=1");
+		Module a1 = installDummyModule(manifest, "profile.a1", container);
+
+		manifest = new HashMap<>();
+		manifest.put(Constants.BUNDLE_MANIFESTVERSION, "2");
+		manifest.put(Constants.BUNDLE_SYMBOLICNAME, "profile.a2");
+		manifest.put(Constants.EXPORT_PACKAGE, "a; version=2");
+		installDummyModule(manifest, "profile.a2", container);
+
+		manifest = new HashMap<>();
+		manifest.put(Constants.BUNDLE_MANIFESTVERSION, "2");
+		manifest.put(Constants.BUNDLE_SYMBOLICNAME, "profile.b");
+		manifest.put(Constants.EXPORT_PACKAGE, "b; uses:=a");
+		manifest.put(Constants.IMPORT_PACKAGE, "a; version=\"[1,2)\"");
+		installDummyModule(manifest, "profile.b", container);
+
+		// prefers a2 at first which conflicts with the a1 used by b
+		manifest = new HashMap<>();
+		manifest.put(Constants.BUNDLE_MANIFESTVERSION, "2");
+		manifest.put(Constants.BUNDLE_SYMBOLICNAME, "profile.c");
+		manifest.put(Constants.IMPORT_PACKAGE, "a, b");
+		Module c = installDummyModule(manifest, "profile.c", container);
+
+		assertResolutionSucceeds(container, Arrays.asList(c));
+		ResolutionReport report = hook.getResolutionReports().get(0);
+		ResolutionProfile profile = report.getResolutionProfile();
+		assertNotNull("No resolution profile", profile);
+		assertTrue("Expected more than one permutation", profile.getPermutationCount() > 1);
+		assertTrue("Expected time spent on permutations", profile.getPermutationsTime() > 0);
+		assertTrue("Expected time spent finding providers", profile.getFindProvidersTime() > 0);
+		assertEquals("Wrong batch sizes", Arrays.asList(4), profile.getBatchSizes());
+		Map<Resource, Integer> hotspots = profile.getHotspots(10);
+		assertTrue("Expected a1 to be blamed", hotspots.containsKey(a1.getCurrentRevision()));
+		assertTrue("Wrong number of hotspots", profile.getHotspots(1).size() == 1);
+		String json = profile.toJSON();
+		assertTrue("Wrong JSON: " + json, json.startsWith("{\"findProvidersTime\":") && json.endsWith("]}"));
+		assertTrue("Wrong JSON: " + json, json.contains("\"batchSizes\":[4]"));
+		assertTrue("Wrong JSON: " + json, json.contains("{\"resource\":\"profile.a1_0.0.0\",\"blameCount\":1}"));
+	}
+
 	private void clearResolutionReports(DummyResolverHook hook) {
 		hook.getResolutionReports().clear();
 	}
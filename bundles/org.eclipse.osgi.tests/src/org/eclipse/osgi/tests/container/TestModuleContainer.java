@@ -26,6 +26,7 @@ import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.PrintStream;
+import java.lang.reflect.Field;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -39,6 +40,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentLinkedQueue;
@@ -57,6 +59,7 @@ import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.jar.Attributes;
 import java.util.jar.Manifest;
+import org.eclipse.osgi.container.BulkResolverHook;
 import org.eclipse.osgi.container.Module;
 import org.eclipse.osgi.container.Module.StartOptions;
 import org.eclipse.osgi.container.Module.State;
@@ -73,6 +76,7 @@ import org.eclipse.osgi.container.builders.OSGiManifestBuilderFactory;
 import org.eclipse.osgi.container.namespaces.EclipsePlatformNamespace;
 import org.eclipse.osgi.container.namespaces.EquinoxModuleDataNamespace;
 import org.eclipse.osgi.framework.util.ThreadInfoReport;
+import org.eclipse.osgi.internal.container.Capabilities;
 import org.eclipse.osgi.internal.debug.Debug;
 import org.eclipse.osgi.internal.framework.EquinoxConfiguration;
 import org.eclipse.osgi.report.resolution.ResolutionReport;
@@ -645,6 +649,85 @@ public class TestModuleContainer extends AbstractTest {
 
 	}
 
+	@Test
+	public void testBulkResolverHook() throws BundleException, IOException {
+		final AtomicInteger bulkCalls = new AtomicInteger();
+		final AtomicInteger singleCalls = new AtomicInteger();
+		final Collection<BundleRequirement> filtered = new ArrayList<>();
+		ResolverHookFactory resolverHookFactory = triggers -> new BulkResolverHook() {
+
+			@Override
+			public void filterMatches(Map<BundleRequirement, Collection<BundleCapability>> matches) {
+				bulkCalls.incrementAndGet();
+				for (Map.Entry<BundleRequirement, Collection<BundleCapability>> match : matches.entrySet()) {
+					filtered.add(match.getKey());
+					for (Iterator<BundleCapability> candidates = match.getValue().iterator(); candidates.hasNext();) {
+						if ("export1".equals(candidates.next().getRevision().getSymbolicName())) {
+							candidates.remove();
+						}
+					}
+				}
+			}
+
+			@Override
+			public void filterSingletonCollisions(BundleCapability singleton, Collection<BundleCapability> collisionCandidates) {
+				// nothing
+			}
+
+			@Override
+			public void filterResolvable(Collection<BundleRevision> candidates) {
+				// nothing
+			}
+
+			@Override
+			public void filterMatches(BundleRequirement requirement, Collection<BundleCapability> candidates) {
+				singleCalls.incrementAndGet();
+			}
+
+			@Override
+			public void end() {
+				// nothing
+			}
+		};
+		DummyContainerAdaptor adaptor = new DummyContainerAdaptor(new DummyCollisionHook(false), Collections.emptyMap(), resolverHookFactory);
+		ModuleContainer container = adaptor.getContainer();
+
+		Map<String, String> manifest = new HashMap<>();
+		manifest.put(Constants.BUNDLE_MANIFESTVERSION, "2");
+		manifest.put(Constants.BUNDLE_SYMBOLICNAME, "export1");
+		manifest.put(Constants.EXPORT_PACKAGE, "p");
+		installDummyModule(manifest, "export1", container);
+
+		manifest = new HashMap<>();
+		manifest.put(Constants.BUNDLE_MANIFESTVERSION, "2");
+		manifest.put(Constants.BUNDLE_SYMBOLICNAME, "export2");
+		manifest.put(Constants.EXPORT_PACKAGE, "p");
+		manifest.put(Constants.IMPORT_PACKAGE, "q");
+		Module export2 = installDummyModule(manifest, "export2", container);
+
+		manifest = new HashMap<>();
+		manifest.put(Constants.BUNDLE_MANIFESTVERSION, "2");
+		manifest.put(Constants.BUNDLE_SYMBOLICNAME, "export3");
+		manifest.put(Constants.EXPORT_PACKAGE, "q");
+		Module export3 = installDummyModule(manifest, "export3", container);
+
+		manifest = new HashMap<>();
+		manifest.put(Constants.BUNDLE_MANIFESTVERSION, "2");
+		manifest.put(Constants.BUNDLE_SYMBOLICNAME, "import1");
+		manifest.put(Constants.IMPORT_PACKAGE, "p");
+		Module import1 = installDummyModule(manifest, "import1", container);
+
+		ResolutionReport report = container.resolve(Arrays.asList(import1), true);
+		Assert.assertNull("Failed to resolve.", report.getResolutionException());
+		Assert.assertEquals("Wrong number of bulk calls.", 1, bulkCalls.get());
+		Assert.assertEquals("Unexpected calls for a single requirement.", 0, singleCalls.get());
+		// the requirements of the unresolved providers are filtered with the batch
+		Assert.assertTrue("Missing requirement.", filtered.containsAll(import1.getCurrentRevision().getRequirements(PackageNamespace.PACKAGE_NAMESPACE)));
+		Assert.assertTrue("Missing requirement.", filtered.containsAll(export2.getCurrentRevision().getRequirements(PackageNamespace.PACKAGE_NAMESPACE)));
+		Assert.assertEquals("Wrong provider.", export2.getCurrentRevision(), import1.getCurrentRevision().getWiring().getRequiredModuleWires(PackageNamespace.PACKAGE_NAMESPACE).get(0).getProvider());
+		Assert.assertEquals("Wrong provider.", export3.getCurrentRevision(), export2.getCurrentRevision().getWiring().getRequiredModuleWires(PackageNamespace.PACKAGE_NAMESPACE).get(0).getProvider());
+	}
+
 	@Test
 	public void testEventsInstall() throws BundleException, IOException {
 		DummyContainerAdaptor adaptor = createDummyAdaptor();
@@ -1163,6 +1246,371 @@ public class TestModuleContainer extends AbstractTest {
 		assertEvents(expected, actual, true);
 	}
 
+	@Test
+	public void testStoreUndecodedWirings() throws Exception {
+		DummyContainerAdaptor adaptor = createDummyAdaptor();
+		ModuleContainer container = adaptor.getContainer();
+		Module systemBundle = installDummyModule("system.bundle.MF", Constants.SYSTEM_BUNDLE_LOCATION, container);
+		container.resolve(Arrays.asList(systemBundle), true);
+		installDummyModule("sub.n.MF", "n", container);
+		installDummyModule("sub.l.MF", "l", container);
+		installDummyModule("sub.m.MF", "m", container);
+		container.resolve(null, false);
+		Map<String, String> expectedWirings = new HashMap<>();
+		for (Module module : container.getModules()) {
+			expectedWirings.put(module.getLocation(), describeWiring(module.getCurrentRevision().getWiring()));
+		}
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		adaptor.getDatabase().store(new DataOutputStream(bytes), true);
+
+		// storing the loaded database must not decode the wirings
+		adaptor = createDummyAdaptor();
+		adaptor.getDatabase().load(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+		ByteArrayOutputStream retainedBytes = new ByteArrayOutputStream();
+		adaptor.getDatabase().store(new DataOutputStream(retainedBytes), true);
+		for (Module module : adaptor.getContainer().getModules()) {
+			Assert.assertFalse("Wiring was decoded: " + module, isDecoded(module.getCurrentRevision().getWiring()));
+		}
+
+		// the retained content must reload the same wirings
+		DummyContainerAdaptor reloadedAdaptor = createDummyAdaptor();
+		reloadedAdaptor.getDatabase().load(new DataInputStream(new ByteArrayInputStream(retainedBytes.toByteArray())));
+		for (Map.Entry<String, String> expected : expectedWirings.entrySet()) {
+			Module module = reloadedAdaptor.getContainer().getModule(expected.getKey());
+			Assert.assertEquals("Wrong wiring: " + module, expected.getValue(), describeWiring(module.getCurrentRevision().getWiring()));
+		}
+
+		// install a module to change the object table and decode the wiring of one module
+		container = adaptor.getContainer();
+		installDummyModule("c4_v1.MF", "c4_v1", container);
+		String decoded = describeWiring(container.getModule("n").getCurrentRevision().getWiring());
+		bytes = new ByteArrayOutputStream();
+		adaptor.getDatabase().store(new DataOutputStream(bytes), true);
+		Assert.assertEquals("Wrong wiring of n.", expectedWirings.get("n"), decoded);
+		Assert.assertFalse("Wiring was decoded.", isDecoded(container.getModule("l").getCurrentRevision().getWiring()));
+
+		adaptor = createDummyAdaptor();
+		adaptor.getDatabase().load(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+		container = adaptor.getContainer();
+		for (Map.Entry<String, String> expected : expectedWirings.entrySet()) {
+			Module module = container.getModule(expected.getKey());
+			Assert.assertEquals("Wrong wiring: " + module, expected.getValue(), describeWiring(module.getCurrentRevision().getWiring()));
+		}
+		Assert.assertEquals("Wrong state of c4.", State.INSTALLED, container.getModule("c4_v1").getState());
+	}
+
+	private static boolean isDecoded(ModuleWiring wiring) throws ReflectiveOperationException {
+		Field lazyContent = ModuleWiring.class.getDeclaredField("lazyContent");
+		lazyContent.setAccessible(true);
+		return lazyContent.get(wiring) == null;
+	}
+
+	private static String describeWiring(ModuleWiring wiring) {
+		StringBuilder result = new StringBuilder();
+		for (ModuleCapability capability : wiring.getModuleCapabilities(null)) {
+			result.append(describe(capability)).append(' ');
+		}
+		for (ModuleRequirement requirement : wiring.getModuleRequirements(null)) {
+			result.append(describe(requirement)).append(' ');
+		}
+		for (ModuleWire wire : wiring.getRequiredModuleWires(null)) {
+			result.append(describe(wire.getRequirement())).append(" -> ").append(describe(wire.getCapability())).append(' ');
+		}
+		for (ModuleWire wire : wiring.getProvidedModuleWires(null)) {
+			result.append(describe(wire.getCapability())).append(" <- ").append(describe(wire.getRequirement())).append(' ');
+		}
+		return result.append(wiring.getSubstitutedNames()).toString();
+	}
+
+	private static String describe(ModuleRequirement requirement) {
+		return requirement.getRevision().getSymbolicName() + ":" + requirement.getNamespace() + new TreeMap<>(requirement.getAttributes()) + new TreeMap<>(requirement.getDirectives());
+	}
+
+	private static String describe(ModuleCapability capability) {
+		return capability.getRevision().getSymbolicName() + ":" + capability.getNamespace() + new TreeMap<>(capability.getAttributes()) + new TreeMap<>(capability.getDirectives());
+	}
+
+	@Test
+	public void testSettingsDelta() throws BundleException, IOException {
+		DummyContainerAdaptor adaptor = createDummyAdaptor();
+		ModuleContainer container = adaptor.getContainer();
+		DummyModuleDatabase database = adaptor.getDatabase();
+
+		Module systemBundle = installDummyModule("system.bundle.MF", Constants.SYSTEM_BUNDLE_LOCATION, container);
+		container.resolve(Arrays.asList(systemBundle), true);
+		systemBundle.start();
+
+		Module c4 = installDummyModule("c4_v1.MF", "c4_v1", container);
+		container.resolve(Arrays.asList(c4), true);
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		database.store(new DataOutputStream(bytes), true);
+
+		container.getFrameworkStartLevel().setInitialBundleStartLevel(3);
+		c4.setStartLevel(5);
+		c4.start();
+		ByteArrayOutputStream delta = new ByteArrayOutputStream();
+		Assert.assertTrue("Expected to store a delta.", database.storeDelta(new DataOutputStream(delta)));
+		long timestamp = database.getTimestamp();
+
+		systemBundle.stop();
+
+		// reload the stored database and apply the delta
+		adaptor = createDummyAdaptor();
+		container = adaptor.getContainer();
+		database = adaptor.getDatabase();
+		database.load(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+		database.loadDelta(new DataInputStream(new ByteArrayInputStream(delta.toByteArray())));
+
+		Assert.assertEquals("Wrong timestamp.", timestamp, database.getTimestamp());
+		Assert.assertEquals("Wrong initial start level.", 3, container.getFrameworkStartLevel().getInitialBundleStartLevel());
+		c4 = container.getModule(c4.getId());
+		Assert.assertNotNull("c4 is null", c4);
+		Assert.assertEquals("c4 has wrong start-level", 5, c4.getStartLevel());
+		Assert.assertTrue("c4 is not auto started.", c4.isPersistentlyStarted());
+	}
+
+	@Test
+	public void testRevisionsAndWiringsDelta() throws BundleException, IOException {
+		DummyContainerAdaptor adaptor = createDummyAdaptor();
+		ModuleContainer container = adaptor.getContainer();
+		DummyModuleDatabase database = adaptor.getDatabase();
+
+		Module systemBundle = installDummyModule("system.bundle.MF", Constants.SYSTEM_BUNDLE_LOCATION, container);
+		container.resolve(Arrays.asList(systemBundle), true);
+		systemBundle.start();
+
+		Module c1 = installDummyModule("c1_v1.MF", "c1", container);
+		Module c2 = installDummyModule("c2_v1.MF", "c2", container);
+		Module c3 = installDummyModule("c3_v1.MF", "c3", container);
+		Module h1 = installDummyModule("h1_v1.MF", "h1", container);
+		installDummyModule("f1_v1.MF", "f1", container);
+		container.resolve(Arrays.asList(c1, c2), true);
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		database.store(new DataOutputStream(bytes), true);
+
+		// resolve a host with its fragment and install a module
+		container.resolve(Arrays.asList(c3, h1), true);
+		Module lazy1 = installDummyModule("lazy1_v1.MF", "lazy1", container);
+		ByteArrayOutputStream delta1 = new ByteArrayOutputStream();
+		Assert.assertTrue("Expected to store a delta.", database.storeDelta(new DataOutputStream(delta1)));
+
+		// update and refresh a module that others are wired to and uninstall a module
+		container.update(c1, OSGiManifestBuilderFactory.createBuilder(getManifest("c1_v2.MF")), null);
+		// the old revision is removal pending until it is refreshed which needs the database to be stored
+		Assert.assertFalse("Expected to not store a delta.", database.storeDelta(new DataOutputStream(new ByteArrayOutputStream())));
+		container.refresh(Arrays.asList(c1));
+		container.uninstall(lazy1);
+		c2.setStartLevel(4);
+		ByteArrayOutputStream delta2 = new ByteArrayOutputStream();
+		Assert.assertTrue("Expected to store a delta.", database.storeDelta(new DataOutputStream(delta2)));
+
+		List<String> expected = getDatabaseContent(container);
+		long timestamp = database.getTimestamp();
+		long revisionsTimestamp = database.getRevisionsTimestamp();
+		systemBundle.stop();
+
+		// a delta only applies to the database it was stored after
+		adaptor = createDummyAdaptor();
+		database = adaptor.getDatabase();
+		database.load(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+		try {
+			database.loadDelta(new DataInputStream(new ByteArrayInputStream(delta2.toByteArray())));
+			Assert.fail("Expected to fail loading a delta out of order.");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+
+		adaptor = createDummyAdaptor();
+		container = adaptor.getContainer();
+		database = adaptor.getDatabase();
+		database.load(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+		database.loadDelta(new DataInputStream(new ByteArrayInputStream(delta1.toByteArray())));
+		database.loadDelta(new DataInputStream(new ByteArrayInputStream(delta2.toByteArray())));
+
+		Assert.assertEquals("Wrong timestamp.", timestamp, database.getTimestamp());
+		Assert.assertEquals("Wrong revisions timestamp.", revisionsTimestamp, database.getRevisionsTimestamp());
+		Assert.assertEquals("Wrong content.", expected, getDatabaseContent(container));
+		Assert.assertNull("lazy1 should not be loaded", container.getModule("lazy1"));
+		Assert.assertEquals("c2 has wrong start-level", 4, container.getModule(c2.getId()).getStartLevel());
+		Assert.assertEquals("h1 has wrong state", State.RESOLVED, container.getModule(h1.getId()).getState());
+
+		// the loaded wirings can be stored and loaded again
+		bytes = new ByteArrayOutputStream();
+		database.store(new DataOutputStream(bytes), true);
+		adaptor = createDummyAdaptor();
+		container = adaptor.getContainer();
+		database = adaptor.getDatabase();
+		database.load(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+		Assert.assertEquals("Wrong content.", expected, getDatabaseContent(container));
+	}
+
+	@Test
+	public void testResolveCachedWirings() throws BundleException, IOException {
+		DummyContainerAdaptor adaptor = createDummyAdaptor();
+		ModuleContainer container = adaptor.getContainer();
+
+		Module systemBundle = installDummyModule("system.bundle.MF", Constants.SYSTEM_BUNDLE_LOCATION, container);
+		container.resolve(Arrays.asList(systemBundle), true);
+		Module c1 = installDummyModule("c1_v1.MF", "c1", container);
+		Module c2 = installDummyModule("c2_v1.MF", "c2", container);
+		Module c3 = installDummyModule("c3_v1.MF", "c3", container);
+		Module h1 = installDummyModule("h1_v1.MF", "h1", container);
+		installDummyModule("f1_v1.MF", "f1", container);
+		container.resolve(null, false);
+		List<String> expected = getDatabaseContent(container);
+		Assert.assertEquals("Wrong number of cached resolves.", 0, container.getCachedResolves());
+
+		// an update with the same content resolves the module and its dependents with their previous wirings
+		container.update(c1, OSGiManifestBuilderFactory.createBuilder(getManifest("c1_v1.MF")), null);
+		container.refresh(Arrays.asList(c1));
+		container.resolve(null, false);
+		Assert.assertEquals("Wrong number of cached resolves.", 3, container.getCachedResolves());
+		Assert.assertEquals("Wrong content.", expected, getDatabaseContent(container));
+
+		// a host gets its fragment attached again
+		container.refresh(Arrays.asList(h1));
+		container.resolve(null, false);
+		Assert.assertEquals("Wrong number of cached resolves.", 5, container.getCachedResolves());
+		Assert.assertEquals("Wrong content.", expected, getDatabaseContent(container));
+
+		// an update with different content is resolved by the resolver together with its dependents
+		container.update(c1, OSGiManifestBuilderFactory.createBuilder(getManifest("c1_v2.MF")), null);
+		container.refresh(Arrays.asList(c1));
+		container.resolve(null, false);
+		Assert.assertEquals("Wrong number of cached resolves.", 5, container.getCachedResolves());
+		Assert.assertEquals("c2 should resolve.", State.RESOLVED, c2.getState());
+		Assert.assertEquals("c3 should resolve.", State.RESOLVED, c3.getState());
+		Assert.assertEquals("Wrong provider.", c1.getCurrentRevision(), c2.getCurrentRevision().getWiring().getRequiredModuleWires(PackageNamespace.PACKAGE_NAMESPACE).get(0).getProvider());
+	}
+
+	@Test
+	public void testResolveCachedWiringsReinstall() throws BundleException, IOException {
+		DummyContainerAdaptor adaptor = createDummyAdaptor();
+		ModuleContainer container = adaptor.getContainer();
+
+		Module systemBundle = installDummyModule("system.bundle.MF", Constants.SYSTEM_BUNDLE_LOCATION, container);
+		container.resolve(Arrays.asList(systemBundle), true);
+		Module c1 = installDummyModule("c1_v1.MF", "c1", container);
+		Module c2 = installDummyModule("c2_v1.MF", "c2", container);
+		container.resolve(null, false);
+		List<ModuleWire> c1Wires = c1.getCurrentRevision().getWiring().getRequiredModuleWires(null);
+		List<ModuleWire> c2Wires = c2.getCurrentRevision().getWiring().getRequiredModuleWires(null);
+
+		// the wiring of a module without dependents is removed on uninstall and used for the same content
+		container.uninstall(c2);
+		Module c2Again = installDummyModule("c2_v1.MF", "c2.again", container);
+		container.resolve(Arrays.asList(c2Again), true);
+		Assert.assertEquals("Wrong number of cached resolves.", 1, container.getCachedResolves());
+		assertSameWires(c2Wires, c2Again.getCurrentRevision().getWiring().getRequiredModuleWires(null));
+		Assert.assertEquals("Wrong provider.", c1.getCurrentRevision(), c2Again.getCurrentRevision().getWiring().getRequiredModuleWires(null).get(0).getProvider());
+
+		// the removal pending wiring of a module with dependents is used for the same content
+		container.uninstall(c1);
+		Module c1Again = installDummyModule("c1_v1.MF", "c1.again", container);
+		container.resolve(Arrays.asList(c1Again), true);
+		Assert.assertEquals("Wrong number of cached resolves.", 2, container.getCachedResolves());
+		assertSameWires(c1Wires, c1Again.getCurrentRevision().getWiring().getRequiredModuleWires(null));
+	}
+
+	@Test
+	public void testResolveCachedWiringsAfterClean() throws BundleException, IOException {
+		DummyContainerAdaptor adaptor = createDummyAdaptor();
+		ModuleContainer container = adaptor.getContainer();
+		DummyModuleDatabase database = adaptor.getDatabase();
+
+		String[] manifests = {"c1_v1.MF", "c2_v1.MF", "c3_v1.MF", "h1_v1.MF", "f1_v1.MF"};
+		Module systemBundle = installDummyModule("system.bundle.MF", Constants.SYSTEM_BUNDLE_LOCATION, container);
+		container.resolve(Arrays.asList(systemBundle), true);
+		for (String manifest : manifests) {
+			installDummyModule(manifest, manifest, container);
+		}
+		container.resolve(null, false);
+		List<String> expected = getDatabaseContent(container);
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		database.storeResolutionCache(new DataOutputStream(bytes));
+
+		// a new database resolves the same modules with the stored wirings
+		adaptor = createDummyAdaptor();
+		container = adaptor.getContainer();
+		database = adaptor.getDatabase();
+		database.loadResolutionCache(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+		systemBundle = installDummyModule("system.bundle.MF", Constants.SYSTEM_BUNDLE_LOCATION, container);
+		container.resolve(Arrays.asList(systemBundle), true);
+		for (String manifest : manifests) {
+			installDummyModule(manifest, manifest, container);
+		}
+		container.resolve(null, false);
+		Assert.assertEquals("Wrong number of cached resolves.", 6, container.getCachedResolves());
+		Assert.assertEquals("Wrong content.", expected, getDatabaseContent(container));
+
+		// a module with different content is resolved by the resolver
+		adaptor = createDummyAdaptor();
+		container = adaptor.getContainer();
+		database = adaptor.getDatabase();
+		database.loadResolutionCache(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+		systemBundle = installDummyModule("system.bundle.MF", Constants.SYSTEM_BUNDLE_LOCATION, container);
+		container.resolve(Arrays.asList(systemBundle), true);
+		installDummyModule("c1_v2.MF", "c1_v2.MF", container);
+		installDummyModule("c2_v1.MF", "c2_v1.MF", container);
+		container.resolve(null, false);
+		Assert.assertEquals("Wrong number of cached resolves.", 1, container.getCachedResolves());
+		for (Module module : container.getModules()) {
+			Assert.assertEquals("Wrong state: " + module, State.RESOLVED, module.getState());
+		}
+	}
+
+	private static void assertSameWires(List<ModuleWire> expected, List<ModuleWire> actual) {
+		Assert.assertEquals("Wrong number of wires.", expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++) {
+			Assert.assertEquals("Wrong capability.", expected.get(i).getCapability(), actual.get(i).getCapability());
+			Assert.assertEquals("Wrong provider.", expected.get(i).getProvider(), actual.get(i).getProvider());
+		}
+	}
+
+	private static List<String> getDatabaseContent(ModuleContainer container) {
+		List<String> content = new ArrayList<>();
+		for (Module module : container.getModules()) {
+			ModuleRevision revision = module.getCurrentRevision();
+			content.add(module.getId() + " " + module.getLocation() + " " + getName(revision));
+			ModuleWiring wiring = revision.getWiring();
+			if (wiring == null) {
+				continue;
+			}
+			List<String> wiringContent = new ArrayList<>();
+			for (ModuleCapability capability : wiring.getModuleCapabilities(null)) {
+				wiringContent.add("capability " + getName(capability));
+			}
+			for (ModuleRequirement requirement : wiring.getModuleRequirements(null)) {
+				wiringContent.add("requirement " + getName(requirement));
+			}
+			for (ModuleWire wire : wiring.getRequiredModuleWires(null)) {
+				wiringContent.add("required " + getName(wire.getRequirement()) + " -> " + getName(wire.getCapability()) + " from " + getName(wire.getProvider()));
+			}
+			for (ModuleWire wire : wiring.getProvidedModuleWires(null)) {
+				wiringContent.add("provided " + getName(wire.getRequirement()) + " -> " + getName(wire.getCapability()) + " to " + getName(wire.getRequirer()));
+			}
+			wiringContent.add("substituted " + wiring.getSubstitutedNames());
+			Collections.sort(wiringContent);
+			content.addAll(wiringContent);
+		}
+		return content;
+	}
+
+	private static String getName(ModuleRevision revision) {
+		return revision.getSymbolicName() + '_' + revision.getVersion();
+	}
+
+	private static String getName(ModuleCapability capability) {
+		return capability.getNamespace() + new TreeMap<>(capability.getAttributes()) + " of " + getName(capability.getRevision());
+	}
+
+	private static String getName(ModuleRequirement requirement) {
+		return requirement.getNamespace() + new TreeMap<>(requirement.getDirectives()) + " of " + getName(requirement.getRevision());
+	}
+
 	@Test
 	public void testTimestampSeeding() throws BundleException, IOException, InterruptedException {
 		Assert.assertNotEquals("The timestamps are the same!", createTestContainerAndGetTimestamp(), createTestContainerAndGetTimestamp());
@@ -1593,6 +2041,73 @@ public class TestModuleContainer extends AbstractTest {
 		Assert.assertEquals("Wrong number of reports.", 0, hook.getResolutionReports().size());
 	}
 
+	@Test
+	public void testDynamicImportMiss02() throws BundleException, IOException {
+		DummyContainerAdaptor adaptor = createDummyAdaptor();
+		ModuleContainer container = adaptor.getContainer();
+
+		Module systemBundle = installDummyModule("system.bundle.MF", Constants.SYSTEM_BUNDLE_LOCATION, container);
+		container.resolve(Arrays.asList(systemBundle), true);
+
+		Map<String, String> manifest = new HashMap<>();
+		manifest.put(Constants.BUNDLE_MANIFESTVERSION, "2");
+		manifest.put(Constants.BUNDLE_SYMBOLICNAME, "export");
+		manifest.put(Constants.EXPORT_PACKAGE, "export.a, export.b; uses:=export.a");
+		Module export = installDummyModule(manifest, "export", container);
+
+		manifest = new HashMap<>();
+		manifest.put(Constants.BUNDLE_MANIFESTVERSION, "2");
+		manifest.put(Constants.BUNDLE_SYMBOLICNAME, "dynamic1");
+		manifest.put(Constants.DYNAMICIMPORT_PACKAGE, "*");
+		Module dynamic1 = installDummyModule(manifest, "dynamic1", container);
+
+		manifest = new HashMap<>();
+		manifest.put(Constants.BUNDLE_MANIFESTVERSION, "2");
+		manifest.put(Constants.BUNDLE_SYMBOLICNAME, "dynamic2");
+		manifest.put(Constants.DYNAMICIMPORT_PACKAGE, "*");
+		Module dynamic2 = installDummyModule(manifest, "dynamic2", container);
+		container.resolve(Arrays.asList(export, dynamic1, dynamic2), true);
+
+		// the only provider of export.a has no uses constraints
+		ModuleWire dynamicWire = container.resolveDynamic("export.a", dynamic1.getCurrentRevision());
+		Assert.assertNotNull("No dynamic wire found.", dynamicWire);
+		Assert.assertEquals("Wrong provider for the wire found.", export.getCurrentRevision(), dynamicWire.getProvider());
+		Assert.assertEquals("Wrong number of dynamic resolves.", 1, container.getDynamicResolves());
+		Assert.assertEquals("Wrong number of trivial dynamic resolves.", 1, container.getTrivialDynamicResolves());
+
+		dynamicWire = container.resolveDynamic("export.b", dynamic1.getCurrentRevision());
+		Assert.assertNotNull("No dynamic wire found.", dynamicWire);
+		Assert.assertEquals("Wrong provider for the wire found.", export.getCurrentRevision(), dynamicWire.getProvider());
+		Assert.assertEquals("Wrong number of dynamic resolves.", 2, container.getDynamicResolves());
+		Assert.assertEquals("Wrong number of trivial dynamic resolves.", 1, container.getTrivialDynamicResolves());
+
+		DummyResolverHookFactory factory = (DummyResolverHookFactory) adaptor.getResolverHookFactory();
+		DummyResolverHook hook = (DummyResolverHook) factory.getHook();
+		hook.getResolutionReports().clear();
+		dynamicWire = container.resolveDynamic("does.not.exist", dynamic1.getCurrentRevision());
+		Assert.assertNull("Unexpected Dynamic wire found.", dynamicWire);
+		Assert.assertEquals("Wrong number of reports.", 1, hook.getResolutionReports().size());
+		Assert.assertEquals("Wrong number of miss cache hits.", 0, container.getDynamicMissCacheHits());
+
+		// the miss is known for other revisions
+		hook.getResolutionReports().clear();
+		dynamicWire = container.resolveDynamic("does.not.exist", dynamic2.getCurrentRevision());
+		Assert.assertNull("Unexpected Dynamic wire found.", dynamicWire);
+		Assert.assertEquals("Wrong number of reports.", 0, hook.getResolutionReports().size());
+		Assert.assertEquals("Wrong number of miss cache hits.", 1, container.getDynamicMissCacheHits());
+
+		// installing a provider discards the miss
+		manifest = new HashMap<>();
+		manifest.put(Constants.BUNDLE_MANIFESTVERSION, "2");
+		manifest.put(Constants.BUNDLE_SYMBOLICNAME, "exist");
+		manifest.put(Constants.EXPORT_PACKAGE, "does.not.exist");
+		Module exist = installDummyModule(manifest, "exist", container);
+		dynamicWire = container.resolveDynamic("does.not.exist", dynamic2.getCurrentRevision());
+		Assert.assertNotNull("No dynamic wire found.", dynamicWire);
+		Assert.assertEquals("Wrong provider for the wire found.", exist.getCurrentRevision(), dynamicWire.getProvider());
+		Assert.assertEquals("Wrong number of miss cache hits.", 1, container.getDynamicMissCacheHits());
+	}
+
 	@Test
 	public void testRequireBundleUses() throws BundleException, IOException {
 		DummyContainerAdaptor adaptor = createDummyAdaptor();
@@ -1864,6 +2379,80 @@ public class TestModuleContainer extends AbstractTest {
 		System.gc();
 	}
 
+	@Test
+	public void testUsesAdaptiveBatch() throws BundleException {
+		Map<String, String> configuration = new HashMap<>();
+		configuration.put(EquinoxConfiguration.PROP_RESOLVER_BATCH_PERMUTATIONS, "20");
+		DummyContainerAdaptor adaptor = new DummyContainerAdaptor(new DummyCollisionHook(false), configuration);
+		ModuleContainer container = adaptor.getContainer();
+		for (int i = 1; i <= 100; i++) {
+			for (Map<String, String> manifest : getUsesTimeoutManifests("test" + i)) {
+				installDummyModule(manifest, manifest.get(Constants.BUNDLE_SYMBOLICNAME), container);
+			}
+		}
+		ResolutionReport report = container.resolve(container.getModules(), true);
+		Assert.assertNull("Found resolution errors.", report.getResolutionException());
+		for (Module module : container.getModules()) {
+			Assert.assertEquals("Wrong state of module: " + module, State.RESOLVED, module.getState());
+		}
+		List<Integer> batchSizes = report.getResolutionProfile().getBatchSizes();
+		Assert.assertTrue("Expected the batch to be split: " + batchSizes, batchSizes.size() > 1);
+		Assert.assertEquals("Wrong first batch size.", 500, batchSizes.get(0).intValue());
+	}
+
+	@Test
+	public void testBulkResolverHookAdaptiveBatch() throws BundleException {
+		final List<BundleRequirement> filtered = new ArrayList<>();
+		ResolverHookFactory resolverHookFactory = triggers -> new BulkResolverHook() {
+
+			@Override
+			public void filterMatches(Map<BundleRequirement, Collection<BundleCapability>> matches) {
+				filtered.addAll(matches.keySet());
+			}
+
+			@Override
+			public void filterSingletonCollisions(BundleCapability singleton, Collection<BundleCapability> collisionCandidates) {
+				// nothing
+			}
+
+			@Override
+			public void filterResolvable(Collection<BundleRevision> candidates) {
+				// nothing
+			}
+
+			@Override
+			public void filterMatches(BundleRequirement requirement, Collection<BundleCapability> candidates) {
+				// nothing
+			}
+
+			@Override
+			public void end() {
+				// nothing
+			}
+		};
+		Map<String, String> configuration = new HashMap<>();
+		configuration.put(EquinoxConfiguration.PROP_RESOLVER_BATCH_PERMUTATIONS, "20");
+		DummyContainerAdaptor adaptor = new DummyContainerAdaptor(new DummyCollisionHook(false), configuration, resolverHookFactory);
+		ModuleContainer container = adaptor.getContainer();
+		for (int i = 1; i <= 100; i++) {
+			for (Map<String, String> manifest : getUsesTimeoutManifests("test" + i)) {
+				installDummyModule(manifest, manifest.get(Constants.BUNDLE_SYMBOLICNAME), container);
+			}
+		}
+		ResolutionReport report = container.resolve(container.getModules(), true);
+		Assert.assertNull("Found resolution errors.", report.getResolutionException());
+		List<Integer> batchSizes = report.getResolutionProfile().getBatchSizes();
+		Assert.assertTrue("Expected the batch to be split: " + batchSizes, batchSizes.size() > 1);
+		// the smaller batches reuse the candidates filtered for the first batch
+		Assert.assertEquals("Requirements filtered more than once.", new HashSet<>(filtered).size(), filtered.size());
+		for (Module module : container.getModules()) {
+			Assert.assertEquals("Wrong state of module: " + module, State.RESOLVED, module.getState());
+			if (module.getId() != 0) {
+				Assert.assertTrue("Missing requirements of module: " + module, filtered.containsAll(module.getCurrentRevision().getRequirements(PackageNamespace.PACKAGE_NAMESPACE)));
+			}
+		}
+	}
+
 	private List<Map<String, String>> getUsesTimeoutManifests(String prefix) {
 		List<Map<String, String>> result = new ArrayList<>();
 		// x1 bundle
@@ -1901,6 +2490,90 @@ public class TestModuleContainer extends AbstractTest {
 		return result;
 	}
 
+	@Test
+	public void testUsesPermutationWires() throws BundleException {
+		DummyContainerAdaptor adaptor = createDummyAdaptor();
+		ModuleContainer container = adaptor.getContainer();
+		for (int i = 1; i <= 10; i++) {
+			String prefix = "test" + i;
+			for (Map<String, String> manifest : getUsesTimeoutManifests(prefix)) {
+				installDummyModule(manifest, manifest.get(Constants.BUNDLE_SYMBOLICNAME), container);
+			}
+			// z2 is limited to a from x1 and exports c which uses the b of x1
+			Map<String, String> z2Manifest = new HashMap<>();
+			z2Manifest.put(Constants.BUNDLE_MANIFESTVERSION, "2");
+			z2Manifest.put(Constants.BUNDLE_SYMBOLICNAME, prefix + ".z2");
+			z2Manifest.put(Constants.EXPORT_PACKAGE, prefix + ".c; uses:=\"" + prefix + ".a," + prefix + ".b\"");
+			z2Manifest.put(Constants.IMPORT_PACKAGE, prefix + ".a; version=\"[1.0,1.1)\", " + prefix + ".b");
+			installDummyModule(z2Manifest, prefix + ".z2", container);
+			// z3 must get the b used by c
+			Map<String, String> z3Manifest = new HashMap<>();
+			z3Manifest.put(Constants.BUNDLE_MANIFESTVERSION, "2");
+			z3Manifest.put(Constants.BUNDLE_SYMBOLICNAME, prefix + ".z3");
+			z3Manifest.put(Constants.IMPORT_PACKAGE, prefix + ".c, " + prefix + ".b");
+			installDummyModule(z3Manifest, prefix + ".z3", container);
+		}
+		ResolutionReport report = container.resolve(container.getModules(), true);
+		Assert.assertNull("Found resolution errors.", report.getResolutionException());
+
+		// the highest versions of a and b conflict so each z bundle needs a permutation
+		for (int i = 1; i <= 10; i++) {
+			String prefix = "test" + i;
+			assertPackageProviders(container, prefix + ".x1", prefix + ".y2");
+			assertPackageProviders(container, prefix + ".x2", prefix + ".y1");
+			assertPackageProviders(container, prefix + ".z1", prefix + ".x1", prefix + ".y2");
+			assertPackageProviders(container, prefix + ".z2", prefix + ".x1", prefix + ".y2");
+			assertPackageProviders(container, prefix + ".z3", prefix + ".z2", prefix + ".y2");
+		}
+	}
+
+	@Test
+	public void testSubstitutionPermutationWires() throws BundleException {
+		DummyContainerAdaptor adaptor = createDummyAdaptor();
+		ModuleContainer container = adaptor.getContainer();
+		// b is resolved first so it is the preferred provider of p
+		Map<String, String> bManifest = new HashMap<>();
+		bManifest.put(Constants.BUNDLE_MANIFESTVERSION, "2");
+		bManifest.put(Constants.BUNDLE_SYMBOLICNAME, "b");
+		bManifest.put(Constants.EXPORT_PACKAGE, "p; version=1.5");
+		Module b = installDummyModule(bManifest, "b", container);
+		container.resolve(Collections.singleton(b), true);
+
+		Map<String, String> aManifest = new HashMap<>();
+		aManifest.put(Constants.BUNDLE_MANIFESTVERSION, "2");
+		aManifest.put(Constants.BUNDLE_SYMBOLICNAME, "a");
+		aManifest.put(Constants.EXPORT_PACKAGE, "p; version=1.0");
+		aManifest.put(Constants.IMPORT_PACKAGE, "p; version=\"[1.0,2.0)\"");
+		Module a = installDummyModule(aManifest, "a", container);
+		// c can only use the p of a which is not available when a imports p from b
+		Map<String, String> cManifest = new HashMap<>();
+		cManifest.put(Constants.BUNDLE_MANIFESTVERSION, "2");
+		cManifest.put(Constants.BUNDLE_SYMBOLICNAME, "c");
+		cManifest.put(Constants.IMPORT_PACKAGE, "p; version=\"[1.0,1.1)\"");
+		installDummyModule(cManifest, "c", container);
+
+		ResolutionReport report = container.resolve(container.getModules(), true);
+		Assert.assertNull("Found resolution errors.", report.getResolutionException());
+		Assert.assertEquals("Wrong state of a.", State.RESOLVED, a.getState());
+		assertPackageProviders(container, "a");
+		assertPackageProviders(container, "c", "a");
+	}
+
+	private static void assertPackageProviders(ModuleContainer container, String bsn, String... providers) {
+		for (Module module : container.getModules()) {
+			ModuleRevision revision = module.getCurrentRevision();
+			if (bsn.equals(revision.getSymbolicName())) {
+				List<String> actual = new ArrayList<>();
+				for (ModuleWire wire : revision.getWiring().getRequiredModuleWires(PackageNamespace.PACKAGE_NAMESPACE)) {
+					actual.add(wire.getProvider().getSymbolicName());
+				}
+				Assert.assertEquals("Wrong providers of " + bsn, Arrays.asList(providers), actual);
+				return;
+			}
+		}
+		Assert.fail("No module found: " + bsn);
+	}
+
 	@Test
 	public void testOptionalSubstituted() throws BundleException, IOException {
 		DummyContainerAdaptor adaptor = createDummyAdaptor();
@@ -2691,6 +3364,284 @@ public class TestModuleContainer extends AbstractTest {
 		}
 	}
 
+	@Test
+	public void testStartLevelDependencyOrder() throws BundleException, IOException {
+		Map<String, String> configuration = new HashMap<>();
+		configuration.put(EquinoxConfiguration.PROP_EQUINOX_START_LEVEL_DEPENDENCY_ORDER, Boolean.TRUE.toString());
+		DummyContainerAdaptor adaptor = new DummyContainerAdaptor(new DummyCollisionHook(false), configuration);
+		ModuleContainer container = adaptor.getContainer();
+		DummyModuleDatabase database = adaptor.getDatabase();
+
+		// install the system.bundle
+		Module systemBundle = installDummyModule("system.bundle.MF", Constants.SYSTEM_BUNDLE_LOCATION, Constants.SYSTEM_BUNDLE_SYMBOLICNAME, null, null, container);
+		ResolutionReport report = container.resolve(Arrays.asList(systemBundle), true);
+		Assert.assertNull("Failed to resolve system.bundle.", report.getResolutionException());
+		systemBundle.start();
+
+		// install the consumer first so it is sorted before its provider
+		container.getFrameworkStartLevel().setInitialBundleStartLevel(2);
+		Map<String, String> consumerManifest = new HashMap<>();
+		consumerManifest.put(Constants.BUNDLE_MANIFESTVERSION, "2");
+		consumerManifest.put(Constants.BUNDLE_SYMBOLICNAME, "consumer");
+		consumerManifest.put(Constants.IMPORT_PACKAGE, "provider");
+		Module consumer = installDummyModule(consumerManifest, "consumer", container);
+
+		Map<String, String> providerManifest = new HashMap<>();
+		providerManifest.put(Constants.BUNDLE_MANIFESTVERSION, "2");
+		providerManifest.put(Constants.BUNDLE_SYMBOLICNAME, "provider");
+		providerManifest.put(Constants.EXPORT_PACKAGE, "provider");
+		Module provider = installDummyModule(providerManifest, "provider", container);
+
+		report = container.resolve(Arrays.asList(consumer, provider), true);
+		Assert.assertNull("Failed to resolve.", report.getResolutionException());
+		consumer.start();
+		provider.start();
+
+		database.getModuleEvents();
+		database.getContainerEvents();
+		container.getFrameworkStartLevel().setStartLevel(2);
+
+		// the time to reach the start level is published as info without an error
+		List<DummyContainerEvent> actualContainerEvents = database.getContainerEvents(2);
+		List<DummyContainerEvent> expectedContainerEvents = new ArrayList<>(Arrays.asList(new DummyContainerEvent(ContainerEvent.INFO, container.getModule(0), null), new DummyContainerEvent(ContainerEvent.START_LEVEL, container.getModule(0), null)));
+		Assert.assertEquals("Wrong container events.", expectedContainerEvents, actualContainerEvents);
+		Assert.assertNull("Unexpected error.", actualContainerEvents.get(0).error);
+
+		List<DummyModuleEvent> actual = database.getModuleEvents(4);
+		List<DummyModuleEvent> expected = new ArrayList<>(Arrays.asList(new DummyModuleEvent(provider, ModuleEvent.STARTING, State.STARTING), new DummyModuleEvent(provider, ModuleEvent.STARTED, State.ACTIVE), new DummyModuleEvent(consumer, ModuleEvent.STARTING, State.STARTING), new DummyModuleEvent(consumer, ModuleEvent.STARTED, State.ACTIVE)));
+		assertEvents(expected, actual, true);
+	}
+
+	@Test
+	public void testIncrementalResolverUsesConstraints() throws BundleException, IOException {
+		Map<String, String> configuration = new HashMap<>();
+		configuration.put(EquinoxConfiguration.PROP_RESOLVER_INCREMENTAL, Boolean.TRUE.toString());
+		DummyContainerAdaptor adaptor = new DummyContainerAdaptor(new DummyCollisionHook(false), configuration);
+		ModuleContainer container = adaptor.getContainer();
+
+		// install the system.bundle
+		Module systemBundle = installDummyModule("system.bundle.MF", Constants.SYSTEM_BUNDLE_LOCATION, Constants.SYSTEM_BUNDLE_SYMBOLICNAME, null, null, container);
+		ResolutionReport report = container.resolve(Arrays.asList(systemBundle), true);
+		Assert.assertNull("Failed to resolve system.bundle.", report.getResolutionException());
+
+		Map<String, String> b1Manifest = new HashMap<>();
+		b1Manifest.put(Constants.BUNDLE_MANIFESTVERSION, "2");
+		b1Manifest.put(Constants.BUNDLE_SYMBOLICNAME, "b1");
+		b1Manifest.put(Constants.EXPORT_PACKAGE, "b; version=1");
+		Module b1 = installDummyModule(b1Manifest, "b1", container);
+
+		Map<String, String> aManifest = new HashMap<>();
+		aManifest.put(Constants.BUNDLE_MANIFESTVERSION, "2");
+		aManifest.put(Constants.BUNDLE_SYMBOLICNAME, "a");
+		aManifest.put(Constants.EXPORT_PACKAGE, "a; uses:=b");
+		aManifest.put(Constants.IMPORT_PACKAGE, "b");
+		Module a = installDummyModule(aManifest, "a", container);
+
+		report = container.resolve(Arrays.asList(a, b1), true);
+		Assert.assertNull("Failed to resolve.", report.getResolutionException());
+
+		// the package space of a is reused by the following resolve operations
+		Map<String, String> b2Manifest = new HashMap<>();
+		b2Manifest.put(Constants.BUNDLE_MANIFESTVERSION, "2");
+		b2Manifest.put(Constants.BUNDLE_SYMBOLICNAME, "b2");
+		b2Manifest.put(Constants.EXPORT_PACKAGE, "b; version=2");
+		installDummyModule(b2Manifest, "b2", container);
+
+		Map<String, String> c1Manifest = new HashMap<>();
+		c1Manifest.put(Constants.BUNDLE_MANIFESTVERSION, "2");
+		c1Manifest.put(Constants.BUNDLE_SYMBOLICNAME, "c1");
+		c1Manifest.put(Constants.IMPORT_PACKAGE, "a, b; version=\"[2,3)\"");
+		Module c1 = installDummyModule(c1Manifest, "c1", container);
+		report = container.resolve(Arrays.asList(c1), true);
+		Assert.assertNotNull("Expected a uses constraint violation.", report.getResolutionException());
+		Assert.assertEquals("Wrong state for c1.", State.INSTALLED, c1.getState());
+
+		Map<String, String> c2Manifest = new HashMap<>();
+		c2Manifest.put(Constants.BUNDLE_MANIFESTVERSION, "2");
+		c2Manifest.put(Constants.BUNDLE_SYMBOLICNAME, "c2");
+		c2Manifest.put(Constants.IMPORT_PACKAGE, "a, b");
+		Module c2 = installDummyModule(c2Manifest, "c2", container);
+		report = container.resolve(Arrays.asList(c2), true);
+		Assert.assertNull("Failed to resolve c2.", report.getResolutionException());
+		List<ModuleWire> wires = c2.getCurrentRevision().getWiring().getRequiredModuleWires(PackageNamespace.PACKAGE_NAMESPACE);
+		Assert.assertEquals("Wrong number of wires.", 2, wires.size());
+		for (ModuleWire wire : wires) {
+			if ("b".equals(wire.getCapability().getAttributes().get(PackageNamespace.PACKAGE_NAMESPACE))) {
+				Assert.assertEquals("Wrong provider of b.", b1.getCurrentRevision(), wire.getProvider());
+			}
+		}
+	}
+
+	@Test
+	public void testUsesConstraintsAfterLoad() throws BundleException, IOException {
+		DummyContainerAdaptor adaptor = createDummyAdaptor();
+		ModuleContainer container = adaptor.getContainer();
+
+		// install the system.bundle
+		Module systemBundle = installDummyModule("system.bundle.MF", Constants.SYSTEM_BUNDLE_LOCATION, Constants.SYSTEM_BUNDLE_SYMBOLICNAME, null, null, container);
+		ResolutionReport report = container.resolve(Arrays.asList(systemBundle), true);
+		Assert.assertNull("Failed to resolve system.bundle.", report.getResolutionException());
+
+		Map<String, String> b1Manifest = new HashMap<>();
+		b1Manifest.put(Constants.BUNDLE_MANIFESTVERSION, "2");
+		b1Manifest.put(Constants.BUNDLE_SYMBOLICNAME, "b1");
+		b1Manifest.put(Constants.EXPORT_PACKAGE, "b; version=1");
+		installDummyModule(b1Manifest, "b1", container);
+
+		Map<String, String> aManifest = new HashMap<>();
+		aManifest.put(Constants.BUNDLE_MANIFESTVERSION, "2");
+		aManifest.put(Constants.BUNDLE_SYMBOLICNAME, "a");
+		aManifest.put(Constants.EXPORT_PACKAGE, "a; uses:=\"x, b ,y\"");
+		aManifest.put(Constants.IMPORT_PACKAGE, "b");
+		installDummyModule(aManifest, "a", container);
+
+		report = container.resolve(null, true);
+		Assert.assertNull("Failed to resolve.", report.getResolutionException());
+
+		// the parsed uses directives are persisted with the capabilities
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		adaptor.getDatabase().store(new DataOutputStream(bytes), true);
+		bytes.close();
+		adaptor = createDummyAdaptor();
+		container = adaptor.getContainer();
+		adaptor.getDatabase().load(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+		Assert.assertEquals("Wrong uses directive.", "x, b ,y", container.getModule("a").getCurrentRevision().getModuleCapabilities(PackageNamespace.PACKAGE_NAMESPACE).get(0).getDirectives().get(Namespace.CAPABILITY_USES_DIRECTIVE));
+
+		Map<String, String> b2Manifest = new HashMap<>();
+		b2Manifest.put(Constants.BUNDLE_MANIFESTVERSION, "2");
+		b2Manifest.put(Constants.BUNDLE_SYMBOLICNAME, "b2");
+		b2Manifest.put(Constants.EXPORT_PACKAGE, "b; version=2");
+		installDummyModule(b2Manifest, "b2", container);
+
+		Map<String, String> cManifest = new HashMap<>();
+		cManifest.put(Constants.BUNDLE_MANIFESTVERSION, "2");
+		cManifest.put(Constants.BUNDLE_SYMBOLICNAME, "c");
+		cManifest.put(Constants.IMPORT_PACKAGE, "a, b; version=\"[2,3)\"");
+		Module c = installDummyModule(cManifest, "c", container);
+		report = container.resolve(Arrays.asList(c), true);
+		Assert.assertNotNull("Expected a uses constraint violation.", report.getResolutionException());
+		Assert.assertEquals("Wrong state for c.", State.INSTALLED, c.getState());
+	}
+
+	@Test
+	public void testImportVersionRangeManyExporters() throws BundleException, IOException {
+		DummyContainerAdaptor adaptor = createDummyAdaptor();
+		ModuleContainer container = adaptor.getContainer();
+
+		// install the system.bundle
+		Module systemBundle = installDummyModule("system.bundle.MF", Constants.SYSTEM_BUNDLE_LOCATION, Constants.SYSTEM_BUNDLE_SYMBOLICNAME, null, null, container);
+		ResolutionReport report = container.resolve(Arrays.asList(systemBundle), true);
+		Assert.assertNull("Failed to resolve system.bundle.", report.getResolutionException());
+
+		// enough exporters of the same package to index them by version
+		List<Module> exporters = new ArrayList<>();
+		for (int i = 1; i <= 10; i++) {
+			Map<String, String> manifest = new HashMap<>();
+			manifest.put(Constants.BUNDLE_MANIFESTVERSION, "2");
+			manifest.put(Constants.BUNDLE_SYMBOLICNAME, "export" + i);
+			manifest.put(Constants.EXPORT_PACKAGE, "p; version=" + i);
+			exporters.add(installDummyModule(manifest, "export" + i, container));
+		}
+
+		Map<String, String> manifest = new HashMap<>();
+		manifest.put(Constants.BUNDLE_MANIFESTVERSION, "2");
+		manifest.put(Constants.BUNDLE_SYMBOLICNAME, "import1");
+		manifest.put(Constants.IMPORT_PACKAGE, "p; version=\"[3,5)\"");
+		Module import1 = installDummyModule(manifest, "import1", container);
+
+		manifest = new HashMap<>();
+		manifest.put(Constants.BUNDLE_MANIFESTVERSION, "2");
+		manifest.put(Constants.BUNDLE_SYMBOLICNAME, "import2");
+		manifest.put(Constants.IMPORT_PACKAGE, "p; version=\"(3,5]\"");
+		Module import2 = installDummyModule(manifest, "import2", container);
+
+		manifest = new HashMap<>();
+		manifest.put(Constants.BUNDLE_MANIFESTVERSION, "2");
+		manifest.put(Constants.BUNDLE_SYMBOLICNAME, "import3");
+		manifest.put(Constants.IMPORT_PACKAGE, "p; version=11; resolution:=optional");
+		Module import3 = installDummyModule(manifest, "import3", container);
+
+		report = container.resolve(Arrays.asList(import1, import2, import3), true);
+		Assert.assertNull("Failed to resolve.", report.getResolutionException());
+		Assert.assertEquals("Wrong provider.", exporters.get(3).getCurrentRevision(), import1.getCurrentRevision().getWiring().getRequiredModuleWires(PackageNamespace.PACKAGE_NAMESPACE).get(0).getProvider());
+		Assert.assertEquals("Wrong provider.", exporters.get(4).getCurrentRevision(), import2.getCurrentRevision().getWiring().getRequiredModuleWires(PackageNamespace.PACKAGE_NAMESPACE).get(0).getProvider());
+		Assert.assertTrue("Unexpected provider.", import3.getCurrentRevision().getWiring().getRequiredModuleWires(PackageNamespace.PACKAGE_NAMESPACE).isEmpty());
+
+		// a new exporter must be found in the range
+		manifest = new HashMap<>();
+		manifest.put(Constants.BUNDLE_MANIFESTVERSION, "2");
+		manifest.put(Constants.BUNDLE_SYMBOLICNAME, "export4.5");
+		manifest.put(Constants.EXPORT_PACKAGE, "p; version=4.5");
+		Module export45 = installDummyModule(manifest, "export4.5", container);
+
+		manifest = new HashMap<>();
+		manifest.put(Constants.BUNDLE_MANIFESTVERSION, "2");
+		manifest.put(Constants.BUNDLE_SYMBOLICNAME, "import4");
+		manifest.put(Constants.IMPORT_PACKAGE, "p; version=\"[4.1,4.9]\"");
+		Module import4 = installDummyModule(manifest, "import4", container);
+		report = container.resolve(Arrays.asList(import4), true);
+		Assert.assertNull("Failed to resolve.", report.getResolutionException());
+		Assert.assertEquals("Wrong provider.", export45.getCurrentRevision(), import4.getCurrentRevision().getWiring().getRequiredModuleWires(PackageNamespace.PACKAGE_NAMESPACE).get(0).getProvider());
+	}
+
+	@Test
+	public void testCapabilitiesFilterCache() throws BundleException, IOException {
+		DummyContainerAdaptor adaptor = createDummyAdaptor();
+		ModuleContainer container = adaptor.getContainer();
+
+		Map<String, String> manifest = new HashMap<>();
+		manifest.put(Constants.BUNDLE_MANIFESTVERSION, "2");
+		manifest.put(Constants.BUNDLE_SYMBOLICNAME, "export1");
+		manifest.put(Constants.EXPORT_PACKAGE, "p; version=1");
+		ModuleRevision export1 = installDummyModule(manifest, "export1", container).getCurrentRevision();
+
+		manifest = new HashMap<>();
+		manifest.put(Constants.BUNDLE_MANIFESTVERSION, "2");
+		manifest.put(Constants.BUNDLE_SYMBOLICNAME, "export2");
+		manifest.put(Constants.EXPORT_PACKAGE, "p; version=2");
+		ModuleRevision export2 = installDummyModule(manifest, "export2", container).getCurrentRevision();
+
+		manifest = new HashMap<>();
+		manifest.put(Constants.BUNDLE_MANIFESTVERSION, "2");
+		manifest.put(Constants.BUNDLE_SYMBOLICNAME, "import1");
+		manifest.put(Constants.IMPORT_PACKAGE, "p; version=\"[1,2)\"");
+		ModuleRevision import1 = installDummyModule(manifest, "import1", container).getCurrentRevision();
+		ModuleRequirement requirement = import1.getModuleRequirements(PackageNamespace.PACKAGE_NAMESPACE).get(0);
+
+		Capabilities capabilities = new Capabilities();
+		capabilities.addCapabilities(export1);
+		capabilities.addCapabilities(export2);
+		capabilities.addCapabilities(import1);
+
+		// the filter is parsed once and then found in the cache
+		List<ModuleCapability> found = capabilities.findCapabilities(requirement);
+		Assert.assertEquals("Wrong capabilities.", export1.getModuleCapabilities(PackageNamespace.PACKAGE_NAMESPACE), found);
+		Assert.assertEquals("Wrong misses.", 1, capabilities.getFilterCacheMisses());
+		Assert.assertEquals("Wrong hits.", 0, capabilities.getFilterCacheHits());
+		for (int i = 1; i <= 3; i++) {
+			found = capabilities.findCapabilities(requirement);
+			Assert.assertEquals("Wrong capabilities.", export1.getModuleCapabilities(PackageNamespace.PACKAGE_NAMESPACE), found);
+			Assert.assertEquals("Wrong misses.", 1, capabilities.getFilterCacheMisses());
+			Assert.assertEquals("Wrong hits.", i, capabilities.getFilterCacheHits());
+		}
+
+		// a cached filter must find the current capabilities
+		capabilities.removeCapabilities(export1);
+		found = capabilities.findCapabilities(requirement);
+		Assert.assertTrue("Unexpected capabilities: " + found, found.isEmpty());
+		Assert.assertEquals("Wrong misses.", 1, capabilities.getFilterCacheMisses());
+		Assert.assertEquals("Wrong hits.", 4, capabilities.getFilterCacheHits());
+		capabilities.addCapabilities(export1);
+		Assert.assertEquals("Wrong capabilities.", export1.getModuleCapabilities(PackageNamespace.PACKAGE_NAMESPACE), capabilities.findCapabilities(requirement));
+		Assert.assertEquals("Wrong hits.", 5, capabilities.getFilterCacheHits());
+
+		// removing the revision of the requirement discards its cached filter
+		capabilities.removeCapabilities(import1);
+		Assert.assertEquals("Wrong capabilities.", export1.getModuleCapabilities(PackageNamespace.PACKAGE_NAMESPACE), capabilities.findCapabilities(requirement));
+		Assert.assertEquals("Wrong misses.", 2, capabilities.getFilterCacheMisses());
+		Assert.assertEquals("Wrong hits.", 5, capabilities.getFilterCacheHits());
+	}
+
 	@Test
 	public void testSystemBundleOnDemandFragments() throws BundleException, IOException {
 		DummyContainerAdaptor adaptor = createDummyAdaptor();
@@ -20,30 +20,41 @@ import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Dictionary;
+import java.util.HashMap;
 import java.util.Hashtable;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
+import org.eclipse.osgi.framework.listener.AsynchronousServiceListener;
+import org.eclipse.osgi.internal.framework.BundleContextImpl;
+import org.eclipse.osgi.internal.framework.EquinoxConfiguration;
+import org.eclipse.osgi.internal.serviceregistry.ServiceRegistry;
+import org.eclipse.osgi.launch.Equinox;
 import org.eclipse.osgi.tests.OSGiTestsActivator;
 import org.eclipse.osgi.tests.bundles.AbstractBundleTests;
+import org.eclipse.osgi.tests.bundles.SystemBundleTests;
 import org.eclipse.osgi.tests.util.MapDictionary;
 import org.junit.Test;
 import org.osgi.framework.Bundle;
 import org.osgi.framework.BundleContext;
+import org.osgi.framework.BundleException;
 import org.osgi.framework.Constants;
 import org.osgi.framework.FrameworkEvent;
 import org.osgi.framework.FrameworkListener;
 import org.osgi.framework.FrameworkUtil;
 import org.osgi.framework.InvalidSyntaxException;
 import org.osgi.framework.ServiceEvent;
+import org.osgi.framework.ServiceException;
 import org.osgi.framework.ServiceFactory;
 import org.osgi.framework.ServiceListener;
 import org.osgi.framework.ServiceReference;
@@ -541,6 +552,39 @@ public class ServiceRegistryTests extends AbstractBundleTests {
 		}
 	}
 
+	@Test
+	public void testCaseInsensitiveProperties() throws InvalidSyntaxException {
+		ServiceRegistration reg = null;
+		try {
+			Dictionary<String, Object> props = new Hashtable<>();
+			// "Aa" and "BB" have the same hash code
+			props.put("Aa", "v1"); //$NON-NLS-1$ //$NON-NLS-2$
+			props.put("BB", "v2"); //$NON-NLS-1$ //$NON-NLS-2$
+			for (int i = 0; i < 20; i++) {
+				props.put("Test.Key." + i, Integer.valueOf(i)); //$NON-NLS-1$
+			}
+			reg = OSGiTestsActivator.getContext().registerService(Object.class, new Object(), props);
+			ServiceReference ref = reg.getReference();
+			assertEquals("Wrong value", "v1", ref.getProperty("aA")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+			assertEquals("Wrong value", "v2", ref.getProperty("bb")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+			for (int i = 0; i < 20; i++) {
+				assertEquals("Wrong value", Integer.valueOf(i), ref.getProperty("TEST.KEY." + i)); //$NON-NLS-1$ //$NON-NLS-2$
+			}
+			assertNull("Unexpected value", ref.getProperty("Test.Key.20")); //$NON-NLS-1$ //$NON-NLS-2$
+			assertTrue("Missing key", Arrays.asList(ref.getPropertyKeys()).contains("Test.Key.1")); //$NON-NLS-1$ //$NON-NLS-2$
+			assertTrue(OSGiTestsActivator.getContext().createFilter("(&(aa=v1)(bB=v2)(test.key.7=7))").match(ref)); //$NON-NLS-1$
+
+			props = new Hashtable<>();
+			props.put("BB", "v3"); //$NON-NLS-1$ //$NON-NLS-2$
+			reg.setProperties(props);
+			assertNull("Unexpected value", ref.getProperty("aa")); //$NON-NLS-1$ //$NON-NLS-2$
+			assertEquals("Wrong value", "v3", ref.getProperty("bb")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		} finally {
+			if (reg != null)
+				reg.unregister();
+		}
+	}
+
 	@Test
 	public void testWrongServiceFactoryObject() throws InterruptedException {
 		AtomicReference<String> errorMsg = new AtomicReference<>();
@@ -655,6 +699,312 @@ public class ServiceRegistryTests extends AbstractBundleTests {
 		}
 	}
 
+	@Test
+	public void testServiceListenerObjectClassIndex() throws InvalidSyntaxException {
+		BundleContext bc = OSGiTestsActivator.getContext();
+		final List<String> events = new ArrayList<>();
+		ServiceListener runnableListener = event -> events.add("runnable"); //$NON-NLS-1$
+		ServiceListener callableListener = event -> events.add("callable"); //$NON-NLS-1$
+		ServiceListener unkeyedListener = event -> {
+			if (getName().equals(event.getServiceReference().getProperty("test"))) { //$NON-NLS-1$
+				events.add("unkeyed"); //$NON-NLS-1$
+			}
+		};
+		bc.addServiceListener(runnableListener, "(objectClass=" + Runnable.class.getName() + ")"); //$NON-NLS-1$ //$NON-NLS-2$
+		bc.addServiceListener(callableListener, "(objectClass=" + Callable.class.getName() + ")"); //$NON-NLS-1$ //$NON-NLS-2$
+		bc.addServiceListener(unkeyedListener);
+		ServiceRegistration<?> reg = null;
+		try {
+			Hashtable<String, Object> props = new Hashtable<>();
+			props.put("test", getName()); //$NON-NLS-1$
+			reg = bc.registerService(Runnable.class.getName(), new TestObjectClassOptimizationService(), props);
+			assertEquals("Wrong events", Arrays.asList("runnable", "unkeyed"), events); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+			reg.unregister();
+			events.clear();
+
+			// re-adding a listener with a different filter must move it in the index
+			bc.addServiceListener(runnableListener, "(objectClass=" + Callable.class.getName() + ")"); //$NON-NLS-1$ //$NON-NLS-2$
+			reg = bc.registerService(new String[] {Runnable.class.getName(), Callable.class.getName()}, new TestObjectClassOptimizationService(), props);
+			assertEquals("Wrong events", Arrays.asList("runnable", "callable", "unkeyed"), events); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+			reg.unregister();
+			events.clear();
+
+			bc.removeServiceListener(callableListener);
+			reg = bc.registerService(Callable.class.getName(), new TestObjectClassOptimizationService(), props);
+			assertEquals("Wrong events", Arrays.asList("runnable", "unkeyed"), events); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		} finally {
+			bc.removeServiceListener(runnableListener);
+			bc.removeServiceListener(callableListener);
+			bc.removeServiceListener(unkeyedListener);
+			if (reg != null) {
+				reg.unregister();
+			}
+		}
+	}
+
+	@Test
+	public void testServiceListenerContextOrder() throws Exception {
+		File config = OSGiTestsActivator.getContext().getDataFile(getName());
+		Map<String, Object> configuration = new HashMap<>();
+		configuration.put(Constants.FRAMEWORK_STORAGE, config.getAbsolutePath());
+		Equinox equinox = new Equinox(configuration);
+		equinox.start();
+		try {
+			BundleContext first = startBundle(equinox.getBundleContext(), config, getName() + ".first"); //$NON-NLS-1$
+			BundleContext second = startBundle(equinox.getBundleContext(), config, getName() + ".second"); //$NON-NLS-1$
+
+			final List<String> events = new ArrayList<>();
+			// the context which added its listener first gets the event first,
+			// even when its listener is indexed by objectClass and the other is not
+			first.addServiceListener(event -> {
+				if (getName().equals(event.getServiceReference().getProperty("test"))) { //$NON-NLS-1$
+					events.add("first"); //$NON-NLS-1$
+				}
+			}, "(objectClass=" + Runnable.class.getName() + ")"); //$NON-NLS-1$ //$NON-NLS-2$
+			second.addServiceListener(event -> {
+				if (getName().equals(event.getServiceReference().getProperty("test"))) { //$NON-NLS-1$
+					events.add("second"); //$NON-NLS-1$
+				}
+			});
+			Hashtable<String, Object> props = new Hashtable<>();
+			props.put("test", getName()); //$NON-NLS-1$
+			ServiceRegistration<?> reg = first.registerService(Runnable.class.getName(), new TestObjectClassOptimizationService(), props);
+			reg.unregister();
+			assertEquals("Wrong events", Arrays.asList("first", "second", "first", "second"), events); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+		} finally {
+			stop(equinox);
+		}
+	}
+
+	private BundleContext startBundle(BundleContext context, File config, String symbolicName) throws Exception {
+		Map<String, String> headers = new HashMap<>();
+		headers.put(Constants.BUNDLE_MANIFESTVERSION, "2"); //$NON-NLS-1$
+		headers.put(Constants.BUNDLE_SYMBOLICNAME, symbolicName);
+		Bundle bundle = context.installBundle(SystemBundleTests.createBundle(config, symbolicName, headers).toURI().toString());
+		bundle.start();
+		return bundle.getBundleContext();
+	}
+
+	@Test
+	public void testServicePropertyIndex() throws BundleException, InvalidSyntaxException {
+		File config = OSGiTestsActivator.getContext().getDataFile(getName());
+		Map<String, Object> configuration = new HashMap<>();
+		configuration.put(Constants.FRAMEWORK_STORAGE, config.getAbsolutePath());
+		configuration.put(EquinoxConfiguration.PROP_SERVICE_INDEX_KEYS, "tenant, component.name"); //$NON-NLS-1$
+		Equinox equinox = new Equinox(configuration);
+		equinox.start();
+		try {
+			BundleContext bc = equinox.getBundleContext();
+			Collection<ServiceRegistration<?>> registrations = new ArrayList<>();
+			ServiceRegistration<?> a = registerFilteredService(bc, registrations, new TestObjectClassOptimizationService(), //
+					Collections.singletonMap("tenant", "a"), Runnable.class); //$NON-NLS-1$ //$NON-NLS-2$
+			ServiceRegistration<?> b = registerFilteredService(bc, registrations, new TestObjectClassOptimizationService(), //
+					Collections.singletonMap("tenant", new String[] {"a", "b"}), Runnable.class, Callable.class); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+			ServiceRegistration<?> number = registerFilteredService(bc, registrations, new TestObjectClassOptimizationService(), //
+					Collections.singletonMap("tenant", Integer.valueOf(1)), Callable.class); //$NON-NLS-1$
+			registerFilteredService(bc, registrations, new TestObjectClassOptimizationService(), //
+					Collections.<String, Object>emptyMap(), Runnable.class);
+
+			validateFoundServices(bc, "(tenant=a)", a, b); //$NON-NLS-1$
+			validateFoundServices(bc, "(TENANT=b)", b); //$NON-NLS-1$
+			validateFoundServices(bc, "(tenant=1)", number); //$NON-NLS-1$
+			validateFoundServices(bc, "(&(objectClass=" + Callable.class.getName() + ")(tenant=a))", b); //$NON-NLS-1$ //$NON-NLS-2$
+			validateFoundServices(bc, "(&(tenant=a)(tenant=b))", b); //$NON-NLS-1$
+			validateFoundServices(bc, "(tenant=c)"); //$NON-NLS-1$
+			ServiceReference<?>[] refs = bc.getServiceReferences(Callable.class.getName(), "(tenant=a)"); //$NON-NLS-1$
+			assertEquals("Wrong services found.", Arrays.asList(b.getReference()), Arrays.asList(refs)); //$NON-NLS-1$
+
+			// the index is updated when the properties are modified
+			b.setProperties(new Hashtable<>(Collections.singletonMap("tenant", "c"))); //$NON-NLS-1$ //$NON-NLS-2$
+			validateFoundServices(bc, "(tenant=a)", a); //$NON-NLS-1$
+			validateFoundServices(bc, "(tenant=c)", b); //$NON-NLS-1$
+			// and when the services are unregistered
+			a.unregister();
+			registrations.remove(a);
+			validateFoundServices(bc, "(tenant=a)"); //$NON-NLS-1$
+		} finally {
+			stop(equinox);
+		}
+	}
+
+	@Test
+	public void testFilterMatchMemo() throws BundleException, InvalidSyntaxException {
+		File config = OSGiTestsActivator.getContext().getDataFile(getName());
+		Map<String, Object> configuration = new HashMap<>();
+		configuration.put(Constants.FRAMEWORK_STORAGE, config.getAbsolutePath());
+		Equinox equinox = new Equinox(configuration);
+		equinox.start();
+		try {
+			BundleContext bc = equinox.getBundleContext();
+			ServiceRegistry registry = ((BundleContextImpl) bc).getContainer().getServiceRegistry();
+			List<ServiceEvent> events = new ArrayList<>();
+			for (int i = 0; i < 3; i++) {
+				// the same filter with different white space
+				bc.addServiceListener(events::add, i == 0 ? "(memo.test=a)" : "( memo.test=a)"); //$NON-NLS-1$ //$NON-NLS-2$
+			}
+
+			long listenerMatches = registry.getListenerFilterMatches();
+			long listenerHits = registry.getListenerFilterMemoHits();
+			ServiceRegistration<?> reg = bc.registerService(Runnable.class, () -> {
+				// nothing
+			}, new Hashtable<>(Collections.singletonMap("memo.test", "a"))); //$NON-NLS-1$ //$NON-NLS-2$
+			assertEquals("Wrong number of events.", 3, events.size()); //$NON-NLS-1$
+			assertEquals("Wrong number of listener matches.", 3, registry.getListenerFilterMatches() - listenerMatches); //$NON-NLS-1$
+			assertEquals("Wrong number of listener memo hits.", 2, registry.getListenerFilterMemoHits() - listenerHits); //$NON-NLS-1$
+
+			long lookupMatches = registry.getLookupFilterMatches();
+			long lookupHits = registry.getLookupFilterMemoHits();
+			validateFoundServices(bc, "(&(objectClass=java.lang.Runnable)(memo.test=a))", reg); //$NON-NLS-1$
+			validateFoundServices(bc, "(&(objectClass=java.lang.Runnable)(memo.test=a))", reg); //$NON-NLS-1$
+			assertEquals("Wrong number of lookup matches.", 2, registry.getLookupFilterMatches() - lookupMatches); //$NON-NLS-1$
+			assertEquals("Wrong number of lookup memo hits.", 1, registry.getLookupFilterMemoHits() - lookupHits); //$NON-NLS-1$
+
+			// the memo does not survive a modification of the properties
+			events.clear();
+			listenerHits = registry.getListenerFilterMemoHits();
+			reg.setProperties(new Hashtable<>(Collections.singletonMap("memo.test", "b"))); //$NON-NLS-1$ //$NON-NLS-2$
+			assertEquals("Wrong number of events.", 3, events.size()); //$NON-NLS-1$
+			for (ServiceEvent event : events) {
+				assertEquals("Wrong event type.", ServiceEvent.MODIFIED_ENDMATCH, event.getType()); //$NON-NLS-1$
+			}
+			assertEquals("Wrong number of listener memo hits.", 2, registry.getListenerFilterMemoHits() - listenerHits); //$NON-NLS-1$
+			validateFoundServices(bc, "(&(objectClass=java.lang.Runnable)(memo.test=a))"); //$NON-NLS-1$
+			validateFoundServices(bc, "(&(objectClass=java.lang.Runnable)(memo.test=b))", reg); //$NON-NLS-1$
+		} finally {
+			stop(equinox);
+		}
+	}
+
+	@Test
+	public void testAsynchronousServiceListener() throws Exception {
+		File config = OSGiTestsActivator.getContext().getDataFile(getName());
+		Map<String, Object> configuration = new HashMap<>();
+		configuration.put(Constants.FRAMEWORK_STORAGE, config.getAbsolutePath());
+		configuration.put(EquinoxConfiguration.PROP_SERVICE_EVENT_ASYNC_THREADS, "2"); //$NON-NLS-1$
+		configuration.put(EquinoxConfiguration.PROP_SERVICE_EVENT_ASYNC_QUEUE_SIZE, "2"); //$NON-NLS-1$
+		Equinox equinox = new Equinox(configuration);
+		equinox.start();
+		try {
+			BundleContext bc = equinox.getBundleContext();
+			ServiceRegistry registry = ((BundleContextImpl) bc).getContainer().getServiceRegistry();
+			CountDownLatch blocked = new CountDownLatch(1);
+			CountDownLatch release = new CountDownLatch(1);
+			List<Integer> asyncEvents = Collections.synchronizedList(new ArrayList<>());
+			CountDownLatch asyncDone = new CountDownLatch(2);
+			AsynchronousServiceListener asyncListener = event -> {
+				blocked.countDown();
+				try {
+					release.await(5, TimeUnit.SECONDS);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				asyncEvents.add(event.getType());
+				asyncDone.countDown();
+			};
+			List<Integer> syncEvents = new ArrayList<>();
+			bc.addServiceListener(asyncListener, "(async.test=*)"); //$NON-NLS-1$
+			bc.addServiceListener(event -> syncEvents.add(event.getType()), "(async.test=*)"); //$NON-NLS-1$
+
+			// the registering thread does not wait for the blocked listener
+			ServiceRegistration<?> reg = bc.registerService(Runnable.class, () -> {
+				// nothing
+			}, new Hashtable<>(Collections.singletonMap("async.test", "1"))); //$NON-NLS-1$ //$NON-NLS-2$
+			assertTrue("Listener not called.", blocked.await(5, TimeUnit.SECONDS)); //$NON-NLS-1$
+			reg.setProperties(new Hashtable<>(Collections.singletonMap("async.test", "2"))); //$NON-NLS-1$ //$NON-NLS-2$
+			assertEquals("Wrong synchronous events.", Arrays.asList(ServiceEvent.REGISTERED, ServiceEvent.MODIFIED), syncEvents); //$NON-NLS-1$
+
+			// the queue is full; the next events are dropped without waiting and a warning is published
+			List<FrameworkEvent> warnings = new CopyOnWriteArrayList<>();
+			CountDownLatch warned = new CountDownLatch(1);
+			bc.addFrameworkListener(event -> {
+				if (event.getType() == FrameworkEvent.WARNING) {
+					warnings.add(event);
+					warned.countDown();
+				}
+			});
+			reg.setProperties(new Hashtable<>(Collections.singletonMap("async.test", "3"))); //$NON-NLS-1$ //$NON-NLS-2$
+			reg.unregister();
+			assertEquals("Wrong synchronous events.", Arrays.asList(ServiceEvent.REGISTERED, ServiceEvent.MODIFIED, ServiceEvent.MODIFIED, ServiceEvent.UNREGISTERING), syncEvents); //$NON-NLS-1$
+			assertEquals("Wrong number of dropped events.", 2, registry.getAsyncServiceEventsDropped()); //$NON-NLS-1$
+			assertTrue("No warning published.", warned.await(5, TimeUnit.SECONDS)); //$NON-NLS-1$
+			assertEquals("Wrong number of warnings.", 1, warnings.size()); //$NON-NLS-1$
+			assertTrue("Wrong warning: " + warnings.get(0).getThrowable(), warnings.get(0).getThrowable() instanceof ServiceException); //$NON-NLS-1$
+
+			release.countDown();
+			assertTrue("Events not delivered.", asyncDone.await(5, TimeUnit.SECONDS)); //$NON-NLS-1$
+			assertEquals("Wrong asynchronous events.", Arrays.asList(ServiceEvent.REGISTERED, ServiceEvent.MODIFIED), asyncEvents); //$NON-NLS-1$
+			assertEquals("Wrong number of deliveries.", 2, registry.getAsyncServiceEventDeliveries()); //$NON-NLS-1$
+			assertTrue("No latency recorded.", registry.getAsyncServiceEventMaxLatency() > 0); //$NON-NLS-1$
+		} finally {
+			stop(equinox);
+		}
+	}
+
+	@Test
+	public void testAsynchronousServiceListenerFullQueue() throws Exception {
+		File config = OSGiTestsActivator.getContext().getDataFile(getName());
+		Map<String, Object> configuration = new HashMap<>();
+		configuration.put(Constants.FRAMEWORK_STORAGE, config.getAbsolutePath());
+		configuration.put(EquinoxConfiguration.PROP_SERVICE_EVENT_ASYNC_THREADS, "2"); //$NON-NLS-1$
+		configuration.put(EquinoxConfiguration.PROP_SERVICE_EVENT_ASYNC_QUEUE_SIZE, "1"); //$NON-NLS-1$
+		Equinox equinox = new Equinox(configuration);
+		equinox.start();
+		try {
+			BundleContext bc = equinox.getBundleContext();
+			ServiceRegistry registry = ((BundleContextImpl) bc).getContainer().getServiceRegistry();
+			CountDownLatch blocked = new CountDownLatch(1);
+			CountDownLatch release = new CountDownLatch(1);
+			List<Integer> blockedEvents = Collections.synchronizedList(new ArrayList<>());
+			CountDownLatch blockedDone = new CountDownLatch(1);
+			AsynchronousServiceListener blockedListener = event -> {
+				blocked.countDown();
+				try {
+					release.await(30, TimeUnit.SECONDS);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				blockedEvents.add(event.getType());
+				blockedDone.countDown();
+			};
+			List<Thread> otherThreads = Collections.synchronizedList(new ArrayList<>());
+			CountDownLatch otherDone = new CountDownLatch(1);
+			AsynchronousServiceListener otherListener = event -> {
+				otherThreads.add(Thread.currentThread());
+				otherDone.countDown();
+			};
+			bc.addServiceListener(blockedListener, "(async.blocked=*)"); //$NON-NLS-1$
+			bc.addServiceListener(otherListener, "(async.other=*)"); //$NON-NLS-1$
+
+			// the blocked listener fills its queue
+			ServiceRegistration<?> reg = bc.registerService(Runnable.class, () -> {
+				// nothing
+			}, new Hashtable<>(Collections.singletonMap("async.blocked", "1"))); //$NON-NLS-1$ //$NON-NLS-2$
+			assertTrue("Listener not called.", blocked.await(5, TimeUnit.SECONDS)); //$NON-NLS-1$
+			// further events of the blocked listener are dropped without waiting
+			long start = System.nanoTime();
+			reg.setProperties(new Hashtable<>(Collections.singletonMap("async.blocked", "2"))); //$NON-NLS-1$ //$NON-NLS-2$
+
+			// the other listener still gets its events asynchronously while the blocked listener is full
+			ServiceRegistration<?> otherReg = bc.registerService(Runnable.class, () -> {
+				// nothing
+			}, new Hashtable<>(Collections.singletonMap("async.other", "1"))); //$NON-NLS-1$ //$NON-NLS-2$
+			long publishTime = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+			assertTrue("Events not delivered.", otherDone.await(5, TimeUnit.SECONDS)); //$NON-NLS-1$
+			assertEquals("Listener is not blocked.", 1, blockedDone.getCount()); //$NON-NLS-1$
+			assertFalse("Delivered on the publishing thread.", otherThreads.contains(Thread.currentThread())); //$NON-NLS-1$
+			assertTrue("Publishing waited for the blocked listener: " + publishTime + " ms", publishTime < 500); //$NON-NLS-1$ //$NON-NLS-2$
+			assertEquals("Wrong number of dropped events.", 1, registry.getAsyncServiceEventsDropped()); //$NON-NLS-1$
+
+			release.countDown();
+			assertTrue("Events not delivered.", blockedDone.await(5, TimeUnit.SECONDS)); //$NON-NLS-1$
+			assertEquals("Wrong asynchronous events.", Arrays.asList(ServiceEvent.REGISTERED), blockedEvents); //$NON-NLS-1$
+			otherReg.unregister();
+			reg.unregister();
+		} finally {
+			stop(equinox);
+		}
+	}
+
 	private void validateFoundServices(BundleContext bc, String filter, ServiceRegistration<?>... expectedRegs)
 			throws InvalidSyntaxException {
 		ServiceReference<?>[] foundArray = bc.getServiceReferences((String) null, filter);
@@ -0,0 +1,52 @@
+/*******************************************************************************
+ * Copyright (c) 2026 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.osgi.container;
+
+import java.util.Collection;
+import java.util.Map;
+import org.osgi.framework.hooks.resolver.ResolverHook;
+import org.osgi.framework.wiring.BundleCapability;
+import org.osgi.framework.wiring.BundleRequirement;
+
+/**
+ * A resolver hook that filters the matching capabilities of many requirements
+ * with a single call. When the resolver hook returned by a resolver hook
+ * factory implements this interface the resolver collects the requirements of
+ * the revisions being resolved in a batch, together with the requirements of
+ * the unresolved revisions they may depend on, and calls
+ * {@link #filterMatches(Map)} once for the batch instead of calling
+ * {@link ResolverHook#filterMatches(BundleRequirement, Collection)} once for
+ * each requirement. Requirements already filtered by an earlier batch of the
+ * same resolve process are not given to the hook again.
+ * <p>
+ * Requirements the resolver did not anticipate, for example dynamic
+ * requirements, are still filtered with
+ * {@link ResolverHook#filterMatches(BundleRequirement, Collection)}.
+ * @since 3.18
+ */
+public interface BulkResolverHook extends ResolverHook {
+	/**
+	 * Filter matches hook method for a batch of requirements. This method is
+	 * called during the resolve process and has the same semantics as calling
+	 * {@link ResolverHook#filterMatches(BundleRequirement, Collection)} for
+	 * each entry of the specified map.
+	 * <p>
+	 * The map cannot be modified. The collection of candidates of each
+	 * requirement can be filtered by removing capabilities but adding to
+	 * the collections results in an {@link UnsupportedOperationException}.
+	 * @param matches the requirements mapped to the collection of capabilities
+	 *        that match the requirement
+	 */
+	void filterMatches(Map<BundleRequirement, Collection<BundleCapability>> matches);
+}
@@ -275,6 +275,11 @@ public abstract class Module implements BundleReference, BundleStartLevel, Compa
 		this.startlevel = newStartLevel;
 	}
 
+	final void restoreSettings(EnumSet<Settings> persistentSettings) {
+		settings.clear();
+		settings.addAll(persistentSettings);
+	}
+
 	/**
 	 * Returns the time when this module was last modified.  A module is considered
 	 * to be modified when it is installed, updated or uninstalled.
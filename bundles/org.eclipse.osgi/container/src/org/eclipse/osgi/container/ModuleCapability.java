@@ -13,11 +13,16 @@
  *******************************************************************************/
 package org.eclipse.osgi.container;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import org.eclipse.osgi.framework.util.ObjectPool;
 import org.osgi.framework.namespace.NativeNamespace;
 import org.osgi.framework.wiring.BundleCapability;
+import org.osgi.resource.Namespace;
 
 /**
  * An implementation of {@link BundleCapability}.
@@ -28,12 +33,14 @@ public final class ModuleCapability implements BundleCapability {
 	private final Map<String, String> directives;
 	private final Map<String, Object> attributes;
 	private final Map<String, Object> transientAttrs;
+	private final List<String> uses;
 	private final ModuleRevision revision;
 
-	ModuleCapability(String namespace, Map<String, String> directives, Map<String, Object> attributes, ModuleRevision revision) {
+	ModuleCapability(String namespace, Map<String, String> directives, Map<String, Object> attributes, List<String> uses, ModuleRevision revision) {
 		this.namespace = namespace;
 		this.directives = directives;
 		this.attributes = attributes;
+		this.uses = uses != null ? uses : parseUses(directives.get(Namespace.CAPABILITY_USES_DIRECTIVE));
 		this.transientAttrs = NativeNamespace.NATIVE_NAMESPACE.equals(namespace) ? new HashMap<>(0) : null;
 		this.revision = revision;
 	}
@@ -66,6 +73,52 @@ public final class ModuleCapability implements BundleCapability {
 		return attributes;
 	}
 
+	/**
+	 * Returns the package names of the uses directive of this capability.
+	 * The directive is parsed once when the capability is created.
+	 * @return the unmodifiable list of used package names, never {@code null}
+	 */
+	List<String> getUses() {
+		return uses;
+	}
+
+	/**
+	 * Parses the value of a uses directive into an unmodifiable list of package
+	 * names. The list and the package names are interned so that capabilities
+	 * using the same packages share the same list.
+	 * @param value the uses directive value, may be {@code null}
+	 * @return the unmodifiable list of used package names
+	 */
+	static List<String> parseUses(String value) {
+		if (value == null) {
+			return Collections.emptyList();
+		}
+		List<String> result = new ArrayList<>();
+		int length = value.length();
+		int start = 0;
+		while (start < length) {
+			char c = value.charAt(start);
+			if (c == ' ' || c == ',') {
+				start++;
+				continue;
+			}
+			int end = start + 1;
+			while (end < length && (c = value.charAt(end)) != ' ' && c != ',') {
+				end++;
+			}
+			result.add(ObjectPool.intern(value.substring(start, end)));
+			start = end + 1;
+		}
+		return internUses(result);
+	}
+
+	static List<String> internUses(List<String> uses) {
+		if (uses.isEmpty()) {
+			return Collections.emptyList();
+		}
+		return ObjectPool.intern(Collections.unmodifiableList(Arrays.asList(uses.toArray(new String[uses.size()]))));
+	}
+
 	/**
 	 * Only used by the system module for setting transient attributes associated
 	 * with the {@link NativeNamespace osgi.native} namespace.
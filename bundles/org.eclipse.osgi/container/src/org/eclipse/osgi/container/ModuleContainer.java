@@ -134,6 +134,8 @@ public final class ModuleContainer implements DebugOptionsListener {
 
 	final boolean restrictParallelStart;
 
+	final boolean dependencyOrderStart;
+
 	boolean DEBUG_MONITOR_LAZY = false;
 	boolean DEBUG_BUNDLE_START_TIME = false;
 
@@ -173,6 +175,7 @@ public final class ModuleContainer implements DebugOptionsListener {
 		}
 		this.autoStartOnResolve = Boolean.parseBoolean(autoStartOnResolveProp);
 		this.restrictParallelStart = Boolean.parseBoolean(adaptor.getProperty(EquinoxConfiguration.PROP_EQUINOX_START_LEVEL_RESTRICT_PARALLEL));
+		this.dependencyOrderStart = Boolean.parseBoolean(adaptor.getProperty(EquinoxConfiguration.PROP_EQUINOX_START_LEVEL_DEPENDENCY_ORDER));
 	}
 
 	/**
@@ -568,6 +571,11 @@ public final class ModuleContainer implements DebugOptionsListener {
 	 * a dynamic wire could not be established.
 	 */
 	public ModuleWire resolveDynamic(String dynamicPkgName, ModuleRevision revision) {
+		if (isDynamicPackageMiss(dynamicPkgName, revision)) {
+			// avoid waiting for the resolution lock
+			moduleResolver.dynamicMissCacheHits.incrementAndGet();
+			return null;
+		}
 		ModuleWire result;
 		Map<ModuleRevision, ModuleWiring> deltaWiring;
 		Collection<Module> modulesResolved;
@@ -643,6 +651,8 @@ public final class ModuleContainer implements DebugOptionsListener {
 							// save the miss for the package name
 							wiring.addDynamicPackageMiss(dynamicPkgName);
 						}
+						// save the miss for all revisions if nothing provides the package
+						moduleDatabase.addDynamicPackageMiss(dynamicPkgName);
 					}
 					return null; // nothing to do
 				}
@@ -664,6 +674,57 @@ public final class ModuleContainer implements DebugOptionsListener {
 		return result;
 	}
 
+	private boolean isDynamicPackageMiss(String dynamicPkgName, ModuleRevision revision) {
+		ModuleWiring wiring = revision.getWiring();
+		if (wiring == null) {
+			return false;
+		}
+		return wiring.isDynamicPackageMiss(dynamicPkgName) || moduleDatabase.isDynamicPackageMiss(dynamicPkgName);
+	}
+
+	/**
+	 * Returns the number of dynamic import requests answered by the caches of
+	 * package names known to have no provider, without waiting for the
+	 * resolution of other requests.
+	 * @return the number of dynamic import requests answered by the cache
+	 * @since 3.18
+	 */
+	public long getDynamicMissCacheHits() {
+		return moduleResolver.dynamicMissCacheHits.get();
+	}
+
+	/**
+	 * Returns the number of dynamic import requests which attempted to establish
+	 * a new dynamic wire.
+	 * @return the number of dynamic resolve operations
+	 * @since 3.18
+	 */
+	public long getDynamicResolves() {
+		return moduleResolver.dynamicResolves.get();
+	}
+
+	/**
+	 * Returns the number of dynamic import requests which established a new dynamic
+	 * wire to the only provider of a package without running the resolver. These
+	 * requests are included in the {@link #getDynamicResolves() dynamic resolves}.
+	 * @return the number of trivial dynamic resolve operations
+	 * @since 3.18
+	 */
+	public long getTrivialDynamicResolves() {
+		return moduleResolver.trivialDynamicResolves.get();
+	}
+
+	/**
+	 * Returns the number of revisions which were resolved without running the
+	 * resolver because a revision with the same content was resolved before and
+	 * its wiring still applies.
+	 * @return the number of revisions resolved with a cached wiring
+	 * @since 3.18
+	 */
+	public long getCachedResolves() {
+		return moduleResolver.cachedResolves.get();
+	}
+
 	private ModuleWire findExistingDynamicWire(ModuleWiring wiring, String dynamicPkgName) {
 		if (wiring == null) {
 			return null;
@@ -1776,12 +1837,31 @@ public final class ModuleContainer implements DebugOptionsListener {
 		}
 
 		private void incStartLevel(int toStartLevel, List<Module> lazyStart, List<Module> lazyStartParallel, List<Module> eagerStart, List<Module> eagerStartParallel) {
-			// start lazy activated first
-			// start parallel bundles first
-			incStartLevel(toStartLevel, lazyStartParallel, true);
-			incStartLevel(toStartLevel, lazyStart, false);
-			incStartLevel(toStartLevel, eagerStartParallel, true);
-			incStartLevel(toStartLevel, eagerStart, false);
+			if (!dependencyOrderStart) {
+				// start lazy activated first
+				// start parallel bundles first
+				incStartLevel(toStartLevel, lazyStartParallel, true);
+				incStartLevel(toStartLevel, lazyStart, false);
+				incStartLevel(toStartLevel, eagerStartParallel, true);
+				incStartLevel(toStartLevel, eagerStart, false);
+				return;
+			}
+			long begin = System.nanoTime();
+			// parallel bundles are started as soon as the bundles they are
+			// wired to in this start level are started; all lazy activated
+			// bundles are still started before the eager activated bundles
+			int started = incStartLevelByDependency(toStartLevel, lazyStartParallel);
+			started += incStartLevel(toStartLevel, lazyStart, false);
+			started += incStartLevelByDependency(toStartLevel, eagerStartParallel);
+			started += incStartLevel(toStartLevel, eagerStart, false);
+			if (started > 0) {
+				long time = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin);
+				String message = NLS.bind(Msg.ModuleContainer_StartLevelTime, new Object[] {toStartLevel, time, started});
+				if (debugStartLevel) {
+					Debug.println("StartLevel: " + message); //$NON-NLS-1$
+				}
+				adaptor.publishContainerInfo(moduleDatabase.getModule(0), message);
+			}
 		}
 
 		private void separateModulesByActivationPolicy(List<Module> sortedModules, List<Module> lazyStart, List<Module> lazyStartParallel, List<Module> eagerStart, List<Module> eagerStartParallel) {
@@ -1802,14 +1882,14 @@ public final class ModuleContainer implements DebugOptionsListener {
 			}
 		}
 
-		private void incStartLevel(final int toStartLevel, List<Module> candidatesToStart, boolean inParallel) {
+		private List<Module> getModulesToStart(int toStartLevel, List<Module> candidatesToStart) {
 			if (candidatesToStart.isEmpty()) {
-				return;
+				return Collections.emptyList();
 			}
 			final List<Module> toStart = new ArrayList<>();
 			for (final Module module : candidatesToStart) {
 				if (isRefreshingSystemModule()) {
-					return;
+					return Collections.emptyList();
 				}
 				try {
 					int moduleStartLevel = module.getStartLevel();
@@ -1826,8 +1906,26 @@ public final class ModuleContainer implements DebugOptionsListener {
 					continue;
 				}
 			}
+			return toStart;
+		}
+
+		private void startModule(Module module, int toStartLevel) {
+			try {
+				if (debugStartLevel) {
+					Debug.println("StartLevel: resuming bundle; " + ContainerStartLevel.this.toString(module) + "; with startLevel=" + toStartLevel); //$NON-NLS-1$ //$NON-NLS-2$
+				}
+				module.start(StartOptions.TRANSIENT_IF_AUTO_START, StartOptions.TRANSIENT_RESUME);
+			} catch (BundleException e) {
+				adaptor.publishContainerEvent(ContainerEvent.ERROR, module, e);
+			} catch (IllegalStateException e) {
+				// been uninstalled
+			}
+		}
+
+		private int incStartLevel(final int toStartLevel, List<Module> candidatesToStart, boolean inParallel) {
+			final List<Module> toStart = getModulesToStart(toStartLevel, candidatesToStart);
 			if (toStart.isEmpty()) {
-				return;
+				return 0;
 			}
 			final Executor executor = inParallel ? adaptor.getStartLevelExecutor() : new Executor() {
 				@Override
@@ -1841,14 +1939,7 @@ public final class ModuleContainer implements DebugOptionsListener {
 					@Override
 					public void run() {
 						try {
-							if (debugStartLevel) {
-								Debug.println("StartLevel: resuming bundle; " + ContainerStartLevel.this.toString(module) + "; with startLevel=" + toStartLevel); //$NON-NLS-1$ //$NON-NLS-2$
-							}
-							module.start(StartOptions.TRANSIENT_IF_AUTO_START, StartOptions.TRANSIENT_RESUME);
-						} catch (BundleException e) {
-							adaptor.publishContainerEvent(ContainerEvent.ERROR, module, e);
-						} catch (IllegalStateException e) {
-							// been uninstalled
+							startModule(module, toStartLevel);
 						} finally {
 							done.countDown();
 						}
@@ -1861,6 +1952,136 @@ public final class ModuleContainer implements DebugOptionsListener {
 			} catch (InterruptedException e) {
 				adaptor.publishContainerEvent(ContainerEvent.ERROR, moduleDatabase.getModule(0), e);
 			}
+			return toStart.size();
+		}
+
+		/**
+		 * Starts the modules at the given start level with the start level executor
+		 * such that a module is only started once all the modules it is wired to
+		 * at the same start level have been started. Modules that are part of a
+		 * dependency cycle are released one at a time in start order once no other
+		 * module can make progress.
+		 * @param toStartLevel the start level being incremented to
+		 * @param candidatesToStart the modules to start, sorted by start level
+		 * @return the number of modules that were started
+		 */
+		private int incStartLevelByDependency(final int toStartLevel, List<Module> candidatesToStart) {
+			final List<Module> toStart = getModulesToStart(toStartLevel, candidatesToStart);
+			final int size = toStart.size();
+			if (size <= 1) {
+				return incStartLevel(toStartLevel, toStart, true);
+			}
+			Map<Module, Integer> indexes = new HashMap<>(size);
+			for (int i = 0; i < size; i++) {
+				indexes.put(toStart.get(i), i);
+			}
+			// the number of modules each module is waiting on
+			final int[] waitingOn = new int[size];
+			// the modules waiting on each module
+			final List<List<Integer>> dependents = new ArrayList<>(size);
+			moduleDatabase.readLock();
+			try {
+				for (int i = 0; i < size; i++) {
+					dependents.add(new ArrayList<Integer>(0));
+				}
+				for (int i = 0; i < size; i++) {
+					ModuleRevision current = toStart.get(i).getCurrentRevision();
+					ModuleWiring wiring = current == null ? null : current.getWiring();
+					if (wiring == null) {
+						continue;
+					}
+					Set<Integer> providers = new HashSet<>();
+					for (ModuleWire wire : wiring.getRequiredModuleWires(null)) {
+						ModuleRequirement req = wire.getRequirement();
+						// same as ModuleDatabase.sortByDependencies; ignore dynamic package requirements
+						if (PackageNamespace.PACKAGE_NAMESPACE.equals(req.getNamespace()) && PackageNamespace.RESOLUTION_DYNAMIC.equals(req.getDirectives().get(Namespace.REQUIREMENT_RESOLUTION_DIRECTIVE))) {
+							continue;
+						}
+						Integer provider = indexes.get(wire.getProvider().getRevisions().getModule());
+						if (provider != null && provider.intValue() != i && providers.add(provider)) {
+							dependents.get(provider).add(i);
+							waitingOn[i]++;
+						}
+					}
+				}
+			} finally {
+				moduleDatabase.readUnlock();
+			}
+
+			final Executor executor = adaptor.getStartLevelExecutor();
+			final Object monitor = new Object();
+			final List<Integer> ready = new ArrayList<>();
+			final boolean[] submitted = new boolean[size];
+			final int[] running = new int[1];
+			final int[] finished = new int[1];
+			for (int i = 0; i < size; i++) {
+				if (waitingOn[i] == 0) {
+					ready.add(i);
+				}
+			}
+			int nextInCycle = 0;
+			List<Integer> toSubmit = new ArrayList<>();
+			while (true) {
+				synchronized (monitor) {
+					if (finished[0] == size) {
+						break;
+					}
+					if (isRefreshingSystemModule()) {
+						// do not start anything else; wait for the running modules
+						ready.clear();
+						if (running[0] == 0) {
+							break;
+						}
+					} else if (ready.isEmpty() && running[0] == 0) {
+						// the remaining modules are in a cycle; release the next one in start order
+						while (submitted[nextInCycle]) {
+							nextInCycle++;
+						}
+						ready.add(nextInCycle);
+					}
+					if (ready.isEmpty()) {
+						try {
+							monitor.wait();
+						} catch (InterruptedException e) {
+							adaptor.publishContainerEvent(ContainerEvent.ERROR, moduleDatabase.getModule(0), e);
+							return finished[0];
+						}
+						continue;
+					}
+					for (Integer index : ready) {
+						submitted[index] = true;
+					}
+					running[0] += ready.size();
+					toSubmit.addAll(ready);
+					ready.clear();
+				}
+				// submit outside of the monitor; the executor may run the task in this thread
+				for (final Integer index : toSubmit) {
+					executor.execute(new Runnable() {
+						@Override
+						public void run() {
+							try {
+								startModule(toStart.get(index), toStartLevel);
+							} finally {
+								synchronized (monitor) {
+									for (Integer dependent : dependents.get(index)) {
+										if (--waitingOn[dependent] == 0 && !submitted[dependent]) {
+											ready.add(dependent);
+										}
+									}
+									running[0]--;
+									finished[0]++;
+									monitor.notifyAll();
+								}
+							}
+						}
+					});
+				}
+				toSubmit.clear();
+			}
+			synchronized (monitor) {
+				return finished[0];
+			}
 		}
 
 		private void decStartLevel(int toStartLevel, List<Module> sortedModules) {
@@ -169,6 +169,21 @@ public abstract class ModuleContainerAdaptor {
 	 */
 	public abstract void publishContainerEvent(ContainerEvent type, Module module, Throwable error, FrameworkListener... listeners);
 
+	/**
+	 * Publishes an informational message about the specified module.
+	 * No locks are held by the container when this method is called.
+	 * <p>
+	 * The default implementation publishes an {@link ContainerEvent#INFO INFO}
+	 * container event without an error. The message is not published by the
+	 * default implementation.
+	 * @param module the module associated with the message
+	 * @param message the message
+	 * @since 3.18
+	 */
+	public void publishContainerInfo(Module module, String message) {
+		publishContainerEvent(ContainerEvent.INFO, module, null);
+	}
+
 	/**
 	 * Publishes the specified module event type for the specified module.
 	 * No locks are held by the container when this method is called
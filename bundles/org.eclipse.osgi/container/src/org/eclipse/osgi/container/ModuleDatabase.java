@@ -13,6 +13,8 @@
  *******************************************************************************/
 package org.eclipse.osgi.container;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
@@ -29,6 +31,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock.ReadLock;
@@ -128,6 +131,13 @@ public class ModuleDatabase {
 
 	private final Capabilities capabilities;
 
+	/**
+	 * The package names no capability provides which were found missing by
+	 * dynamic imports. Safe to use concurrently.
+	 */
+	private final Set<String> dynamicPackageMisses = ConcurrentHashMap.newKeySet();
+	private static final int MAX_DYNAMIC_PACKAGE_MISSES = 4096;
+
 	/**
 	 * A map of module settings keyed by module id.
 	 */
@@ -138,6 +148,45 @@ public class ModuleDatabase {
 	 */
 	private int initialModuleStartLevel = 1;
 
+	/**
+	 * The wirings of revisions which got unresolved, keyed by the content
+	 * fingerprint of the revisions.
+	 */
+	private final ModuleResolutionCache resolutionCache = new ModuleResolutionCache();
+
+	/**
+	 * Monitors the changes recorded since this database was last stored
+	 * or its delta was last stored.
+	 */
+	private final Object deltaMonitor = new Object();
+
+	/**
+	 * The ids of the modules with settings, start levels or last modified
+	 * times that changed.
+	 */
+	/* @GuardedBy("deltaMonitor") */
+	private final Set<Long> settingsDelta = new HashSet<>();
+
+	/**
+	 * The ids of the modules that were installed, updated or uninstalled.
+	 */
+	/* @GuardedBy("deltaMonitor") */
+	private final Set<Long> revisionsDelta = new HashSet<>();
+
+	/**
+	 * The ids of the modules that were resolved, unresolved or got new wires.
+	 */
+	/* @GuardedBy("deltaMonitor") */
+	private final Set<Long> wiringsDelta = new HashSet<>();
+
+	/**
+	 * The revisions timestamp when this database was last stored, loaded
+	 * or its delta was last stored.  A delta applies to a database with
+	 * this revisions timestamp.
+	 */
+	/* @GuardedBy("deltaMonitor") */
+	private long storedRevisionsTimestamp = -1;
+
 	/**
 	 * Monitors read and write access to this database
 	 */
@@ -238,6 +287,7 @@ public class ModuleDatabase {
 			long currentTime = System.currentTimeMillis();
 			module.setlastModified(currentTime);
 			setSystemLastModified(currentTime);
+			addRevisionsDelta(module);
 			incrementTimestamps(true);
 			return module;
 		} finally {
@@ -324,6 +374,7 @@ public class ModuleDatabase {
 			long currentTime = System.currentTimeMillis();
 			module.setlastModified(currentTime);
 			setSystemLastModified(currentTime);
+			addRevisionsDelta(module);
 			incrementTimestamps(true);
 		} finally {
 			writeUnlock();
@@ -357,6 +408,7 @@ public class ModuleDatabase {
 			long currentTime = System.currentTimeMillis();
 			module.setlastModified(currentTime);
 			setSystemLastModified(currentTime);
+			addRevisionsDelta(module);
 			incrementTimestamps(true);
 		} finally {
 			writeUnlock();
@@ -408,6 +460,8 @@ public class ModuleDatabase {
 					removeCapabilities(pendingRemoval);
 					wirings.remove(pendingRemoval);
 				}
+				resolutionCache.capture(toRemoveWirings, wirings, modulesById.size());
+				addWiringsDelta(dependencyClosure);
 				// remove any wires from unresolved wirings that got removed
 				for (Map.Entry<ModuleWiring, Collection<ModuleWire>> entry : toRemoveWireLists.entrySet()) {
 					NamespaceList.Builder<ModuleWire> provided = entry.getKey().getProvidedWires().createBuilder();
@@ -524,8 +578,26 @@ public class ModuleDatabase {
 	final void setWiring(Map<ModuleRevision, ModuleWiring> newWiring) {
 		writeLock();
 		try {
+			Set<ModuleRevision> changed = new HashSet<>();
+			Collection<ModuleWiring> removed = new ArrayList<>();
+			for (Map.Entry<ModuleRevision, ModuleWiring> entry : wirings.entrySet()) {
+				if (newWiring.get(entry.getKey()) != entry.getValue()) {
+					changed.add(entry.getKey());
+					removed.add(entry.getValue());
+				}
+			}
+			Collection<ModuleRevision> resolved = new ArrayList<>();
+			for (Map.Entry<ModuleRevision, ModuleWiring> entry : newWiring.entrySet()) {
+				if (wirings.get(entry.getKey()) != entry.getValue()) {
+					changed.add(entry.getKey());
+					resolved.add(entry.getKey());
+				}
+			}
+			resolutionCache.capture(removed, newWiring, modulesById.size());
+			resolutionCache.remove(resolved);
 			wirings.clear();
 			wirings.putAll(newWiring);
+			addWiringsDelta(changed);
 			incrementTimestamps(true);
 		} finally {
 			writeUnlock();
@@ -543,7 +615,17 @@ public class ModuleDatabase {
 	final void mergeWiring(Map<ModuleRevision, ModuleWiring> deltaWiring) {
 		writeLock();
 		try {
+			if (!resolutionCache.isEmpty()) {
+				Collection<ModuleRevision> resolved = new ArrayList<>();
+				for (ModuleRevision revision : deltaWiring.keySet()) {
+					if (!wirings.containsKey(revision)) {
+						resolved.add(revision);
+					}
+				}
+				resolutionCache.remove(resolved);
+			}
 			wirings.putAll(deltaWiring);
+			addWiringsDelta(deltaWiring.keySet());
 			incrementTimestamps(true);
 		} finally {
 			writeUnlock();
@@ -788,6 +870,7 @@ public class ModuleDatabase {
 		Module systemModule = getModule(0);
 		if (systemModule != null) {
 			systemModule.setlastModified(currentTime);
+			addSettingsDelta(systemModule);
 		}
 	}
 
@@ -849,6 +932,45 @@ public class ModuleDatabase {
 		for (ModuleWiring wiring : wirings.values()) {
 			wiring.removeDynamicPackageMisses(packageNames);
 		}
+		dynamicPackageMisses.removeAll(packageNames);
+	}
+
+	/**
+	 * Caches a dynamic import miss for a package name if no capability
+	 * provides the package. The miss is discarded when a revision providing
+	 * the package is added to this database.
+	 * <p>
+	 * A read operation protected by the {@link #readLock() read} lock.
+	 * @param packageName the package name
+	 */
+	final void addDynamicPackageMiss(String packageName) {
+		readLock();
+		try {
+			if (capabilities.getCapabilityCount(PackageNamespace.PACKAGE_NAMESPACE, packageName) != 0) {
+				return;
+			}
+			if (dynamicPackageMisses.size() >= MAX_DYNAMIC_PACKAGE_MISSES) {
+				// remove an arbitrary quarter of the cached misses
+				int toRemove = dynamicPackageMisses.size() - (MAX_DYNAMIC_PACKAGE_MISSES * 3 / 4);
+				for (Iterator<String> misses = dynamicPackageMisses.iterator(); misses.hasNext() && toRemove > 0; toRemove--) {
+					misses.next();
+					misses.remove();
+				}
+			}
+			dynamicPackageMisses.add(packageName);
+		} finally {
+			readUnlock();
+		}
+	}
+
+	/**
+	 * Returns true if no capability provides the package according to the
+	 * cached dynamic import misses.
+	 * @param packageName the package name
+	 * @return true if the package is a cached miss
+	 */
+	final boolean isDynamicPackageMiss(String packageName) {
+		return dynamicPackageMisses.contains(packageName);
 	}
 
 	/**
@@ -884,6 +1006,24 @@ public class ModuleDatabase {
 		}
 	}
 
+	/**
+	 * Returns the number of capabilities in the namespace which may be indexed
+	 * by the specified value of the namespace attribute.
+	 * <p>
+	 * A read operation protected by the {@link #readLock() read} lock.
+	 * @param namespace the namespace
+	 * @param name the value of the namespace attribute
+	 * @return the number of capabilities
+	 */
+	final int getCapabilityCount(String namespace, String name) {
+		readLock();
+		try {
+			return capabilities.getCapabilityCount(namespace, name);
+		} finally {
+			readUnlock();
+		}
+	}
+
 	/**
 	 * Writes this database in a format suitable for using the {@link #load(DataInputStream)}
 	 * method.  All modules are stored which have a current {@link ModuleRevision revision}.
@@ -906,11 +1046,76 @@ public class ModuleDatabase {
 		readLock();
 		try {
 			Persistence.store(this, out, persistWirings);
+			clearDelta();
 		} finally {
 			readUnlock();
 		}
 	}
 
+	/**
+	 * Writes the changes made to this database since it was last {@link #store(DataOutputStream, boolean) stored}
+	 * or since its delta was last stored with this method.  The delta can be
+	 * applied with {@link #loadDelta(DataInputStream)} to a database loaded from
+	 * the last stored data and the deltas stored after it.
+	 * <p>
+	 * The delta contains the modules that were installed, updated or uninstalled,
+	 * the wirings of the modules that were resolved, unresolved or got new wires,
+	 * module settings, module start levels and the initial module start level.
+	 * Only the content of the changed modules and wirings is written.  A delta
+	 * cannot be stored while there are {@link #getRemovalPending() removal pending}
+	 * revisions or after the system module was installed or updated.  In that case
+	 * nothing is written and this database must be stored.
+	 * <p>
+	 * This method acquires the {@link #readLock() read} lock while writing the delta.
+	 * The output stream remains open after this method returns.
+	 * @param out the data output steam.
+	 * @return true if the delta has been written; false if this database must be stored
+	 * @throws IOException if writing the delta to the specified output stream throws an IOException
+	 * @since 3.18
+	 */
+	public final boolean storeDelta(DataOutputStream out) throws IOException {
+		readLock();
+		try {
+			if (!getRemovalPending().isEmpty()) {
+				return false;
+			}
+			synchronized (deltaMonitor) {
+				if (revisionsDelta.contains(Long.valueOf(0))) {
+					// the system module is only created when the database is loaded
+					return false;
+				}
+				Persistence.storeDelta(this, storedRevisionsTimestamp, revisionsDelta, wiringsDelta, settingsDelta, out);
+				clearDelta();
+				return true;
+			}
+		} finally {
+			readUnlock();
+		}
+	}
+
+	/**
+	 * Applies a delta written by {@link #storeDelta(DataOutputStream)} to this database.
+	 * This database must have been loaded from the data that was stored before the delta
+	 * and the deltas stored before it must have been applied.
+	 * <p>
+	 * Since this method modifies this database it is considered a write operation.
+	 * This method acquires the {@link #writeLock() write} lock while applying the delta.
+	 * The specified stream remains open after this method returns.
+	 * @param in the data input stream.
+	 * @throws IOException if an error occurred when reading from the input stream.
+	 * @throws IllegalArgumentException if the delta does not apply to the revisions of this database.
+	 * @since 3.18
+	 */
+	public final void loadDelta(DataInputStream in) throws IOException {
+		writeLock();
+		try {
+			Persistence.loadDelta(this, in);
+			clearDelta();
+		} finally {
+			writeUnlock();
+		}
+	}
+
 	/**
 	 * Loads information into this database from the input data stream.  This data
 	 * base must be empty and never been modified (the {@link #getRevisionsTimestamp() timestamp} is zero).
@@ -932,17 +1137,62 @@ public class ModuleDatabase {
 			if (allTimeStamp.get() != constructionTime)
 				throw new IllegalStateException("Can only load into a empty database."); //$NON-NLS-1$
 			Persistence.load(this, in);
+			clearDelta();
 		} finally {
 			writeUnlock();
 		}
 	}
 
+	/**
+	 * Writes the wirings of this database in a format suitable for using the
+	 * {@link #loadResolutionCache(DataInputStream)} method.  The wirings are keyed by the content
+	 * fingerprint of the revisions so they can be used to resolve revisions with the
+	 * same content in a database which does not have the modules of this database,
+	 * for example after the persistent data of the framework was cleaned.
+	 * <p>
+	 * This method acquires the {@link #readLock() read} lock while writing the wirings.
+	 * The output stream remains open after this method returns.
+	 * @param out the data output steam.
+	 * @throws IOException if writing the wirings to the specified output stream throws an IOException
+	 * @since 3.18
+	 */
+	public final void storeResolutionCache(DataOutputStream out) throws IOException {
+		readLock();
+		try {
+			ModuleResolutionCache.store(wirings, out);
+		} finally {
+			readUnlock();
+		}
+	}
+
+	/**
+	 * Loads the wirings written by {@link #storeResolutionCache(DataOutputStream)}.  The wirings
+	 * are used when revisions with the same content are resolved.  A revision is resolved
+	 * with a loaded wiring without running the resolver only if the providers of the wiring
+	 * are still the best candidates and get resolved with their loaded wirings as well;
+	 * otherwise the revision is resolved by the resolver.
+	 * <p>
+	 * The specified stream remains open after this method returns.
+	 * @param in the data input stream.
+	 * @throws IOException if an error occurred when reading from the input stream.
+	 * @throws IllegalArgumentException if the format of the wirings is not compatible.
+	 * @since 3.18
+	 */
+	public final void loadResolutionCache(DataInputStream in) throws IOException {
+		resolutionCache.load(in);
+	}
+
+	final ModuleResolutionCache getResolutionCache() {
+		return resolutionCache;
+	}
+
 	final void persistSettings(EnumSet<Settings> settings, Module module) {
 		writeLock();
 		try {
 			EnumSet<Settings> existing = moduleSettings.get(module.getId());
 			if (!settings.equals(existing)) {
 				moduleSettings.put(module.getId(), EnumSet.copyOf(settings));
+				addSettingsDelta(module);
 				incrementTimestamps(false);
 			}
 		} finally {
@@ -955,12 +1205,42 @@ public class ModuleDatabase {
 		try {
 			module.checkValid();
 			module.storeStartLevel(startlevel);
+			addSettingsDelta(module);
 			incrementTimestamps(false);
 		} finally {
 			writeUnlock();
 		}
 	}
 
+	private void addSettingsDelta(Module module) {
+		synchronized (deltaMonitor) {
+			settingsDelta.add(module.getId());
+		}
+	}
+
+	private void addRevisionsDelta(Module module) {
+		synchronized (deltaMonitor) {
+			revisionsDelta.add(module.getId());
+		}
+	}
+
+	private void addWiringsDelta(Collection<ModuleRevision> revisions) {
+		synchronized (deltaMonitor) {
+			for (ModuleRevision revision : revisions) {
+				wiringsDelta.add(revision.getRevisions().getModule().getId());
+			}
+		}
+	}
+
+	private void clearDelta() {
+		synchronized (deltaMonitor) {
+			settingsDelta.clear();
+			revisionsDelta.clear();
+			wiringsDelta.clear();
+			storedRevisionsTimestamp = getRevisionsTimestamp();
+		}
+	}
+
 	final int getInitialModuleStartLevel() {
 		readLock();
 		try {
@@ -981,7 +1261,10 @@ public class ModuleDatabase {
 	}
 
 	private static class Persistence {
-		private static final int VERSION = 3;
+		// Version 4 stores the wirings with an offset table so they can be decoded lazily
+		// Version 5 stores the parsed uses directive of the capabilities
+		// Version 6 stores the content fingerprint of the revisions
+		private static final int VERSION = 6;
 		private static final byte NULL = 0;
 		private static final byte OBJECT = 1;
 		private static final byte INDEX = 2;
@@ -1038,33 +1321,25 @@ public class ModuleDatabase {
 			for (Module module : modules) {
 				getStringsVersionsAndMaps(module, moduleDatabase, allStrings, allVersions, allMaps);
 			}
-			// outside of the modules the wirings have 'substituted' packages strings
+			// outside of the modules the wirings have 'substituted' packages strings;
+			// wirings which were not decoded since they were loaded are written from
+			// their retained content so that storing does not decode them
 			Map<ModuleRevision, ModuleWiring> wirings = moduleDatabase.wirings;
+			Map<ModuleWiring, LazyWiringContent> retainedContents = new HashMap<>();
 			for (ModuleWiring wiring : wirings.values()) {
-				Collection<String> substituted = wiring.getSubstitutedNames();
+				LazyWiringContent retained = getRetainedContent(wiring);
+				Collection<String> substituted;
+				if (retained != null) {
+					retainedContents.put(wiring, retained);
+					substituted = retained.getSubstitutedNames();
+				} else {
+					substituted = wiring.getSubstitutedNames();
+				}
 				allStrings.addAll(substituted);
 			}
 
-			// Now persist all the Strings
 			Map<Object, Integer> objectTable = new HashMap<>();
-			allStrings.remove(null);
-			out.writeInt(allStrings.size());
-			for (String string : allStrings) {
-				writeString(string, out, objectTable);
-				out.writeInt(addToWriteTable(string, objectTable));
-			}
-			// Followed by versions which may reference strings with their qualifier
-			out.writeInt(allVersions.size());
-			for (Version version : allVersions) {
-				writeVersion(version, out, objectTable);
-				out.writeInt(addToWriteTable(version, objectTable));
-			}
-			// Followed by maps which may reference the strings and versions
-			out.writeInt(allMaps.size());
-			for (Map<String, ?> map : allMaps) {
-				writeMap(map, out, objectTable, moduleDatabase);
-				out.writeInt(addToWriteTable(map, objectTable));
-			}
+			writeObjectTable(moduleDatabase, allStrings, allVersions, allMaps, out, objectTable);
 
 			// Followed by modules which reference the strings, versions, and maps
 			out.writeInt(modules.size());
@@ -1083,21 +1358,77 @@ public class ModuleDatabase {
 			// prime the object table with all the required wires which reference the modules
 			out.writeInt(wirings.size());
 			for (ModuleWiring wiring : wirings.values()) {
-				List<ModuleWire> requiredWires = wiring.getPersistentRequiredWires();
+				LazyWiringContent retained = retainedContents.get(wiring);
+				List<ModuleWire> requiredWires = retained != null ? retained.requiredWires : wiring.getPersistentRequiredWires();
 				out.writeInt(requiredWires.size());
 				for (ModuleWire wire : requiredWires) {
 					writeWire(wire, out, objectTable);
 				}
 			}
 
-			// now write all the info about each wiring using only indexes from the objectTable
+			// now write all the info about each wiring using only indexes from the objectTable;
+			// the revision and content size of each wiring is written first followed
+			// by all the content so that each wiring can be decoded on first access
+			ByteArrayOutputStream wiringBytes = new ByteArrayOutputStream();
+			DataOutputStream wiringContent = new DataOutputStream(wiringBytes);
 			for (ModuleWiring wiring : wirings.values()) {
-				writeWiring(wiring, out, objectTable);
+				Integer revisionIndex = objectTable.get(wiring.getRevision());
+				if (revisionIndex == null)
+					throw new NullPointerException("Could not find revision for wiring."); //$NON-NLS-1$
+				out.writeInt(revisionIndex);
+				int start = wiringContent.size();
+				LazyWiringContent retained = retainedContents.get(wiring);
+				if (retained != null) {
+					retained.write(wiringContent, objectTable);
+				} else {
+					writeWiring(wiring, wiringContent, objectTable);
+				}
+				out.writeInt(wiringContent.size() - start);
 			}
+			wiringContent.flush();
+			out.writeInt(wiringBytes.size());
+			wiringBytes.writeTo(out);
 
 			out.flush();
 		}
 
+		private static void writeObjectTable(ModuleDatabase moduleDatabase, Set<String> allStrings, Set<Version> allVersions, Set<Map<String, ?>> allMaps, DataOutputStream out, Map<Object, Integer> objectTable) throws IOException {
+			// Now persist all the Strings
+			allStrings.remove(null);
+			out.writeInt(allStrings.size());
+			for (String string : allStrings) {
+				writeString(string, out, objectTable);
+				out.writeInt(addToWriteTable(string, objectTable));
+			}
+			// Followed by versions which may reference strings with their qualifier
+			out.writeInt(allVersions.size());
+			for (Version version : allVersions) {
+				writeVersion(version, out, objectTable);
+				out.writeInt(addToWriteTable(version, objectTable));
+			}
+			// Followed by maps which may reference the strings and versions
+			out.writeInt(allMaps.size());
+			for (Map<String, ?> map : allMaps) {
+				writeMap(map, out, objectTable, moduleDatabase);
+				out.writeInt(addToWriteTable(map, objectTable));
+			}
+		}
+
+		private static void readObjectTable(DataInputStream in, List<Object> objectTable) throws IOException {
+			int numStrings = in.readInt();
+			for (int i = 0; i < numStrings; i++) {
+				readIndexedString(in, objectTable);
+			}
+			int numVersions = in.readInt();
+			for (int i = 0; i < numVersions; i++) {
+				readIndexedVersion(in, objectTable);
+			}
+			int numMaps = in.readInt();
+			for (int i = 0; i < numMaps; i++) {
+				readIndexedMap(in, objectTable);
+			}
+		}
+
 		private static void getStringsVersionsAndMaps(Module module, ModuleDatabase moduleDatabase, Set<String> allStrings, Set<Version> allVersions, Set<Map<String, ?>> allMaps) {
 			ModuleRevision current = module.getCurrentRevision();
 			if (current == null)
@@ -1119,6 +1450,7 @@ public class ModuleDatabase {
 				allStrings.add(capability.getNamespace());
 				addMap(capability.getPersistentAttributes(), allStrings, allVersions, allMaps);
 				addMap(capability.getDirectives(), allStrings, allVersions, allMaps);
+				allStrings.addAll(capability.getUses());
 			}
 
 			List<ModuleRequirement> requirements = current.getModuleRequirements(null);
@@ -1172,18 +1504,7 @@ public class ModuleDatabase {
 			List<Object> objectTable = new ArrayList<>();
 
 			if (version >= 2) {
-				int numStrings = in.readInt();
-				for (int i = 0; i < numStrings; i++) {
-					readIndexedString(in, objectTable);
-				}
-				int numVersions = in.readInt();
-				for (int i = 0; i < numVersions; i++) {
-					readIndexedVersion(in, objectTable);
-				}
-				int numMaps = in.readInt();
-				for (int i = 0; i < numMaps; i++) {
-					readIndexedMap(in, objectTable);
-				}
+				readObjectTable(in, objectTable);
 			}
 			int numModules = in.readInt();
 			ModuleRevisionBuilder builder = new ModuleRevisionBuilder();
@@ -1198,18 +1519,37 @@ public class ModuleDatabase {
 
 			int numWirings = in.readInt();
 			// prime the table with all the required wires
+			List<List<ModuleWire>> allRequiredWires = new ArrayList<>(numWirings);
 			for (int i = 0; i < numWirings; i++) {
 				int numWires = in.readInt();
+				List<ModuleWire> requiredWires = new ArrayList<>(numWires);
 				for (int j = 0; j < numWires; j++) {
-					readWire(in, objectTable);
+					requiredWires.add(readWire(in, objectTable));
 				}
+				allRequiredWires.add(requiredWires);
 			}
 
 			// now read all the info about each wiring using only indexes
 			Map<ModuleRevision, ModuleWiring> wirings = new HashMap<>();
-			for (int i = 0; i < numWirings; i++) {
-				ModuleWiring wiring = readWiring(in, objectTable);
-				wirings.put(wiring.getRevision(), wiring);
+			if (version >= 4) {
+				ModuleRevision[] revisions = new ModuleRevision[numWirings];
+				for (int i = 0; i < numWirings; i++) {
+					revisions[i] = readWiringRevision(in, objectTable);
+					// the size of the wiring content; not needed since all the content is read on load
+					in.readInt();
+				}
+				byte[] content = new byte[in.readInt()];
+				in.readFully(content);
+				DataInputStream contentIn = new DataInputStream(new ByteArrayInputStream(content));
+				for (int i = 0; i < numWirings; i++) {
+					wirings.put(revisions[i], new ModuleWiring(revisions[i], new LazyWiringContent(contentIn, objectTable, allRequiredWires.get(i))));
+				}
+			} else {
+				for (int i = 0; i < numWirings; i++) {
+					ModuleWiring wiring = new ModuleWiring(readWiringRevision(in, objectTable), null);
+					readWiring(wiring, in, objectTable);
+					wirings.put(wiring.getRevision(), wiring);
+				}
 			}
 			// TODO need to do this without incrementing the timestamp
 			moduleDatabase.setWiring(wirings);
@@ -1224,6 +1564,298 @@ public class ModuleDatabase {
 			moduleDatabase.allTimeStamp.set(allTimeStamp);
 		}
 
+		public static void storeDelta(ModuleDatabase moduleDatabase, long baseRevisionsTimestamp, Collection<Long> revisionIds, Collection<Long> wiringIds, Collection<Long> settingIds, DataOutputStream out) throws IOException {
+			out.writeInt(VERSION);
+			out.writeLong(baseRevisionsTimestamp);
+			out.writeLong(moduleDatabase.getRevisionsTimestamp());
+			out.writeLong(moduleDatabase.getTimestamp());
+			out.writeLong(moduleDatabase.getNextId());
+			out.writeInt(moduleDatabase.getInitialModuleStartLevel());
+
+			// the installed, updated and uninstalled modules are removed when the
+			// delta is loaded; the ones still installed are written like stored modules
+			out.writeInt(revisionIds.size());
+			for (Long id : revisionIds) {
+				out.writeLong(id);
+			}
+			List<Module> modules = getModules(moduleDatabase, revisionIds);
+			Set<String> allStrings = new HashSet<>();
+			Set<Version> allVersions = new HashSet<>();
+			Set<Map<String, ?>> allMaps = new HashSet<>();
+			for (Module module : modules) {
+				getStringsVersionsAndMaps(module, moduleDatabase, allStrings, allVersions, allMaps);
+			}
+			Map<Object, Integer> objectTable = new HashMap<>();
+			writeObjectTable(moduleDatabase, allStrings, allVersions, allMaps, out, objectTable);
+			out.writeInt(modules.size());
+			for (Module module : modules) {
+				writeModule(module, moduleDatabase, out, objectTable);
+			}
+
+			// the wirings of the changed modules reference capabilities, requirements
+			// and revisions by module id; provided wires are recomputed on load
+			Set<Long> wiredIds = new HashSet<>(revisionIds);
+			wiredIds.addAll(wiringIds);
+			List<Module> wiredModules = getModules(moduleDatabase, wiredIds);
+			Map<Object, Integer> indexes = new HashMap<>();
+			out.writeInt(wiredModules.size());
+			for (Module module : wiredModules) {
+				out.writeLong(module.getId());
+				ModuleWiring wiring = moduleDatabase.wirings.get(module.getCurrentRevision());
+				out.writeBoolean(wiring != null);
+				if (wiring != null) {
+					writeDeltaWiring(wiring, out, objectTable, indexes);
+				}
+			}
+
+			List<Module> settingModules = getModules(moduleDatabase, settingIds);
+			out.writeInt(settingModules.size());
+			for (Module module : settingModules) {
+				out.writeLong(module.getId());
+				out.writeInt(module.getStartLevel());
+				EnumSet<Settings> settings = moduleDatabase.moduleSettings.get(module.getId());
+				out.writeInt(settings == null ? 0 : settings.size());
+				if (settings != null) {
+					for (Settings setting : settings) {
+						out.writeUTF(setting.name());
+					}
+				}
+				out.writeLong(module.getLastModified());
+			}
+			out.flush();
+		}
+
+		private static List<Module> getModules(ModuleDatabase moduleDatabase, Collection<Long> moduleIds) {
+			List<Module> modules = new ArrayList<>(moduleIds.size());
+			for (Long id : moduleIds) {
+				Module module = moduleDatabase.getModule(id);
+				if (module != null && module.getCurrentRevision() != null) {
+					modules.add(module);
+				}
+			}
+			return modules;
+		}
+
+		public static void loadDelta(ModuleDatabase moduleDatabase, DataInputStream in) throws IOException {
+			int version = in.readInt();
+			if (version > VERSION || VERSION / 1000 != version / 1000)
+				throw new IllegalArgumentException("The version of the persistent framework data is not compatible: " + version + " expecting: " + VERSION); //$NON-NLS-1$ //$NON-NLS-2$
+			long baseRevisionsTimeStamp = in.readLong();
+			if (baseRevisionsTimeStamp != moduleDatabase.getRevisionsTimestamp())
+				throw new IllegalArgumentException("The persistent framework data delta does not apply to the revisions: " + baseRevisionsTimeStamp + " expecting: " + moduleDatabase.getRevisionsTimestamp()); //$NON-NLS-1$ //$NON-NLS-2$
+			long revisionsTimeStamp = in.readLong();
+			long allTimeStamp = in.readLong();
+			long nextId = in.readLong();
+			int initialStartLevel = in.readInt();
+
+			// the revisions which provide capabilities to wires that got removed or added
+			Set<ModuleRevision> providers = new HashSet<>();
+			int numRemoved = in.readInt();
+			for (int i = 0; i < numRemoved; i++) {
+				Module module = moduleDatabase.getModule(in.readLong());
+				if (module != null) {
+					removeDeltaModule(moduleDatabase, module, providers);
+				}
+			}
+			List<Object> objectTable = new ArrayList<>();
+			readObjectTable(in, objectTable);
+			int numModules = in.readInt();
+			ModuleRevisionBuilder builder = new ModuleRevisionBuilder();
+			for (int i = 0; i < numModules; i++) {
+				readModule(builder, moduleDatabase, in, objectTable, version);
+			}
+
+			int numWirings = in.readInt();
+			for (int i = 0; i < numWirings; i++) {
+				Module module = getDeltaModule(moduleDatabase, in.readLong());
+				ModuleRevision revision = module.getCurrentRevision();
+				removeDeltaWiring(moduleDatabase, revision, providers);
+				if (in.readBoolean()) {
+					ModuleWiring wiring = readDeltaWiring(moduleDatabase, revision, in, objectTable);
+					moduleDatabase.wirings.put(revision, wiring);
+					providers.add(revision);
+					for (ModuleWire wire : wiring.getRequiredModuleWires(null)) {
+						providers.add(wire.getProvider());
+					}
+					module.setState(State.RESOLVED);
+				} else {
+					module.setState(State.INSTALLED);
+				}
+			}
+			setDeltaProvidedWires(moduleDatabase, providers);
+
+			int numSettings = in.readInt();
+			for (int i = 0; i < numSettings; i++) {
+				Module module = getDeltaModule(moduleDatabase, in.readLong());
+				int startlevel = in.readInt();
+				EnumSet<Settings> settings = EnumSet.noneOf(Settings.class);
+				int numModuleSettings = in.readInt();
+				for (int j = 0; j < numModuleSettings; j++) {
+					settings.add(Settings.valueOf(in.readUTF()));
+				}
+				module.storeStartLevel(startlevel);
+				module.restoreSettings(settings);
+				moduleDatabase.moduleSettings.put(module.getId(), settings);
+				module.setlastModified(in.readLong());
+			}
+
+			moduleDatabase.nextId.set(nextId);
+			moduleDatabase.initialModuleStartLevel = initialStartLevel;
+			moduleDatabase.revisionsTimeStamp.set(revisionsTimeStamp);
+			moduleDatabase.allTimeStamp.set(allTimeStamp);
+		}
+
+		private static Module getDeltaModule(ModuleDatabase moduleDatabase, long id) {
+			Module module = moduleDatabase.getModule(id);
+			if (module == null)
+				throw new IllegalArgumentException("The persistent framework data delta does not apply to the modules: " + id); //$NON-NLS-1$
+			return module;
+		}
+
+		private static void removeDeltaModule(ModuleDatabase moduleDatabase, Module module, Set<ModuleRevision> providers) {
+			for (ModuleRevision revision : module.getRevisions().getModuleRevisions()) {
+				removeDeltaWiring(moduleDatabase, revision, providers);
+				module.getRevisions().removeRevision(revision);
+				moduleDatabase.removeCapabilities(revision);
+			}
+			moduleDatabase.modulesByLocations.remove(module.getLocation());
+			moduleDatabase.modulesById.remove(module.getId());
+			moduleDatabase.moduleSettings.remove(module.getId());
+		}
+
+		private static void removeDeltaWiring(ModuleDatabase moduleDatabase, ModuleRevision revision, Set<ModuleRevision> providers) {
+			ModuleWiring wiring = moduleDatabase.wirings.remove(revision);
+			if (wiring != null) {
+				for (ModuleWire wire : getPersistentRequiredWires(wiring)) {
+					providers.add(wire.getProvider());
+				}
+			}
+		}
+
+		private static List<ModuleWire> getPersistentRequiredWires(ModuleWiring wiring) {
+			LazyWiringContent retained = getRetainedContent(wiring);
+			return retained != null ? retained.requiredWires : wiring.getPersistentRequiredWires();
+		}
+
+		/*
+		 * Sets the provided wires of the wirings of the specified providers to the
+		 * required wires of all the wirings which are provided by them.  Only the
+		 * specified providers are decoded; the required wires of a wiring which
+		 * was not decoded are retained.
+		 */
+		private static void setDeltaProvidedWires(ModuleDatabase moduleDatabase, Set<ModuleRevision> providers) {
+			Map<ModuleRevision, NamespaceList.Builder<ModuleWire>> providedWires = new HashMap<>();
+			for (ModuleRevision provider : providers) {
+				if (moduleDatabase.wirings.containsKey(provider)) {
+					providedWires.put(provider, Builder.create(NamespaceList.WIRE));
+				}
+			}
+			if (providedWires.isEmpty()) {
+				return;
+			}
+			for (ModuleWiring wiring : moduleDatabase.wirings.values()) {
+				for (ModuleWire wire : getPersistentRequiredWires(wiring)) {
+					NamespaceList.Builder<ModuleWire> provided = providedWires.get(wire.getProvider());
+					if (provided != null) {
+						provided.add(wire);
+					}
+				}
+			}
+			for (Map.Entry<ModuleRevision, NamespaceList.Builder<ModuleWire>> entry : providedWires.entrySet()) {
+				moduleDatabase.wirings.get(entry.getKey()).setProvidedWires(entry.getValue().build());
+			}
+		}
+
+		private static void writeDeltaWiring(ModuleWiring wiring, DataOutputStream out, Map<Object, Integer> objectTable, Map<Object, Integer> indexes) throws IOException {
+			List<ModuleCapability> capabilities = wiring.getModuleCapabilities(null);
+			out.writeInt(capabilities.size());
+			for (ModuleCapability capability : capabilities) {
+				writeDeltaIndex(capability, capability.getRevision(), out, indexes);
+			}
+
+			List<ModuleRequirement> requirements = wiring.getPersistentRequirements();
+			out.writeInt(requirements.size());
+			for (ModuleRequirement requirement : requirements) {
+				writeDeltaIndex(requirement, requirement.getRevision(), out, indexes);
+			}
+
+			List<ModuleWire> requiredWires = wiring.getPersistentRequiredWires();
+			out.writeInt(requiredWires.size());
+			for (ModuleWire wire : requiredWires) {
+				writeDeltaIndex(wire.getCapability(), wire.getCapability().getRevision(), out, indexes);
+				out.writeLong(wire.getProvider().getRevisions().getModule().getId());
+				writeDeltaIndex(wire.getRequirement(), wire.getRequirement().getRevision(), out, indexes);
+				out.writeLong(wire.getRequirer().getRevisions().getModule().getId());
+			}
+
+			Collection<String> substituted = wiring.getSubstitutedNames();
+			out.writeInt(substituted.size());
+			for (String pkgName : substituted) {
+				writeString(pkgName, out, objectTable);
+			}
+		}
+
+		private static void writeDeltaIndex(Object object, ModuleRevision revision, DataOutputStream out, Map<Object, Integer> indexes) throws IOException {
+			Integer index = indexes.get(object);
+			if (index == null) {
+				List<ModuleCapability> capabilities = revision.getModuleCapabilities(null);
+				for (int i = 0; i < capabilities.size(); i++) {
+					indexes.put(capabilities.get(i), i);
+				}
+				List<ModuleRequirement> requirements = revision.getModuleRequirements(null);
+				for (int i = 0; i < requirements.size(); i++) {
+					indexes.put(requirements.get(i), i);
+				}
+				index = indexes.get(object);
+				if (index == null)
+					throw new NullPointerException("Could not find the expected indexes"); //$NON-NLS-1$
+			}
+			out.writeLong(revision.getRevisions().getModule().getId());
+			out.writeInt(index);
+		}
+
+		private static ModuleWiring readDeltaWiring(ModuleDatabase moduleDatabase, ModuleRevision revision, DataInputStream in, List<Object> objectTable) throws IOException {
+			int numCapabilities = in.readInt();
+			NamespaceList.Builder<ModuleCapability> capabilities = Builder.create(NamespaceList.CAPABILITY);
+			for (int i = 0; i < numCapabilities; i++) {
+				capabilities.add(readDeltaCapability(moduleDatabase, in));
+			}
+
+			int numRequirements = in.readInt();
+			NamespaceList.Builder<ModuleRequirement> requirements = Builder.create(NamespaceList.REQUIREMENT);
+			for (int i = 0; i < numRequirements; i++) {
+				requirements.add(readDeltaRequirement(moduleDatabase, in));
+			}
+
+			int numRequiredWires = in.readInt();
+			NamespaceList.Builder<ModuleWire> requiredWires = Builder.create(NamespaceList.WIRE);
+			for (int i = 0; i < numRequiredWires; i++) {
+				ModuleCapability capability = readDeltaCapability(moduleDatabase, in);
+				ModuleRevision provider = getDeltaModule(moduleDatabase, in.readLong()).getCurrentRevision();
+				ModuleRequirement requirement = readDeltaRequirement(moduleDatabase, in);
+				ModuleRevision requirer = getDeltaModule(moduleDatabase, in.readLong()).getCurrentRevision();
+				requiredWires.add(new ModuleWire(capability, provider, requirement, requirer));
+			}
+
+			int numSubstitutedNames = in.readInt();
+			Collection<String> substituted = new ArrayList<>(numSubstitutedNames);
+			for (int i = 0; i < numSubstitutedNames; i++) {
+				substituted.add(readString(in, objectTable));
+			}
+
+			return new ModuleWiring(revision, capabilities.build(), requirements.build(), Builder.create(NamespaceList.WIRE).build(), requiredWires.build(), substituted);
+		}
+
+		private static ModuleCapability readDeltaCapability(ModuleDatabase moduleDatabase, DataInputStream in) throws IOException {
+			ModuleRevision revision = getDeltaModule(moduleDatabase, in.readLong()).getCurrentRevision();
+			return revision.getModuleCapabilities(null).get(in.readInt());
+		}
+
+		private static ModuleRequirement readDeltaRequirement(ModuleDatabase moduleDatabase, DataInputStream in) throws IOException {
+			ModuleRevision revision = getDeltaModule(moduleDatabase, in.readLong()).getCurrentRevision();
+			return revision.getModuleRequirements(null).get(in.readInt());
+		}
+
 		private static void writeModule(Module module, ModuleDatabase moduleDatabase, DataOutputStream out, Map<Object, Integer> objectTable) throws IOException {
 			ModuleRevision current = module.getCurrentRevision();
 			if (current == null)
@@ -1242,6 +1874,11 @@ public class ModuleDatabase {
 			for (ModuleCapability capability : capabilities) {
 				out.writeInt(addToWriteTable(capability, objectTable));
 				writeGenericInfo(capability.getNamespace(), capability.getPersistentAttributes(), capability.getDirectives(), out, objectTable);
+				List<String> uses = capability.getUses();
+				out.writeInt(uses.size());
+				for (String usedPackage : uses) {
+					writeString(usedPackage, out, objectTable);
+				}
 			}
 
 			List<Requirement> requirements = current.getRequirements(null);
@@ -1265,6 +1902,9 @@ public class ModuleDatabase {
 
 			// last modified
 			out.writeLong(module.getLastModified());
+
+			// content fingerprint
+			out.writeUTF(current.getContentFingerprint());
 		}
 
 		private static void readModule(ModuleRevisionBuilder builder, ModuleDatabase moduleDatabase, DataInputStream in, List<Object> objectTable, int version) throws IOException {
@@ -1309,6 +1949,9 @@ public class ModuleDatabase {
 			module.setlastModified(in.readLong());
 
 			ModuleRevision current = module.getCurrentRevision();
+			if (version >= 6) {
+				current.setContentFingerprint(in.readUTF());
+			}
 			addToReadTable(current, moduleIndex, objectTable);
 
 			List<ModuleCapability> capabilities = current.getModuleCapabilities(null);
@@ -1340,7 +1983,7 @@ public class ModuleDatabase {
 			out.writeInt(requirer);
 		}
 
-		private static void readWire(DataInputStream in, List<Object> objectTable) throws IOException {
+		private static ModuleWire readWire(DataInputStream in, List<Object> objectTable) throws IOException {
 			int wireIndex = in.readInt();
 
 			ModuleCapability capability = (ModuleCapability) objectTable.get(in.readInt());
@@ -1354,14 +1997,10 @@ public class ModuleDatabase {
 			ModuleWire result = new ModuleWire(capability, provider, requirement, requirer);
 
 			addToReadTable(result, wireIndex, objectTable);
+			return result;
 		}
 
 		private static void writeWiring(ModuleWiring wiring, DataOutputStream out, Map<Object, Integer> objectTable) throws IOException {
-			Integer revisionIndex = objectTable.get(wiring.getRevision());
-			if (revisionIndex == null)
-				throw new NullPointerException("Could not find revision for wiring."); //$NON-NLS-1$
-			out.writeInt(revisionIndex);
-
 			List<ModuleCapability> capabilities = wiring.getModuleCapabilities(null);
 			out.writeInt(capabilities.size());
 			for (ModuleCapability capability : capabilities) {
@@ -1405,11 +2044,14 @@ public class ModuleDatabase {
 			}
 		}
 
-		private static ModuleWiring readWiring(DataInputStream in, List<Object> objectTable) throws IOException {
+		private static ModuleRevision readWiringRevision(DataInputStream in, List<Object> objectTable) throws IOException {
 			ModuleRevision revision = (ModuleRevision) objectTable.get(in.readInt());
 			if (revision == null)
 				throw new NullPointerException("Could not find revision for wiring."); //$NON-NLS-1$
+			return revision;
+		}
 
+		private static void readWiring(ModuleWiring wiring, DataInputStream in, List<Object> objectTable) throws IOException {
 			int numCapabilities = in.readInt();
 			NamespaceList.Builder<ModuleCapability> capabilities = Builder.create(NamespaceList.CAPABILITY);
 			for (int i = 0; i < numCapabilities; i++) {
@@ -1440,8 +2082,107 @@ public class ModuleDatabase {
 				substituted.add(readString(in, objectTable));
 			}
 
-			return new ModuleWiring(revision, capabilities.build(), requirements.build(), providedWires.build(),
-					requiredWires.build(), substituted);
+			wiring.setContent(capabilities.build(), requirements.build(), providedWires.build(), requiredWires.build(),
+					substituted);
+		}
+
+		/**
+		 * Returns the persistent content of a wiring which has not been decoded
+		 * since it was loaded. The content of such a wiring has not changed.
+		 * @param wiring the wiring
+		 * @return the retained content or {@code null} if the wiring was decoded
+		 */
+		private static LazyWiringContent getRetainedContent(ModuleWiring wiring) {
+			ModuleWiring.LazyContent lazyContent = wiring.getLazyContent();
+			return lazyContent instanceof LazyWiringContent ? (LazyWiringContent) lazyContent : null;
+		}
+
+		/**
+		 * The persistent content of a wiring which is decoded on first access.
+		 * The indexes of the content are resolved when the wiring is loaded so
+		 * the content does not keep the bytes and the object table read for all
+		 * the wirings. Until the wiring is decoded its content is written back
+		 * from the retained objects.
+		 */
+		private static class LazyWiringContent implements ModuleWiring.LazyContent {
+			// the lists of objects; capabilities, requirements, provided and required wires
+			private static final int NUM_LISTS = 4;
+			private final int[] listSizes = new int[NUM_LISTS];
+			private final Object[] objects;
+			private final String[] substitutedNames;
+			final List<ModuleWire> requiredWires;
+
+			LazyWiringContent(DataInputStream in, List<Object> objectTable, List<ModuleWire> requiredWires) throws IOException {
+				List<Object> read = new ArrayList<>();
+				for (int i = 0; i < NUM_LISTS; i++) {
+					listSizes[i] = in.readInt();
+					for (int j = 0; j < listSizes[i]; j++) {
+						read.add(objectTable.get(in.readInt()));
+					}
+				}
+				this.objects = read.toArray();
+				int numSubstitutedNames = in.readInt();
+				this.substitutedNames = new String[numSubstitutedNames];
+				for (int i = 0; i < numSubstitutedNames; i++) {
+					substitutedNames[i] = readString(in, objectTable);
+				}
+				this.requiredWires = requiredWires;
+			}
+
+			@Override
+			public void decode(ModuleWiring wiring) {
+				NamespaceList.Builder<ModuleCapability> capabilities = Builder.create(NamespaceList.CAPABILITY);
+				NamespaceList.Builder<ModuleRequirement> requirements = Builder.create(NamespaceList.REQUIREMENT);
+				NamespaceList.Builder<ModuleWire> providedWires = Builder.create(NamespaceList.WIRE);
+				NamespaceList.Builder<ModuleWire> requiredWireList = Builder.create(NamespaceList.WIRE);
+				int index = 0;
+				for (int i = 0; i < listSizes[0]; i++) {
+					capabilities.add((ModuleCapability) objects[index++]);
+				}
+				for (int i = 0; i < listSizes[1]; i++) {
+					requirements.add((ModuleRequirement) objects[index++]);
+				}
+				for (int i = 0; i < listSizes[2]; i++) {
+					providedWires.add((ModuleWire) objects[index++]);
+				}
+				for (int i = 0; i < listSizes[3]; i++) {
+					requiredWireList.add((ModuleWire) objects[index++]);
+				}
+				wiring.setContent(capabilities.build(), requirements.build(), providedWires.build(), requiredWireList.build(),
+						new ArrayList<>(Arrays.asList(substitutedNames)));
+			}
+
+			/**
+			 * Returns the substituted package names without decoding the wiring.
+			 * @return the substituted package names
+			 */
+			Collection<String> getSubstitutedNames() {
+				return Arrays.asList(substitutedNames);
+			}
+
+			/**
+			 * Writes the retained content using the indexes of the specified object
+			 * table. The written bytes are the bytes which were loaded when the
+			 * objects have the same indexes they had when the content was loaded.
+			 * @param out the output to write the content to
+			 * @param writeTable the object table of the output
+			 */
+			void write(DataOutputStream out, Map<Object, Integer> writeTable) throws IOException {
+				int index = 0;
+				for (int i = 0; i < NUM_LISTS; i++) {
+					out.writeInt(listSizes[i]);
+					for (int j = 0; j < listSizes[i]; j++) {
+						Integer objectIndex = writeTable.get(objects[index++]);
+						if (objectIndex == null)
+							throw new NullPointerException("Could not find the expected indexes"); //$NON-NLS-1$
+						out.writeInt(objectIndex);
+					}
+				}
+				out.writeInt(substitutedNames.length);
+				for (String substitutedName : substitutedNames) {
+					writeString(substitutedName, out, writeTable);
+				}
+			}
 		}
 
 		private static void writeGenericInfo(String namespace, Map<String, ?> attributes, Map<String, String> directives, DataOutputStream out, Map<Object, Integer> objectTable) throws IOException {
@@ -1463,7 +2204,16 @@ public class ModuleDatabase {
 			if (attributes == null || directives == null)
 				throw new NullPointerException("Could not find the expected indexes"); //$NON-NLS-1$
 			if (isCapability) {
-				builder.basicAddCapability(namespace, (Map<String, String>) directives, attributes);
+				List<String> uses = null;
+				if (version >= 5) {
+					int numUses = in.readInt();
+					uses = new ArrayList<>(numUses);
+					for (int i = 0; i < numUses; i++) {
+						uses.add(readString(in, objectTable));
+					}
+					uses = ModuleCapability.internUses(uses);
+				}
+				builder.basicAddCapability(namespace, (Map<String, String>) directives, attributes, uses);
 			} else {
 				builder.basicAddRequirement(namespace, (Map<String, String>) directives, attributes);
 			}
@@ -0,0 +1,380 @@
+/*******************************************************************************
+ * Copyright (c) 2026 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.osgi.container;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import org.eclipse.osgi.internal.container.NamespaceList;
+import org.osgi.framework.namespace.HostNamespace;
+
+/**
+ * Remembers the wirings of revisions which got unresolved, keyed by the
+ * content fingerprint of the revisions.  A revision with the same content
+ * fingerprint may get the same wires without running the resolver as long as
+ * the providers of the wires are still the best candidates and their own
+ * wirings did not change.
+ * <p>
+ * The wires refer to capabilities and requirements by the content fingerprint
+ * of their revision and their index in the declared capabilities and
+ * requirements of the revision, so they apply to any revision with the same
+ * content.  The entries are captured together each time wirings are removed;
+ * entries of the same capture were resolved together and are consistent with
+ * each other.
+ */
+final class ModuleResolutionCache {
+	/* the version of the persistent resolution cache */
+	private static final int VERSION = 1;
+	/* the minimum number of entries kept; at least one entry is kept for each module */
+	private static final int MIN_ENTRIES = 1024;
+	/* the capture of entries created from the current wirings */
+	static final long LIVE = -1;
+
+	/**
+	 * A wire of a cached wiring.
+	 */
+	static final class CachedWire {
+		final String requirementOwner;
+		final int requirement;
+		final String capabilityOwner;
+		final int capability;
+		final String provider;
+
+		CachedWire(String requirementOwner, int requirement, String capabilityOwner, int capability, String provider) {
+			this.requirementOwner = requirementOwner;
+			this.requirement = requirement;
+			this.capabilityOwner = capabilityOwner;
+			this.capability = capability;
+			this.provider = provider;
+		}
+	}
+
+	/**
+	 * A cached wiring of a revision.
+	 */
+	static final class Entry {
+		/* the capture the entry belongs to */
+		final long capture;
+		/* the persistent required wires, including the wires of the payload requirements of fragments */
+		final List<CachedWire> wires;
+		/* the fingerprints of the attached fragments */
+		final List<String> fragments;
+		/* the required wires of the providers which stayed resolved when the entry was captured; shared by the capture */
+		final Map<String, WeakReference<NamespaceList<ModuleWire>>> providers;
+
+		Entry(long capture, List<CachedWire> wires, List<String> fragments, Map<String, WeakReference<NamespaceList<ModuleWire>>> providers) {
+			this.capture = capture;
+			this.wires = wires;
+			this.fragments = fragments;
+			this.providers = providers;
+		}
+
+		/**
+		 * Returns true if the specified wiring has the required wires the provider
+		 * with the specified fingerprint had when this entry was captured.  The
+		 * required wires are compared because the resolver works with clones of
+		 * the wirings which share the required wires of the original wirings.
+		 */
+		boolean isProviderWiring(String provider, ModuleWiring wiring) {
+			WeakReference<NamespaceList<ModuleWire>> captured = providers.get(provider);
+			return captured != null && captured.get() == wiring.getRequiredWires();
+		}
+	}
+
+	/* @GuardedBy("this") */
+	private final Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+	/* @GuardedBy("this") */
+	private long captures = 0;
+
+	/**
+	 * Returns the content fingerprint of the specified revision.
+	 * @param revision the revision
+	 * @return the fingerprint
+	 */
+	static String getFingerprint(ModuleRevision revision) {
+		StringBuilder content = new StringBuilder();
+		appendString(revision.getSymbolicName(), content);
+		appendString(revision.getVersion().toString(), content);
+		content.append(revision.getTypes()).append(';');
+		for (ModuleCapability capability : revision.getModuleCapabilities(null)) {
+			content.append('C');
+			appendInfo(capability.getNamespace(), capability.getDirectives(), capability.getPersistentAttributes(), content);
+		}
+		for (ModuleRequirement requirement : revision.getModuleRequirements(null)) {
+			content.append('R');
+			appendInfo(requirement.getNamespace(), requirement.getDirectives(), requirement.getAttributes(), content);
+		}
+		try {
+			byte[] digest = MessageDigest.getInstance("SHA-256").digest(content.toString().getBytes(StandardCharsets.UTF_8)); //$NON-NLS-1$
+			StringBuilder fingerprint = new StringBuilder(digest.length * 2);
+			for (byte b : digest) {
+				fingerprint.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+			}
+			return fingerprint.toString();
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static void appendInfo(String namespace, Map<String, ?> directives, Map<String, ?> attributes, StringBuilder content) {
+		appendString(namespace, content);
+		appendMap(directives, content);
+		appendMap(attributes, content);
+	}
+
+	private static void appendMap(Map<String, ?> map, StringBuilder content) {
+		content.append(map.size()).append('{');
+		for (Map.Entry<String, ?> entry : new TreeMap<>(map).entrySet()) {
+			appendString(entry.getKey(), content);
+			appendValue(entry.getValue(), content);
+		}
+	}
+
+	private static void appendValue(Object value, StringBuilder content) {
+		if (value instanceof List) {
+			List<?> list = (List<?>) value;
+			content.append('L').append(list.size()).append('[');
+			for (Object element : list) {
+				appendValue(element, content);
+			}
+		} else {
+			appendString(value.getClass().getName(), content);
+			appendString(String.valueOf(value), content);
+		}
+	}
+
+	private static void appendString(String value, StringBuilder content) {
+		if (value == null) {
+			content.append('-');
+		} else {
+			content.append(value.length()).append(':').append(value);
+		}
+	}
+
+	/**
+	 * Creates an entry for the specified wiring.
+	 * @param wiring the wiring
+	 * @param capture the capture of the entry
+	 * @param current the current wirings used to find the providers which stay resolved
+	 * @param providers the providers of the capture which stay resolved
+	 * @param fragments the fingerprints of the attached fragments or {@code null} to use the
+	 * provided host wires of the wiring
+	 * @return the entry
+	 */
+	static Entry createEntry(ModuleWiring wiring, long capture, Map<ModuleRevision, ModuleWiring> current, Map<String, WeakReference<NamespaceList<ModuleWire>>> providers, List<String> fragments) {
+		List<CachedWire> wires = new ArrayList<>();
+		for (ModuleWire wire : wiring.getRequiredWires().getList(null)) {
+			ModuleRequirement requirement = wire.getRequirement();
+			if (ModuleResolver.isDynamic(requirement)) {
+				// dynamic wires are not established by the resolver
+				continue;
+			}
+			ModuleCapability capability = wire.getCapability();
+			ModuleRevision requirementOwner = requirement.getRevision();
+			ModuleRevision capabilityOwner = capability.getRevision();
+			ModuleRevision provider = wire.getProvider();
+			String providerFingerprint = provider.getContentFingerprint();
+			wires.add(new CachedWire(requirementOwner.getContentFingerprint(), requirementOwner.getModuleRequirements(null).indexOf(requirement), capabilityOwner.getContentFingerprint(), capabilityOwner.getModuleCapabilities(null).indexOf(capability), providerFingerprint));
+			ModuleWiring providerWiring = current.get(provider);
+			if (providerWiring != null) {
+				WeakReference<NamespaceList<ModuleWire>> existing = providers.get(providerFingerprint);
+				if (existing == null) {
+					providers.put(providerFingerprint, new WeakReference<>(providerWiring.getRequiredWires()));
+				} else if (existing.get() != providerWiring.getRequiredWires()) {
+					// more than one provider with the same content; use none of them
+					providers.put(providerFingerprint, new WeakReference<>(null));
+				}
+			}
+		}
+		if (fragments == null) {
+			fragments = new ArrayList<>();
+			for (ModuleWire hostWire : wiring.getProvidedWires().getList(HostNamespace.HOST_NAMESPACE)) {
+				fragments.add(hostWire.getRequirer().getContentFingerprint());
+			}
+		}
+		return new Entry(capture, wires, fragments, providers);
+	}
+
+	/**
+	 * Captures the specified wirings which got removed.
+	 * @param removed the removed wirings
+	 * @param current the wirings which stay resolved
+	 * @param numModules the number of modules
+	 */
+	synchronized void capture(Collection<ModuleWiring> removed, Map<ModuleRevision, ModuleWiring> current, int numModules) {
+		if (removed.isEmpty()) {
+			return;
+		}
+		// the provided host wires of the removed hosts may already be gone; use the host wires of the removed fragments
+		Map<ModuleRevision, List<String>> hostFragments = new HashMap<>();
+		for (ModuleWiring wiring : removed) {
+			for (ModuleWire hostWire : wiring.getRequiredWires().getList(HostNamespace.HOST_NAMESPACE)) {
+				hostFragments.computeIfAbsent(hostWire.getProvider(), h -> new ArrayList<>()).add(wiring.getRevision().getContentFingerprint());
+			}
+		}
+		long capture = ++captures;
+		Map<String, WeakReference<NamespaceList<ModuleWire>>> providers = new HashMap<>();
+		for (ModuleWiring wiring : removed) {
+			List<String> fragments = hostFragments.getOrDefault(wiring.getRevision(), Collections.emptyList());
+			entries.put(wiring.getRevision().getContentFingerprint(), createEntry(wiring, capture, current, providers, fragments));
+		}
+		int maxEntries = Math.max(MIN_ENTRIES, numModules);
+		for (Iterator<Entry> iEntries = entries.values().iterator(); entries.size() > maxEntries && iEntries.hasNext();) {
+			// the least recently used entries are first
+			iEntries.next();
+			iEntries.remove();
+		}
+	}
+
+	/**
+	 * Returns the entry for the specified content fingerprint.
+	 * @param fingerprint the content fingerprint
+	 * @return the entry or {@code null}
+	 */
+	synchronized Entry get(String fingerprint) {
+		return entries.get(fingerprint);
+	}
+
+	/**
+	 * Removes the entries of the specified revisions which got resolved.
+	 * @param resolved the resolved revisions
+	 */
+	synchronized void remove(Collection<ModuleRevision> resolved) {
+		if (entries.isEmpty()) {
+			return;
+		}
+		for (ModuleRevision revision : resolved) {
+			entries.remove(revision.getContentFingerprint());
+		}
+	}
+
+	/**
+	 * Writes entries for the specified wirings.  The captured entries of this
+	 * cache are not written because they may not be consistent with the
+	 * specified wirings.
+	 * @param wirings the current wirings
+	 * @param out the output stream
+	 * @throws IOException if an error occurred writing
+	 */
+	static void store(Map<ModuleRevision, ModuleWiring> wirings, DataOutputStream out) throws IOException {
+		Map<String, Entry> stored = new LinkedHashMap<>();
+		Map<String, WeakReference<NamespaceList<ModuleWire>>> providers = Collections.emptyMap();
+		for (ModuleWiring wiring : wirings.values()) {
+			stored.put(wiring.getRevision().getContentFingerprint(), createEntry(wiring, LIVE, Collections.emptyMap(), providers, null));
+		}
+
+		Map<String, Integer> fingerprints = new LinkedHashMap<>();
+		for (Map.Entry<String, Entry> entry : stored.entrySet()) {
+			addFingerprint(entry.getKey(), fingerprints);
+			for (CachedWire wire : entry.getValue().wires) {
+				addFingerprint(wire.requirementOwner, fingerprints);
+				addFingerprint(wire.capabilityOwner, fingerprints);
+				addFingerprint(wire.provider, fingerprints);
+			}
+			for (String fragment : entry.getValue().fragments) {
+				addFingerprint(fragment, fingerprints);
+			}
+		}
+
+		out.writeInt(VERSION);
+		out.writeInt(fingerprints.size());
+		for (String fingerprint : fingerprints.keySet()) {
+			out.writeUTF(fingerprint);
+		}
+		out.writeInt(stored.size());
+		for (Map.Entry<String, Entry> entry : stored.entrySet()) {
+			out.writeInt(fingerprints.get(entry.getKey()));
+			List<CachedWire> wires = entry.getValue().wires;
+			out.writeInt(wires.size());
+			for (CachedWire wire : wires) {
+				out.writeInt(fingerprints.get(wire.requirementOwner));
+				out.writeInt(wire.requirement);
+				out.writeInt(fingerprints.get(wire.capabilityOwner));
+				out.writeInt(wire.capability);
+				out.writeInt(fingerprints.get(wire.provider));
+			}
+			List<String> fragments = entry.getValue().fragments;
+			out.writeInt(fragments.size());
+			for (String fragment : fragments) {
+				out.writeInt(fingerprints.get(fragment));
+			}
+		}
+		out.flush();
+	}
+
+	private static void addFingerprint(String fingerprint, Map<String, Integer> fingerprints) {
+		if (!fingerprints.containsKey(fingerprint)) {
+			fingerprints.put(fingerprint, fingerprints.size());
+		}
+	}
+
+	/**
+	 * Loads the entries written by {@link #store(Map, DataOutputStream)}.  The loaded
+	 * entries belong to a single capture without providers which stay resolved.
+	 * @param in the input stream
+	 * @throws IOException if an error occurred reading
+	 */
+	void load(DataInputStream in) throws IOException {
+		int version = in.readInt();
+		if (version != VERSION) {
+			throw new IllegalArgumentException("The version of the resolution cache is not compatible: " + version + " expecting: " + VERSION); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		String[] fingerprints = new String[in.readInt()];
+		for (int i = 0; i < fingerprints.length; i++) {
+			fingerprints[i] = in.readUTF();
+		}
+		Map<String, List<CachedWire>> loadedWires = new LinkedHashMap<>();
+		Map<String, List<String>> loadedFragments = new HashMap<>();
+		int numEntries = in.readInt();
+		for (int i = 0; i < numEntries; i++) {
+			String fingerprint = fingerprints[in.readInt()];
+			int numWires = in.readInt();
+			List<CachedWire> wires = new ArrayList<>(numWires);
+			for (int j = 0; j < numWires; j++) {
+				wires.add(new CachedWire(fingerprints[in.readInt()], in.readInt(), fingerprints[in.readInt()], in.readInt(), fingerprints[in.readInt()]));
+			}
+			int numFragments = in.readInt();
+			List<String> fragments = new ArrayList<>(numFragments);
+			for (int j = 0; j < numFragments; j++) {
+				fragments.add(fingerprints[in.readInt()]);
+			}
+			loadedWires.put(fingerprint, wires);
+			loadedFragments.put(fingerprint, fragments);
+		}
+		synchronized (this) {
+			long capture = ++captures;
+			Map<String, WeakReference<NamespaceList<ModuleWire>>> providers = Collections.emptyMap();
+			for (Map.Entry<String, List<CachedWire>> entry : loadedWires.entrySet()) {
+				entries.put(entry.getKey(), new Entry(capture, entry.getValue(), loadedFragments.get(entry.getKey()), providers));
+			}
+		}
+	}
+
+	synchronized boolean isEmpty() {
+		return entries.isEmpty();
+	}
+}
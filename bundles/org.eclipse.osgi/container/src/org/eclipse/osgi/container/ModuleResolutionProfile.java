@@ -0,0 +1,200 @@
+/*******************************************************************************
+ * Copyright (c) 2026 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.osgi.container;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.eclipse.osgi.report.resolution.ResolutionProfile;
+import org.osgi.resource.Resource;
+
+/**
+ * A resolution profile implementation used by the container for resolution operations.
+ */
+class ModuleResolutionProfile implements ResolutionProfile {
+	/* the number of hotspots included in the JSON representation */
+	static final int JSON_HOTSPOTS = 10;
+
+	static class Builder {
+		private long findProvidersTime;
+		private long packageSpacesTime;
+		private long usesCheckTime;
+		private long permutationsTime;
+		private int permutationCount;
+		private final List<Integer> batchSizes = new ArrayList<>();
+		private final Map<Resource, Integer> blameCounts = new HashMap<>();
+
+		synchronized void addFindProvidersTime(long time) {
+			findProvidersTime += time;
+		}
+
+		synchronized void addPermutation(int index, long packageSpaces, long checkTime) {
+			permutationCount++;
+			packageSpacesTime += packageSpaces;
+			usesCheckTime += checkTime - packageSpaces;
+			if (index > 0) {
+				permutationsTime += checkTime;
+			}
+		}
+
+		synchronized void addBatch(int size) {
+			batchSizes.add(size);
+		}
+
+		synchronized void addBlame(Resource resource) {
+			Integer count = blameCounts.get(resource);
+			blameCounts.put(resource, count == null ? 1 : count + 1);
+		}
+
+		synchronized ModuleResolutionProfile build() {
+			return new ModuleResolutionProfile(this);
+		}
+	}
+
+	private final long findProvidersTime;
+	private final long packageSpacesTime;
+	private final long usesCheckTime;
+	private final long permutationsTime;
+	private final int permutationCount;
+	private final List<Integer> batchSizes;
+	private final List<Map.Entry<Resource, Integer>> hotspots;
+
+	ModuleResolutionProfile(Builder builder) {
+		this.findProvidersTime = builder.findProvidersTime;
+		this.packageSpacesTime = builder.packageSpacesTime;
+		this.usesCheckTime = builder.usesCheckTime;
+		this.permutationsTime = builder.permutationsTime;
+		this.permutationCount = builder.permutationCount;
+		this.batchSizes = Collections.unmodifiableList(new ArrayList<>(builder.batchSizes));
+		this.hotspots = new ArrayList<>(builder.blameCounts.entrySet());
+		Collections.sort(hotspots, (h1, h2) -> h2.getValue().compareTo(h1.getValue()));
+	}
+
+	@Override
+	public long getFindProvidersTime() {
+		return findProvidersTime;
+	}
+
+	@Override
+	public long getPackageSpacesTime() {
+		return packageSpacesTime;
+	}
+
+	@Override
+	public long getUsesCheckTime() {
+		return usesCheckTime;
+	}
+
+	@Override
+	public long getPermutationsTime() {
+		return permutationsTime;
+	}
+
+	@Override
+	public int getPermutationCount() {
+		return permutationCount;
+	}
+
+	@Override
+	public List<Integer> getBatchSizes() {
+		return batchSizes;
+	}
+
+	@Override
+	public Map<Resource, Integer> getHotspots(int max) {
+		Map<Resource, Integer> result = new LinkedHashMap<>();
+		for (Iterator<Map.Entry<Resource, Integer>> iHotspots = hotspots.iterator(); iHotspots.hasNext() && result.size() < max;) {
+			Map.Entry<Resource, Integer> hotspot = iHotspots.next();
+			result.put(hotspot.getKey(), hotspot.getValue());
+		}
+		return result;
+	}
+
+	@Override
+	public String toJSON() {
+		StringBuilder json = new StringBuilder();
+		json.append('{');
+		json.append("\"findProvidersTime\":").append(findProvidersTime).append(','); //$NON-NLS-1$
+		json.append("\"packageSpacesTime\":").append(packageSpacesTime).append(','); //$NON-NLS-1$
+		json.append("\"usesCheckTime\":").append(usesCheckTime).append(','); //$NON-NLS-1$
+		json.append("\"permutationsTime\":").append(permutationsTime).append(','); //$NON-NLS-1$
+		json.append("\"permutationCount\":").append(permutationCount).append(','); //$NON-NLS-1$
+		json.append("\"batchSizes\":["); //$NON-NLS-1$
+		for (Iterator<Integer> iSizes = batchSizes.iterator(); iSizes.hasNext();) {
+			json.append(iSizes.next());
+			if (iSizes.hasNext()) {
+				json.append(',');
+			}
+		}
+		json.append("],\"hotspots\":["); //$NON-NLS-1$
+		for (Iterator<Map.Entry<Resource, Integer>> iHotspots = getHotspots(JSON_HOTSPOTS).entrySet().iterator(); iHotspots.hasNext();) {
+			Map.Entry<Resource, Integer> hotspot = iHotspots.next();
+			json.append("{\"resource\":"); //$NON-NLS-1$
+			appendString(json, getName(hotspot.getKey()));
+			json.append(",\"blameCount\":").append(hotspot.getValue()).append('}'); //$NON-NLS-1$
+			if (iHotspots.hasNext()) {
+				json.append(',');
+			}
+		}
+		json.append("]}"); //$NON-NLS-1$
+		return json.toString();
+	}
+
+	private static String getName(Resource resource) {
+		if (resource instanceof ModuleRevision) {
+			ModuleRevision revision = (ModuleRevision) resource;
+			return revision.getSymbolicName() + '_' + revision.getVersion();
+		}
+		return String.valueOf(resource);
+	}
+
+	private static void appendString(StringBuilder json, String value) {
+		json.append('"');
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			switch (c) {
+				case '"' :
+				case '\\' :
+					json.append('\\').append(c);
+					break;
+				case '\n' :
+					json.append("\\n"); //$NON-NLS-1$
+					break;
+				case '\r' :
+					json.append("\\r"); //$NON-NLS-1$
+					break;
+				case '\t' :
+					json.append("\\t"); //$NON-NLS-1$
+					break;
+				default :
+					if (c < 0x20) {
+						json.append(String.format("\\u%04x", (int) c)); //$NON-NLS-1$
+					} else {
+						json.append(c);
+					}
+					break;
+			}
+		}
+		json.append('"');
+	}
+
+	@Override
+	public String toString() {
+		return toJSON();
+	}
+}
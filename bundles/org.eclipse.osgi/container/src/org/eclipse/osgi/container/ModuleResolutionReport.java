@@ -22,6 +22,7 @@ import java.util.Map;
 import java.util.Set;
 import org.eclipse.osgi.internal.framework.FilterImpl;
 import org.eclipse.osgi.internal.messages.Msg;
+import org.eclipse.osgi.report.resolution.ResolutionProfile;
 import org.eclipse.osgi.report.resolution.ResolutionReport;
 import org.osgi.framework.Constants;
 import org.osgi.framework.InvalidSyntaxException;
@@ -44,6 +45,7 @@ class ModuleResolutionReport implements ResolutionReport {
 
 	static class Builder {
 		private final Map<Resource, List<Entry>> resourceToEntries = new HashMap<>();
+		private final ModuleResolutionProfile.Builder profileBuilder = new ModuleResolutionProfile.Builder();
 
 		public void addEntry(Resource resource, Entry.Type type, Object data) {
 			List<Entry> entries = resourceToEntries.get(resource);
@@ -54,8 +56,12 @@ class ModuleResolutionReport implements ResolutionReport {
 			entries.add(new EntryImpl(type, data));
 		}
 
+		public ModuleResolutionProfile.Builder getProfileBuilder() {
+			return profileBuilder;
+		}
+
 		public ModuleResolutionReport build(Map<Resource, List<Wire>> resolutionResult, ResolutionException cause) {
-			return new ModuleResolutionReport(resolutionResult, resourceToEntries, cause);
+			return new ModuleResolutionReport(resolutionResult, resourceToEntries, cause, profileBuilder.build());
 		}
 	}
 
@@ -82,11 +88,17 @@ class ModuleResolutionReport implements ResolutionReport {
 	private final Map<Resource, List<Entry>> entries;
 	private final ResolutionException resolutionException;
 	private final Map<Resource, List<Wire>> resolutionResult;
+	private final ResolutionProfile profile;
 
 	ModuleResolutionReport(Map<Resource, List<Wire>> resolutionResult, Map<Resource, List<Entry>> entries, ResolutionException cause) {
+		this(resolutionResult, entries, cause, null);
+	}
+
+	ModuleResolutionReport(Map<Resource, List<Wire>> resolutionResult, Map<Resource, List<Entry>> entries, ResolutionException cause, ResolutionProfile profile) {
 		this.entries = entries == null ? Collections.emptyMap() : Collections.unmodifiableMap(new HashMap<>(entries));
 		this.resolutionResult = resolutionResult == null ? Collections.emptyMap() : Collections.unmodifiableMap(resolutionResult);
 		this.resolutionException = cause;
+		this.profile = profile;
 	}
 
 	@Override
@@ -99,6 +111,11 @@ class ModuleResolutionReport implements ResolutionReport {
 		return resolutionException;
 	}
 
+	@Override
+	public ResolutionProfile getResolutionProfile() {
+		return profile;
+	}
+
 	Map<Resource, List<Wire>> getResolutionResult() {
 		return resolutionResult;
 	}
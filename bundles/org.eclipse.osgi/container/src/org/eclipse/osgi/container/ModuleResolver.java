@@ -15,7 +15,6 @@ package org.eclipse.osgi.container;
 
 import static org.eclipse.osgi.internal.container.NamespaceList.WIRE;
 
-import java.security.Permission;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -24,18 +23,22 @@ import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executor;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 import org.apache.felix.resolver.Logger;
 import org.apache.felix.resolver.ResolutionError;
@@ -48,6 +51,7 @@ import org.eclipse.osgi.internal.debug.Debug;
 import org.eclipse.osgi.internal.framework.EquinoxConfiguration;
 import org.eclipse.osgi.internal.framework.EquinoxContainer;
 import org.eclipse.osgi.internal.messages.Msg;
+import org.eclipse.osgi.internal.serviceregistry.ShrinkableCollection;
 import org.eclipse.osgi.report.resolution.ResolutionReport;
 import org.eclipse.osgi.report.resolution.ResolutionReport.Entry;
 import org.eclipse.osgi.report.resolution.ResolutionReport.Entry.Type;
@@ -102,6 +106,17 @@ final class ModuleResolver {
 	private static final int DEFAULT_BATCH_TIMEOUT = (int) TimeUnit.MINUTES.toMillis(2);
 	final int resolverRevisionBatchSize;
 	final int resolverBatchTimeout;
+	/* the permutations a batch may check before it is split; 0 if batches are not adapted */
+	final int resolverBatchPermutations;
+	/* the package spaces of resolved revisions reused across resolve operations; null if disabled */
+	final ResolverImpl.PackageSpaceCache packageSpaceCache;
+	/* the number of dynamic resolve processes and those which did not need the resolver */
+	final AtomicLong dynamicResolves = new AtomicLong();
+	final AtomicLong trivialDynamicResolves = new AtomicLong();
+	/* the number of dynamic requests answered by the package miss caches without a resolve process */
+	final AtomicLong dynamicMissCacheHits = new AtomicLong();
+	/* the number of revisions resolved with a cached wiring without running the resolver */
+	final AtomicLong cachedResolves = new AtomicLong();
 
 	void setDebugOptions() {
 		DebugOptions options = adaptor.getDebugOptions();
@@ -138,6 +153,9 @@ final class ModuleResolver {
 		this.resolverRevisionBatchSize = parseInteger(batchSizeConfig, DEFAULT_BATCH_SIZE, 1);
 		String batchTimeoutConfig = this.adaptor.getProperty(EquinoxConfiguration.PROP_RESOLVER_BATCH_TIMEOUT);
 		this.resolverBatchTimeout = parseInteger(batchTimeoutConfig, DEFAULT_BATCH_TIMEOUT, BATCH_MIN_TIMEOUT);
+		String batchPermutationsConfig = this.adaptor.getProperty(EquinoxConfiguration.PROP_RESOLVER_BATCH_PERMUTATIONS);
+		this.resolverBatchPermutations = parseInteger(batchPermutationsConfig, 0, 0);
+		this.packageSpaceCache = Boolean.parseBoolean(this.adaptor.getProperty(EquinoxConfiguration.PROP_RESOLVER_INCREMENTAL)) ? new ResolverImpl.PackageSpaceCache() : null;
 
 	}
 
@@ -173,6 +191,7 @@ final class ModuleResolver {
 	}
 
 	ModuleResolutionReport resolveDynamicDelta(DynamicModuleRequirement dynamicReq, Collection<ModuleRevision> unresolved, Map<ModuleRevision, ModuleWiring> wiringCopy, ModuleDatabase moduleDatabase) {
+		dynamicResolves.incrementAndGet();
 		ResolveProcess resolveProcess = new ResolveProcess(unresolved, dynamicReq, wiringCopy, moduleDatabase);
 		return resolveProcess.resolve();
 	}
@@ -435,10 +454,12 @@ final class ModuleResolver {
 		return version instanceof Version ? (Version) version : Version.emptyVersion;
 	}
 
-	class ResolveProcess extends ResolveContext implements Comparator<Capability>, Executor {
+	class ResolveProcess extends ResolveContext implements Comparator<Capability>, Executor, ResolverImpl.UsesContext {
 
 		class ResolveLogger extends Logger {
 			private Map<Resource, ResolutionException> errors = null;
+			/* the violations logged by the current resolve attempt; null if none */
+			private Map<Resource, ResolutionException> attemptErrors = null;
 
 			public ResolveLogger() {
 				super(DEBUG_USES ? Logger.LOG_DEBUG : 0);
@@ -446,10 +467,10 @@ final class ModuleResolver {
 
 			@Override
 			public void logUsesConstraintViolation(Resource resource, ResolutionError error) {
-				if (errors == null) {
-					errors = new HashMap<>();
+				if (attemptErrors == null) {
+					attemptErrors = new HashMap<>();
 				}
-				errors.put(resource, error.toException());
+				attemptErrors.put(resource, error.toException());
 				if (DEBUG_USES) {
 					Debug.println(new StringBuilder("RESOLVER: Uses constraint violation") //$NON-NLS-1$
 							.append(SEPARATOR).append(TAB) //
@@ -464,6 +485,37 @@ final class ModuleResolver {
 				}
 			}
 
+			@Override
+			public void logPermutation(int index, long packageSpacesTime, long checkTime) {
+				reportBuilder.getProfileBuilder().addPermutation(index, packageSpacesTime, checkTime);
+				checkPermutationLimit();
+			}
+
+			@Override
+			public void logUsesConflict(Resource resource, Capability capability) {
+				if (capability instanceof HostedCapability) {
+					capability = ((HostedCapability) capability).getDeclaredCapability();
+				}
+				reportBuilder.getProfileBuilder().addBlame(capability.getResource());
+			}
+
+			/**
+			 * Ends a resolve attempt. The uses constraint violations logged by
+			 * an attempt which was cancelled are discarded since they may not
+			 * apply when the revisions are resolved again in other batches.
+			 * @param keep true if the violations of the attempt are kept
+			 */
+			void endAttempt(boolean keep) {
+				if (keep && attemptErrors != null) {
+					if (errors == null) {
+						errors = attemptErrors;
+					} else {
+						errors.putAll(attemptErrors);
+					}
+				}
+				attemptErrors = null;
+			}
+
 			Map<Resource, ResolutionException> getUsesConstraintViolations() {
 				return errors == null ? Collections.emptyMap() : errors;
 			}
@@ -504,7 +556,18 @@ final class ModuleResolver {
 		final Map<ModuleRevision, ModuleWiring> wirings;
 		private final Set<ModuleRevision> previouslyResolved;
 		private final DynamicModuleRequirement dynamicReq;
+		/* the providers of the dynamic requirement to give to the resolver */
+		private volatile List<Capability> dynamicProviders = null;
 		private volatile ResolverHook hook = null;
+		/*
+		 * The candidates left by a bulk resolver hook for the requirements
+		 * anticipated by this resolve process so far, and the revisions whose
+		 * requirements have been given to the hook. Each requirement is given
+		 * to the hook once for the whole process, not once for each batch.
+		 * Only modified before a batch is resolved.
+		 */
+		private final Map<Requirement, Set<ModuleCapability>> bulkMatches = new HashMap<>();
+		private final Set<Resource> bulkFiltered = new HashSet<>();
 		private volatile Map<String, Collection<ModuleRevision>> byName = null;
 		private volatile List<Resource> currentlyResolving = null;
 		private volatile boolean currentlyResolvingMandatory = false;
@@ -512,6 +575,14 @@ final class ModuleResolver {
 		private final Set<Resource> failedToResolve = new HashSet<>();
 		private AtomicBoolean scheduleTimeout = new AtomicBoolean(true);
 		private AtomicReference<ScheduledFuture<?>> timoutFuture = new AtomicReference<>();
+		/*
+		 * The permutations checked by the batch currently being resolved and
+		 * the number of permutations after which the batch is cancelled, or 0
+		 * if the batch is not limited.
+		 */
+		private final AtomicInteger batchPermutations = new AtomicInteger();
+		private volatile int batchPermutationLimit = 0;
+		private volatile Runnable cancelBatch = null;
 		/*
 		 * Used to generate the UNRESOLVED_PROVIDER resolution report entries.
 		 *
@@ -522,6 +593,13 @@ final class ModuleResolver {
 		 * has occurred.
 		 */
 		private final Map<Resource, Map<Requirement, Set<Capability>>> unresolvedProviders = new HashMap<>();
+		/*
+		 * The outcome of the permission checks of the capabilities for the
+		 * lifetime of this process. The checks are done each time a requirement
+		 * finds the capability as a candidate.
+		 */
+		private final Map<BundleRevision, Map<ModuleCapability, Boolean>> requirePermissions = new ConcurrentHashMap<>();
+		private final Map<ModuleCapability, Boolean> providePermissions = new ConcurrentHashMap<>();
 
 		ResolveProcess(Collection<ModuleRevision> unresolved, Collection<ModuleRevision> triggers, boolean triggersMandatory, Map<ModuleRevision, ModuleWiring> wirings, ModuleDatabase moduleDatabase) {
 			this.unresolved = unresolved;
@@ -557,6 +635,12 @@ final class ModuleResolver {
 
 		@Override
 		public List<Capability> findProviders(Requirement requirement) {
+			List<Capability> providers = dynamicProviders;
+			if (providers != null && dynamicReq.getOriginal() == requirement) {
+				// already found while checking for a trivial dynamic resolution
+				dynamicProviders = null;
+				return providers;
+			}
 			Requirement origReq = requirement;
 			Requirement lookupReq = dynamicReq == null || dynamicReq.getOriginal() != requirement ? requirement : dynamicReq;
 			return findProviders0(origReq, lookupReq);
@@ -573,8 +657,10 @@ final class ModuleResolver {
 						.append(origReq.getResource()) //
 						.toString());
 			}
+			long start = System.nanoTime();
 			List<ModuleCapability> candidates = moduleDatabase.findCapabilities(lookupReq);
 			List<Capability> result = filterProviders(origReq, candidates);
+			reportBuilder.getProfileBuilder().addFindProvidersTime(System.nanoTime() - start);
 			if (DEBUG_PROVIDERS) {
 				StringBuilder builder = new StringBuilder("RESOLVER: Capabilities being returned to the resolver"); //$NON-NLS-1$
 				int i = 0;
@@ -606,7 +692,7 @@ final class ModuleResolver {
 			if (DEBUG_PROVIDERS || DEBUG_HOOKS) {
 				filteredMatches = new ArrayList<>(candidates);
 			}
-			hook.filterMatches((BundleRequirement) requirement, InternalUtils.asList(candidates));
+			filterMatches((BundleRequirement) requirement, candidates);
 			if (DEBUG_PROVIDERS || DEBUG_HOOKS) {
 				filteredMatches.removeAll(candidates);
 				if (!filteredMatches.isEmpty()) {
@@ -646,6 +732,78 @@ final class ModuleResolver {
 			return InternalUtils.asList(candidates);
 		}
 
+		private void filterMatches(BundleRequirement requirement, List<ModuleCapability> candidates) {
+			Set<ModuleCapability> matches = bulkMatches.get(requirement);
+			if (matches != null) {
+				// already filtered by the bulk resolver hook for this resolve process
+				candidates.retainAll(matches);
+			} else {
+				hook.filterMatches(requirement, InternalUtils.asList(candidates));
+			}
+		}
+
+		/*
+		 * Collects the requirements of the specified revisions and of the
+		 * unresolved revisions they may get wired to, or that may attach to
+		 * them, and filters all their candidates with a single call to the
+		 * bulk resolver hook. Revisions already filtered by a previous batch
+		 * of this resolve process are skipped, so batches split after a
+		 * failure or resolved one revision at a time reuse the filtered
+		 * candidates.
+		 */
+		private void filterBulkMatches(List<Resource> revisions) {
+			if (!(hook instanceof BulkResolverHook)) {
+				return;
+			}
+			Map<BundleRequirement, List<ModuleCapability>> candidatesMap = new LinkedHashMap<>();
+			Map<BundleRequirement, Collection<BundleCapability>> matches = new LinkedHashMap<>();
+			Set<Resource> visited = new HashSet<>();
+			LinkedList<Resource> toVisit = new LinkedList<>();
+			for (Resource revision : revisions) {
+				if (!bulkFiltered.contains(revision) && visited.add(revision)) {
+					toVisit.add(revision);
+				}
+			}
+			while (!toVisit.isEmpty()) {
+				ModuleRevision revision = (ModuleRevision) toVisit.removeFirst();
+				for (ModuleRequirement requirement : revision.getModuleRequirements(null)) {
+					if (!isEffective(requirement) || isDynamic(requirement) || candidatesMap.containsKey(requirement)) {
+						continue;
+					}
+					List<ModuleCapability> candidates = moduleDatabase.findCapabilities(requirement);
+					filterDisabled(candidates);
+					removeNonEffectiveCapabilities(candidates);
+					removeSubstituted(candidates);
+					filterPermissions(requirement, candidates);
+					for (ModuleCapability candidate : candidates) {
+						ModuleRevision provider = candidate.getRevision();
+						if (!wirings.containsKey(provider) && !bulkFiltered.contains(provider) && visited.add(provider)) {
+							toVisit.add(provider);
+						}
+					}
+					candidatesMap.put(requirement, candidates);
+					matches.put(requirement, new ShrinkableCollection<>(InternalUtils.asList(candidates)));
+				}
+				for (Resource related : findRelatedResources(revision)) {
+					if (!wirings.containsKey(related) && !bulkFiltered.contains(related) && visited.add(related)) {
+						toVisit.add(related);
+					}
+				}
+			}
+			if (matches.isEmpty()) {
+				bulkFiltered.addAll(visited);
+				return;
+			}
+			if (DEBUG_HOOKS) {
+				Debug.println("RESOLVER: Filtering the capabilities of " + matches.size() + " requirements with a bulk resolver hook"); //$NON-NLS-1$ //$NON-NLS-2$
+			}
+			((BulkResolverHook) hook).filterMatches(Collections.unmodifiableMap(matches));
+			for (Map.Entry<BundleRequirement, List<ModuleCapability>> entry : candidatesMap.entrySet()) {
+				bulkMatches.put(entry.getKey(), new HashSet<>(entry.getValue()));
+			}
+			bulkFiltered.addAll(visited);
+		}
+
 		private void filterFailedToResolve(List<ModuleCapability> candidates) {
 			for (Iterator<ModuleCapability> iCandidates = candidates.iterator(); iCandidates.hasNext();) {
 				ModuleCapability capability = iCandidates.next();
@@ -692,9 +850,7 @@ final class ModuleResolver {
 						return false;
 					}
 				}
-				Permission requirePermission = InternalUtils.getRequirePermission(candidate);
-				Permission providePermission = InternalUtils.getProvidePermission(candidate);
-				if (!requirement.getRevision().getBundle().hasPermission(requirePermission)) {
+				if (!hasRequirePermission(requirement.getRevision(), candidate)) {
 					if (DEBUG_PROVIDERS) {
 						Debug.println(new StringBuilder("RESOLVER: Capability filtered because requirer did not have permission") //$NON-NLS-1$
 								.append(SEPARATOR).append(TAB) //
@@ -706,7 +862,7 @@ final class ModuleResolver {
 								.toString());
 					}
 					return true;
-				} else if (!candidate.getRevision().getBundle().hasPermission(providePermission)) {
+				} else if (!hasProvidePermission(candidate)) {
 					if (DEBUG_PROVIDERS) {
 						Debug.println(new StringBuilder("RESOLVER: Capability filtered because provider did not have permission") //$NON-NLS-1$
 								.append(SEPARATOR).append(TAB) //
@@ -723,6 +879,15 @@ final class ModuleResolver {
 			});
 		}
 
+		private boolean hasRequirePermission(BundleRevision requirer, ModuleCapability candidate) {
+			Map<ModuleCapability, Boolean> permissions = requirePermissions.computeIfAbsent(requirer, r -> new ConcurrentHashMap<>());
+			return permissions.computeIfAbsent(candidate, c -> requirer.getBundle().hasPermission(InternalUtils.getRequirePermission(c)));
+		}
+
+		private boolean hasProvidePermission(ModuleCapability candidate) {
+			return providePermissions.computeIfAbsent(candidate, c -> c.getRevision().getBundle().hasPermission(InternalUtils.getProvidePermission(c)));
+		}
+
 		private void filterDisabled(List<ModuleCapability> candidates) {
 			candidates.removeIf(capability -> {
 				if (disabled.contains(capability.getResource())) {
@@ -902,6 +1067,16 @@ final class ModuleResolver {
 
 							result.putAll(dynamicAttachWirings);
 						}
+						Map<Resource, List<Wire>> cachedWirings = resolveCached();
+						applyInterimResultToWiringCopy(cachedWirings);
+						if (!cachedWirings.isEmpty()) {
+							// the revisions resolved with cached wirings are left out of the resolver
+							Set<Resource> cachedResources = cachedWirings.keySet();
+							triggers.removeAll(cachedResources);
+							optionals.removeAll(cachedResources);
+
+							result.putAll(cachedWirings);
+						}
 						if (triggersMandatory) {
 							resolveRevisionsInBatch(triggers, true, logger, result);
 						}
@@ -925,6 +1100,7 @@ final class ModuleResolver {
 						if (report.getResolutionException() != null) {
 							Debug.printStackTrace(report.getResolutionException());
 						}
+						Debug.println("RESOLVER: Resolution profile " + report.getResolutionProfile().toJSON()); //$NON-NLS-1$
 						Set<Resource> resources = report.getEntries().keySet();
 						if (!resources.isEmpty()) {
 							Debug.println("RESOLVER: Resolution report"); //$NON-NLS-1$
@@ -968,6 +1144,10 @@ final class ModuleResolver {
 		}
 
 		private void resolveRevisionsInBatch(Collection<ModuleRevision> revisions, boolean isMandatory, ResolveLogger logger, Map<Resource, List<Wire>> result) throws ResolutionException {
+			if (resolverBatchPermutations > 0) {
+				resolveRevisionsInAdaptiveBatch(revisions, isMandatory, logger, result);
+				return;
+			}
 			long startTime = System.currentTimeMillis();
 			long initialFreeMemory = Runtime.getRuntime().freeMemory();
 			long maxUsedMemory = 0;
@@ -1013,6 +1193,160 @@ final class ModuleResolver {
 			}
 		}
 
+		/*
+		 * Resolves the revisions in batches made of the weakly connected
+		 * components of their requirement graph. Revisions of different
+		 * components cannot get wired to each other so the components are
+		 * merged into batches up to the batch size. A batch checking more
+		 * permutations than allowed is cancelled and resolved again in two
+		 * halves while the batch size grows back as batches resolve with few
+		 * permutations.
+		 */
+		private void resolveRevisionsInAdaptiveBatch(Collection<ModuleRevision> revisions, boolean isMandatory, ResolveLogger logger, Map<Resource, List<Wire>> result) throws ResolutionException {
+			long startTime = System.currentTimeMillis();
+			List<Resource> toResolve = new ArrayList<>();
+			for (ModuleRevision revision : revisions) {
+				if (!wirings.containsKey(revision) && !failedToResolve.contains(revision)) {
+					toResolve.add(revision);
+				}
+			}
+			LinkedList<List<Resource>> components = new LinkedList<>(getConnectedComponents(toResolve));
+			if (DEBUG_ROOTS) {
+				Debug.println("Resolver: found " + components.size() + " components in " + toResolve.size() + " revisions."); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+			}
+			int batchSize = resolverRevisionBatchSize;
+			while (!components.isEmpty()) {
+				List<Resource> batch = new ArrayList<>();
+				List<List<Resource>> batchComponents = new ArrayList<>();
+				while (!components.isEmpty() && batch.size() < batchSize) {
+					List<Resource> component = components.removeFirst();
+					component.removeIf(r -> wirings.containsKey(r) || failedToResolve.contains(r));
+					if (component.isEmpty()) {
+						continue;
+					}
+					if (!batch.isEmpty() && batch.size() + component.size() > batchSize) {
+						components.addFirst(component);
+						break;
+					}
+					if (component.size() > batchSize) {
+						// the component is too big; resolve part of it in this batch
+						components.addFirst(new ArrayList<>(component.subList(batchSize, component.size())));
+						component = new ArrayList<>(component.subList(0, batchSize));
+					}
+					batch.addAll(component);
+					batchComponents.add(component);
+				}
+				if (batch.isEmpty()) {
+					continue;
+				}
+				if (DEBUG_ROOTS) {
+					Debug.println("Resolver: resolving " + batch.size() + " in batch."); //$NON-NLS-1$ //$NON-NLS-2$
+					for (Resource root : batch) {
+						Debug.println("    Resolving root bundle: " + root); //$NON-NLS-1$
+					}
+				}
+				batchPermutations.set(0);
+				// a single revision cannot be split any further
+				batchPermutationLimit = batch.size() > 1 ? resolverBatchPermutations : 0;
+				try {
+					resolveRevisions(batch, isMandatory, logger, result);
+				} catch (ResolutionException resolutionException) {
+					if (!(resolutionException.getCause() instanceof CancellationException)) {
+						throw resolutionException;
+					}
+					batchSize = Math.max(1, batch.size() / 2);
+					if (DEBUG_ROOTS) {
+						Debug.println("Resolver: batch checked too many permutations; batch size reduced to " + batchSize); //$NON-NLS-1$
+					}
+					// resolve the batch again, split in smaller batches
+					for (int i = batchComponents.size() - 1; i >= 0; i--) {
+						components.addFirst(batchComponents.get(i));
+					}
+					continue;
+				} finally {
+					batchPermutationLimit = 0;
+				}
+				if (batchSize < resolverRevisionBatchSize && batchPermutations.get() <= resolverBatchPermutations / 4) {
+					// the batch resolved easily; try bigger batches
+					batchSize = batchSize > resolverRevisionBatchSize / 2 ? resolverRevisionBatchSize : batchSize * 2;
+				}
+			}
+			if (DEBUG_ROOTS) {
+				Debug.println("Resolver: time to resolve:  " + (System.currentTimeMillis() - startTime) + "ms"); //$NON-NLS-1$ //$NON-NLS-2$
+			}
+		}
+
+		/*
+		 * Partitions the revisions into the weakly connected components of the
+		 * graph of the unresolved revisions connected by the requirements that
+		 * may get wired and by the fragments that may attach to hosts.
+		 */
+		private List<List<Resource>> getConnectedComponents(List<Resource> revisions) {
+			Map<Resource, Resource> parents = new HashMap<>();
+			for (Resource revision : revisions) {
+				parents.put(revision, revision);
+			}
+			LinkedList<Resource> toVisit = new LinkedList<>(revisions);
+			while (!toVisit.isEmpty()) {
+				ModuleRevision revision = (ModuleRevision) toVisit.removeFirst();
+				for (ModuleRequirement requirement : revision.getModuleRequirements(null)) {
+					if (!isEffective(requirement) || isDynamic(requirement)) {
+						continue;
+					}
+					List<ModuleCapability> candidates = moduleDatabase.findCapabilities(requirement);
+					filterDisabled(candidates);
+					removeNonEffectiveCapabilities(candidates);
+					for (ModuleCapability candidate : candidates) {
+						connect(revision, candidate.getRevision(), parents, toVisit);
+					}
+				}
+				for (Resource related : findRelatedResources(revision)) {
+					connect(revision, related, parents, toVisit);
+				}
+			}
+			Map<Resource, List<Resource>> components = new LinkedHashMap<>();
+			for (Resource revision : revisions) {
+				components.computeIfAbsent(findRoot(revision, parents), r -> new ArrayList<>()).add(revision);
+			}
+			return new ArrayList<>(components.values());
+		}
+
+		private void connect(Resource revision, Resource other, Map<Resource, Resource> parents, LinkedList<Resource> toVisit) {
+			if (wirings.containsKey(other)) {
+				// resolved revisions do not connect the revisions wired to them
+				return;
+			}
+			if (parents.putIfAbsent(other, other) == null) {
+				toVisit.add(other);
+			}
+			Resource root = findRoot(revision, parents);
+			Resource otherRoot = findRoot(other, parents);
+			if (root != otherRoot) {
+				parents.put(otherRoot, root);
+			}
+		}
+
+		private Resource findRoot(Resource resource, Map<Resource, Resource> parents) {
+			Resource parent;
+			while ((parent = parents.get(resource)) != resource) {
+				// point to the grand parent to shorten the path for the next lookup
+				Resource grandParent = parents.get(parent);
+				parents.put(resource, grandParent);
+				resource = grandParent;
+			}
+			return resource;
+		}
+
+		void checkPermutationLimit() {
+			int limit = batchPermutationLimit;
+			if (batchPermutations.incrementAndGet() > limit && limit > 0) {
+				Runnable cancel = cancelBatch;
+				if (cancel != null) {
+					cancel.run();
+				}
+			}
+		}
+
 		private void resolveRevisionsIndividually(boolean isMandatory, ResolveLogger logger, Map<Resource, List<Wire>> result, Collection<Resource> toResolve, Collection<ModuleRevision> revisions) throws ResolutionException {
 			scheduleTimeout.set(false);
 			for (Resource resource : toResolve) {
@@ -1035,7 +1369,13 @@ final class ModuleResolver {
 			Map<Resource, List<Wire>> interimResults = null;
 			try {
 				transitivelyResolveFailures.addAll(revisions);
-				interimResults = new ResolverImpl(logger, this).resolve(this);
+				if (!revisions.isEmpty()) {
+					reportBuilder.getProfileBuilder().addBatch(revisions.size());
+				}
+				long start = System.nanoTime();
+				filterBulkMatches(revisions);
+				reportBuilder.getProfileBuilder().addFindProvidersTime(System.nanoTime() - start);
+				interimResults = new ResolverImpl(logger, this, packageSpaceCache).resolve(this);
 				applyInterimResultToWiringCopy(interimResults);
 				if (DEBUG_ROOTS) {
 					Debug.println("Resolver: resolved " + interimResults.size() + " bundles."); //$NON-NLS-1$ //$NON-NLS-2$
@@ -1061,6 +1401,7 @@ final class ModuleResolver {
 				applyTransitiveFailures = false;
 				throw memoryError;
 			} finally {
+				logger.endAttempt(applyTransitiveFailures);
 				if (applyTransitiveFailures) {
 					transitivelyResolveFailures.addAll(logger.getUsesConstraintViolations().keySet());
 					if (interimResults != null) {
@@ -1316,11 +1657,317 @@ final class ModuleResolver {
 			return dynamicWires;
 		}
 
+		/*
+		 * Resolves the revisions with the same content fingerprint as revisions which
+		 * got unresolved, or which are removal pending, without running the resolver.
+		 * A revision gets the wires of the cached wiring if the providers of the wires
+		 * are still the candidates the resolver tries first and each provider is either
+		 * resolved with the wiring it had when the wiring was cached, resolved without
+		 * required wires, or resolved here from the same capture.  A host must get the
+		 * same fragments attached.  The revisions which do not qualify are left for
+		 * the resolver.
+		 */
+		private Map<Resource, List<Wire>> resolveCached() {
+			ModuleResolutionCache cache = moduleDatabase.getResolutionCache();
+			Map<String, ModuleWiring> removalPending = new HashMap<>();
+			for (ModuleWiring wiring : wirings.values()) {
+				if (!wiring.isCurrent()) {
+					removalPending.put(wiring.getRevision().getContentFingerprint(), wiring);
+				}
+			}
+			if (cache.isEmpty() && removalPending.isEmpty()) {
+				return Collections.emptyMap();
+			}
+			Collection<ModuleRevision> toResolve = new ArrayList<>(optionals);
+			if (triggersMandatory) {
+				toResolve.addAll(triggers);
+			}
+			Map<ModuleRevision, ModuleResolutionCache.Entry> entries = new LinkedHashMap<>();
+			for (ModuleRevision revision : toResolve) {
+				if (wirings.containsKey(revision) || disabled.contains(revision)) {
+					continue;
+				}
+				String fingerprint = revision.getContentFingerprint();
+				ModuleWiring pendingWiring = removalPending.get(fingerprint);
+				ModuleResolutionCache.Entry entry = pendingWiring != null ? ModuleResolutionCache.createEntry(pendingWiring, ModuleResolutionCache.LIVE, wirings, new HashMap<>(), null) : cache.get(fingerprint);
+				if (entry != null) {
+					entries.put(revision, entry);
+				}
+			}
+			if (entries.isEmpty()) {
+				return Collections.emptyMap();
+			}
+			long start = System.nanoTime();
+			filterBulkMatches(new ArrayList<>(entries.keySet()));
+			reportBuilder.getProfileBuilder().addFindProvidersTime(System.nanoTime() - start);
+
+			// the unresolved fragments the resolver would attach to each host
+			Map<ModuleRevision, List<ModuleRevision>> attached = new HashMap<>();
+			for (ModuleRevision revision : entries.keySet()) {
+				if ((revision.getTypes() & BundleRevision.TYPE_FRAGMENT) == 0) {
+					List<ModuleRevision> fragments = new ArrayList<>();
+					for (Resource fragment : findRelatedResources(revision)) {
+						if (!wirings.containsKey(fragment)) {
+							fragments.add((ModuleRevision) fragment);
+						}
+					}
+					attached.put(revision, fragments);
+				}
+			}
+
+			Map<ModuleRevision, List<Wire>> cachedWires = new LinkedHashMap<>();
+			Map<ModuleRevision, Set<ModuleRevision>> dependencies = new HashMap<>();
+			for (Map.Entry<ModuleRevision, ModuleResolutionCache.Entry> entry : entries.entrySet()) {
+				List<Wire> wires = new ArrayList<>();
+				Set<ModuleRevision> revisionDependencies = new HashSet<>();
+				if (getCachedWires(entry.getKey(), entry.getValue(), entries, attached, wires, revisionDependencies)) {
+					cachedWires.put(entry.getKey(), wires);
+					dependencies.put(entry.getKey(), revisionDependencies);
+				}
+			}
+			// only keep the revisions whose dependencies are resolved from the same capture
+			boolean removed;
+			do {
+				removed = false;
+				for (Iterator<Map.Entry<ModuleRevision, Set<ModuleRevision>>> iDependencies = dependencies.entrySet().iterator(); iDependencies.hasNext();) {
+					Map.Entry<ModuleRevision, Set<ModuleRevision>> revisionDependencies = iDependencies.next();
+					long capture = entries.get(revisionDependencies.getKey()).capture;
+					for (ModuleRevision dependency : revisionDependencies.getValue()) {
+						if (!dependencies.containsKey(dependency) || entries.get(dependency).capture != capture) {
+							iDependencies.remove();
+							removed = true;
+							break;
+						}
+					}
+				}
+			} while (removed);
+
+			Map<Resource, List<Wire>> result = new HashMap<>();
+			for (Map.Entry<ModuleRevision, List<Wire>> wires : cachedWires.entrySet()) {
+				if (dependencies.containsKey(wires.getKey())) {
+					result.put(wires.getKey(), wires.getValue());
+				}
+			}
+			if (DEBUG_ROOTS && !result.isEmpty()) {
+				Debug.println("Resolver: resolved " + result.size() + " bundles with cached wirings."); //$NON-NLS-1$ //$NON-NLS-2$
+			}
+			cachedResolves.addAndGet(result.size());
+			return result;
+		}
+
+		/*
+		 * Adds the wires of the cached wiring of the specified revision if its
+		 * requirements still get the same providers.  The unresolved revisions
+		 * which must be resolved from the same capture are added to the
+		 * dependencies.
+		 */
+		private boolean getCachedWires(ModuleRevision revision, ModuleResolutionCache.Entry entry, Map<ModuleRevision, ModuleResolutionCache.Entry> entries, Map<ModuleRevision, List<ModuleRevision>> attached, List<Wire> wires, Set<ModuleRevision> dependencies) {
+			Map<String, ModuleRevision> owners = new HashMap<>();
+			owners.put(revision.getContentFingerprint(), revision);
+			List<ModuleRequirement> requirements = new ArrayList<>();
+			List<ModuleRevision> fragments = attached.get(revision);
+			if (fragments == null) {
+				// a fragment only has the wires of its non-payload requirements
+				if (!entry.fragments.isEmpty()) {
+					return false;
+				}
+				for (ModuleRequirement requirement : revision.getModuleRequirements(null)) {
+					if (NON_PAYLOAD_REQUIREMENTS.contains(requirement.getNamespace())) {
+						requirements.add(requirement);
+					}
+				}
+			} else {
+				List<String> fragmentFingerprints = new ArrayList<>();
+				requirements.addAll(revision.getModuleRequirements(null));
+				for (ModuleRevision fragment : fragments) {
+					if (!entries.containsKey(fragment) || owners.put(fragment.getContentFingerprint(), fragment) != null) {
+						return false;
+					}
+					fragmentFingerprints.add(fragment.getContentFingerprint());
+					for (ModuleRequirement requirement : fragment.getModuleRequirements(null)) {
+						if (!NON_PAYLOAD_REQUIREMENTS.contains(requirement.getNamespace())) {
+							requirements.add(requirement);
+						}
+					}
+					dependencies.add(fragment);
+				}
+				List<String> cachedFragments = new ArrayList<>(entry.fragments);
+				Collections.sort(fragmentFingerprints);
+				Collections.sort(cachedFragments);
+				if (!fragmentFingerprints.equals(cachedFragments)) {
+					return false;
+				}
+			}
+
+			Map<ModuleRequirement, List<ModuleResolutionCache.CachedWire>> requirementWires = new HashMap<>();
+			for (ModuleResolutionCache.CachedWire cachedWire : entry.wires) {
+				ModuleRevision owner = owners.get(cachedWire.requirementOwner);
+				if (owner == null) {
+					return false;
+				}
+				List<ModuleRequirement> ownerRequirements = owner.getModuleRequirements(null);
+				if (cachedWire.requirement < 0 || cachedWire.requirement >= ownerRequirements.size()) {
+					return false;
+				}
+				requirementWires.computeIfAbsent(ownerRequirements.get(cachedWire.requirement), r -> new ArrayList<>()).add(cachedWire);
+			}
+
+			int numWires = 0;
+			for (ModuleRequirement requirement : requirements) {
+				if (!isEffective(requirement) || isDynamic(requirement)) {
+					continue;
+				}
+				List<ModuleResolutionCache.CachedWire> cached = requirementWires.getOrDefault(requirement, Collections.emptyList());
+				numWires += cached.size();
+				List<Capability> candidates = findProviders(requirement);
+				ModuleRevision requirer = NON_PAYLOAD_REQUIREMENTS.contains(requirement.getNamespace()) ? requirement.getRevision() : revision;
+				List<Capability> wired;
+				if (HostNamespace.HOST_NAMESPACE.equals(requirement.getNamespace()) || Namespace.CARDINALITY_MULTIPLE.equals(requirement.getDirectives().get(Namespace.REQUIREMENT_CARDINALITY_DIRECTIVE))) {
+					// all the candidates get wired
+					if (candidates.size() != cached.size()) {
+						return false;
+					}
+					wired = candidates;
+				} else if (cached.isEmpty()) {
+					if (candidates.isEmpty()) {
+						if (!Namespace.RESOLUTION_OPTIONAL.equals(requirement.getDirectives().get(Namespace.REQUIREMENT_RESOLUTION_DIRECTIVE))) {
+							return false;
+						}
+					} else if (!owners.containsValue(((ModuleCapability) candidates.get(0)).getRevision())) {
+						// only a package provided by the revision itself is not wired
+						return false;
+					}
+					continue;
+				} else if (cached.size() > 1 || candidates.isEmpty()) {
+					return false;
+				} else {
+					wired = candidates.subList(0, 1);
+				}
+				List<ModuleResolutionCache.CachedWire> unmatched = new ArrayList<>(cached);
+				for (Capability candidate : wired) {
+					ModuleCapability capability = (ModuleCapability) candidate;
+					ModuleResolutionCache.CachedWire cachedWire = null;
+					ModuleRevision provider = null;
+					for (Iterator<ModuleResolutionCache.CachedWire> iUnmatched = unmatched.iterator(); iUnmatched.hasNext() && cachedWire == null;) {
+						ModuleResolutionCache.CachedWire next = iUnmatched.next();
+						provider = getCachedProvider(capability, next, attached);
+						if (provider != null) {
+							cachedWire = next;
+							iUnmatched.remove();
+						}
+					}
+					if (cachedWire == null) {
+						return false;
+					}
+					if (provider != revision) {
+						if (entries.containsKey(provider)) {
+							dependencies.add(provider);
+						} else {
+							ModuleWiring providerWiring = wirings.get(provider);
+							if (providerWiring == null || !(entry.isProviderWiring(cachedWire.provider, providerWiring) || providerWiring.getRequiredWires().isEmpty())) {
+								return false;
+							}
+						}
+					}
+					wires.add(new ModuleWire(capability, provider, requirement, requirer));
+				}
+			}
+			// all the cached wires must belong to the requirements
+			return numWires == entry.wires.size();
+		}
+
+		/*
+		 * Returns the provider of the specified capability if the capability
+		 * is the one of the cached wire, otherwise null.
+		 */
+		private ModuleRevision getCachedProvider(ModuleCapability capability, ModuleResolutionCache.CachedWire cachedWire, Map<ModuleRevision, List<ModuleRevision>> attached) {
+			ModuleRevision owner = capability.getRevision();
+			if (!owner.getContentFingerprint().equals(cachedWire.capabilityOwner) || owner.getModuleCapabilities(null).indexOf(capability) != cachedWire.capability) {
+				return null;
+			}
+			if ((owner.getTypes() & BundleRevision.TYPE_FRAGMENT) == 0 || NON_PAYLOAD_CAPABILITIES.contains(capability.getNamespace())) {
+				return owner.getContentFingerprint().equals(cachedWire.provider) ? owner : null;
+			}
+			// the capability of a fragment is provided by one of its hosts
+			Collection<ModuleRevision> hosts = new ArrayList<>();
+			ModuleWiring fragmentWiring = wirings.get(owner);
+			if (fragmentWiring != null) {
+				for (ModuleWire hostWire : fragmentWiring.getRequiredWires().getList(HostNamespace.HOST_NAMESPACE)) {
+					hosts.add(hostWire.getProvider());
+				}
+			} else {
+				for (Map.Entry<ModuleRevision, List<ModuleRevision>> hostFragments : attached.entrySet()) {
+					if (hostFragments.getValue().contains(owner)) {
+						hosts.add(hostFragments.getKey());
+					}
+				}
+			}
+			ModuleRevision provider = null;
+			for (ModuleRevision host : hosts) {
+				if (host.getContentFingerprint().equals(cachedWire.provider)) {
+					if (provider != null) {
+						return null;
+					}
+					provider = host;
+				}
+			}
+			return provider;
+		}
+
 		private Map<Resource, List<Wire>> resolveDynamic() throws ResolutionException {
-			return new ResolverImpl(new Logger(0), null).resolveDynamic(this, wirings.get(dynamicReq.getResource()),
+			ModuleWiring hostWiring = wirings.get(dynamicReq.getResource());
+			List<Capability> providers = findProviders(dynamicReq.getOriginal());
+			if (isTrivialDynamic(hostWiring, providers)) {
+				// wire directly to the only provider without running the resolver
+				trivialDynamicResolves.incrementAndGet();
+				ModuleCapability capability = (ModuleCapability) providers.get(0);
+				List<Wire> wires = new ArrayList<>(1);
+				wires.add(new ModuleWire(capability, capability.getRevision(), dynamicReq.getOriginal(), dynamicReq.getRevision()));
+				Map<Resource, List<Wire>> result = new HashMap<>(2);
+				result.put(dynamicReq.getRevision(), wires);
+				return result;
+			}
+			dynamicProviders = providers;
+			return new ResolverImpl(new Logger(0), null, packageSpaceCache).resolveDynamic(this, hostWiring,
 					dynamicReq.getOriginal());
 		}
 
+		/*
+		 * A dynamic resolution is trivial if the only provider is a capability of a
+		 * resolved host without uses constraints and no other capability provides the
+		 * package. In that case a uses constraint of the host package space on the
+		 * package can only refer to the provider. The package must also not be
+		 * available to the host from its imports, exports or required bundles.
+		 */
+		private boolean isTrivialDynamic(ModuleWiring hostWiring, List<Capability> providers) {
+			if (hostWiring == null || providers.size() != 1 || !(providers.get(0) instanceof ModuleCapability)) {
+				return false;
+			}
+			ModuleCapability capability = (ModuleCapability) providers.get(0);
+			ModuleRevision provider = capability.getRevision();
+			if (!wirings.containsKey(provider) || (provider.getTypes() & BundleRevision.TYPE_FRAGMENT) != 0 || !capability.getUses().isEmpty()) {
+				return false;
+			}
+			Object packageName = capability.getAttributes().get(PackageNamespace.PACKAGE_NAMESPACE);
+			if (!(packageName instanceof String) || moduleDatabase.getCapabilityCount(PackageNamespace.PACKAGE_NAMESPACE, (String) packageName) != 1) {
+				return false;
+			}
+			if (!hostWiring.getRequiredModuleWires(BundleNamespace.BUNDLE_NAMESPACE).isEmpty()) {
+				return false;
+			}
+			for (ModuleWire wire : hostWiring.getRequiredModuleWires(PackageNamespace.PACKAGE_NAMESPACE)) {
+				if (packageName.equals(wire.getCapability().getAttributes().get(PackageNamespace.PACKAGE_NAMESPACE))) {
+					return false;
+				}
+			}
+			for (ModuleCapability hostCapability : hostWiring.getModuleCapabilities(PackageNamespace.PACKAGE_NAMESPACE)) {
+				if (packageName.equals(hostCapability.getAttributes().get(PackageNamespace.PACKAGE_NAMESPACE))) {
+					return false;
+				}
+			}
+			return true;
+		}
+
 		private void filterResolvable() {
 			Collection<ModuleRevision> enabledCandidates = new ArrayList<>(unresolved);
 			hook.filterResolvable(InternalUtils.asList((List<? extends BundleRevision>) enabledCandidates));
@@ -1503,6 +2150,14 @@ final class ModuleResolver {
 			return identities.isEmpty() ? null : identities.get(0);
 		}
 
+		@Override
+		public List<String> getUses(Capability capability) {
+			if (capability instanceof HostedCapability) {
+				capability = ((HostedCapability) capability).getDeclaredCapability();
+			}
+			return capability instanceof ModuleCapability ? ((ModuleCapability) capability).getUses() : null;
+		}
+
 		@Override
 		public int compare(Capability c1, Capability c2) {
 			// TODO Ideally this policy should be handled by the ModuleDatabase.
@@ -1555,6 +2210,11 @@ final class ModuleResolver {
 
 		@Override
 		public void onCancel(Runnable callback) {
+			if (resolverBatchPermutations > 0) {
+				// batches are split based on the permutations checked instead of timing out
+				cancelBatch = callback;
+				return;
+			}
 			// Note that for each resolve Process we only want timeout the initial batch resolve
 			if (scheduleTimeout.compareAndSet(true, false)) {
 				ScheduledExecutorService scheduledExecutor = adaptor.getScheduledExecutor();
@@ -46,6 +46,7 @@ public final class ModuleRevision implements BundleRevision {
 	private final ModuleRevisions revisions;
 	private final Object revisionInfo;
 	private volatile Boolean lazyActivationPolicy = null;
+	private volatile String contentFingerprint = null;
 
 	ModuleRevision(String symbolicName, Version version, int types, NamespaceList.Builder<GenericInfo> capabilityInfos, NamespaceList.Builder<GenericInfo> requirementInfos, ModuleRevisions revisions, Object revisionInfo) {
 		this.symbolicName = symbolicName;
@@ -62,7 +63,7 @@ public final class ModuleRevision implements BundleRevision {
 			public ModuleCapability apply(GenericInfo i) {
 				Map<String, String> directives = i.mutable ? copyUnmodifiableMap(i.directives) : i.directives;
 				Map<String, Object> attributes = i.mutable ? copyUnmodifiableMap(i.attributes) : i.attributes;
-				return new ModuleCapability(i.namespace, directives, attributes, ModuleRevision.this);
+				return new ModuleCapability(i.namespace, directives, attributes, i.uses, ModuleRevision.this);
 			}
 		}, NamespaceList.CAPABILITY).build();
 	}
@@ -244,6 +245,25 @@ public final class ModuleRevision implements BundleRevision {
 		return capabilities;
 	}
 
+	/**
+	 * Returns the fingerprint of the symbolic name, version, type, capabilities
+	 * and requirements of this revision.  Revisions with the same fingerprint
+	 * resolve the same way when they find the same providers.
+	 * @return the content fingerprint
+	 */
+	String getContentFingerprint() {
+		String fingerprint = contentFingerprint;
+		if (fingerprint == null) {
+			fingerprint = ModuleResolutionCache.getFingerprint(this);
+			contentFingerprint = fingerprint;
+		}
+		return fingerprint;
+	}
+
+	void setContentFingerprint(String contentFingerprint) {
+		this.contentFingerprint = contentFingerprint;
+	}
+
 	NamespaceList<ModuleRequirement> getRequirements() {
 		return requirements;
 	}
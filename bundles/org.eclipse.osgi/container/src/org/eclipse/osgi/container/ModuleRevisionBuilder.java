@@ -60,12 +60,15 @@ public final class ModuleRevisionBuilder {
 		final Map<String, String> directives;
 		final Map<String, Object> attributes;
 		final boolean mutable;
+		/* the parsed uses directive of a persistent capability; null if not known */
+		final List<String> uses;
 
-		GenericInfo(String namespace, Map<String, String> directives, Map<String, Object> attributes, boolean mutable) {
+		GenericInfo(String namespace, Map<String, String> directives, Map<String, Object> attributes, boolean mutable, List<String> uses) {
 			this.namespace = namespace;
 			this.directives = directives;
 			this.attributes = attributes;
 			this.mutable = mutable;
+			this.uses = uses;
 		}
 
 		/**
@@ -334,19 +337,19 @@ public final class ModuleRevisionBuilder {
 	}
 
 	private void addGenericInfo(NamespaceList.Builder<GenericInfo> infos, String namespace, Map<String, String> directives, Map<String, Object> attributes) {
-		infos.add(new GenericInfo(namespace, directives, attributes, true));
+		infos.add(new GenericInfo(namespace, directives, attributes, true, null));
 	}
 
-	void basicAddCapability(String namespace, Map<String, String> directives, Map<String, Object> attributes) {
-		basicAddGenericInfo(capabilityInfos, namespace, directives, attributes);
+	void basicAddCapability(String namespace, Map<String, String> directives, Map<String, Object> attributes, List<String> uses) {
+		basicAddGenericInfo(capabilityInfos, namespace, directives, attributes, uses);
 	}
 
 	void basicAddRequirement(String namespace, Map<String, String> directives, Map<String, Object> attributes) {
-		basicAddGenericInfo(requirementInfos, namespace, directives, attributes);
+		basicAddGenericInfo(requirementInfos, namespace, directives, attributes, null);
 	}
 
-	private static void basicAddGenericInfo(NamespaceList.Builder<GenericInfo> infos, String namespace, Map<String, String> directives, Map<String, Object> attributes) {
-		infos.add(new GenericInfo(namespace, unmodifiableMap(directives), unmodifiableMap(attributes), false));
+	private static void basicAddGenericInfo(NamespaceList.Builder<GenericInfo> infos, String namespace, Map<String, String> directives, Map<String, Object> attributes, List<String> uses) {
+		infos.add(new GenericInfo(namespace, unmodifiableMap(directives), unmodifiableMap(attributes), false, uses));
 	}
 
 	@SuppressWarnings("unchecked")
@@ -63,13 +63,26 @@ public final class ModuleWiring implements BundleWiring {
 	private final ModuleRevision revision;
 	private volatile NamespaceList<ModuleCapability> capabilities;
 	private volatile NamespaceList<ModuleRequirement> requirements;
-	private final Collection<String> substitutedPkgNames;
+	private volatile Collection<String> substitutedPkgNames;
 	private final AtomicLazyInitializer<ModuleLoader> loader = new AtomicLazyInitializer<>();
 	private final LoaderInitializer loaderInitializer = new LoaderInitializer();
 	private volatile NamespaceList<ModuleWire> providedWires;
 	private volatile NamespaceList<ModuleWire> requiredWires;
 	volatile boolean isValid = true;
 	private final AtomicReference<Set<String>> dynamicMissRef = new AtomicReference<>();
+	private volatile LazyContent lazyContent;
+
+	/**
+	 * Decodes the content of a wiring on first access.
+	 * @see ModuleWiring#ModuleWiring(ModuleRevision, LazyContent)
+	 */
+	interface LazyContent {
+		/**
+		 * Sets the content of the specified wiring.
+		 * @param wiring the wiring to decode
+		 */
+		void decode(ModuleWiring wiring);
+	}
 
 	ModuleWiring(ModuleRevision revision, NamespaceList<ModuleCapability> capabilities,
 			NamespaceList<ModuleRequirement> requirements, NamespaceList<ModuleWire> providedWires,
@@ -83,6 +96,18 @@ public final class ModuleWiring implements BundleWiring {
 		this.substitutedPkgNames = substitutedPkgNames.isEmpty() ? Collections.emptyList() : substitutedPkgNames;
 	}
 
+	/**
+	 * Creates a wiring whose capabilities, requirements, wires and substituted
+	 * package names are decoded on first access.
+	 * @param revision the revision of the wiring
+	 * @param lazyContent the decoder of the wiring content
+	 */
+	ModuleWiring(ModuleRevision revision, LazyContent lazyContent) {
+		super();
+		this.revision = revision;
+		this.lazyContent = lazyContent;
+	}
+
 	@Override
 	public Bundle getBundle() {
 		return revision.getBundle();
@@ -95,7 +120,7 @@ public final class ModuleWiring implements BundleWiring {
 
 	@Override
 	public boolean isInUse() {
-		return isCurrent() || !providedWires.isEmpty() || isFragmentInUse();
+		return isCurrent() || !getProvidedWires().isEmpty() || isFragmentInUse();
 	}
 
 	private boolean isFragmentInUse() {
@@ -120,7 +145,7 @@ public final class ModuleWiring implements BundleWiring {
 		if (!isValid) {
 			return null;
 		}
-		return capabilities.getList(namespace);
+		return getCapabilities().getList(namespace);
 	}
 
 	/**
@@ -135,14 +160,14 @@ public final class ModuleWiring implements BundleWiring {
 		if (!isValid) {
 			return null;
 		}
-		return requirements.getList(namespace);
+		return getRequirements().getList(namespace);
 	}
 
 	List<ModuleRequirement> getPersistentRequirements() {
 		if (!isValid) {
 			return null;
 		}
-		List<ModuleRequirement> persistentRequriements = new ArrayList<>(requirements.getList(null));
+		List<ModuleRequirement> persistentRequriements = new ArrayList<>(getRequirements().getList(null));
 		for (Iterator<ModuleRequirement> iRequirements = persistentRequriements.iterator(); iRequirements.hasNext();) {
 			ModuleRequirement requirement = iRequirements.next();
 			if (PackageNamespace.PACKAGE_NAMESPACE.equals(requirement.getNamespace())) {
@@ -174,11 +199,11 @@ public final class ModuleWiring implements BundleWiring {
 	 * @see #getProvidedWires(String)
 	 */
 	public List<ModuleWire> getProvidedModuleWires(String namespace) {
-		return getWires(namespace, providedWires);
+		return getWires(namespace, getProvidedWires());
 	}
 
 	List<ModuleWire> getPersistentProvidedWires() {
-		return getPersistentWires(providedWires);
+		return getPersistentWires(getProvidedWires());
 	}
 
 	/**
@@ -190,11 +215,11 @@ public final class ModuleWiring implements BundleWiring {
 	 * @see #getRequiredWires(String)
 	 */
 	public List<ModuleWire> getRequiredModuleWires(String namespace) {
-		return getWires(namespace, requiredWires);
+		return getWires(namespace, getRequiredWires());
 	}
 
 	List<ModuleWire> getPersistentRequiredWires() {
-		return getPersistentWires(requiredWires);
+		return getPersistentWires(getRequiredWires());
 	}
 
 	private List<ModuleWire> getPersistentWires(NamespaceList<ModuleWire> allWires) {
@@ -215,12 +240,12 @@ public final class ModuleWiring implements BundleWiring {
 
 	@Override
 	public List<BundleWire> getProvidedWires(String namespace) {
-		return asCopy(getWires(namespace, providedWires));
+		return asCopy(getWires(namespace, getProvidedWires()));
 	}
 
 	@Override
 	public List<BundleWire> getRequiredWires(String namespace) {
-		return asCopy(getWires(namespace, requiredWires));
+		return asCopy(getWires(namespace, getRequiredWires()));
 	}
 
 	private List<ModuleWire> getWires(String namespace, NamespaceList<ModuleWire> wires) {
@@ -312,12 +337,12 @@ public final class ModuleWiring implements BundleWiring {
 
 	@Override
 	public List<Wire> getProvidedResourceWires(String namespace) {
-		return asCopy(getWires(namespace, providedWires));
+		return asCopy(getWires(namespace, getProvidedWires()));
 	}
 
 	@Override
 	public List<Wire> getRequiredResourceWires(String namespace) {
-		return asCopy(getWires(namespace, requiredWires));
+		return asCopy(getWires(namespace, getRequiredWires()));
 	}
 
 	@Override
@@ -326,18 +351,22 @@ public final class ModuleWiring implements BundleWiring {
 	}
 
 	void setProvidedWires(NamespaceList<ModuleWire> providedWires) {
+		decode();
 		this.providedWires = providedWires;
 	}
 
 	void setRequiredWires(NamespaceList<ModuleWire> requiredWires) {
+		decode();
 		this.requiredWires = requiredWires;
 	}
 
 	void setCapabilities(NamespaceList<ModuleCapability> capabilities) {
+		decode();
 		this.capabilities = capabilities;
 	}
 
 	void setRequirements(NamespaceList<ModuleRequirement> requirements) {
+		decode();
 		this.requirements = requirements;
 	}
 
@@ -368,7 +397,7 @@ public final class ModuleWiring implements BundleWiring {
 		if (!PackageNamespace.PACKAGE_NAMESPACE.equals(capability.getNamespace())) {
 			return false;
 		}
-		return substitutedPkgNames.contains(capability.getAttributes().get(PackageNamespace.PACKAGE_NAMESPACE));
+		return getSubstitutedPkgNames().contains(capability.getAttributes().get(PackageNamespace.PACKAGE_NAMESPACE));
 	}
 
 	/**
@@ -377,7 +406,7 @@ public final class ModuleWiring implements BundleWiring {
 	 * @return true if the specified package name has been substituted in this wiring
 	 */
 	public boolean isSubstitutedPackage(String packageName) {
-		return substitutedPkgNames.contains(packageName);
+		return getSubstitutedPkgNames().contains(packageName);
 	}
 
 	/**
@@ -386,7 +415,7 @@ public final class ModuleWiring implements BundleWiring {
 	 * @return the substituted package names
 	 */
 	public Collection<String> getSubstitutedNames() {
-		return Collections.unmodifiableCollection(substitutedPkgNames);
+		return Collections.unmodifiableCollection(getSubstitutedPkgNames());
 	}
 
 	private boolean hasResourcePermission() {
@@ -426,7 +455,7 @@ public final class ModuleWiring implements BundleWiring {
 		// This is necessary to make sure any in flight resolve operations are using the
 		// latest wiring data and avoids them overwriting the requirements incorrectly.
 		moduleDatabase.writeLockOperation(true, () -> {
-			NamespaceList.Builder<ModuleRequirement> requirmentsBuilder = requirements.createBuilder();
+			NamespaceList.Builder<ModuleRequirement> requirmentsBuilder = getRequirements().createBuilder();
 			requirmentsBuilder.addAll(newRequirements);
 			requirements = requirmentsBuilder.build();
 			// clear out miss cache when adding new dynamic imports.
@@ -467,15 +496,16 @@ public final class ModuleWiring implements BundleWiring {
 	}
 
 	List<Wire> getSubstitutionWires() {
-		if (substitutedPkgNames.isEmpty()) {
+		Collection<String> substituted = getSubstitutedPkgNames();
+		if (substituted.isEmpty()) {
 			return Collections.emptyList();
 		}
 		// Could cache this, but seems unnecessary since it will only be used by the resolver
-		List<Wire> substitutionWires = new ArrayList<>(substitutedPkgNames.size());
-		List<ModuleWire> current = requiredWires.getList(PackageNamespace.PACKAGE_NAMESPACE);
+		List<Wire> substitutionWires = new ArrayList<>(substituted.size());
+		List<ModuleWire> current = getRequiredWires().getList(PackageNamespace.PACKAGE_NAMESPACE);
 		for (ModuleWire wire : current) {
 			Capability cap = wire.getCapability();
-			if (substitutedPkgNames.contains(cap.getAttributes().get(PackageNamespace.PACKAGE_NAMESPACE))) {
+			if (substituted.contains(cap.getAttributes().get(PackageNamespace.PACKAGE_NAMESPACE))) {
 				substitutionWires.add(wire);
 			}
 		}
@@ -483,18 +513,62 @@ public final class ModuleWiring implements BundleWiring {
 	}
 
 	NamespaceList<ModuleCapability> getCapabilities() {
+		decode();
 		return capabilities;
 	}
 
 	NamespaceList<ModuleWire> getProvidedWires() {
+		decode();
 		return providedWires;
 	}
 
 	NamespaceList<ModuleRequirement> getRequirements() {
+		decode();
 		return requirements;
 	}
 
 	NamespaceList<ModuleWire> getRequiredWires() {
+		decode();
 		return requiredWires;
 	}
+
+	private Collection<String> getSubstitutedPkgNames() {
+		decode();
+		return substitutedPkgNames;
+	}
+
+	/**
+	 * Decodes the content of this wiring if it was loaded lazily
+	 * from the persistent module database.
+	 */
+	private void decode() {
+		if (lazyContent != null) {
+			synchronized (this) {
+				LazyContent current = lazyContent;
+				if (current != null) {
+					current.decode(this);
+					lazyContent = null;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the decoder of the content of this wiring if the wiring
+	 * has not been decoded since it was loaded.
+	 * @return the decoder or {@code null} if the wiring is decoded
+	 */
+	LazyContent getLazyContent() {
+		return lazyContent;
+	}
+
+	void setContent(NamespaceList<ModuleCapability> capabilities, NamespaceList<ModuleRequirement> requirements,
+			NamespaceList<ModuleWire> providedWires, NamespaceList<ModuleWire> requiredWires,
+			Collection<String> substitutedPkgNames) {
+		this.capabilities = capabilities;
+		this.requirements = requirements;
+		this.providedWires = providedWires;
+		this.requiredWires = requiredWires;
+		this.substitutedPkgNames = substitutedPkgNames.isEmpty() ? Collections.emptyList() : substitutedPkgNames;
+	}
 }
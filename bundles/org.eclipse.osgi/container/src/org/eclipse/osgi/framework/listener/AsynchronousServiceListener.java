@@ -0,0 +1,53 @@
+/*******************************************************************************
+ * Copyright (c) 2026 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.osgi.framework.listener;
+
+import org.osgi.framework.ServiceEvent;
+import org.osgi.framework.ServiceListener;
+
+/**
+ * A {@code ServiceEvent} listener which accepts asynchronous delivery of
+ * service events. When asynchronous service event delivery is enabled with
+ * the {@code equinox.service.event.async.threads} framework configuration
+ * property, the framework delivers service events to listeners implementing
+ * this interface on a framework thread instead of the thread which caused the
+ * service event. A thread registering, modifying or unregistering a service
+ * therefore does not wait for these listeners.
+ * <p>
+ * The events are delivered to each listener in the order they were
+ * published and never concurrently. The filter of the listener is evaluated
+ * when the event is published, so an event is delivered if the service
+ * properties matched the filter at the time of the event. An event may be
+ * delivered after the service has been modified or unregistered again.
+ * <p>
+ * The number of events queued for each listener is bounded by the
+ * {@code equinox.service.event.async.queue.size} framework configuration
+ * property. When the queue of a listener is full, further events are not
+ * delivered to that listener and a {@code WARNING} framework event is
+ * published, until the listener has handled the queued events. The thread
+ * publishing a service event never waits for the listener.
+ * <p>
+ * When asynchronous service event delivery is not enabled, service events are
+ * delivered synchronously as for any other {@code ServiceListener}.
+ * <p>
+ * This interface is a marker interface and may be combined with
+ * {@link org.osgi.framework.AllServiceListener} and
+ * {@link org.osgi.framework.UnfilteredServiceListener}.
+ *
+ * @see ServiceEvent
+ * @since 3.18
+ */
+public interface AsynchronousServiceListener extends ServiceListener {
+	// This is a marker interface
+}
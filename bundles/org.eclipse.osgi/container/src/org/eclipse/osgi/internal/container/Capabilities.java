@@ -19,17 +19,23 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import org.eclipse.osgi.container.ModuleCapability;
+import org.eclipse.osgi.container.ModuleRequirement;
 import org.eclipse.osgi.container.ModuleRevision;
 import org.eclipse.osgi.internal.framework.FilterImpl;
 import org.eclipse.osgi.util.ManifestElement;
 import org.osgi.framework.Filter;
 import org.osgi.framework.InvalidSyntaxException;
+import org.osgi.framework.Version;
+import org.osgi.framework.VersionRange;
 import org.osgi.framework.namespace.AbstractWiringNamespace;
 import org.osgi.framework.namespace.BundleNamespace;
 import org.osgi.framework.namespace.HostNamespace;
@@ -39,16 +45,129 @@ import org.osgi.resource.Namespace;
 import org.osgi.resource.Requirement;
 
 public class Capabilities {
+	/**
+	 * A bounded cache of parsed requirement filters keyed by the filter directive string.
+	 * The cache is safe to use concurrently by readers of the capabilities.
+	 */
+	static class FilterCache {
+		/** The maximum number of filters to cache */
+		static final int MAX_SIZE = 4096;
+		private final Map<String, FilterImpl> filters = new ConcurrentHashMap<>();
+		private final AtomicLong hits = new AtomicLong();
+		private final AtomicLong misses = new AtomicLong();
+
+		FilterImpl getFilter(String filterSpec) throws InvalidSyntaxException {
+			FilterImpl f = filters.get(filterSpec);
+			if (f != null) {
+				hits.incrementAndGet();
+				return f;
+			}
+			misses.incrementAndGet();
+			f = FilterImpl.newInstance(filterSpec);
+			if (filters.size() >= MAX_SIZE) {
+				evict();
+			}
+			filters.put(filterSpec, f);
+			return f;
+		}
+
+		private void evict() {
+			// remove an arbitrary quarter of the cached filters
+			int toRemove = filters.size() - (MAX_SIZE * 3 / 4);
+			for (Iterator<String> keys = filters.keySet().iterator(); keys.hasNext() && toRemove > 0; toRemove--) {
+				keys.next();
+				keys.remove();
+			}
+		}
+
+		void remove(String filterSpec) {
+			filters.remove(filterSpec);
+		}
+
+	}
+
+	/**
+	 * The capabilities of an index key sorted by their version attribute.
+	 * Capabilities which do not have a {@link Version} value for the version
+	 * attribute are kept separately.
+	 */
+	static class VersionIndex {
+		/** The minimum number of capabilities of an index key to sort them by version */
+		static final int MIN_SIZE = 8;
+		private final ModuleCapability[] sorted;
+		private final Version[] versions;
+		private final List<ModuleCapability> unversioned = new ArrayList<>(0);
+
+		VersionIndex(Set<ModuleCapability> capabilities, String versionAttr) {
+			List<ModuleCapability> versioned = new ArrayList<>(capabilities.size());
+			for (ModuleCapability capability : capabilities) {
+				if (capability.getAttributes().get(versionAttr) instanceof Version) {
+					versioned.add(capability);
+				} else {
+					unversioned.add(capability);
+				}
+			}
+			sorted = versioned.toArray(new ModuleCapability[versioned.size()]);
+			Arrays.sort(sorted, (c1, c2) -> ((Version) c1.getAttributes().get(versionAttr)).compareTo((Version) c2.getAttributes().get(versionAttr)));
+			versions = new Version[sorted.length];
+			for (int i = 0; i < sorted.length; i++) {
+				versions[i] = (Version) sorted[i].getAttributes().get(versionAttr);
+			}
+		}
+
+		List<ModuleCapability> match(Filter f, VersionRange range, boolean matchMandatory) {
+			List<ModuleCapability> result = new ArrayList<>(1);
+			for (int i = lowerBound(range); i < sorted.length && range.includes(versions[i]); i++) {
+				if (matches(f, sorted[i], matchMandatory)) {
+					result.add(sorted[i]);
+				}
+			}
+			for (ModuleCapability capability : unversioned) {
+				if (matches(f, capability, matchMandatory)) {
+					result.add(capability);
+				}
+			}
+			return result;
+		}
+
+		private int lowerBound(VersionRange range) {
+			Version left = range.getLeft();
+			boolean open = range.getLeftType() == VersionRange.LEFT_OPEN;
+			int low = 0;
+			int high = versions.length;
+			while (low < high) {
+				int mid = (low + high) >>> 1;
+				int compare = versions[mid].compareTo(left);
+				if (compare < 0 || (compare == 0 && open)) {
+					low = mid + 1;
+				} else {
+					high = mid;
+				}
+			}
+			return low;
+		}
+	}
+
 	static class NamespaceSet {
 		private final String name;
 		private final Map<String, Set<ModuleCapability>> indexes = new HashMap<>();
 		private final Set<ModuleCapability> all = new HashSet<>();
 		private final Set<ModuleCapability> nonStringIndexes = new HashSet<>(0);
+		/*
+		 * Created lazily while finding capabilities and discarded when the
+		 * capabilities of the index key change.
+		 */
+		private final Map<String, VersionIndex> versionIndexes = new ConcurrentHashMap<>();
+		private final String versionAttr;
 		private final boolean matchMandatory;
+		private final FilterCache filterCache;
 
-		NamespaceSet(String name) {
+		NamespaceSet(String name, FilterCache filterCache) {
 			this.name = name;
+			this.filterCache = filterCache;
 			this.matchMandatory = PackageNamespace.PACKAGE_NAMESPACE.equals(name) || BundleNamespace.BUNDLE_NAMESPACE.equals(name) || HostNamespace.HOST_NAMESPACE.equals(name);
+			// by convention other namespaces use the version attribute
+			this.versionAttr = BundleNamespace.BUNDLE_NAMESPACE.equals(name) || HostNamespace.HOST_NAMESPACE.equals(name) ? AbstractWiringNamespace.CAPABILITY_BUNDLE_VERSION_ATTRIBUTE : PackageNamespace.CAPABILITY_VERSION_ATTRIBUTE;
 		}
 
 		void addCapability(ModuleCapability capability) {
@@ -86,6 +205,7 @@ public class Capabilities {
 					indexes.put((String) indexKey, capabilities);
 				}
 				capabilities.add(capability);
+				versionIndexes.remove(indexKey);
 			}
 		}
 
@@ -122,9 +242,15 @@ public class Capabilities {
 				if (capabilities != null) {
 					capabilities.remove(capability);
 				}
+				versionIndexes.remove(indexKey);
 			}
 		}
 
+		int getCapabilityCount(String indexKey) {
+			Set<ModuleCapability> indexed = indexes.get(indexKey);
+			return (indexed == null ? 0 : indexed.size()) + nonStringIndexes.size();
+		}
+
 		List<ModuleCapability> findCapabilities(Requirement requirement) {
 			if (!name.equals(requirement.getNamespace())) {
 				throw new IllegalArgumentException("Invalid namespace: " + requirement.getNamespace() + ": expecting: " + name); //$NON-NLS-1$//$NON-NLS-2$
@@ -133,7 +259,7 @@ public class Capabilities {
 			String filterSpec = requirement.getDirectives().get(Namespace.REQUIREMENT_FILTER_DIRECTIVE);
 			if (filterSpec != null) {
 				try {
-					f = FilterImpl.newInstance(filterSpec);
+					f = filterCache.getFilter(filterSpec);
 				} catch (InvalidSyntaxException e) {
 					return Collections.emptyList();
 				}
@@ -153,7 +279,7 @@ public class Capabilities {
 					if (indexed == null) {
 						result = new ArrayList<>(0);
 					} else {
-						result = match(f, indexed, synthetic);
+						result = match(f, indexKey, indexed, synthetic);
 					}
 					if (!nonStringIndexes.isEmpty()) {
 						List<ModuleCapability> nonStringResult = match(f, nonStringIndexes, synthetic);
@@ -168,6 +294,18 @@ public class Capabilities {
 			return result;
 		}
 
+		private List<ModuleCapability> match(FilterImpl f, String indexKey, Set<ModuleCapability> indexed, boolean synthetic) {
+			if (indexed.size() >= VersionIndex.MIN_SIZE) {
+				VersionRange range = f.getVersionRange(versionAttr);
+				if (range != null) {
+					// only scan the capabilities with a version in the range
+					VersionIndex versionIndex = versionIndexes.computeIfAbsent(indexKey, k -> new VersionIndex(indexed, versionAttr));
+					return versionIndex.match(f, range, !synthetic && matchMandatory);
+				}
+			}
+			return match(f, indexed, synthetic);
+		}
+
 		private List<ModuleCapability> match(Filter f, Set<ModuleCapability> candidates, boolean synthetic) {
 			List<ModuleCapability> result = new ArrayList<>(1);
 			for (ModuleCapability candidate : candidates) {
@@ -217,6 +355,7 @@ public class Capabilities {
 	}
 
 	Map<String, NamespaceSet> namespaceSets = new HashMap<>();
+	private final FilterCache filterCache = new FilterCache();
 
 	/**
 	 * Adds the {@link ModuleRevision#getModuleCapabilities(String) capabilities}
@@ -231,7 +370,7 @@ public class Capabilities {
 		for (ModuleCapability capability : revision.getModuleCapabilities(null)) {
 			NamespaceSet namespaceSet = namespaceSets.get(capability.getNamespace());
 			if (namespaceSet == null) {
-				namespaceSet = new NamespaceSet(capability.getNamespace());
+				namespaceSet = new NamespaceSet(capability.getNamespace(), filterCache);
 				namespaceSets.put(capability.getNamespace(), namespaceSet);
 			}
 			namespaceSet.addCapability(capability);
@@ -255,6 +394,7 @@ public class Capabilities {
 	 * provided by the specified revision from this database.  These capabilities
 	 * must no longer be available for lookup with the
 	 * {@link #findCapabilities(Requirement)} method.
+	 * The cached filters of the requirements of the revision are discarded.
 	 * @param revision
 	 */
 	public void removeCapabilities(ModuleRevision revision) {
@@ -264,6 +404,45 @@ public class Capabilities {
 				namespaceSet.removeCapability(capability);
 			}
 		}
+		for (ModuleRequirement requirement : revision.getModuleRequirements(null)) {
+			String filterSpec = requirement.getDirectives().get(Namespace.REQUIREMENT_FILTER_DIRECTIVE);
+			if (filterSpec != null) {
+				filterCache.remove(filterSpec);
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of times a parsed filter was found in the filter cache
+	 * while finding capabilities.
+	 * @return the number of filter cache hits
+	 */
+	public long getFilterCacheHits() {
+		return filterCache.hits.get();
+	}
+
+	/**
+	 * Returns the number of times a filter had to be parsed while finding capabilities.
+	 * @return the number of filter cache misses
+	 */
+	public long getFilterCacheMisses() {
+		return filterCache.misses.get();
+	}
+
+	/**
+	 * Returns the number of capabilities in the namespace which may be indexed by
+	 * the specified value of the namespace attribute. Capabilities with a value
+	 * of the namespace attribute which is not a string are always counted.
+	 * @param namespace the namespace
+	 * @param indexKey the value of the namespace attribute
+	 * @return the number of capabilities
+	 */
+	public int getCapabilityCount(String namespace, String indexKey) {
+		NamespaceSet namespaceSet = namespaceSets.get(namespace);
+		if (namespaceSet == null) {
+			return 0;
+		}
+		return namespaceSet.getCapabilityCount(indexKey);
 	}
 
 	/**
@@ -140,6 +140,7 @@ public class EquinoxConfiguration implements EnvironmentInfo {
 
 	public final boolean CLASS_CERTIFICATE;
 	public final boolean PARALLEL_CAPABLE;
+	public final int CLASS_LOADER_MISS_CACHE_SIZE;
 
 	private final Map<Throwable, Integer> exceptions = new LinkedHashMap<>(0);
 
@@ -210,6 +211,7 @@ public class EquinoxConfiguration implements EnvironmentInfo {
 	public final static String PROP_CLASS_CERTIFICATE_SUPPORT = "osgi.support.class.certificate"; //$NON-NLS-1$
 	public final static String PROP_CLASS_LOADER_TYPE = "osgi.classloader.type"; //$NON-NLS-1$
 	public final static String CLASS_LOADER_TYPE_PARALLEL = "parallel"; //$NON-NLS-1$
+	public final static String PROP_CLASS_LOADER_MISS_CACHE_SIZE = "osgi.classloader.missCacheSize"; //$NON-NLS-1$
 
 	public static final String PROP_FORCED_RESTART = "osgi.forcedRestart"; //$NON-NLS-1$
 	public static final String PROP_IGNORE_USER_CONFIGURATION = "eclipse.ignoreUserConfiguration"; //$NON-NLS-1$
@@ -221,6 +223,7 @@ public class EquinoxConfiguration implements EnvironmentInfo {
 
 	public static final String DEFAULT_STATE_SAVE_DELAY_INTERVAL = "30000"; //$NON-NLS-1$
 	public static final String PROP_STATE_SAVE_DELAY_INTERVAL = "eclipse.stateSaveDelayInterval"; //$NON-NLS-1$
+	public static final String PROP_STATE_SAVE_JOURNAL_LIMIT = "eclipse.stateSaveJournalLimit"; //$NON-NLS-1$
 
 	public static final String PROP_MODULE_LOCK_TIMEOUT = "osgi.module.lock.timeout"; //$NON-NLS-1$
 	public static final String PROP_MODULE_AUTO_START_ON_RESOLVE = "osgi.module.auto.start.on.resolve"; //$NON-NLS-1$
@@ -233,8 +236,15 @@ public class EquinoxConfiguration implements EnvironmentInfo {
 	public static final String PROP_EQUINOX_RESOLVER_THREAD_COUNT = "equinox.resolver.thread.count"; //$NON-NLS-1$
 	public static final String PROP_EQUINOX_START_LEVEL_THREAD_COUNT = "equinox.start.level.thread.count"; //$NON-NLS-1$
 	public static final String PROP_EQUINOX_START_LEVEL_RESTRICT_PARALLEL = "equinox.start.level.restrict.parallel"; //$NON-NLS-1$
+	public static final String PROP_EQUINOX_START_LEVEL_DEPENDENCY_ORDER = "equinox.start.level.dependency.order"; //$NON-NLS-1$
 	public static final String PROP_RESOLVER_REVISION_BATCH_SIZE = "equinox.resolver.revision.batch.size"; //$NON-NLS-1$
 	public static final String PROP_RESOLVER_BATCH_TIMEOUT = "equinox.resolver.batch.timeout"; //$NON-NLS-1$
+	public static final String PROP_RESOLVER_BATCH_PERMUTATIONS = "equinox.resolver.batch.permutations"; //$NON-NLS-1$
+	public static final String PROP_RESOLVER_INCREMENTAL = "equinox.resolver.incremental"; //$NON-NLS-1$
+	public static final String PROP_SERVICE_INDEX_KEYS = "equinox.service.index.keys"; //$NON-NLS-1$
+	public static final String PROP_SERVICE_FILTER_MEMO_SIZE = "equinox.service.filter.memo.size"; //$NON-NLS-1$
+	public static final String PROP_SERVICE_EVENT_ASYNC_THREADS = "equinox.service.event.async.threads"; //$NON-NLS-1$
+	public static final String PROP_SERVICE_EVENT_ASYNC_QUEUE_SIZE = "equinox.service.event.async.queue.size"; //$NON-NLS-1$
 
 	public static final String PROP_SYSTEM_PROVIDE_HEADER = "equinox.system.provide.header"; //$NON-NLS-1$
 	public static final String SYSTEM_PROVIDE_HEADER_ORIGINAL = "original"; //$NON-NLS-1$
@@ -630,6 +640,7 @@ public class EquinoxConfiguration implements EnvironmentInfo {
 		throwErrorOnFailedStart = "true".equals(getConfiguration(PROP_COMPATIBILITY_ERROR_FAILED_START, "true")); //$NON-NLS-1$//$NON-NLS-2$
 
 		PARALLEL_CAPABLE = CLASS_LOADER_TYPE_PARALLEL.equals(getConfiguration(PROP_CLASS_LOADER_TYPE));
+		CLASS_LOADER_MISS_CACHE_SIZE = getMissCacheSize(getConfiguration(PROP_CLASS_LOADER_MISS_CACHE_SIZE));
 
 		// A specified osgi.dev property but unspecified osgi.checkConfiguration
 		// property implies osgi.checkConfiguration = true.
@@ -644,6 +655,18 @@ public class EquinoxConfiguration implements EnvironmentInfo {
 		runtimeVerifySignedBundles = (supportSignedBundles & SIGNED_CONTENT_VERIFY_RUNTIME) != 0;
 	}
 
+	private static int getMissCacheSize(String value) {
+		if (value == null) {
+			// the miss cache is disabled by default
+			return 0;
+		}
+		try {
+			return Math.max(0, Integer.parseInt(value.trim()));
+		} catch (NumberFormatException e) {
+			return 0;
+		}
+	}
+
 	private static int getSupportSignedBundles(EquinoxConfiguration config) {
 		int supportSignedBundles = 0;
 		String[] supportOptions = ManifestElement.getArrayFromList(
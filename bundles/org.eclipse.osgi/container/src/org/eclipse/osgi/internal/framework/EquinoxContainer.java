@@ -229,7 +229,9 @@ public class EquinoxContainer implements ThreadFactory, Runnable {
 		StorageSaver currentSaver;
 		Storage currentStorage;
 		ScheduledExecutorService currentExecutor;
+		ServiceRegistry currentRegistry;
 		synchronized (this.monitor) {
+			currentRegistry = serviceRegistry;
 			serviceRegistry = null;
 			currentSaver = storageSaver;
 			currentStorage = storage;
@@ -238,6 +240,7 @@ public class EquinoxContainer implements ThreadFactory, Runnable {
 		// do this outside of the lock to avoid deadlock
 		currentSaver.close();
 		currentStorage.close();
+		currentRegistry.close();
 		// Must be done last since it will result in termination of the
 		// framework active thread.
 		currentExecutor.shutdown();
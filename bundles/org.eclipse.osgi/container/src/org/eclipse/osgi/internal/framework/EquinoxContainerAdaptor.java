@@ -39,6 +39,7 @@ import org.eclipse.osgi.container.ModuleRevision;
 import org.eclipse.osgi.container.ModuleRevisionBuilder;
 import org.eclipse.osgi.container.ModuleWiring;
 import org.eclipse.osgi.container.SystemModule;
+import org.eclipse.osgi.framework.log.FrameworkLogEntry;
 import org.eclipse.osgi.internal.container.AtomicLazyInitializer;
 import org.eclipse.osgi.internal.hookregistry.ClassLoaderHook;
 import org.eclipse.osgi.internal.loader.BundleLoader;
@@ -210,6 +211,12 @@ public class EquinoxContainerAdaptor extends ModuleContainerAdaptor {
 		}
 	}
 
+	@Override
+	public void publishContainerInfo(Module module, String message) {
+		container.getLogServices().log(EquinoxContainer.NAME, FrameworkLogEntry.INFO, message, null);
+		super.publishContainerInfo(module, message);
+	}
+
 	@Override
 	public void publishModuleEvent(ModuleEvent type, Module module, Module origin) {
 		EquinoxEventPublisher publisher = container.getEventPublisher();
@@ -43,6 +43,7 @@ import org.osgi.framework.Filter;
 import org.osgi.framework.InvalidSyntaxException;
 import org.osgi.framework.ServiceReference;
 import org.osgi.framework.Version;
+import org.osgi.framework.VersionRange;
 
 /**
  * RFC 1960-based Filter. Filter objects can be created by calling the
@@ -381,6 +382,15 @@ public abstract class FilterImpl implements Filter {
 				operand.addAttributes(attributes, versionAttrs, false);
 			}
 		}
+
+		@Override
+		void addVersionBounds(String versionAttr, VersionBounds bounds, boolean not) {
+			if (!not) {
+				for (FilterImpl operand : operands) {
+					operand.addVersionBounds(versionAttr, bounds, false);
+				}
+			}
+		}
 	}
 
 	static final class Or extends FilterImpl {
@@ -465,6 +475,11 @@ public abstract class FilterImpl implements Filter {
 		void addAttributes(Map<String, String> attributes, Map<String, Range> versionAttrs, boolean not) {
 			operand.addAttributes(attributes, versionAttrs, true);
 		}
+
+		@Override
+		void addVersionBounds(String versionAttr, VersionBounds bounds, boolean not) {
+			operand.addVersionBounds(versionAttr, bounds, !not);
+		}
 	}
 
 	static abstract class Item extends FilterImpl {
@@ -1057,6 +1072,15 @@ public abstract class FilterImpl implements Filter {
 				}
 			}
 		}
+
+		@Override
+		void addVersionBounds(String versionAttr, VersionBounds bounds, boolean not) {
+			if (!not && attr.equals(versionAttr)) {
+				Version version = bounds.valueOf(value, false);
+				bounds.setLeft(version, false);
+				bounds.setRight(version, false);
+			}
+		}
 	}
 
 	static final class LessEqual extends Equal {
@@ -1112,6 +1136,17 @@ public abstract class FilterImpl implements Filter {
 				}
 			}
 		}
+
+		@Override
+		void addVersionBounds(String versionAttr, VersionBounds bounds, boolean not) {
+			if (attr.equals(versionAttr)) {
+				if (not) {
+					bounds.setLeft(bounds.valueOf(value, true), true);
+				} else {
+					bounds.setRight(bounds.valueOf(value, false), false);
+				}
+			}
+		}
 	}
 
 	static final class GreaterEqual extends Equal {
@@ -1167,6 +1202,17 @@ public abstract class FilterImpl implements Filter {
 				}
 			}
 		}
+
+		@Override
+		void addVersionBounds(String versionAttr, VersionBounds bounds, boolean not) {
+			if (attr.equals(versionAttr)) {
+				if (not) {
+					bounds.setRight(bounds.valueOf(value, true), true);
+				} else {
+					bounds.setLeft(bounds.valueOf(value, false), false);
+				}
+			}
+		}
 	}
 
 	static final class Approx extends Equal {
@@ -1244,6 +1290,11 @@ public abstract class FilterImpl implements Filter {
 		public Map<String, String> getStandardOSGiAttributes(String... versions) {
 			throw new IllegalArgumentException("Invalid filter for standard OSGi Attributes: " + operation()); //$NON-NLS-1$
 		}
+
+		@Override
+		void addVersionBounds(String versionAttr, VersionBounds bounds, boolean not) {
+			// approximate matches do not restrict the version
+		}
 	}
 
 	/**
@@ -1308,6 +1359,26 @@ public abstract class FilterImpl implements Filter {
 
 	abstract void addAttributes(Map<String, String> attributes, Map<String, Range> versionAttrs, boolean not);
 
+	/**
+	 * Returns the range of versions the specified version attribute must be in
+	 * for this filter to match. Only the comparisons of the version attribute
+	 * which are the filter or which are part of a base '&amp;' clause are used to
+	 * compute the range. A map with a version outside of the range does not match
+	 * the filter but a map with a version inside of the range may still not match.
+	 * The range only applies to maps with a {@link Version} value for the attribute.
+	 * @param versionAttr the version attribute
+	 * @return the range of versions or null if the filter does not restrict the version attribute
+	 */
+	public VersionRange getVersionRange(String versionAttr) {
+		VersionBounds bounds = new VersionBounds();
+		addVersionBounds(versionAttr, bounds, false);
+		return bounds.toRange();
+	}
+
+	void addVersionBounds(String versionAttr, VersionBounds bounds, boolean not) {
+		// by default a filter does not restrict the version
+	}
+
 	/**
 	 * Parser class for OSGi filter strings. This class parses the complete
 	 * filter string and builds a tree of FilterImpl objects rooted at the
@@ -1689,6 +1760,58 @@ public abstract class FilterImpl implements Filter {
 		}
 	}
 
+	static final class VersionBounds {
+		private Version left;
+		private boolean leftOpen;
+		private Version right;
+		private boolean rightOpen;
+		private boolean invalid;
+
+		Version valueOf(String value, boolean not) {
+			try {
+				return Version.valueOf(value);
+			} catch (IllegalArgumentException e) {
+				// the comparison never matches a version; the filter can only
+				// match a version if the comparison is negated
+				invalid |= !not;
+				return null;
+			}
+		}
+
+		void setLeft(Version version, boolean open) {
+			if (version == null) {
+				return;
+			}
+			int compare = left == null ? 1 : version.compareTo(left);
+			if (compare > 0 || (compare == 0 && open)) {
+				left = version;
+				leftOpen = open;
+			}
+		}
+
+		void setRight(Version version, boolean open) {
+			if (version == null) {
+				return;
+			}
+			int compare = right == null ? -1 : version.compareTo(right);
+			if (compare < 0 || (compare == 0 && open)) {
+				right = version;
+				rightOpen = open;
+			}
+		}
+
+		VersionRange toRange() {
+			if (invalid) {
+				// no version can match; use an empty range
+				return new VersionRange(VersionRange.LEFT_OPEN, Version.emptyVersion, Version.emptyVersion, VersionRange.RIGHT_OPEN);
+			}
+			if (left == null && right == null) {
+				return null;
+			}
+			return new VersionRange(leftOpen ? VersionRange.LEFT_OPEN : VersionRange.LEFT_CLOSED, left == null ? Version.emptyVersion : left, right, rightOpen ? VersionRange.RIGHT_OPEN : VersionRange.RIGHT_CLOSED);
+		}
+	}
+
 	static class Range {
 		private char leftRule = 0;
 		private Version leftVersion;
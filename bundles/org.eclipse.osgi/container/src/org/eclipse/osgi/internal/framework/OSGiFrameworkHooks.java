@@ -20,6 +20,8 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import org.eclipse.osgi.container.BulkResolverHook;
 import org.eclipse.osgi.container.Module;
 import org.eclipse.osgi.container.Module.State;
 import org.eclipse.osgi.container.ModuleCollisionHook;
@@ -214,11 +216,17 @@ class OSGiFrameworkHooks {
 					}
 				}
 			}
+			for (HookReference hookRef : hookRefs) {
+				if (hookRef.hook instanceof BulkResolverHook) {
+					// only collect the matches in bulk if one of the hooks can filter them in bulk
+					return new CoreBulkResolverHook(hookRefs, systemModule);
+				}
+			}
 			return new CoreResolverHook(hookRefs, systemModule);
 		}
 
 		class CoreResolverHook implements ResolutionReport.Listener, ResolverHook {
-			private final List<HookReference> hooks;
+			final List<HookReference> hooks;
 			private final Module systemModule;
 
 			private volatile ResolutionReport resolutionReport;
@@ -359,6 +367,36 @@ class OSGiFrameworkHooks {
 				resolutionReport = report;
 			}
 		}
+
+		class CoreBulkResolverHook extends CoreResolverHook implements BulkResolverHook {
+			CoreBulkResolverHook(List<HookReference> hooks, Module systemModule) {
+				super(hooks, systemModule);
+			}
+
+			@Override
+			public void filterMatches(Map<BundleRequirement, Collection<BundleCapability>> matches) {
+				if (debug.DEBUG_HOOKS) {
+					Debug.println("BulkResolverHook.filterMatches(" + matches.size() + " requirements)"); //$NON-NLS-1$ //$NON-NLS-2$
+				}
+				for (HookReference hookRef : hooks) {
+					if (hookRef.reference.getBundle() == null) {
+						handleHookException(null, hookRef.hook, "filterMatches"); //$NON-NLS-1$
+					} else {
+						try {
+							if (hookRef.hook instanceof BulkResolverHook) {
+								((BulkResolverHook) hookRef.hook).filterMatches(matches);
+							} else {
+								for (Map.Entry<BundleRequirement, Collection<BundleCapability>> match : matches.entrySet()) {
+									hookRef.hook.filterMatches(match.getKey(), match.getValue());
+								}
+							}
+						} catch (Throwable t) {
+							handleHookException(t, hookRef.hook, "filterMatches"); //$NON-NLS-1$
+						}
+					}
+				}
+			}
+		}
 	}
 
 	public void initBegin() {
@@ -15,6 +15,7 @@ package org.eclipse.osgi.internal.framework;
 
 import java.io.IOException;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 import org.eclipse.osgi.framework.log.FrameworkLogEntry;
 
 public final class StorageSaver {
@@ -35,15 +36,48 @@ public final class StorageSaver {
 		}
 	}
 
+	private static class JournalTask implements Runnable {
+		private final EquinoxContainer container;
+		private final AtomicBoolean pending = new AtomicBoolean();
+
+		public JournalTask(EquinoxContainer container) {
+			this.container = container;
+		}
+
+		void schedule() {
+			// changes made before this task runs are included in the same journal entry
+			if (pending.compareAndSet(false, true)) {
+				try {
+					container.getScheduledExecutor().execute(this);
+				} catch (RejectedExecutionException e) {
+					// the framework is stopping; closing the storage saves the changes
+					pending.set(false);
+				}
+			}
+		}
+
+		@Override
+		public void run() {
+			pending.set(false);
+			try {
+				container.getStorage().saveJournal();
+			} catch (IOException e) {
+				container.getLogServices().log(EquinoxContainer.NAME, FrameworkLogEntry.ERROR, "Error saving on update", e); //$NON-NLS-1$
+			}
+		}
+	}
+
 	private final EquinoxContainer container;
 	private final long delay;
 	private final ScheduledFuture<?> future;
 	private final Thread hook;
 	private final StorageSaverTask task;
+	private final JournalTask journalTask;
 
 	public StorageSaver(EquinoxContainer container) {
 		this.container = container;
 		task = new StorageSaverTask(container);
+		journalTask = new JournalTask(container);
 		delay = computeDelay();
 		future = scheduleTask();
 		hook = registerShutdownHook();
@@ -55,9 +89,15 @@ public final class StorageSaver {
 	}
 
 	public void save() {
-		if (delay != 0)
-			// Periodic saves are enabled or saves are disabled altogether.
+		if (delay < 0)
+			// Saves are disabled altogether.
 			return;
+		if (delay > 0) {
+			// Periodic saves are enabled; journal the changes in the background
+			// because the caller may hold the lock of the module database.
+			journalTask.schedule();
+			return;
+		}
 		// Immediately save on request.
 		task.run();
 	}
@@ -29,6 +29,7 @@ import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -95,19 +96,21 @@ public class BundleLoader extends ModuleLoader {
 	private final EquinoxContainer container;
 	private final Debug debug;
 	private final PolicyHandler policy;
+	/* cache of class and resource names not found through the wiring; null if disabled */
+	private final MissCache missCache;
 
 	/* List of package names that are exported by this BundleLoader */
 	private final Collection<String> exportedPackages;
 	private final BundleLoaderSources exportSources;
 
 	/* cache of required package sources. Key is packagename, value is PackageSource */
-	private final Map<String, PackageSource> requiredSources = new HashMap<>();
+	private final Map<String, PackageSource> requiredSources = new ConcurrentHashMap<>();
 	/* cache of imported packages. Key is packagename, Value is PackageSource */
-	private final Map<String, PackageSource> importedSources = new HashMap<>();
+	private final Map<String, PackageSource> importedSources = new ConcurrentHashMap<>();
 	private final List<ModuleWire> requiredBundleWires;
 
-	/* @GuardedBy("importedSources") */
-	private boolean importsInitialized = false;
+	/* written while holding the importedSources monitor; read without locking */
+	private volatile boolean importsInitialized = false;
 	/* @GuardedBy("importedSources") */
 	private boolean dynamicAllPackages;
 	/* If not null, list of package stems to import dynamically. */
@@ -194,6 +197,10 @@ public class BundleLoader extends ModuleLoader {
 			Bundle systemBundle = systemModule.getBundle();
 			policy.open(systemBundle.getBundleContext());
 		}
+
+		// buddy policies may find classes from any bundle; never cache misses in that case
+		int missCacheSize = container.getConfiguration().CLASS_LOADER_MISS_CACHE_SIZE;
+		missCache = missCacheSize > 0 && policy == null ? new MissCache(missCacheSize) : null;
 	}
 
 	public ModuleWiring getWiring() {
@@ -310,6 +317,8 @@ public class BundleLoader extends ModuleLoader {
 		addFragmentExports(wiring.getModuleCapabilities(PackageNamespace.PACKAGE_NAMESPACE));
 		loadClassLoaderFragments(fragments);
 		clearManifestLocalizationCache();
+		// the fragments may provide content to this loader and any loader wired to it
+		MissCache.invalidateAll();
 	}
 
 	protected void clearManifestLocalizationCache() {
@@ -469,46 +478,70 @@ public class BundleLoader extends ModuleLoader {
 		}
 		if (result != null)
 			return result;
-		// 3) search the imported packages
-		PackageSource source = findImportedSource(pkgName, null);
-		if (source != null) {
-			if (debug.DEBUG_LOADER) {
-				Debug.println("BundleLoader[" + this + "] loading from import package: " + source); //$NON-NLS-1$ //$NON-NLS-2$
-			}
-			// 3) found import source terminate search at the source
-			result = source.loadClass(name);
-			if (result == null) {
-				// last ditch find loaded check in case something is reflectively
-				// calling defineClass on our loader.
+		Boolean cachedMiss = null;
+		long missStamp = 0;
+		if (missCache != null) {
+			cachedMiss = missCache.getClassMiss(name);
+			missStamp = missCache.getStamp();
+			if (cachedMiss != null) {
+				if (debug.DEBUG_LOADER) {
+					Debug.println("BundleLoader[" + this + "] found cached miss for class: " + name); //$NON-NLS-1$ //$NON-NLS-2$
+				}
+				// still check for classes defined reflectively on our loader
 				result = getModuleClassLoader().publicFindLoaded(name);
+				if (result != null)
+					return result;
+				if (cachedMiss.booleanValue())
+					// the search terminated at an import source before
+					return generateException(name, generateException);
 			}
-			if (result != null)
-				return result;
-			return generateException(name, generateException);
-		}
-		// 4) search the required bundles
-		source = findRequiredSource(pkgName, null);
-		if (source != null) {
-			if (debug.DEBUG_LOADER) {
-				Debug.println("BundleLoader[" + this + "] loading from required bundle package: " + source); //$NON-NLS-1$ //$NON-NLS-2$
-			}
-			// 4) attempt to load from source but continue on failure
-			result = source.loadClass(name);
 		}
-		// 5) search the local bundle
-		if (result == null)
-			result = findLocalClass(name);
-		if (result != null)
-			return result;
-		// 6) attempt to find a dynamic import source; only do this if a required source was not found
-		if (source == null) {
-			source = findDynamicSource(pkgName);
+		if (cachedMiss == null) {
+			// 3) search the imported packages
+			PackageSource source = findImportedSource(pkgName, null);
 			if (source != null) {
+				if (debug.DEBUG_LOADER) {
+					Debug.println("BundleLoader[" + this + "] loading from import package: " + source); //$NON-NLS-1$ //$NON-NLS-2$
+				}
+				// 3) found import source terminate search at the source
 				result = source.loadClass(name);
+				if (result == null) {
+					// last ditch find loaded check in case something is reflectively
+					// calling defineClass on our loader.
+					result = getModuleClassLoader().publicFindLoaded(name);
+				}
 				if (result != null)
 					return result;
+				if (missCache != null)
+					missCache.addClassMiss(name, true, missStamp);
 				return generateException(name, generateException);
 			}
+			// 4) search the required bundles
+			source = findRequiredSource(pkgName, null);
+			if (source != null) {
+				if (debug.DEBUG_LOADER) {
+					Debug.println("BundleLoader[" + this + "] loading from required bundle package: " + source); //$NON-NLS-1$ //$NON-NLS-2$
+				}
+				// 4) attempt to load from source but continue on failure
+				result = source.loadClass(name);
+			}
+			// 5) search the local bundle
+			if (result == null)
+				result = findLocalClass(name);
+			if (result != null)
+				return result;
+			// 6) attempt to find a dynamic import source; only do this if a required source was not found
+			if (source == null) {
+				source = findDynamicSource(pkgName);
+				if (source != null) {
+					result = source.loadClass(name);
+					if (result != null)
+						return result;
+					if (missCache != null)
+						missCache.addClassMiss(name, true, missStamp);
+					return generateException(name, generateException);
+				}
+			}
 		}
 
 		if (result == null)
@@ -522,6 +555,10 @@ public class BundleLoader extends ModuleLoader {
 			result = policy.doBuddyClassLoading(name);
 		if (result != null)
 			return result;
+		if (cachedMiss == null && missCache != null && !isDynamicallyImported(pkgName)) {
+			// an unresolved dynamic import may resolve later; only cache misses in other packages
+			missCache.addClassMiss(name, false, missStamp);
+		}
 		// hack to support backwards compatibility for bootdelegation
 		// or last resort; do class context trick to work around VM bugs
 		if (parentDelegation && parent != null && !bootDelegation
@@ -670,35 +707,53 @@ public class BundleLoader extends ModuleLoader {
 		}
 		if (result != null)
 			return result;
-		// 3) search the imported packages
-		PackageSource source = findImportedSource(pkgName, null);
-		if (source != null) {
-			if (debug.DEBUG_LOADER) {
-				Debug.println("BundleLoader[" + this + "] loading from import package: " + source); //$NON-NLS-1$ //$NON-NLS-2$
-			}
-			// 3) found import source terminate search at the source
-			return source.getResource(name);
+		Boolean cachedMiss = null;
+		long missStamp = 0;
+		if (missCache != null) {
+			cachedMiss = missCache.getResourceMiss(name);
+			missStamp = missCache.getStamp();
+			if (cachedMiss != null && cachedMiss.booleanValue())
+				// the search terminated at an import source before
+				return null;
 		}
-		// 4) search the required bundles
-		source = findRequiredSource(pkgName, null);
-		if (source != null) {
-			if (debug.DEBUG_LOADER) {
-				Debug.println("BundleLoader[" + this + "] loading from required bundle package: " + source); //$NON-NLS-1$ //$NON-NLS-2$
+		if (cachedMiss == null) {
+			// 3) search the imported packages
+			PackageSource source = findImportedSource(pkgName, null);
+			if (source != null) {
+				if (debug.DEBUG_LOADER) {
+					Debug.println("BundleLoader[" + this + "] loading from import package: " + source); //$NON-NLS-1$ //$NON-NLS-2$
+				}
+				// 3) found import source terminate search at the source
+				result = source.getResource(name);
+				if (result == null && missCache != null)
+					missCache.addResourceMiss(name, true, missStamp);
+				return result;
+			}
+			// 4) search the required bundles
+			source = findRequiredSource(pkgName, null);
+			if (source != null) {
+				if (debug.DEBUG_LOADER) {
+					Debug.println("BundleLoader[" + this + "] loading from required bundle package: " + source); //$NON-NLS-1$ //$NON-NLS-2$
+				}
+				// 4) attempt to load from source but continue on failure
+				result = source.getResource(name);
+			}
+			// 5) search the local bundle
+			if (result == null)
+				result = findLocalResource(name);
+			if (result != null)
+				return result;
+			// 6) attempt to find a dynamic import source; only do this if a required source was not found
+			if (source == null) {
+				source = findDynamicSource(pkgName);
+				if (source != null) {
+					// must return the result of the dynamic import and do not continue
+					result = source.getResource(name);
+					if (result == null && missCache != null)
+						missCache.addResourceMiss(name, true, missStamp);
+					return result;
+				}
 			}
-			// 4) attempt to load from source but continue on failure
-			result = source.getResource(name);
-		}
-		// 5) search the local bundle
-		if (result == null)
-			result = findLocalResource(name);
-		if (result != null)
-			return result;
-		// 6) attempt to find a dynamic import source; only do this if a required source was not found
-		if (source == null) {
-			source = findDynamicSource(pkgName);
-			if (source != null)
-				// must return the result of the dynamic import and do not continue
-				return source.getResource(name);
 		}
 
 		if (result == null)
@@ -714,6 +769,10 @@ public class BundleLoader extends ModuleLoader {
 			result = policy.doBuddyResourceLoading(name);
 		if (result != null)
 			return result;
+		if (cachedMiss == null && missCache != null && !isDynamicallyImported(pkgName)) {
+			// an unresolved dynamic import may resolve later; only cache misses in other packages
+			missCache.addResourceMiss(name, false, missStamp);
+		}
 		// hack to support backwards compatibility for bootdelegation
 		// or last resort; do class context trick to work around VM bugs
 		if (parent != null && !bootDelegation && (container.getConfiguration().compatibilityBootDelegation || isRequestFromVM()))
@@ -1164,9 +1223,31 @@ public class BundleLoader extends ModuleLoader {
 			// gets added to the wiring first. This avoids issues if another
 			// thread tries to dynamic resolve before all is done here.
 			addDynamicImportPackage(dynamicImports.toArray(new String[dynamicImports.size()]));
+			if (missCache != null) {
+				// cached misses may now be found with the new dynamic imports
+				missCache.clear();
+			}
 		}
 	}
 
+	/**
+	 * Returns the number of class and resource lookups answered by the miss cache
+	 * of this loader.
+	 * @return the number of miss cache hits, zero if the miss cache is disabled
+	 */
+	public long getMissCacheHits() {
+		return missCache == null ? 0 : missCache.getHits();
+	}
+
+	/**
+	 * Returns the number of class and resource lookups not answered by the miss cache
+	 * of this loader.
+	 * @return the number of miss cache misses, zero if the miss cache is disabled
+	 */
+	public long getMissCacheMisses() {
+		return missCache == null ? 0 : missCache.getMisses();
+	}
+
 	/*
 	 * Finds a packagesource that is either imported or required from another bundle.
 	 * This will not include an local package source
@@ -1182,13 +1263,13 @@ public class BundleLoader extends ModuleLoader {
 	}
 
 	private PackageSource findImportedSource(String pkgName, Collection<BundleLoader> visited) {
-		Map<String, PackageSource> imports = getImportedSources(visited);
-		synchronized (imports) {
-			return imports.get(pkgName);
-		}
+		return getImportedSources(visited).get(pkgName);
 	}
 
 	private Map<String, PackageSource> getImportedSources(Collection<BundleLoader> visited) {
+		if (importsInitialized) {
+			return importedSources;
+		}
 		synchronized (importedSources) {
 			if (importsInitialized) {
 				return importedSources;
@@ -1219,8 +1300,9 @@ public class BundleLoader extends ModuleLoader {
 				if (debug.DEBUG_LOADER) {
 					Debug.println("BundleLoader[" + this + "] using dynamic import source: " + source); //$NON-NLS-1$ //$NON-NLS-2$
 				}
-				synchronized (importedSources) {
-					importedSources.put(source.getId(), source);
+				importedSources.put(source.getId(), source);
+				if (missCache != null) {
+					missCache.clear();
 				}
 				return source;
 			}
@@ -1232,11 +1314,9 @@ public class BundleLoader extends ModuleLoader {
 		if (requiredBundleWires.isEmpty()) {
 			return null;
 		}
-		synchronized (requiredSources) {
-			PackageSource result = requiredSources.get(pkgName);
-			if (result != null)
-				return result.isNullSource() ? null : result;
-		}
+		PackageSource cached = requiredSources.get(pkgName);
+		if (cached != null)
+			return cached.isNullSource() ? null : cached;
 		if (visited == null)
 			visited = new ArrayList<>();
 		if (!visited.contains(this))
@@ -1262,9 +1342,11 @@ public class BundleLoader extends ModuleLoader {
 			PackageSource[] srcs = result.toArray(new PackageSource[result.size()]);
 			source = createMultiSource(pkgName, srcs);
 		}
-		synchronized (requiredSources) {
-			requiredSources.put(source.getId(), source);
-		}
+		// the search may visit this loader again through other loaders; so a
+		// computeIfAbsent cannot be used here. Keep the first source cached.
+		PackageSource existing = requiredSources.putIfAbsent(source.getId(), source);
+		if (existing != null)
+			source = existing;
 		return source.isNullSource() ? null : source;
 	}
 
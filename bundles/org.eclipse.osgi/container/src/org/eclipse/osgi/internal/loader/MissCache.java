@@ -0,0 +1,139 @@
+/*******************************************************************************
+ * Copyright (c) 2026 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.osgi.internal.loader;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded cache of the class and resource names a {@link BundleLoader} failed
+ * to find through its wiring. A miss is either terminal, meaning an imported or
+ * dynamically imported package source was found but did not contain the name,
+ * or non-terminal, meaning none of the imports, required bundles, local class
+ * path or dynamic imports could find the name.
+ * <p>
+ * The content of a bundle class path can change when fragments attach to any
+ * host, which may affect the packages provided to other loaders. A global
+ * generation is incremented in that case and each cache discards its content
+ * the next time it is used. A miss is only cached if the cache was not
+ * invalidated while the name was being searched.
+ */
+final class MissCache {
+	private static final AtomicLong globalGeneration = new AtomicLong();
+
+	private final int maxSize;
+	private final Map<String, Boolean> classes = new ConcurrentHashMap<>();
+	private final Map<String, Boolean> resources = new ConcurrentHashMap<>();
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong localGeneration = new AtomicLong();
+	private volatile long generation = globalGeneration.get();
+
+	MissCache(int maxSize) {
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * Invalidates the content of all miss caches.
+	 */
+	static void invalidateAll() {
+		globalGeneration.incrementAndGet();
+	}
+
+	/**
+	 * Returns the cached miss for the class name.
+	 * @param name the class name
+	 * @return {@code Boolean.TRUE} for a terminal miss, {@code Boolean.FALSE}
+	 * for a non-terminal miss or {@code null} if the name is not cached
+	 */
+	Boolean getClassMiss(String name) {
+		return get(classes, name);
+	}
+
+	Boolean getResourceMiss(String name) {
+		return get(resources, name);
+	}
+
+	/**
+	 * Returns the current stamp of this cache. The stamp changes each time the
+	 * cache is invalidated.
+	 * @return the current stamp
+	 */
+	long getStamp() {
+		checkGeneration();
+		return generation + localGeneration.get();
+	}
+
+	void addClassMiss(String name, boolean terminal, long stamp) {
+		put(classes, name, terminal, stamp);
+	}
+
+	void addResourceMiss(String name, boolean terminal, long stamp) {
+		put(resources, name, terminal, stamp);
+	}
+
+	void clear() {
+		localGeneration.incrementAndGet();
+		classes.clear();
+		resources.clear();
+	}
+
+	long getHits() {
+		return hits.get();
+	}
+
+	long getMisses() {
+		return misses.get();
+	}
+
+	private Boolean get(Map<String, Boolean> cache, String name) {
+		checkGeneration();
+		Boolean result = cache.get(name);
+		if (result != null) {
+			hits.incrementAndGet();
+		} else {
+			misses.incrementAndGet();
+		}
+		return result;
+	}
+
+	private void put(Map<String, Boolean> cache, String name, boolean terminal, long stamp) {
+		if (stamp != getStamp()) {
+			return;
+		}
+		if (cache.size() >= maxSize) {
+			// remove an arbitrary quarter of the cached names
+			int toRemove = cache.size() - (maxSize * 3 / 4);
+			for (Iterator<String> keys = cache.keySet().iterator(); keys.hasNext() && toRemove > 0; toRemove--) {
+				keys.next();
+				keys.remove();
+			}
+		}
+		cache.put(name, Boolean.valueOf(terminal));
+		if (stamp != getStamp()) {
+			// invalidated concurrently
+			cache.remove(name);
+		}
+	}
+
+	private void checkGeneration() {
+		long current = globalGeneration.get();
+		if (generation != current) {
+			clear();
+			generation = current;
+		}
+	}
+}
@@ -0,0 +1,225 @@
+/*******************************************************************************
+ * Copyright (c) 2026 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.osgi.internal.log;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import org.eclipse.osgi.framework.log.FrameworkLogEntry;
+
+/**
+ * Appends log entries of an {@link EquinoxLogWriter} through a bounded lock-free
+ * ring buffer. A single writer thread drains the buffer, writes the entries
+ * to the log writer which keeps its output open, and flushes the output once
+ * enough characters have been written or the flush interval has elapsed.
+ * <p>
+ * The writer thread is started on demand and exits after it has been idle for
+ * a number of flush intervals, closing the output of the log writer.
+ */
+final class AsyncLogWriter implements Runnable {
+	/** The maximum number of entries written while holding the log writer lock */
+	private static final int MAX_BATCH = 64;
+	/** The number of idle flush intervals before the writer thread exits */
+	private static final int IDLE_INTERVALS = 10;
+
+	static final class PendingEntry {
+		final FrameworkLogEntry entry;
+		final long timestamp;
+
+		PendingEntry(FrameworkLogEntry entry, long timestamp) {
+			this.entry = entry;
+			this.timestamp = timestamp;
+		}
+	}
+
+	private final EquinoxLogWriter logWriter;
+	private final String threadName;
+	private final long flushIntervalNanos;
+	private final long flushSize;
+
+	// ring buffer; see bounded MPMC queue by D. Vyukov
+	private final int mask;
+	private final Object[] buffer;
+	private final AtomicLongArray sequences;
+	private final AtomicLong tail = new AtomicLong();
+	/* @GuardedBy("running") only accessed by the writer thread */
+	private long head;
+
+	private final AtomicBoolean running = new AtomicBoolean();
+	private volatile Thread writerThread;
+	private volatile boolean parked;
+	/** The sequence of the last entry written and flushed */
+	private volatile long flushed;
+	private volatile boolean flushRequested;
+
+	AsyncLogWriter(EquinoxLogWriter logWriter, String threadName, int capacity, long flushInterval, long flushSize) {
+		this.logWriter = logWriter;
+		this.threadName = threadName;
+		this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushInterval);
+		this.flushSize = flushSize;
+		int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+		this.mask = size - 1;
+		this.buffer = new Object[size];
+		this.sequences = new AtomicLongArray(size);
+		for (int i = 0; i < size; i++) {
+			sequences.set(i, i);
+		}
+	}
+
+	/**
+	 * Appends an entry to the buffer. If the buffer is full the caller waits
+	 * for the writer thread to make room.
+	 * @param entry the entry to log
+	 */
+	void log(FrameworkLogEntry entry) {
+		PendingEntry pending = new PendingEntry(entry, System.currentTimeMillis());
+		if (!offer(pending)) {
+			do {
+				ensureRunning();
+				LockSupport.unpark(writerThread);
+				LockSupport.parkNanos(this, TimeUnit.MICROSECONDS.toNanos(100));
+			} while (!offer(pending));
+		}
+		ensureRunning();
+		if (parked) {
+			LockSupport.unpark(writerThread);
+		}
+	}
+
+	/**
+	 * Waits until all entries appended before this call have been written
+	 * and flushed.
+	 * @param timeout the maximum time to wait in milliseconds
+	 */
+	void drain(long timeout) {
+		long target = tail.get();
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+		while (flushed < target && System.nanoTime() < deadline) {
+			flushRequested = true;
+			if (!ensureRunning()) {
+				LockSupport.unpark(writerThread);
+			}
+			LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(1));
+		}
+	}
+
+	private boolean offer(PendingEntry pending) {
+		long pos = tail.get();
+		int index;
+		for (;;) {
+			index = (int) (pos & mask);
+			long diff = sequences.get(index) - pos;
+			if (diff == 0) {
+				if (tail.compareAndSet(pos, pos + 1)) {
+					break;
+				}
+				pos = tail.get();
+			} else if (diff < 0) {
+				return false; // full
+			} else {
+				pos = tail.get();
+			}
+		}
+		buffer[index] = pending;
+		sequences.set(index, pos + 1);
+		return true;
+	}
+
+	private PendingEntry poll() {
+		int index = (int) (head & mask);
+		if (sequences.get(index) != head + 1) {
+			return null; // empty or not published yet
+		}
+		PendingEntry pending = (PendingEntry) buffer[index];
+		buffer[index] = null;
+		sequences.lazySet(index, head + mask + 1);
+		head++;
+		return pending;
+	}
+
+	private boolean isEmpty() {
+		return sequences.get((int) (head & mask)) != head + 1;
+	}
+
+	/**
+	 * Starts the writer thread if it is not running.
+	 * @return true if a new writer thread was started
+	 */
+	private boolean ensureRunning() {
+		if (running.get() || !running.compareAndSet(false, true)) {
+			return false;
+		}
+		Thread t = new Thread(this, threadName);
+		t.setDaemon(true);
+		writerThread = t;
+		t.start();
+		return true;
+	}
+
+	@Override
+	public void run() {
+		List<PendingEntry> batch = new ArrayList<>(MAX_BATCH);
+		long lastFlush = System.nanoTime();
+		long unflushed = 0;
+		int idle = 0;
+		while (true) {
+			PendingEntry pending;
+			while (batch.size() < MAX_BATCH && (pending = poll()) != null) {
+				batch.add(pending);
+			}
+			if (!batch.isEmpty()) {
+				unflushed += logWriter.writeAsync(batch);
+				batch.clear();
+				idle = 0;
+			}
+			long now = System.nanoTime();
+			boolean empty = isEmpty();
+			if (unflushed > 0 && (unflushed >= flushSize || now - lastFlush >= flushIntervalNanos || (empty && flushRequested))) {
+				logWriter.flushAsync();
+				unflushed = 0;
+				lastFlush = now;
+			}
+			if (unflushed == 0) {
+				flushed = head;
+			}
+			if (empty) {
+				if (unflushed == 0) {
+					flushRequested = false;
+				}
+				if (idle >= IDLE_INTERVALS) {
+					logWriter.closeAsync();
+					running.set(false);
+					// an entry may have been added after the last poll
+					if (isEmpty() || !running.compareAndSet(false, true)) {
+						return;
+					}
+					idle = 0;
+					continue;
+				}
+				parked = true;
+				if (isEmpty() && !flushRequested) {
+					LockSupport.parkNanos(this, flushIntervalNanos);
+					if (isEmpty() && unflushed == 0) {
+						idle++;
+					}
+				}
+				parked = false;
+			}
+		}
+	}
+}
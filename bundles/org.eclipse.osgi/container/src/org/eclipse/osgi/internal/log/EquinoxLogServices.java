@@ -129,6 +129,9 @@ public class EquinoxLogServices {
 		frameworkLogReg.unregister();
 		perfLogReg.unregister();
 		logServiceManager.stop(context);
+		// make sure entries buffered for asynchronous writing are persisted
+		logWriter.drain();
+		perfWriter.drain();
 	}
 
 	public FrameworkLog getFrameworkLog() {
@@ -27,6 +27,7 @@ import java.lang.reflect.InvocationTargetException;
 import java.nio.charset.StandardCharsets;
 import java.util.Calendar;
 import java.util.Date;
+import java.util.List;
 import java.util.Map;
 import org.eclipse.core.runtime.adaptor.EclipseStarter;
 import org.eclipse.equinox.log.ExtendedLogEntry;
@@ -34,6 +35,7 @@ import org.eclipse.equinox.log.LogFilter;
 import org.eclipse.equinox.log.SynchronousLogListener;
 import org.eclipse.osgi.framework.log.FrameworkLogEntry;
 import org.eclipse.osgi.internal.framework.EquinoxConfiguration;
+import org.eclipse.osgi.internal.log.AsyncLogWriter.PendingEntry;
 import org.osgi.framework.Bundle;
 import org.osgi.framework.BundleException;
 import org.osgi.service.log.LogEntry;
@@ -82,6 +84,23 @@ class EquinoxLogWriter implements SynchronousLogListener, LogFilter {
 	/** The extension markup to use for backup log files*/
 	private static final String BACKUP_MARK = ".bak_"; //$NON-NLS-1$
 
+	/** The system property used to enable writing log files asynchronously */
+	private static final String PROP_LOG_ASYNC = "eclipse.log.async"; //$NON-NLS-1$
+	/** The system property used to specify the number of entries buffered for asynchronous writing */
+	private static final String PROP_LOG_ASYNC_BUFFER = "eclipse.log.async.buffer"; //$NON-NLS-1$
+	/** The system property used to specify the time in milliseconds before buffered log output is flushed */
+	private static final String PROP_LOG_ASYNC_FLUSH_INTERVAL = "eclipse.log.async.flush.interval"; //$NON-NLS-1$
+	/** The system property used to specify the amount of log output in KB that is buffered before it is flushed */
+	private static final String PROP_LOG_ASYNC_FLUSH_SIZE = "eclipse.log.async.flush.size"; //$NON-NLS-1$
+	/** The default number of entries buffered for asynchronous writing */
+	private static final int DEFAULT_ASYNC_BUFFER = 1024;
+	/** The default time in milliseconds before buffered log output is flushed */
+	private static final int DEFAULT_ASYNC_FLUSH_INTERVAL = 1000;
+	/** The default amount of log output in KB that is buffered before it is flushed */
+	private static final int DEFAULT_ASYNC_FLUSH_SIZE = 64;
+	/** The maximum time in milliseconds to wait for buffered entries to be written */
+	private static final long ASYNC_DRAIN_TIMEOUT = 5000;
+
 	/** The system property used to specify command line args should be omitted from the log */
 	private static final String PROP_LOG_INCLUDE_COMMAND_LINE = "eclipse.log.include.commandline"; //$NON-NLS-1$
 	/** Indicates if the console messages should be printed to the console (System.out) */
@@ -98,6 +117,20 @@ class EquinoxLogWriter implements SynchronousLogListener, LogFilter {
 	 */
 	private Writer writer;
 
+	/**
+	 * The size of the log file in bytes while it is kept open, tracked as
+	 * messages are written to it. A value of -1 indicates the size is not tracked.
+	 */
+	private long fileSize = -1;
+
+	/**
+	 * Writes entries asynchronously while keeping the log file open. This value may be null.
+	 */
+	private final AsyncLogWriter asyncWriter;
+
+	/** The number of characters written since the last flush of the asynchronous writer */
+	private long unflushed;
+
 	private final String loggerName;
 	private final boolean enabled;
 	private final EquinoxConfiguration environmentInfo;
@@ -122,6 +155,7 @@ class EquinoxLogWriter implements SynchronousLogListener, LogFilter {
 		this.enabled = enabled;
 		this.environmentInfo = environmentInfo;
 		readLogProperties();
+		this.asyncWriter = createAsyncWriter();
 	}
 
 	/**
@@ -137,6 +171,33 @@ class EquinoxLogWriter implements SynchronousLogListener, LogFilter {
 		this.loggerName = loggerName;
 		this.enabled = enabled;
 		this.environmentInfo = environmentInfo;
+		this.asyncWriter = null;
+	}
+
+	private AsyncLogWriter createAsyncWriter() {
+		if (!"true".equals(environmentInfo.getConfiguration(PROP_LOG_ASYNC))) { //$NON-NLS-1$
+			return null;
+		}
+		int bufferSize = getIntConfiguration(PROP_LOG_ASYNC_BUFFER, DEFAULT_ASYNC_BUFFER);
+		int flushInterval = getIntConfiguration(PROP_LOG_ASYNC_FLUSH_INTERVAL, DEFAULT_ASYNC_FLUSH_INTERVAL);
+		int flushSize = getIntConfiguration(PROP_LOG_ASYNC_FLUSH_SIZE, DEFAULT_ASYNC_FLUSH_SIZE);
+		return new AsyncLogWriter(this, "Equinox Log Writer - " + loggerName, bufferSize, flushInterval, //$NON-NLS-1$
+				((long) flushSize) << 10);
+	}
+
+	private int getIntConfiguration(String key, int defaultValue) {
+		String value = environmentInfo.getConfiguration(key);
+		if (value != null) {
+			try {
+				int result = Integer.parseInt(value);
+				if (result > 0) {
+					return result;
+				}
+			} catch (NumberFormatException e) {
+				// use the default
+			}
+		}
+		return defaultValue;
 	}
 
 	private Throwable getRoot(Throwable t) {
@@ -242,6 +303,23 @@ class EquinoxLogWriter implements SynchronousLogListener, LogFilter {
 	}
 
 	public void close() {
+		drain();
+		synchronized (this) {
+			closeWriter();
+		}
+	}
+
+	/**
+	 * Waits for entries which are written asynchronously to be written and flushed.
+	 */
+	void drain() {
+		if (asyncWriter != null) {
+			asyncWriter.drain(ASYNC_DRAIN_TIMEOUT);
+		}
+	}
+
+	private void closeWriter() {
+		fileSize = -1;
 		try {
 			if (writer != null) {
 				Writer tmpWriter = writer;
@@ -262,6 +340,10 @@ class EquinoxLogWriter implements SynchronousLogListener, LogFilter {
 			if (outFile != null) {
 				try {
 					writer = logForStream(ExtendedLogServiceFactory.secureAction.getFileOutputStream(outFile, true));
+					if (asyncWriter != null) {
+						// the file is kept open; track its size instead of checking the file for each entry
+						fileSize = ExtendedLogServiceFactory.secureAction.length(outFile);
+					}
 				} catch (IOException e) {
 					writer = logForErrorStream();
 				}
@@ -275,6 +357,7 @@ class EquinoxLogWriter implements SynchronousLogListener, LogFilter {
 	 * If a File is used to log messages to then the writer is closed.
 	 */
 	private void closeFile() {
+		fileSize = -1;
 		if (outFile != null) {
 			if (writer != null) {
 				try {
@@ -288,11 +371,50 @@ class EquinoxLogWriter implements SynchronousLogListener, LogFilter {
 		}
 	}
 
-	private synchronized void log(FrameworkLogEntry logEntry) {
+	private void log(FrameworkLogEntry logEntry) {
 		if (logEntry == null)
 			return;
+		if (asyncWriter != null) {
+			asyncWriter.log(logEntry);
+			return;
+		}
+		log(logEntry, System.currentTimeMillis(), false);
+	}
+
+	/**
+	 * Writes the entries which have been buffered for asynchronous writing. The
+	 * log file is kept open after writing.
+	 * @param entries the entries to write
+	 * @return the number of characters written
+	 */
+	synchronized long writeAsync(List<PendingEntry> entries) {
+		for (PendingEntry pending : entries) {
+			log(pending.entry, pending.timestamp, true);
+		}
+		long result = unflushed;
+		unflushed = 0;
+		return result;
+	}
+
+	synchronized void flushAsync() {
+		if (writer != null) {
+			try {
+				writer.flush();
+			} catch (IOException e) {
+				// we cannot log here; just print the stacktrace.
+				e.printStackTrace();
+			}
+		}
+	}
+
+	synchronized void closeAsync() {
+		closeFile();
+	}
+
+	private synchronized void log(FrameworkLogEntry logEntry, long timestamp, boolean keepOpen) {
 		if (!isLoggable(logEntry.getSeverity()))
 			return;
+		boolean failed = false;
 		try {
 			checkLogFileSize();
 			openFile();
@@ -300,9 +422,12 @@ class EquinoxLogWriter implements SynchronousLogListener, LogFilter {
 				writeSession();
 				newSession = false;
 			}
-			writeLog(0, logEntry);
-			writer.flush();
+			writeLog(0, logEntry, timestamp);
+			if (!keepOpen) {
+				writer.flush();
+			}
 		} catch (Exception e) {
+			failed = true;
 			// any exceptions during logging should be caught
 			System.err.println("An exception occurred while writing to the platform log:");//$NON-NLS-1$
 			e.printStackTrace(System.err);
@@ -310,14 +435,20 @@ class EquinoxLogWriter implements SynchronousLogListener, LogFilter {
 			//we failed to write, so dump log entry to console instead
 			try {
 				writer = logForErrorStream();
-				writeLog(0, logEntry);
+				writeLog(0, logEntry, timestamp);
 				writer.flush();
 			} catch (Exception e2) {
 				System.err.println("An exception occurred while logging to the console:");//$NON-NLS-1$
 				e2.printStackTrace(System.err);
 			}
 		} finally {
-			closeFile();
+			if (!keepOpen) {
+				closeFile();
+			} else if (failed && outFile != null) {
+				// try the log file again for the next entry
+				fileSize = -1;
+				writer = null;
+			}
 		}
 	}
 
@@ -353,6 +484,7 @@ class EquinoxLogWriter implements SynchronousLogListener, LogFilter {
 
 	private void setOutput(File newOutFile, Writer newWriter, boolean append) {
 		if (newOutFile == null || !newOutFile.equals(this.outFile)) {
+			fileSize = -1;
 			if (this.writer != null) {
 				try {
 					this.writer.close();
@@ -480,17 +612,18 @@ class EquinoxLogWriter implements SynchronousLogListener, LogFilter {
 	 * a sub-entry.
 	 * @param depth the depth of th entry
 	 * @param entry the entry to log
+	 * @param timestamp the time the entry was logged
 	 * @throws IOException if any error occurs writing to the log
 	 */
-	private void writeLog(int depth, FrameworkLogEntry entry) throws IOException {
-		writeEntry(depth, entry);
+	private void writeLog(int depth, FrameworkLogEntry entry, long timestamp) throws IOException {
+		writeEntry(depth, entry, timestamp);
 		writeMessage(entry);
 		writeStack(entry);
 
 		FrameworkLogEntry[] children = entry.getChildren();
 		if (children != null) {
 			for (FrameworkLogEntry child : children) {
-				writeLog(depth + 1, child);
+				writeLog(depth + 1, child, timestamp);
 			}
 		}
 	}
@@ -501,9 +634,10 @@ class EquinoxLogWriter implements SynchronousLogListener, LogFilter {
 	 * a sub-entry.
 	 * @param depth the depth of th entry
 	 * @param entry the entry to write the header for
+	 * @param timestamp the time the entry was logged
 	 * @throws IOException if any error occurs writing to the log
 	 */
-	private void writeEntry(int depth, FrameworkLogEntry entry) throws IOException {
+	private void writeEntry(int depth, FrameworkLogEntry entry, long timestamp) throws IOException {
 		if (depth == 0) {
 			writeln(); // write a blank line before all !ENTRY tags bug #64406
 			write(ENTRY);
@@ -519,7 +653,7 @@ class EquinoxLogWriter implements SynchronousLogListener, LogFilter {
 		writeSpace();
 		write(Integer.toString(entry.getBundleCode()));
 		writeSpace();
-		write(getDate(new Date()));
+		write(getDate(new Date(timestamp)));
 		writeln();
 	}
 
@@ -559,11 +693,41 @@ class EquinoxLogWriter implements SynchronousLogListener, LogFilter {
 	private void write(String message) throws IOException {
 		if (message != null) {
 			writer.write(message);
+			unflushed += message.length();
+			if (fileSize >= 0) {
+				fileSize += utf8Length(message);
+			}
 			if (consoleLog)
 				System.out.print(message);
 		}
 	}
 
+	/**
+	 * Returns the number of bytes used to encode the message in UTF-8,
+	 * the encoding of the log file.
+	 * @param message the message
+	 * @return the number of bytes of the encoded message
+	 */
+	private static long utf8Length(String message) {
+		long length = 0;
+		for (int i = 0, count = message.length(); i < count; i++) {
+			char c = message.charAt(i);
+			if (c < 0x80) {
+				length++;
+			} else if (c < 0x800) {
+				length += 2;
+			} else if (Character.isHighSurrogate(c) && i + 1 < count && Character.isLowSurrogate(message.charAt(i + 1))) {
+				// a supplementary character
+				length += 4;
+				i++;
+			} else {
+				// unpaired surrogates are encoded as a single '?'
+				length += Character.isSurrogate(c) ? 1 : 3;
+			}
+		}
+		return length;
+	}
+
 	/**
 	 * Writes the given message to the log and a newline.
 	 * @param s the message
@@ -601,7 +765,10 @@ class EquinoxLogWriter implements SynchronousLogListener, LogFilter {
 
 		boolean isBackupOK = true;
 		if (outFile != null) {
-			if ((ExtendedLogServiceFactory.secureAction.length(outFile) >> 10) > maxLogSize) { // Use KB as file size unit.
+			long logSize = fileSize >= 0 ? fileSize : ExtendedLogServiceFactory.secureAction.length(outFile);
+			if ((logSize >> 10) > maxLogSize) { // Use KB as file size unit.
+				// the file must be closed before it can be renamed
+				closeFile();
 				String logFilename = outFile.getAbsolutePath();
 
 				// Delete old backup file that will be replaced.
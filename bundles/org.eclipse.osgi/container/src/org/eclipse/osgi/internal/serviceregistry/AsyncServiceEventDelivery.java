@@ -0,0 +1,228 @@
+/*******************************************************************************
+ * Copyright (c) 2026 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.osgi.internal.serviceregistry;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import org.eclipse.osgi.framework.listener.AsynchronousServiceListener;
+import org.eclipse.osgi.internal.framework.BundleContextImpl;
+import org.eclipse.osgi.internal.messages.Msg;
+import org.eclipse.osgi.util.NLS;
+import org.osgi.framework.FrameworkEvent;
+import org.osgi.framework.ServiceEvent;
+import org.osgi.framework.ServiceException;
+import org.osgi.framework.ServiceListener;
+
+/**
+ * Delivers service events to the {@link AsynchronousServiceListener}s on a
+ * bounded pool of threads.
+ * <p>
+ * Each listener has its own queue of events which is drained by at most one
+ * thread at a time so the events are delivered to a listener in the order
+ * they were published. The number of events queued for each listener is
+ * bounded. A publishing thread never waits for a listener; when the queue of
+ * a listener is full the event is dropped for that listener and a
+ * {@link FrameworkEvent#WARNING WARNING} framework event is published. A slow
+ * listener therefore neither delays the publishing threads nor the delivery
+ * of events to the other listeners.
+ */
+final class AsyncServiceEventDelivery implements ThreadFactory {
+	/* the number of events delivered to a listener before its queue yields the thread to other listeners */
+	private static final int MAX_BATCH = 64;
+
+	private final String threadName;
+	private final ThreadPoolExecutor executor;
+	/* the maximum number of events queued for each listener */
+	private final int queueSize;
+
+	/* the delivered and dropped events and the nanoseconds they were queued, spent in the listener and in total */
+	private final LongAdder deliveries = new LongAdder();
+	private final LongAdder dropped = new LongAdder();
+	private final LongAdder queueTime = new LongAdder();
+	private final LongAdder listenerTime = new LongAdder();
+	private final LongAccumulator maxLatency = new LongAccumulator(Math::max, 0);
+
+	/**
+	 * Creates the asynchronous service event delivery.
+	 *
+	 * @param name The name of the framework used to name the delivery threads.
+	 * @param threads The maximum number of delivery threads.
+	 * @param queueSize The maximum number of events queued for each listener.
+	 */
+	AsyncServiceEventDelivery(String name, int threads, int queueSize) {
+		this.threadName = "Equinox Service Event Thread - " + name; //$NON-NLS-1$
+		this.queueSize = queueSize;
+		// each listener queue is executed as a single task so the work queue is bounded by the number of listeners
+		this.executor = new ThreadPoolExecutor(threads, threads, 10L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), this);
+		this.executor.allowCoreThreadTimeOut(true);
+	}
+
+	@Override
+	public Thread newThread(Runnable r) {
+		Thread t = new Thread(r, threadName);
+		t.setDaemon(true);
+		return t;
+	}
+
+	/**
+	 * Creates the queue of events of a listener.
+	 *
+	 * @param context The context of the bundle which added the listener.
+	 * @param filteredListener The framework listener wrapping the listener.
+	 * @param listener The listener.
+	 * @return The queue of events of the listener.
+	 */
+	ListenerEventQueue createQueue(BundleContextImpl context, FilteredServiceListener filteredListener, ServiceListener listener) {
+		return new ListenerEventQueue(context, filteredListener, listener);
+	}
+
+	/**
+	 * Stops the delivery threads once the queued events have been delivered.
+	 */
+	void shutdown() {
+		executor.shutdown();
+	}
+
+	long getDeliveries() {
+		return deliveries.sum();
+	}
+
+	long getDropped() {
+		return dropped.sum();
+	}
+
+	long getQueueTime() {
+		return queueTime.sum();
+	}
+
+	long getListenerTime() {
+		return listenerTime.sum();
+	}
+
+	long getMaxLatency() {
+		return maxLatency.get();
+	}
+
+	private static final class QueuedEvent {
+		final ServiceEvent event;
+		final long queued;
+
+		QueuedEvent(ServiceEvent event, long queued) {
+			this.event = event;
+			this.queued = queued;
+		}
+	}
+
+	/**
+	 * The events queued for a listener. The queue is scheduled on the
+	 * executor when events are added to an idle queue and stays scheduled
+	 * until it has been drained.
+	 */
+	final class ListenerEventQueue implements Runnable {
+		private final BundleContextImpl context;
+		private final FilteredServiceListener filteredListener;
+		private final ServiceListener listener;
+		private final Queue<QueuedEvent> events = new ConcurrentLinkedQueue<>();
+		/* the number of queued events, including the event being delivered */
+		private final AtomicInteger size = new AtomicInteger();
+		private final AtomicBoolean scheduled = new AtomicBoolean();
+		/* set when an event is dropped; cleared once the queue has been drained */
+		private final AtomicBoolean overflow = new AtomicBoolean();
+
+		ListenerEventQueue(BundleContextImpl context, FilteredServiceListener filteredListener, ServiceListener listener) {
+			this.context = context;
+			this.filteredListener = filteredListener;
+			this.listener = listener;
+		}
+
+		/**
+		 * Queues the event for delivery to the listener. Never waits; if the
+		 * queue of the listener is full the event is dropped and a warning is
+		 * published for the first event dropped since the queue was last
+		 * drained.
+		 *
+		 * @param event The event which matched the listener.
+		 */
+		void queue(ServiceEvent event) {
+			if (size.incrementAndGet() > queueSize) {
+				size.decrementAndGet();
+				dropped.increment();
+				if (overflow.compareAndSet(false, true)) {
+					String message = NLS.bind(Msg.SERVICE_EVENT_QUEUE_FULL, listener, Integer.valueOf(queueSize));
+					context.getContainer().getEventPublisher().publishFrameworkEvent(FrameworkEvent.WARNING, context.getBundle(), new ServiceException(message, ServiceException.UNSPECIFIED));
+				}
+				return;
+			}
+			events.add(new QueuedEvent(event, System.nanoTime()));
+			if (scheduled.compareAndSet(false, true)) {
+				schedule();
+			}
+		}
+
+		private void schedule() {
+			try {
+				executor.execute(this);
+			} catch (RejectedExecutionException e) {
+				// the framework is shutting down; deliver on the publishing thread
+				run();
+			}
+		}
+
+		@Override
+		public void run() {
+			for (int delivered = 0; delivered < MAX_BATCH; delivered++) {
+				QueuedEvent queued = events.poll();
+				if (queued == null) {
+					overflow.set(false);
+					scheduled.set(false);
+					// recheck for an event queued before the flag was cleared
+					if (events.isEmpty() || !scheduled.compareAndSet(false, true)) {
+						return;
+					}
+					continue;
+				}
+				deliver(queued);
+			}
+			// let the other listeners have the thread
+			schedule();
+		}
+
+		private void deliver(QueuedEvent queued) {
+			try {
+				if (filteredListener.isRemoved()) {
+					return;
+				}
+				long start = System.nanoTime();
+				context.dispatchEvent(listener, listener, ServiceRegistry.SERVICEEVENT, queued.event);
+				long end = System.nanoTime();
+				deliveries.increment();
+				queueTime.add(start - queued.queued);
+				listenerTime.add(end - start);
+				maxLatency.accumulate(end - queued.queued);
+			} finally {
+				size.decrementAndGet();
+			}
+		}
+	}
+}
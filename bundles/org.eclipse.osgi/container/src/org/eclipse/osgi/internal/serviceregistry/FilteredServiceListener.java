@@ -14,6 +14,7 @@
 
 package org.eclipse.osgi.internal.serviceregistry;
 
+import org.eclipse.osgi.framework.listener.AsynchronousServiceListener;
 import org.eclipse.osgi.internal.debug.Debug;
 import org.eclipse.osgi.internal.framework.BundleContextImpl;
 import org.eclipse.osgi.internal.framework.FilterImpl;
@@ -23,7 +24,6 @@ import org.osgi.framework.Constants;
 import org.osgi.framework.InvalidSyntaxException;
 import org.osgi.framework.ServiceEvent;
 import org.osgi.framework.ServiceListener;
-import org.osgi.framework.ServiceReference;
 import org.osgi.framework.UnfilteredServiceListener;
 import org.osgi.framework.hooks.service.ListenerHook;
 
@@ -46,6 +46,9 @@ class FilteredServiceListener implements ServiceListener, ListenerHook.ListenerI
 	/** indicates whether the listener has been removed */
 	private volatile boolean removed;
 	private final Debug debug;
+	private final ServiceRegistry registry;
+	/** the events queued for asynchronous delivery; null if events are delivered synchronously */
+	private final AsyncServiceEventDelivery.ListenerEventQueue asyncEvents;
 
 	/**
 	 * Constructor.
@@ -57,6 +60,7 @@ class FilteredServiceListener implements ServiceListener, ListenerHook.ListenerI
 	 */
 	FilteredServiceListener(final BundleContextImpl context, final ServiceListener listener, final String filterstring) throws InvalidSyntaxException {
 		this.debug = context.getContainer().getConfiguration().getDebug();
+		this.registry = context.getContainer().getServiceRegistry();
 		this.unfiltered = (listener instanceof UnfilteredServiceListener);
 		if (filterstring == null) {
 			this.filter = null;
@@ -79,6 +83,11 @@ class FilteredServiceListener implements ServiceListener, ListenerHook.ListenerI
 		this.listener = listener;
 		this.context = context;
 		this.allservices = (listener instanceof AllServiceListener);
+		if ((listener instanceof AsynchronousServiceListener) && (registry.asyncDelivery != null)) {
+			this.asyncEvents = registry.asyncDelivery.createQueue(context, this, listener);
+		} else {
+			this.asyncEvents = null;
+		}
 	}
 
 	/**
@@ -120,7 +129,12 @@ class FilteredServiceListener implements ServiceListener, ListenerHook.ListenerI
 				Debug.println("dispatchFilteredServiceEvent(" + listenerName + ")"); //$NON-NLS-1$ //$NON-NLS-2$
 			}
 
-			listener.serviceChanged(event);
+			if (asyncEvents != null) {
+				// the filter was evaluated now; only the delivery is asynchronous
+				asyncEvents.queue(event);
+			} else {
+				listener.serviceChanged(event);
+			}
 		}
 	}
 
@@ -137,8 +151,8 @@ class FilteredServiceListener implements ServiceListener, ListenerHook.ListenerI
 		if (unfiltered || (filter == null)) {
 			return event;
 		}
-		ServiceReference<?> reference = event.getServiceReference();
-		if (filter.match(reference)) {
+		ServiceReferenceImpl<?> reference = (ServiceReferenceImpl<?>) event.getServiceReference();
+		if (registry.matchListenerFilter(filter, reference)) {
 			return event;
 		}
 		if (modified) {
@@ -204,6 +218,15 @@ class FilteredServiceListener implements ServiceListener, ListenerHook.ListenerI
 		return removed;
 	}
 
+	/**
+	 * Returns the interned objectClass required by the filter of this listener.
+	 * @return The required objectClass or <code>null</code> if this listener
+	 * must be considered for events of any objectClass.
+	 */
+	String getObjectClass() {
+		return objectClass;
+	}
+
 	/**
 	 * Mark the service listener registration as removed.
 	 */
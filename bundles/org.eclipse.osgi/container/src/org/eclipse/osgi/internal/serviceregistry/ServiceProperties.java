@@ -137,7 +137,17 @@ class ServiceProperties extends CaseInsensitiveDictionaryMap<String, Object> {
 
 	@Override
 	public String toString() {
-		Set<String> keys = keySet();
+		return toString(this);
+	}
+
+	/**
+	 * Format the service properties. The objectClass property is omitted.
+	 *
+	 * @param props The service properties.
+	 * @return The formatted properties.
+	 */
+	static String toString(Map<String, Object> props) {
+		Set<String> keys = props.keySet();
 
 		StringBuilder sb = new StringBuilder(20 * keys.size());
 
@@ -151,7 +161,7 @@ class ServiceProperties extends CaseInsensitiveDictionaryMap<String, Object> {
 
 				sb.append(key);
 				sb.append('=');
-				Object value = get(key);
+				Object value = props.get(key);
 				if (value.getClass().isArray()) {
 					sb.append('[');
 					int length = Array.getLength(value);
@@ -0,0 +1,267 @@
+/*******************************************************************************
+ * Copyright (c) 2026 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.osgi.internal.serviceregistry;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import org.eclipse.osgi.internal.framework.FilterImpl;
+
+/**
+ * An immutable snapshot of the properties of a service registration.
+ * <p>
+ * The snapshot supports case-insensitive key lookup without allocating.
+ * The case-insensitive hash code of each key is computed once when the
+ * snapshot is created and the keys are placed in an open addressing table
+ * whose size is chosen, when possible, so that no two keys share a slot.
+ * A lookup then usually inspects a single slot.
+ * <p>
+ * Since the snapshot is never modified it can be read without holding any
+ * lock once it has been safely published. For the same reason the result of
+ * matching a filter against the snapshot can be memoized; a new snapshot,
+ * with an empty memo, is created each time the service properties are
+ * modified.
+ */
+final class ServicePropertiesSnapshot extends AbstractMap<String, Object> {
+	/* the golden ratio multiplier used to spread the hash codes over the table */
+	private static final int SPREAD = 0x9E3779B9;
+	/* the number of table sizes tried when looking for a collision free table */
+	private static final int MAX_TABLE_GROWTH = 3;
+
+	private final String[] keys;
+	private final Object[] values;
+	private final int[] hashes;
+	/* the index + 1 of the entry held by each slot or 0 for an empty slot */
+	private final int[] table;
+	private final int shift;
+	/* the number of entries of the filter match memo; 0 if disabled */
+	private final int memoSize;
+	/* the memoized filter matches indexed by the hash code of the filter; created on first use */
+	private volatile FilterMatch[] memo;
+
+	/**
+	 * The result of matching a filter against the snapshot. Instances are
+	 * immutable so they can be shared through the memo without locking.
+	 */
+	private static final class FilterMatch {
+		/* the normalized filter string */
+		final String filter;
+		final boolean matches;
+
+		FilterMatch(String filter, boolean matches) {
+			this.filter = filter;
+			this.matches = matches;
+		}
+	}
+
+	/**
+	 * Create a snapshot of the specified properties. The keys of the
+	 * properties must not contain case variants of the same key name.
+	 *
+	 * @param props The properties for the service.
+	 * @param memoSize The number of filter matches to memoize.
+	 */
+	ServicePropertiesSnapshot(Map<String, Object> props, int memoSize) {
+		this.memoSize = memoSize;
+		int size = props.size();
+		keys = new String[size];
+		values = new Object[size];
+		hashes = new int[size];
+		int i = 0;
+		for (Entry<String, Object> entry : props.entrySet()) {
+			keys[i] = entry.getKey();
+			values[i] = entry.getValue();
+			hashes[i] = hash(keys[i]);
+			i++;
+		}
+
+		// the smallest table which is at most half full
+		int bits = 1;
+		while ((1 << bits) < size * 2) {
+			bits++;
+		}
+		int[] slots = null;
+		for (int growth = 0; growth <= MAX_TABLE_GROWTH; growth++, bits++) {
+			slots = createTable(bits, true);
+			if (slots != null) {
+				break;
+			}
+		}
+		if (slots == null) {
+			// no collision free table was found; use linear probing in the largest table
+			bits--;
+			slots = createTable(bits, false);
+		}
+		table = slots;
+		shift = Integer.SIZE - bits;
+	}
+
+	/**
+	 * Places the keys in a table with the specified number of bits.
+	 *
+	 * @param bits The log2 of the table size.
+	 * @param perfect {@code true} if the table must not have collisions.
+	 * @return The table or {@code null} if a collision free table was
+	 *         requested and two keys share a slot.
+	 */
+	private int[] createTable(int bits, boolean perfect) {
+		int[] slots = new int[1 << bits];
+		int mask = slots.length - 1;
+		int tableShift = Integer.SIZE - bits;
+		for (int i = 0; i < hashes.length; i++) {
+			int slot = (hashes[i] * SPREAD) >>> tableShift;
+			while (slots[slot] != 0) {
+				if (perfect) {
+					return null;
+				}
+				slot = (slot + 1) & mask;
+			}
+			slots[slot] = i + 1;
+		}
+		return slots;
+	}
+
+	/**
+	 * Compute a case-insensitive hash code of the key.
+	 * Two keys which are equal ignoring case have the same hash code.
+	 *
+	 * @param key The key.
+	 * @return The case-insensitive hash code.
+	 */
+	private static int hash(String key) {
+		int h = 0;
+		for (int i = 0, length = key.length(); i < length; i++) {
+			h = 31 * h + Character.toLowerCase(Character.toUpperCase(key.charAt(i)));
+		}
+		return h;
+	}
+
+	private int indexOf(Object key) {
+		if (!(key instanceof String)) {
+			return -1;
+		}
+		String k = (String) key;
+		int h = hash(k);
+		int mask = table.length - 1;
+		for (int slot = (h * SPREAD) >>> shift;; slot = (slot + 1) & mask) {
+			int entry = table[slot] - 1;
+			if (entry < 0) {
+				return -1;
+			}
+			if ((hashes[entry] == h) && keys[entry].equalsIgnoreCase(k)) {
+				return entry;
+			}
+		}
+	}
+
+	@Override
+	public Object get(Object key) {
+		int index = indexOf(key);
+		return (index < 0) ? null : values[index];
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		return indexOf(key) >= 0;
+	}
+
+	@Override
+	public int size() {
+		return keys.length;
+	}
+
+	/**
+	 * Returns whether the filter matches the snapshot. The result is
+	 * memoized with the normalized filter string so matching an equal
+	 * filter again does not evaluate the filter. The memo is a small direct
+	 * mapped table; a filter replaces the memoized match of another filter
+	 * with the same slot.
+	 *
+	 * @param filter The filter.
+	 * @param memoHits Counts the matches answered by the memo.
+	 * @return {@code true} if the filter matches the snapshot.
+	 */
+	boolean matches(FilterImpl filter, LongAdder memoHits) {
+		if (memoSize == 0) {
+			return filter.matches(this);
+		}
+		String key = filter.toString();
+		int slot = (key.hashCode() & Integer.MAX_VALUE) % memoSize;
+		FilterMatch[] current = memo;
+		if (current == null) {
+			// racing threads may each create a memo; only matches are lost
+			memo = current = new FilterMatch[memoSize];
+		} else {
+			FilterMatch match = current[slot];
+			if ((match != null) && key.equals(match.filter)) {
+				memoHits.increment();
+				return match.matches;
+			}
+		}
+		boolean matches = filter.matches(this);
+		current[slot] = new FilterMatch(key, matches);
+		return matches;
+	}
+
+	/**
+	 * Returns a copy of the keys of the snapshot.
+	 *
+	 * @return The keys in their original case.
+	 */
+	String[] getKeys() {
+		return keys.clone();
+	}
+
+	@Override
+	public Set<Entry<String, Object>> entrySet() {
+		return new AbstractSet<Entry<String, Object>>() {
+			@Override
+			public Iterator<Entry<String, Object>> iterator() {
+				return new Iterator<Entry<String, Object>>() {
+					private int index;
+
+					@Override
+					public boolean hasNext() {
+						return index < keys.length;
+					}
+
+					@Override
+					public Entry<String, Object> next() {
+						if (index >= keys.length) {
+							throw new NoSuchElementException();
+						}
+						Entry<String, Object> entry = new SimpleImmutableEntry<>(keys[index], values[index]);
+						index++;
+						return entry;
+					}
+				};
+			}
+
+			@Override
+			public int size() {
+				return keys.length;
+			}
+		};
+	}
+
+	@Override
+	public String toString() {
+		return ServiceProperties.toString(this);
+	}
+}
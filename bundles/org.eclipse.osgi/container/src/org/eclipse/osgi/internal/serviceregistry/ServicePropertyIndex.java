@@ -0,0 +1,170 @@
+/*******************************************************************************
+ * Copyright (c) 2026 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.osgi.internal.serviceregistry;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An index of the published services by the values of a service property.
+ * The index is used to find the candidate services of filters requiring the
+ * property to be equal to a value. A service is indexed under each string
+ * value of the property. A service with a property value that is not a
+ * string, or an array or collection of strings, is a candidate for any value
+ * since the filter may match it after converting the value.
+ * <p>
+ * Like the other published services arrays of the registry, the arrays of
+ * the index are sorted in the natural order of ServiceRegistrationImpl and
+ * are never modified once published so they can be read without holding the
+ * registry lock.
+ */
+final class ServicePropertyIndex {
+	/* marks the services which are candidates for any value */
+	private static final Collection<String> UNINDEXED = Collections.emptyList();
+
+	private final String key;
+	/* @GuardedBy("registry") for writes */
+	private final Map<String, ServiceRegistrationImpl<?>[]> servicesByValue = new ConcurrentHashMap<>();
+	/* @GuardedBy("registry") for writes */
+	private volatile ServiceRegistrationImpl<?>[] unindexedServices = ServiceRegistry.EMPTY_REGISTRATIONS;
+	/* the values each indexed service is indexed under */
+	/* @GuardedBy("registry") */
+	private final Map<ServiceRegistrationImpl<?>, Collection<String>> indexedValues = new HashMap<>();
+
+	ServicePropertyIndex(String key) {
+		this.key = key;
+	}
+
+	String getKey() {
+		return key;
+	}
+
+	/**
+	 * Adds the registration to the index.
+	 *
+	 * @param registration The registration to add.
+	 */
+	/* @GuardedBy("registry") */
+	void add(ServiceRegistrationImpl<?> registration) {
+		Collection<String> values = getValues(registration.getProperty(key));
+		if (values == null) {
+			// no value; a filter requiring a value can never match
+			return;
+		}
+		indexedValues.put(registration, values);
+		if (values == UNINDEXED) {
+			unindexedServices = ServiceRegistry.insertRegistration(unindexedServices, registration);
+			return;
+		}
+		for (String value : values) {
+			ServiceRegistrationImpl<?>[] services = servicesByValue.get(value);
+			servicesByValue.put(value, ServiceRegistry.insertRegistration(services == null ? ServiceRegistry.EMPTY_REGISTRATIONS : services, registration));
+		}
+	}
+
+	/**
+	 * Removes the registration from the index.
+	 *
+	 * @param registration The registration to remove.
+	 */
+	/* @GuardedBy("registry") */
+	void remove(ServiceRegistrationImpl<?> registration) {
+		Collection<String> values = indexedValues.remove(registration);
+		if (values == null) {
+			return;
+		}
+		if (values == UNINDEXED) {
+			unindexedServices = ServiceRegistry.removeRegistration(unindexedServices, registration);
+			return;
+		}
+		for (String value : values) {
+			ServiceRegistrationImpl<?>[] services = ServiceRegistry.removeRegistration(servicesByValue.get(value), registration);
+			if (services.length == 0) {
+				servicesByValue.remove(value);
+			} else {
+				servicesByValue.put(value, services);
+			}
+		}
+	}
+
+	/**
+	 * Returns the services which may have the specified property value.
+	 *
+	 * @param value The property value.
+	 * @return The sorted array of services; the array must not be modified.
+	 */
+	ServiceRegistrationImpl<?>[] lookup(String value) {
+		ServiceRegistrationImpl<?>[] services = servicesByValue.get(value);
+		ServiceRegistrationImpl<?>[] unindexed = unindexedServices;
+		if (services == null) {
+			return unindexed;
+		}
+		if (unindexed.length == 0) {
+			return services;
+		}
+		// merge the two sorted arrays
+		ServiceRegistrationImpl<?>[] result = new ServiceRegistrationImpl<?>[services.length + unindexed.length];
+		int i = 0, j = 0, k = 0;
+		while (i < services.length && j < unindexed.length) {
+			result[k++] = services[i].compareTo(unindexed[j]) < 0 ? services[i++] : unindexed[j++];
+		}
+		while (i < services.length) {
+			result[k++] = services[i++];
+		}
+		while (j < unindexed.length) {
+			result[k++] = unindexed[j++];
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the string values of a property value.
+	 *
+	 * @param value The property value.
+	 * @return The string values, {@code null} if there is no value or
+	 *         {@link #UNINDEXED} if the value is not made of strings.
+	 */
+	private static Collection<String> getValues(Object value) {
+		if (value == null) {
+			return null;
+		}
+		if (value instanceof String) {
+			return Collections.singletonList((String) value);
+		}
+		Collection<?> collection;
+		if (value instanceof Object[]) {
+			collection = Arrays.asList((Object[]) value);
+		} else if (value instanceof Collection<?>) {
+			collection = (Collection<?>) value;
+		} else {
+			return UNINDEXED;
+		}
+		Collection<String> result = new ArrayList<>(collection.size());
+		for (Object element : collection) {
+			if (!(element instanceof String)) {
+				return UNINDEXED;
+			}
+			if (!result.contains(element)) {
+				result.add((String) element);
+			}
+		}
+		return result.isEmpty() ? null : result;
+	}
+}
@@ -213,24 +213,8 @@ public class ServiceReferenceImpl<S> implements ServiceReference<S> {
 	@Override
 	public int compareTo(Object object) {
 		ServiceRegistrationImpl<?> other = ((ServiceReferenceImpl<?>) object).registration;
-
-		final int thisRanking = registration.getRanking();
-		final int otherRanking = other.getRanking();
-		if (thisRanking != otherRanking) {
-			if (thisRanking < otherRanking) {
-				return -1;
-			}
-			return 1;
-		}
-		final long thisId = registration.getId();
-		final long otherId = other.getId();
-		if (thisId == otherId) {
-			return 0;
-		}
-		if (thisId < otherId) {
-			return 1;
-		}
-		return -1;
+		/* registrations sort the highest ranked service first so reverse the comparison */
+		return Integer.signum(other.compareTo(registration));
 	}
 
 	/**
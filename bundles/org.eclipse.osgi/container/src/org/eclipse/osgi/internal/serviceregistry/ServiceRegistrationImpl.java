@@ -18,8 +18,10 @@ import java.util.ArrayList;
 import java.util.Dictionary;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
 import org.eclipse.osgi.internal.debug.Debug;
 import org.eclipse.osgi.internal.framework.BundleContextImpl;
+import org.eclipse.osgi.internal.framework.FilterImpl;
 import org.eclipse.osgi.internal.loader.sources.PackageSource;
 import org.eclipse.osgi.internal.messages.Msg;
 import org.osgi.framework.Bundle;
@@ -75,15 +77,22 @@ public class ServiceRegistrationImpl<S> implements ServiceRegistration<S>, Compa
 	private final List<BundleContextImpl> contextsUsing;
 
 	/** properties for this registration. */
-	/* @GuardedBy("registrationLock") */
-	private Map<String, Object> properties;
+	/* @GuardedBy("registrationLock") for writes */
+	private volatile ServicePropertiesSnapshot properties;
 
 	/** service id. */
 	private final long serviceid;
 
-	/** service ranking. */
-	/* @GuardedBy("registrationLock") */
-	private int serviceranking;
+	/**
+	 * The service ranking and the service id packed into a key whose natural
+	 * order is the order of the registrations. The high 32 bits hold the
+	 * complement of the service ranking so that higher rankings sort first
+	 * and the low 32 bits hold the low bits of the service id.
+	 */
+	/* @GuardedBy("registrationLock") for writes */
+	private volatile long sortKey;
+	/* service ids with bits in this mask do not fit in the sort key */
+	private static final long SORT_KEY_ID_OVERFLOW = 0xFFFFFFFF00000000L;
 
 	/* internal object to use for synchronization */
 	private final Object registrationLock = new Object();
@@ -176,7 +185,7 @@ public class ServiceRegistrationImpl<S> implements ServiceRegistration<S>, Compa
 
 				ref = reference; /* used to publish event outside sync */
 				previousProperties = this.properties;
-				previousRanking = serviceranking;
+				previousRanking = getRanking();
 				this.properties = createProperties(props);
 			}
 			registry.modifyServiceRegistration(context, this, previousRanking);
@@ -342,7 +351,7 @@ public class ServiceRegistrationImpl<S> implements ServiceRegistration<S>, Compa
 	 * @return A Properties object for this ServiceRegistration.
 	 */
 	/* @GuardedBy("registrationLock") */
-	private Map<String, Object> createProperties(Dictionary<String, ?> p) {
+	private ServicePropertiesSnapshot createProperties(Dictionary<String, ?> p) {
 		assert Thread.holdsLock(registrationLock);
 		ServiceProperties props = new ServiceProperties(p, FRAMEWORK_SET_SERVICE_PROPERTIES_COUNT);
 
@@ -362,6 +371,7 @@ public class ServiceRegistrationImpl<S> implements ServiceRegistration<S>, Compa
 		props.put(Constants.SERVICE_SCOPE, scope);
 
 		Object ranking = props.get(Constants.SERVICE_RANKING);
+		int serviceranking;
 		if (ranking instanceof Integer) {
 			serviceranking = ((Integer) ranking).intValue();
 		} else {
@@ -370,8 +380,9 @@ public class ServiceRegistrationImpl<S> implements ServiceRegistration<S>, Compa
 				registry.getContainer().getEventPublisher().publishFrameworkEvent(FrameworkEvent.WARNING, getBundle(), new ServiceException("Invalid ranking type: " + ranking.getClass(), ServiceException.UNSPECIFIED)); //$NON-NLS-1$
 			}
 		}
+		sortKey = ((long) ~serviceranking << 32) | (serviceid & ~SORT_KEY_ID_OVERFLOW);
 
-		return props.asUnmodifiableMap();
+		return new ServicePropertiesSnapshot(props, registry.filterMemoSize);
 	}
 
 	/**
@@ -379,9 +390,7 @@ public class ServiceRegistrationImpl<S> implements ServiceRegistration<S>, Compa
 	 * @return The service registration's properties.
 	 */
 	public Map<String, Object> getProperties() {
-		synchronized (registrationLock) {
-			return properties;
-		}
+		return properties;
 	}
 
 	/**
@@ -397,9 +406,7 @@ public class ServiceRegistrationImpl<S> implements ServiceRegistration<S>, Compa
 	 * no property by that name.
 	 */
 	Object getProperty(String key) {
-		synchronized (registrationLock) {
-			return ServiceProperties.cloneValue(properties.get(key));
-		}
+		return ServiceProperties.cloneValue(properties.get(key));
 	}
 
 	/**
@@ -413,9 +420,7 @@ public class ServiceRegistrationImpl<S> implements ServiceRegistration<S>, Compa
 	 * @return The list of property key names.
 	 */
 	String[] getPropertyKeys() {
-		synchronized (registrationLock) {
-			return properties.keySet().toArray(new String[0]);
-		}
+		return properties.getKeys();
 	}
 
 	/**
@@ -429,9 +434,21 @@ public class ServiceRegistrationImpl<S> implements ServiceRegistration<S>, Compa
 	 * @return A copy of the properties.
 	 */
 	Dictionary<String, Object> getPropertiesCopy() {
-		synchronized (registrationLock) {
-			return new ServiceProperties(properties);
-		}
+		return new ServiceProperties(properties);
+	}
+
+	/**
+	 * Returns whether the filter matches the properties of this service.
+	 * The result is memoized with the current properties so matching an
+	 * equal filter again before the properties are modified does not
+	 * evaluate the filter.
+	 *
+	 * @param filter The filter.
+	 * @param memoHits Counts the matches answered by the memo.
+	 * @return <code>true</code> if the filter matches the properties.
+	 */
+	boolean matches(FilterImpl filter, LongAdder memoHits) {
+		return properties.matches(filter, memoHits);
 	}
 
 	/**
@@ -447,9 +464,7 @@ public class ServiceRegistrationImpl<S> implements ServiceRegistration<S>, Compa
 	 * @return The service ranking for this service.
 	 */
 	int getRanking() {
-		synchronized (registrationLock) {
-			return serviceranking;
-		}
+		return ~(int) (sortKey >> 32);
 	}
 
 	String[] getClasses() {
@@ -748,6 +763,9 @@ public class ServiceRegistrationImpl<S> implements ServiceRegistration<S>, Compa
 	 */
 	@Override
 	public int compareTo(ServiceRegistrationImpl<?> other) {
+		if (((serviceid | other.serviceid) & SORT_KEY_ID_OVERFLOW) == 0) {
+			return Long.compare(sortKey, other.sortKey);
+		}
 		return compareTo(other.getRanking(), other.getId());
 	}
 
@@ -18,16 +18,20 @@ import java.security.AccessController;
 import java.security.PrivilegedAction;
 import java.security.ProtectionDomain;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.Dictionary;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 import org.eclipse.osgi.container.Module;
 import org.eclipse.osgi.container.ModuleRevision;
 import org.eclipse.osgi.framework.eventmgr.CopyOnWriteIdentityMap;
@@ -35,6 +39,7 @@ import org.eclipse.osgi.framework.eventmgr.EventDispatcher;
 import org.eclipse.osgi.framework.eventmgr.ListenerQueue;
 import org.eclipse.osgi.internal.debug.Debug;
 import org.eclipse.osgi.internal.framework.BundleContextImpl;
+import org.eclipse.osgi.internal.framework.EquinoxConfiguration;
 import org.eclipse.osgi.internal.framework.EquinoxContainer;
 import org.eclipse.osgi.internal.framework.FilterImpl;
 import org.eclipse.osgi.internal.messages.Msg;
@@ -72,19 +77,23 @@ public class ServiceRegistry {
 
 
 	/** Published services by class name.
-	 * The {@literal List<ServiceRegistrationImpl<?>>}s are both sorted
+	 * The {@literal ServiceRegistrationImpl<?>[]}s are both sorted
 	 * in the natural order of ServiceRegistrationImpl and also are sets in that
-	 * there must be no two entries in a List which are equal.
+	 * there must be no two entries in an array which are equal.
+	 * The arrays are never modified once published so they can be read without
+	 * holding the lock; a new array replaces the old one on each change.
 	 */
-	/* @GuardedBy("this") */
-	private final Map<String, List<ServiceRegistrationImpl<?>>> publishedServicesByClass;
+	/* @GuardedBy("this") for writes */
+	private final Map<String, ServiceRegistrationImpl<?>[]> publishedServicesByClass;
 
 	/** All published services.
-	 * The List is both sorted in the natural order of ServiceRegistrationImpl and also is a
-	 * set in that there must be no two entries in the List which are equal.
+	 * The array is both sorted in the natural order of ServiceRegistrationImpl and also is a
+	 * set in that there must be no two entries in the array which are equal.
+	 * The array is never modified once published so it can be read without
+	 * holding the lock; a new array replaces the old one on each change.
 	 */
-	/* @GuardedBy("this") */
-	private final List<ServiceRegistrationImpl<?>> allPublishedServices;
+	/* @GuardedBy("this") for writes */
+	private volatile ServiceRegistrationImpl<?>[] allPublishedServices;
 
 	/** Published services by BundleContextImpl.
 	 * The {@literal List<ServiceRegistrationImpl<?>>}s are NOT sorted
@@ -104,6 +113,44 @@ public class ServiceRegistry {
 	/* @GuardedBy("serviceEventListeners") */
 	private final Map<BundleContextImpl, CopyOnWriteIdentityMap<ServiceListener, FilteredServiceListener>> serviceEventListeners;
 
+	/** Active Service Listeners indexed by the objectClass required by their filter.
+	 * The String keys are interned objectClass names.
+	 * {@literal Map<String,Map<BundleContextImpl,CopyOnWriteIdentityMap<ServiceListener,FilteredServiceListener>>>}.
+	 */
+	/* @GuardedBy("serviceEventListeners") */
+	private final Map<String, Map<BundleContextImpl, CopyOnWriteIdentityMap<ServiceListener, FilteredServiceListener>>> serviceEventListenersByClass;
+
+	/** Active Service Listeners which do not require a specific objectClass.
+	 * {@literal Map<BundleContextImpl,CopyOnWriteIdentityMap<ServiceListener,FilteredServiceListener>>}.
+	 */
+	/* @GuardedBy("serviceEventListeners") */
+	private final Map<BundleContextImpl, CopyOnWriteIdentityMap<ServiceListener, FilteredServiceListener>> unkeyedServiceEventListeners;
+
+	/** The position of each context in the insertion order of serviceEventListeners.
+	 * Used to deliver events to the contexts found in the indexes in that order.
+	 */
+	/* @GuardedBy("serviceEventListeners") */
+	private final Map<BundleContextImpl, Long> serviceEventListenersOrder;
+	/* @GuardedBy("serviceEventListeners") */
+	private long nextServiceEventListenersOrder;
+
+	static final ServiceRegistrationImpl<?>[] EMPTY_REGISTRATIONS = new ServiceRegistrationImpl<?>[0];
+
+	/** Indexes of the published services by the values of the configured service properties.
+	 * Empty unless the indexed properties are configured.
+	 */
+	private final ServicePropertyIndex[] propertyIndexes;
+	/** The number of filter matches memoized for each version of the service properties; 0 if disabled */
+	final int filterMemoSize;
+	private static final int DEFAULT_FILTER_MEMO_SIZE = 8;
+	/** Delivers service events to the asynchronous service listeners; null if asynchronous delivery is disabled */
+	final AsyncServiceEventDelivery asyncDelivery;
+	private static final int DEFAULT_ASYNC_QUEUE_SIZE = 1000;
+	/* the filter matches of service listeners and of service lookups and those answered by the memo */
+	private final LongAdder listenerFilterMatches = new LongAdder();
+	private final LongAdder listenerFilterMemoHits = new LongAdder();
+	private final LongAdder lookupFilterMatches = new LongAdder();
+	private final LongAdder lookupFilterMemoHits = new LongAdder();
 	/** initial capacity of the main data structure */
 	private static final int initialCapacity = 50;
 	/** initial capacity of the nested data structure */
@@ -121,10 +168,18 @@ public class ServiceRegistry {
 		this.container = container;
 		this.debug = container.getConfiguration().getDebug();
 		serviceid = 1;
-		publishedServicesByClass = new HashMap<>(initialCapacity);
+		publishedServicesByClass = new ConcurrentHashMap<>(initialCapacity);
 		publishedServicesByContext = new HashMap<>(initialCapacity);
-		allPublishedServices = new ArrayList<>(initialCapacity);
+		allPublishedServices = EMPTY_REGISTRATIONS;
+		propertyIndexes = createPropertyIndexes(container.getConfiguration().getConfiguration(EquinoxConfiguration.PROP_SERVICE_INDEX_KEYS));
+		filterMemoSize = parseNonNegativeInteger(container.getConfiguration().getConfiguration(EquinoxConfiguration.PROP_SERVICE_FILTER_MEMO_SIZE), DEFAULT_FILTER_MEMO_SIZE);
+		int asyncThreads = parseNonNegativeInteger(container.getConfiguration().getConfiguration(EquinoxConfiguration.PROP_SERVICE_EVENT_ASYNC_THREADS), 0);
+		int asyncQueueSize = Math.max(1, parseNonNegativeInteger(container.getConfiguration().getConfiguration(EquinoxConfiguration.PROP_SERVICE_EVENT_ASYNC_QUEUE_SIZE), DEFAULT_ASYNC_QUEUE_SIZE));
+		asyncDelivery = (asyncThreads > 0) ? new AsyncServiceEventDelivery(container.toString(), asyncThreads, asyncQueueSize) : null;
 		serviceEventListeners = new LinkedHashMap<>(initialCapacity);
+		serviceEventListenersByClass = new HashMap<>(initialCapacity);
+		unkeyedServiceEventListeners = new LinkedHashMap<>(initialCapacity);
+		serviceEventListenersOrder = new HashMap<>(initialCapacity);
 		Module systemModule = container.getStorage().getModuleContainer().getModule(0);
 		systemBundleContext = (BundleContextImpl) systemModule.getBundle().getBundleContext();
 		systemBundleContext.provisionServicesInUseMap();
@@ -790,8 +845,13 @@ public class ServiceRegistry {
 			if (listeners == null) {
 				listeners = new CopyOnWriteIdentityMap<>();
 				serviceEventListeners.put(context, listeners);
+				serviceEventListenersOrder.put(context, Long.valueOf(nextServiceEventListenersOrder++));
 			}
 			oldFilteredListener = listeners.put(listener, filteredListener);
+			if (oldFilteredListener != null) {
+				unindexServiceListener(context, listener, oldFilteredListener);
+			}
+			indexServiceListener(context, listener, filteredListener);
 		}
 
 		if (oldFilteredListener != null) {
@@ -823,6 +883,9 @@ public class ServiceRegistry {
 				return; // this context has no listeners to begin with
 			}
 			oldFilteredListener = listeners.remove(listener);
+			if (oldFilteredListener != null) {
+				unindexServiceListener(context, listener, oldFilteredListener);
+			}
 		}
 
 		if (oldFilteredListener == null) {
@@ -842,6 +905,12 @@ public class ServiceRegistry {
 		Map<ServiceListener, FilteredServiceListener> removedListenersMap;
 		synchronized (serviceEventListeners) {
 			removedListenersMap = serviceEventListeners.remove(context);
+			serviceEventListenersOrder.remove(context);
+			if (removedListenersMap != null) {
+				for (Map.Entry<ServiceListener, FilteredServiceListener> entry : removedListenersMap.entrySet()) {
+					unindexServiceListener(context, entry.getKey(), entry.getValue());
+				}
+			}
 		}
 		if ((removedListenersMap == null) || removedListenersMap.isEmpty()) {
 			return;
@@ -853,6 +922,66 @@ public class ServiceRegistry {
 		notifyListenerHooks(asListenerInfos(removedListeners), false);
 	}
 
+	/**
+	 * Add a Service Listener to the objectClass index.
+	 *
+	 * @param context Context of bundle adding listener.
+	 * @param listener Service Listener being added.
+	 * @param filteredListener The filtered listener to index.
+	 */
+	/* @GuardedBy("serviceEventListeners") */
+	private void indexServiceListener(BundleContextImpl context, ServiceListener listener, FilteredServiceListener filteredListener) {
+		assert Thread.holdsLock(serviceEventListeners);
+		String objectClass = filteredListener.getObjectClass();
+		Map<BundleContextImpl, CopyOnWriteIdentityMap<ServiceListener, FilteredServiceListener>> bucket;
+		if (objectClass == null) {
+			bucket = unkeyedServiceEventListeners;
+		} else {
+			bucket = serviceEventListenersByClass.get(objectClass);
+			if (bucket == null) {
+				bucket = new LinkedHashMap<>(initialSubCapacity);
+				serviceEventListenersByClass.put(objectClass, bucket);
+			}
+		}
+		CopyOnWriteIdentityMap<ServiceListener, FilteredServiceListener> listeners = bucket.get(context);
+		if (listeners == null) {
+			listeners = new CopyOnWriteIdentityMap<>();
+			bucket.put(context, listeners);
+		}
+		listeners.put(listener, filteredListener);
+	}
+
+	/**
+	 * Remove a Service Listener from the objectClass index.
+	 *
+	 * @param context Context of bundle removing listener.
+	 * @param listener Service Listener being removed.
+	 * @param filteredListener The filtered listener which was indexed.
+	 */
+	/* @GuardedBy("serviceEventListeners") */
+	private void unindexServiceListener(BundleContextImpl context, ServiceListener listener, FilteredServiceListener filteredListener) {
+		assert Thread.holdsLock(serviceEventListeners);
+		String objectClass = filteredListener.getObjectClass();
+		Map<BundleContextImpl, CopyOnWriteIdentityMap<ServiceListener, FilteredServiceListener>> bucket = (objectClass == null) ? unkeyedServiceEventListeners : serviceEventListenersByClass.get(objectClass);
+		if (bucket == null) {
+			return;
+		}
+		CopyOnWriteIdentityMap<ServiceListener, FilteredServiceListener> listeners = bucket.get(context);
+		if (listeners == null) {
+			return;
+		}
+		// only remove the indexed entry if it is for the same filtered listener
+		if (listeners.get(listener) == filteredListener) {
+			listeners.remove(listener);
+		}
+		if (listeners.isEmpty()) {
+			bucket.remove(context);
+			if ((objectClass != null) && bucket.isEmpty()) {
+				serviceEventListenersByClass.remove(objectClass);
+			}
+		}
+	}
+
 	/**
 	 * Coerce the generic type of a collection from Collection<FilteredServiceListener>
 	 * to Collection<ListenerInfo>
@@ -888,17 +1017,15 @@ public class ServiceRegistry {
 		Map<BundleContextImpl, Set<Map.Entry<ServiceListener, FilteredServiceListener>>> listenerSnapshot;
 		Set<Map.Entry<ServiceListener, FilteredServiceListener>> systemServiceListenersOrig = null;
 		BundleContextImpl systemContext = null;
+		String[] classes = ((ServiceReferenceImpl<?>) event.getServiceReference()).getClasses();
 		synchronized (serviceEventListeners) {
-			listenerSnapshot = new LinkedHashMap<>(serviceEventListeners.size());
-			for (Map.Entry<BundleContextImpl, CopyOnWriteIdentityMap<ServiceListener, FilteredServiceListener>> entry : serviceEventListeners.entrySet()) {
-				Map<ServiceListener, FilteredServiceListener> listeners = entry.getValue();
-				if (!listeners.isEmpty()) {
-					if (entry.getKey().getBundleImpl().getBundleId() == 0) {
-						systemContext = entry.getKey();
-						// make a copy that we can use to discard hook removals later
-						systemServiceListenersOrig = listeners.entrySet();
-					}
-					listenerSnapshot.put(entry.getKey(), listeners.entrySet());
+			listenerSnapshot = snapshotServiceListeners(classes);
+			for (Map.Entry<BundleContextImpl, Set<Map.Entry<ServiceListener, FilteredServiceListener>>> entry : listenerSnapshot.entrySet()) {
+				if (entry.getKey().getBundleImpl().getBundleId() == 0) {
+					systemContext = entry.getKey();
+					// make a copy that we can use to discard hook removals later
+					systemServiceListenersOrig = snapshotServiceListeners(systemContext, classes);
+					break;
 				}
 			}
 		}
@@ -937,6 +1064,111 @@ public class ServiceRegistry {
 		queue.dispatchEventSynchronous(SERVICEEVENT, event);
 	}
 
+	/**
+	 * Snapshot the service listeners which may be interested in a service event
+	 * for a service registered under the specified classes. Only the unkeyed
+	 * listeners and the listeners whose filter requires one of the specified
+	 * classes are included. The contexts are in the same order as in
+	 * serviceEventListeners.
+	 *
+	 * @param classes The interned class names of the service.
+	 * @return The listener snapshot, keyed by bundle context.
+	 */
+	/* @GuardedBy("serviceEventListeners") */
+	private Map<BundleContextImpl, Set<Map.Entry<ServiceListener, FilteredServiceListener>>> snapshotServiceListeners(String[] classes) {
+		assert Thread.holdsLock(serviceEventListeners);
+		Map<BundleContextImpl, Set<Map.Entry<ServiceListener, FilteredServiceListener>>> snapshot = new LinkedHashMap<>();
+		Set<BundleContextImpl> merge = null;
+		merge = addToSnapshot(snapshot, unkeyedServiceEventListeners, merge);
+		for (String clazz : classes) {
+			merge = addToSnapshot(snapshot, serviceEventListenersByClass.get(clazz), merge);
+		}
+		if (merge != null) {
+			// a context has listeners in more than one bucket; rebuild its
+			// entry from the context listeners to keep the listener order
+			for (BundleContextImpl context : merge) {
+				snapshot.put(context, snapshotServiceListeners(context, classes));
+			}
+		}
+		return inContextOrder(snapshot);
+	}
+
+	/**
+	 * Orders the contexts of a snapshot merged from several buckets in the
+	 * insertion order of serviceEventListeners.
+	 *
+	 * @param snapshot The listener snapshot.
+	 * @return The snapshot in context order.
+	 */
+	/* @GuardedBy("serviceEventListeners") */
+	private Map<BundleContextImpl, Set<Map.Entry<ServiceListener, FilteredServiceListener>>> inContextOrder(Map<BundleContextImpl, Set<Map.Entry<ServiceListener, FilteredServiceListener>>> snapshot) {
+		long previous = -1;
+		boolean ordered = true;
+		for (BundleContextImpl context : snapshot.keySet()) {
+			long order = serviceEventListenersOrder.get(context).longValue();
+			if (order < previous) {
+				ordered = false;
+				break;
+			}
+			previous = order;
+		}
+		if (ordered) {
+			return snapshot;
+		}
+		List<BundleContextImpl> contexts = new ArrayList<>(snapshot.keySet());
+		contexts.sort(Comparator.comparing(serviceEventListenersOrder::get));
+		Map<BundleContextImpl, Set<Map.Entry<ServiceListener, FilteredServiceListener>>> result = new LinkedHashMap<>();
+		for (BundleContextImpl context : contexts) {
+			result.put(context, snapshot.get(context));
+		}
+		return result;
+	}
+
+	/**
+	 * Snapshot the service listeners of the specified context which may be
+	 * interested in a service event for a service registered under the specified
+	 * classes.
+	 *
+	 * @param context The context of the listeners.
+	 * @param classes The interned class names of the service.
+	 * @return The listener snapshot for the context.
+	 */
+	/* @GuardedBy("serviceEventListeners") */
+	private Set<Map.Entry<ServiceListener, FilteredServiceListener>> snapshotServiceListeners(BundleContextImpl context, String[] classes) {
+		Set<Map.Entry<ServiceListener, FilteredServiceListener>> listeners = serviceEventListeners.get(context).entrySet();
+		for (Iterator<Map.Entry<ServiceListener, FilteredServiceListener>> iter = listeners.iterator(); iter.hasNext();) {
+			String objectClass = iter.next().getValue().getObjectClass();
+			if (objectClass != null && !containsIdentity(classes, objectClass)) {
+				iter.remove(); // only removes from the snapshot
+			}
+		}
+		return listeners;
+	}
+
+	private static Set<BundleContextImpl> addToSnapshot(Map<BundleContextImpl, Set<Map.Entry<ServiceListener, FilteredServiceListener>>> snapshot, Map<BundleContextImpl, CopyOnWriteIdentityMap<ServiceListener, FilteredServiceListener>> bucket, Set<BundleContextImpl> merge) {
+		if (bucket == null) {
+			return merge;
+		}
+		for (Map.Entry<BundleContextImpl, CopyOnWriteIdentityMap<ServiceListener, FilteredServiceListener>> entry : bucket.entrySet()) {
+			if (snapshot.put(entry.getKey(), entry.getValue().entrySet()) != null) {
+				if (merge == null) {
+					merge = new HashSet<>();
+				}
+				merge.add(entry.getKey());
+			}
+		}
+		return merge;
+	}
+
+	private static boolean containsIdentity(String[] classes, String objectClass) {
+		for (String clazz : classes) {
+			if (clazz == objectClass) { // objectClass strings have previously been interned for identity comparison
+				return true;
+			}
+		}
+		return false;
+	}
+
 	/**
 	 * Coerce the generic type of a collection from Collection<BundleContextImpl>
 	 * to Collection<BundleContext>
@@ -977,25 +1209,18 @@ public class ServiceRegistry {
 		// The list is NOT sorted, so we just add
 		contextServices.add(registration);
 
-		// Add the ServiceRegistrationImpl to the list of Services published by Class Name.
-		int insertIndex;
+		// Add the ServiceRegistrationImpl to the Services published by Class Name.
 		for (String clazz : registration.getClasses()) {
-			List<ServiceRegistrationImpl<?>> services = publishedServicesByClass.get(clazz);
+			ServiceRegistrationImpl<?>[] services = publishedServicesByClass.get(clazz);
+			publishedServicesByClass.put(clazz, insertRegistration(services == null ? EMPTY_REGISTRATIONS : services, registration));
+		}
 
-			if (services == null) {
-				services = new ArrayList<>(initialSubCapacity);
-				publishedServicesByClass.put(clazz, services);
-			}
+		// Add the ServiceRegistrationImpl to all published Services.
+		allPublishedServices = insertRegistration(allPublishedServices, registration);
 
-			// The list is sorted, so we must find the proper location to insert
-			insertIndex = -Collections.binarySearch(services, registration) - 1;
-			services.add(insertIndex, registration);
+		for (ServicePropertyIndex index : propertyIndexes) {
+			index.add(registration);
 		}
-
-		// Add the ServiceRegistrationImpl to the list of all published Services.
-		// The list is sorted, so we must find the proper location to insert
-		insertIndex = -Collections.binarySearch(allPublishedServices, registration) - 1;
-		allPublishedServices.add(insertIndex, registration);
 	}
 
 	/**
@@ -1008,29 +1233,28 @@ public class ServiceRegistry {
 	void modifyServiceRegistration(BundleContextImpl context, ServiceRegistrationImpl<?> registration,
 			int previousRanking) {
 		assert Thread.holdsLock(this);
+		// The indexed property values and the ranking may have changed.
+		for (ServicePropertyIndex index : propertyIndexes) {
+			index.remove(registration);
+			index.add(registration);
+		}
+
 		// The list of Services published by BundleContextImpl is not sorted, so
 		// we do not need to modify it.
 
 		// If the insert location has changed
 		if (registration.compareTo(previousRanking, registration.getId()) != 0) {
-			// Remove the ServiceRegistrationImpl from the list of Services published by
+			// Remove the ServiceRegistrationImpl from the Services published by
 			// Class Name
 			// and then add at the correct index.
-			int insertIndex;
 			for (String clazz : registration.getClasses()) {
-				List<ServiceRegistrationImpl<?>> services = publishedServicesByClass.get(clazz);
-				services.remove(registration);
-				// The list is sorted, so we must find the proper location to insert
-				insertIndex = -1 - Collections.binarySearch(services, registration);
-				services.add(insertIndex, registration);
+				ServiceRegistrationImpl<?>[] services = publishedServicesByClass.get(clazz);
+				publishedServicesByClass.put(clazz, insertRegistration(removeRegistration(services, registration), registration));
 			}
 
-			// Remove the ServiceRegistrationImpl from the list of all published Services
+			// Remove the ServiceRegistrationImpl from all published Services
 			// and then add at the correct index.
-			allPublishedServices.remove(registration);
-			// The list is sorted, so we must find the proper location to insert
-			insertIndex = -1 - Collections.binarySearch(allPublishedServices, registration);
-			allPublishedServices.add(insertIndex, registration);
+			allPublishedServices = insertRegistration(removeRegistration(allPublishedServices, registration), registration);
 		}
 	}
 
@@ -1049,17 +1273,59 @@ public class ServiceRegistry {
 			contextServices.remove(registration);
 		}
 
-		// Remove the ServiceRegistrationImpl from the list of Services published by Class Name.
+		// Remove the ServiceRegistrationImpl from the Services published by Class Name.
 		for (String clazz : registration.getClasses()) {
-			List<ServiceRegistrationImpl<?>> services = publishedServicesByClass.get(clazz);
-			services.remove(registration);
-			if (services.isEmpty()) { // remove empty list
+			ServiceRegistrationImpl<?>[] services = removeRegistration(publishedServicesByClass.get(clazz), registration);
+			if (services.length == 0) { // remove empty array
 				publishedServicesByClass.remove(clazz);
+			} else {
+				publishedServicesByClass.put(clazz, services);
 			}
 		}
 
-		// Remove the ServiceRegistrationImpl from the list of all published Services.
-		allPublishedServices.remove(registration);
+		// Remove the ServiceRegistrationImpl from all published Services.
+		allPublishedServices = removeRegistration(allPublishedServices, registration);
+
+		for (ServicePropertyIndex index : propertyIndexes) {
+			index.remove(registration);
+		}
+	}
+
+	/**
+	 * Returns a copy of the sorted array with the registration inserted at
+	 * its sorted location.
+	 *
+	 * @param services The sorted array of registrations.
+	 * @param registration The registration to insert.
+	 * @return The new sorted array.
+	 */
+	static ServiceRegistrationImpl<?>[] insertRegistration(ServiceRegistrationImpl<?>[] services, ServiceRegistrationImpl<?> registration) {
+		// The array is sorted, so we must find the proper location to insert
+		int insertIndex = -Arrays.binarySearch(services, registration) - 1;
+		ServiceRegistrationImpl<?>[] result = new ServiceRegistrationImpl<?>[services.length + 1];
+		System.arraycopy(services, 0, result, 0, insertIndex);
+		result[insertIndex] = registration;
+		System.arraycopy(services, insertIndex, result, insertIndex + 1, services.length - insertIndex);
+		return result;
+	}
+
+	/**
+	 * Returns a copy of the array without the registration.
+	 *
+	 * @param services The array of registrations.
+	 * @param registration The registration to remove.
+	 * @return The new array or the specified array if it does not contain the registration.
+	 */
+	static ServiceRegistrationImpl<?>[] removeRegistration(ServiceRegistrationImpl<?>[] services, ServiceRegistrationImpl<?> registration) {
+		for (int i = 0; i < services.length; i++) {
+			if (services[i] == registration) {
+				ServiceRegistrationImpl<?>[] result = new ServiceRegistrationImpl<?>[services.length - 1];
+				System.arraycopy(services, 0, result, 0, i);
+				System.arraycopy(services, i + 1, result, i, result.length - i);
+				return result;
+			}
+		}
+		return services;
 	}
 
 	/**
@@ -1068,61 +1334,257 @@ public class ServiceRegistry {
 	 * @param clazz The class name with which the service was registered or
 	 *        <code>null</code> for all services.
 	 * @param filter The filter criteria.
-	 * @return List<ServiceRegistrationImpl>
+	 * @return An unmodifiable List<ServiceRegistrationImpl>
 	 */
 	private List<ServiceRegistrationImpl<?>> lookupServiceRegistrations(String clazz, Filter filter) {
-		List<ServiceRegistrationImpl<?>> result;
-		synchronized (this) {
-			if (clazz == null) {
-				if (filter instanceof FilterImpl) {
-					// check if we can determine the clazz from the filter
-					String filterObjectClazz = ((FilterImpl) filter).getRequiredObjectClass();
-					if (filterObjectClazz != null) {
-						result = publishedServicesByClass.get(filterObjectClazz);
-						if (((FilterImpl) filter).getChildren().isEmpty()) {
-							// this is a simple (objectClass=serviceClass) filter;
-							// no need to evaluate the filter
-							filter = null;
-						}
-					} else {
-					  result = allPublishedServices;
+		// the published arrays are never modified so no lock is needed to read them
+		ServiceRegistrationImpl<?>[] result;
+		if (clazz == null) {
+			if (filter instanceof FilterImpl) {
+				// check if we can determine the clazz from the filter
+				String filterObjectClazz = ((FilterImpl) filter).getRequiredObjectClass();
+				if (filterObjectClazz != null) {
+					result = publishedServicesByClass.get(filterObjectClazz);
+					if (((FilterImpl) filter).getChildren().isEmpty()) {
+						// this is a simple (objectClass=serviceClass) filter;
+						// no need to evaluate the filter
+						filter = null;
 					}
 				} else {
-					// have to check all services
 					result = allPublishedServices;
 				}
 			} else {
-				/* services registered under the class name */
-				result = publishedServicesByClass.get(clazz);
-			}
-
-			if ((result == null) || result.isEmpty()) {
-				return Collections.emptyList();
+				// have to check all services
+				result = allPublishedServices;
 			}
+		} else {
+			/* services registered under the class name */
+			result = publishedServicesByClass.get(clazz);
+		}
 
-			result = new LinkedList<>(result); /* make a new list since we don't want to change the real list */
+		if ((result == null) || (result.length == 0)) {
+			return Collections.emptyList();
 		}
 
 		if (filter == null) {
-			return result;
+			return Collections.unmodifiableList(Arrays.asList(result));
+		}
+
+		// the services indexed by a property the filter requires to be equal to a value
+		// are only used if they are fewer than the services of the class
+		String indexedClazz = null;
+		if ((propertyIndexes.length > 0) && (filter instanceof FilterImpl)) {
+			ServiceRegistrationImpl<?>[] indexed = lookupPropertyIndexes((FilterImpl) filter);
+			if ((indexed != null) && (indexed.length < result.length)) {
+				if (indexed.length == 0) {
+					return Collections.emptyList();
+				}
+				result = indexed;
+				// the indexed services may be registered under other classes
+				indexedClazz = clazz;
+			}
 		}
 
-		for (Iterator<ServiceRegistrationImpl<?>> iter = result.iterator(); iter.hasNext();) {
-			ServiceRegistrationImpl<?> registration = iter.next();
+		// the matches of framework filters are memoized with the service properties
+		FilterImpl memoFilter = (filter instanceof FilterImpl) ? (FilterImpl) filter : null;
+		List<ServiceRegistrationImpl<?>> matches = new ArrayList<>();
+		for (ServiceRegistrationImpl<?> registration : result) {
+			if ((indexedClazz != null) && !isRegisteredUnder(registration, indexedClazz)) {
+				continue;
+			}
 			ServiceReferenceImpl<?> reference;
 			try {
 				reference = registration.getReferenceImpl();
 			} catch (IllegalStateException e) {
-				iter.remove(); /* service was unregistered after we left the synchronized block above */
-				continue;
+				continue; /* service was unregistered after the array was published */
 			}
-			if (!filter.match(reference)) {
-				iter.remove();
+			boolean match;
+			if (memoFilter != null) {
+				lookupFilterMatches.increment();
+				match = registration.matches(memoFilter, lookupFilterMemoHits);
+			} else {
+				match = filter.match(reference);
+			}
+			if (match) {
+				matches.add(registration);
+			}
+		}
+		return matches;
+	}
+
+	/**
+	 * Returns the smallest array of services found by looking up the property
+	 * indexes with the values the filter requires the properties to be equal to.
+	 *
+	 * @param filter The filter criteria.
+	 * @return The sorted array of services or <code>null</code> if no index applies to the filter.
+	 */
+	private ServiceRegistrationImpl<?>[] lookupPropertyIndexes(FilterImpl filter) {
+		ServiceRegistrationImpl<?>[] result = null;
+		for (ServicePropertyIndex index : propertyIndexes) {
+			String value = filter.getPrimaryKeyValue(index.getKey());
+			if (value != null) {
+				ServiceRegistrationImpl<?>[] services = index.lookup(value);
+				if ((result == null) || (services.length < result.length)) {
+					result = services;
+				}
 			}
 		}
 		return result;
 	}
 
+	private static boolean isRegisteredUnder(ServiceRegistrationImpl<?> registration, String clazz) {
+		for (String registeredClazz : registration.getClasses()) {
+			if (registeredClazz.equals(clazz)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Creates the property indexes for the comma separated list of property keys.
+	 *
+	 * @param keys The property keys or <code>null</code>.
+	 * @return The property indexes.
+	 */
+	private static ServicePropertyIndex[] createPropertyIndexes(String keys) {
+		if (keys == null) {
+			return new ServicePropertyIndex[0];
+		}
+		List<ServicePropertyIndex> indexes = new ArrayList<>();
+		Set<String> added = new HashSet<>();
+		for (String key : keys.split(",")) { //$NON-NLS-1$
+			key = key.trim();
+			// property keys are case insensitive
+			if (!key.isEmpty() && added.add(key.toLowerCase())) {
+				indexes.add(new ServicePropertyIndex(key));
+			}
+		}
+		return indexes.toArray(new ServicePropertyIndex[indexes.size()]);
+	}
+
+	/**
+	 * Parses a configured number which must not be negative.
+	 *
+	 * @param value The configured value or <code>null</code>.
+	 * @param defaultValue The number to use if the value is not configured or invalid.
+	 * @return The configured number.
+	 */
+	private static int parseNonNegativeInteger(String value, int defaultValue) {
+		if (value == null) {
+			return defaultValue;
+		}
+		try {
+			return Math.max(0, Integer.parseInt(value.trim()));
+		} catch (NumberFormatException e) {
+			return defaultValue;
+		}
+	}
+
+	/**
+	 * Evaluates the filter of a service listener against the properties of a service.
+	 *
+	 * @param filter The filter of the service listener.
+	 * @param reference The reference of the service.
+	 * @return <code>true</code> if the filter matches the service properties.
+	 */
+	boolean matchListenerFilter(FilterImpl filter, ServiceReferenceImpl<?> reference) {
+		listenerFilterMatches.increment();
+		return reference.getRegistration().matches(filter, listenerFilterMemoHits);
+	}
+
+	/**
+	 * Returns the number of service listener filter evaluations.
+	 * @return the number of service listener filter matches
+	 */
+	public long getListenerFilterMatches() {
+		return listenerFilterMatches.sum();
+	}
+
+	/**
+	 * Returns the number of service listener filter evaluations answered by
+	 * the filter match memo of the service properties. These matches are
+	 * included in the {@link #getListenerFilterMatches() listener filter matches}.
+	 * @return the number of service listener filter matches answered by the memo
+	 */
+	public long getListenerFilterMemoHits() {
+		return listenerFilterMemoHits.sum();
+	}
+
+	/**
+	 * Returns the number of filter evaluations done to find service references.
+	 * @return the number of service lookup filter matches
+	 */
+	public long getLookupFilterMatches() {
+		return lookupFilterMatches.sum();
+	}
+
+	/**
+	 * Returns the number of filter evaluations done to find service references
+	 * which were answered by the filter match memo of the service properties.
+	 * These matches are included in the {@link #getLookupFilterMatches() lookup
+	 * filter matches}.
+	 * @return the number of service lookup filter matches answered by the memo
+	 */
+	public long getLookupFilterMemoHits() {
+		return lookupFilterMemoHits.sum();
+	}
+
+	/**
+	 * Returns the number of service events delivered to asynchronous service listeners.
+	 * @return the number of asynchronous deliveries; 0 if asynchronous delivery is disabled
+	 */
+	public long getAsyncServiceEventDeliveries() {
+		return (asyncDelivery == null) ? 0 : asyncDelivery.getDeliveries();
+	}
+
+	/**
+	 * Returns the number of service events dropped because the queue of an
+	 * asynchronous service listener was full.
+	 * @return the number of dropped events; 0 if asynchronous delivery is disabled
+	 */
+	public long getAsyncServiceEventsDropped() {
+		return (asyncDelivery == null) ? 0 : asyncDelivery.getDropped();
+	}
+
+	/**
+	 * Returns the total time, in nanoseconds, the service events delivered to
+	 * asynchronous service listeners waited in the listener queues.
+	 * @return the total queue time of the asynchronous deliveries
+	 */
+	public long getAsyncServiceEventQueueTime() {
+		return (asyncDelivery == null) ? 0 : asyncDelivery.getQueueTime();
+	}
+
+	/**
+	 * Returns the total time, in nanoseconds, the asynchronous service listeners
+	 * spent handling the service events delivered to them.
+	 * @return the total listener time of the asynchronous deliveries
+	 */
+	public long getAsyncServiceEventListenerTime() {
+		return (asyncDelivery == null) ? 0 : asyncDelivery.getListenerTime();
+	}
+
+	/**
+	 * Returns the longest time, in nanoseconds, from the publication of a service
+	 * event until an asynchronous service listener finished handling it.
+	 * @return the maximum latency of the asynchronous deliveries
+	 */
+	public long getAsyncServiceEventMaxLatency() {
+		return (asyncDelivery == null) ? 0 : asyncDelivery.getMaxLatency();
+	}
+
+	/**
+	 * Called when the framework is closed. Stops the asynchronous delivery
+	 * threads once the queued service events have been delivered.
+	 */
+	public void close() {
+		if (asyncDelivery != null) {
+			asyncDelivery.shutdown();
+		}
+	}
+
 	/**
 	 * Lookup Service Registrations in the data structure by BundleContext.
 	 *
@@ -45,6 +45,7 @@ import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.Hashtable;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
@@ -54,6 +55,7 @@ import java.util.Set;
 import java.util.StringTokenizer;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Stream;
+import java.util.zip.CRC32;
 import org.eclipse.core.runtime.adaptor.EclipseStarter;
 import org.eclipse.osgi.container.Module;
 import org.eclipse.osgi.container.ModuleCapability;
@@ -62,6 +64,7 @@ import org.eclipse.osgi.container.ModuleContainerAdaptor;
 import org.eclipse.osgi.container.ModuleDatabase;
 import org.eclipse.osgi.container.ModuleRevision;
 import org.eclipse.osgi.container.ModuleRevisionBuilder;
+import org.eclipse.osgi.container.ModuleRevisionBuilder.GenericInfo;
 import org.eclipse.osgi.container.ModuleWire;
 import org.eclipse.osgi.container.ModuleWiring;
 import org.eclipse.osgi.container.builders.OSGiManifestBuilderFactory;
@@ -116,6 +119,7 @@ import org.osgi.framework.namespace.PackageNamespace;
 import org.osgi.framework.wiring.BundleCapability;
 import org.osgi.framework.wiring.BundleRevision;
 import org.osgi.framework.wiring.BundleWiring;
+import org.osgi.resource.Capability;
 import org.osgi.resource.Namespace;
 import org.osgi.resource.Requirement;
 
@@ -149,6 +153,8 @@ public class Storage {
 	public static final String BUNDLE_DATA_DIR = "data"; //$NON-NLS-1$
 	public static final String BUNDLE_FILE_NAME = "bundleFile"; //$NON-NLS-1$
 	public static final String FRAMEWORK_INFO = "framework.info"; //$NON-NLS-1$
+	public static final String FRAMEWORK_JOURNAL = "framework.journal"; //$NON-NLS-1$
+	public static final String FRAMEWORK_RESOLUTION = "framework.resolution"; //$NON-NLS-1$
 	public static final String ECLIPSE_SYSTEMBUNDLE = "Eclipse-SystemBundle"; //$NON-NLS-1$
 	public static final String DELETE_FLAG = ".delete"; //$NON-NLS-1$
 	public static final String LIB_TEMP = "libtemp"; //$NON-NLS-1$
@@ -172,6 +178,32 @@ public class Storage {
 	private final ModuleContainer moduleContainer;
 	private final Object saveMonitor = new Object();
 	private long lastSavedTimestamp = -1;
+	private final int journalLimit;
+	/**
+	 * The number of deltas appended to the journal since framework.info was last saved;
+	 * -1 if the journal cannot be appended to.
+	 */
+	/* @GuardedBy("saveMonitor") */
+	private int journalEntries = -1;
+	/**
+	 * The content of framework.journal; written out after each append.
+	 */
+	/* @GuardedBy("saveMonitor") */
+	private ByteArrayOutputStream journal;
+	/**
+	 * The generations saved in framework.info and the journal, by bundle id.
+	 */
+	/* @GuardedBy("saveMonitor") */
+	private Map<Long, Generation> savedGenerations = Collections.emptyMap();
+	/**
+	 * Incremented for each append; the journal is written when it is ahead
+	 * of the written sequence.
+	 */
+	/* @GuardedBy("saveMonitor") */
+	private long journalSequence;
+	private final Object journalMonitor = new Object();
+	/* @GuardedBy("journalMonitor") */
+	private long writtenJournalSequence;
 	private final MRUBundleFileList mruList;
 	private final FrameworkExtensionInstaller extensionInstaller;
 	private final List<String> cachedHeaderKeys = Arrays.asList(Constants.BUNDLE_SYMBOLICNAME, Constants.BUNDLE_ACTIVATIONPOLICY, "Service-Component"); //$NON-NLS-1$
@@ -223,6 +255,7 @@ public class Storage {
 		equinoxContainer = container;
 		extensionInstaller = new FrameworkExtensionInstaller(container.getConfiguration());
 		allowRestrictedProvides = Boolean.parseBoolean(container.getConfiguration().getConfiguration(EquinoxConfiguration.PROP_ALLOW_RESTRICTED_PROVIDES));
+		journalLimit = getJournalLimit(container.getConfiguration());
 
 		// we need to set the install path as soon as possible so we can determine
 		// the absolute location of install relative URLs
@@ -240,7 +273,10 @@ public class Storage {
 		this.osgiLocation = configLocation.createLocation(osgiParentLocation, configLocation.getDataArea(EquinoxContainer.NAME), configLocation.isReadOnly());
 		this.childRoot = new File(osgiLocation.getURL().getPath());
 
+		byte[] resolutionCache = null;
 		if (Boolean.valueOf(container.getConfiguration().getConfiguration(EquinoxConfiguration.PROP_CLEAN)).booleanValue()) {
+			// keep the wirings so the bundles installed again can be resolved with them
+			resolutionCache = readResolutionCache();
 			cleanOSGiStorage(osgiLocation, childRoot);
 		}
 		if (!this.osgiLocation.isReadOnly()) {
@@ -272,9 +308,13 @@ public class Storage {
 			this.adaptor = new EquinoxContainerAdaptor(equinoxContainer, this, generations);
 			this.moduleDatabase = new ModuleDatabase(this.adaptor);
 			this.moduleContainer = new ModuleContainer(this.adaptor, this.moduleDatabase);
+			if (resolutionCache != null) {
+				loadResolutionCache(resolutionCache);
+			}
 			if (data != null) {
 				try {
 					moduleDatabase.load(data);
+					loadJournal(generations);
 					lastSavedTimestamp = moduleDatabase.getTimestamp();
 				} catch (IllegalArgumentException e) {
 					equinoxContainer.getLogServices().log(EquinoxContainer.NAME, FrameworkLogEntry.WARNING, "Incompatible version.  Starting with empty framework.", e); //$NON-NLS-1$
@@ -316,6 +356,18 @@ public class Storage {
 		return propValue;
 	}
 
+	private int getJournalLimit(EquinoxConfiguration configuration) {
+		int propValue = 0; // journal is disabled by default
+		try {
+			String prop = configuration.getConfiguration(EquinoxConfiguration.PROP_STATE_SAVE_JOURNAL_LIMIT);
+			if (prop != null)
+				propValue = Integer.parseInt(prop);
+		} catch (NumberFormatException e) {
+			// use default of 0
+		}
+		return propValue;
+	}
+
 	private void installExtensions() {
 		Module systemModule = moduleContainer.getModule(0);
 		ModuleRevision systemRevision = systemModule == null ? null : systemModule.getCurrentRevision();
@@ -492,6 +544,14 @@ public class Storage {
 			Generation generation = (Generation) m.getCurrentRevision().getRevisionInfo();
 			// Note that we check the raw headers here incase we are working off an old version of the persistent storage
 			if (Boolean.parseBoolean(generation.getRawHeaders().get(BundleInfo.MULTI_RELEASE_HEADER))) {
+				if (isSameContent(m.getCurrentRevision(), getBuilder(generation))) {
+					// the manifest for the current runtime version results in the
+					// same revision content; keep the current revision and its wiring
+					if (getConfiguration().getDebug().DEBUG_STORAGE) {
+						Debug.println("Multi-Release bundle content unchanged: " + m); //$NON-NLS-1$
+					}
+					continue;
+				}
 				refresh(m);
 				mrJarBundles.add(m);
 			}
@@ -499,9 +559,60 @@ public class Storage {
 		return mrJarBundles;
 	}
 
+	/**
+	 * Returns true if a revision built with the specified builder would have the
+	 * same symbolic name, version, type, capabilities and requirements as the
+	 * specified revision.
+	 * <p>
+	 * This is only used for Multi-Release bundles where the bundle content is
+	 * unchanged and only the manifest selected for the runtime version may differ.
+	 * A bundle which is updated or whose content changed on disk always gets a new
+	 * revision, even when its manifest is identical, because its classes and
+	 * resources may have changed.  Such a revision is resolved with the wiring of
+	 * the previous revision without running the resolver when both have the same
+	 * content fingerprint and the providers did not change, see
+	 * {@link ModuleContainer#getCachedResolves()}.
+	 * @param revision the revision
+	 * @param builder the builder
+	 * @return true if the builder has the same content as the revision
+	 */
+	static boolean isSameContent(ModuleRevision revision, ModuleRevisionBuilder builder) {
+		if (!Objects.equals(revision.getSymbolicName(), builder.getSymbolicName()) || !revision.getVersion().equals(builder.getVersion()) || revision.getTypes() != builder.getTypes()) {
+			return false;
+		}
+		List<Capability> capabilities = revision.getCapabilities(null);
+		List<GenericInfo> capabilityInfos = builder.getCapabilities();
+		if (capabilities.size() != capabilityInfos.size()) {
+			return false;
+		}
+		for (int i = 0; i < capabilities.size(); i++) {
+			Capability capability = capabilities.get(i);
+			if (!isSameInfo(capability.getNamespace(), capability.getDirectives(), capability.getAttributes(), capabilityInfos.get(i))) {
+				return false;
+			}
+		}
+		List<Requirement> requirements = revision.getRequirements(null);
+		List<GenericInfo> requirementInfos = builder.getRequirements();
+		if (requirements.size() != requirementInfos.size()) {
+			return false;
+		}
+		for (int i = 0; i < requirements.size(); i++) {
+			Requirement requirement = requirements.get(i);
+			if (!isSameInfo(requirement.getNamespace(), requirement.getDirectives(), requirement.getAttributes(), requirementInfos.get(i))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean isSameInfo(String namespace, Map<String, String> directives, Map<String, Object> attributes, GenericInfo info) {
+		return namespace.equals(info.getNamespace()) && directives.equals(info.getDirectives()) && attributes.equals(info.getAttributes());
+	}
+
 	public void close() {
 		try {
-			save();
+			save(false, true);
+			saveResolutionCache();
 		} catch (IOException e) {
 			getLogServices().log(EquinoxContainer.NAME, FrameworkLogEntry.ERROR, "Error saving on shutdown", e); //$NON-NLS-1$
 		}
@@ -1276,15 +1387,33 @@ public class Storage {
 	}
 
 	public void save() throws IOException {
+		save(false, false);
+	}
+
+	/**
+	 * Appends the changes of the module database to the framework.journal
+	 * if the changes can be saved as a delta.  A delta covers installed, updated
+	 * and uninstalled bundles, wirings, module settings and start levels.  Changes
+	 * to permission data and wirings with removal pending revisions are left for
+	 * the next {@link #save()}.
+	 * @throws IOException if an error occurred writing the journal
+	 */
+	public void saveJournal() throws IOException {
+		if (journalLimit > 0) {
+			save(true, false);
+		}
+	}
+
+	private void save(boolean journalOnly, boolean compact) throws IOException {
 		if (isReadOnly()) {
 			return;
 		}
 		if (System.getSecurityManager() == null) {
-			save0();
+			save0(journalOnly, compact);
 		} else {
 			try {
 				AccessController.doPrivileged((PrivilegedExceptionAction<Void>) () -> {
-					save0();
+					save0(journalOnly, compact);
 					return null;
 				});
 			} catch (PrivilegedActionException e) {
@@ -1295,25 +1424,105 @@ public class Storage {
 		}
 	}
 
-	void save0() throws IOException {
+	void save0(boolean journalOnly, boolean compact) throws IOException {
+		moduleDatabase.readLock();
+		try {
+			synchronized (this.saveMonitor) {
+				if (lastSavedTimestamp != moduleDatabase.getTimestamp() || (compact && journalEntries > 0)) {
+					if (!compact && appendJournal()) {
+						lastSavedTimestamp = moduleDatabase.getTimestamp();
+					} else if (!journalOnly) {
+						saveFrameworkInfo();
+						lastSavedTimestamp = moduleDatabase.getTimestamp();
+						resetJournal();
+					}
+				}
+			}
+		} finally {
+			moduleDatabase.readUnlock();
+		}
+		// the journal is written without holding the database lock
+		writeJournal();
+	}
+
+	/*
+	 * The wirings are saved on shutdown so the bundles installed again after
+	 * the storage is cleaned can be resolved with the same wirings without
+	 * running the resolver.
+	 */
+	private void saveResolutionCache() throws IOException {
+		if (isReadOnly()) {
+			return;
+		}
 		StorageManager childStorageManager = null;
 		ManagedOutputStream mos = null;
 		DataOutputStream out = null;
 		boolean success = false;
-		moduleDatabase.readLock();
 		try {
-			synchronized (this.saveMonitor) {
-				if (lastSavedTimestamp == moduleDatabase.getTimestamp())
-					return;
-				childStorageManager = getChildStorageManager();
-				mos = childStorageManager.getOutputStream(FRAMEWORK_INFO);
-				out = new DataOutputStream(new BufferedOutputStream(mos));
-				saveGenerations(out);
-				savePermissionData(out);
-				moduleDatabase.store(out, true);
-				lastSavedTimestamp = moduleDatabase.getTimestamp();
-				success = true;
+			childStorageManager = getChildStorageManager();
+			mos = childStorageManager.getOutputStream(FRAMEWORK_RESOLUTION);
+			out = new DataOutputStream(new BufferedOutputStream(mos));
+			moduleDatabase.storeResolutionCache(out);
+			success = true;
+		} finally {
+			if (!success) {
+				if (mos != null) {
+					mos.abort();
+				}
+			}
+			if (out != null) {
+				try {
+					out.close();
+				} catch (IOException e) {
+					// tried our best
+				}
+			}
+			if (childStorageManager != null) {
+				childStorageManager.close();
 			}
+		}
+	}
+
+	private byte[] readResolutionCache() {
+		if (!childRoot.isDirectory()) {
+			return null;
+		}
+		try {
+			return readFrameworkFile(FRAMEWORK_RESOLUTION);
+		} catch (IOException e) {
+			if (getConfiguration().getDebug().DEBUG_STORAGE) {
+				Debug.println("Error reading " + FRAMEWORK_RESOLUTION + ": " + e.getMessage()); //$NON-NLS-1$ //$NON-NLS-2$
+				Debug.printStackTrace(e);
+			}
+			return null;
+		}
+	}
+
+	private void loadResolutionCache(byte[] content) {
+		try {
+			moduleDatabase.loadResolutionCache(new DataInputStream(new ByteArrayInputStream(content)));
+		} catch (IOException | IllegalArgumentException e) {
+			// the bundles are resolved by the resolver
+			if (getConfiguration().getDebug().DEBUG_STORAGE) {
+				Debug.println("Error reading " + FRAMEWORK_RESOLUTION + ": " + e.getMessage()); //$NON-NLS-1$ //$NON-NLS-2$
+				Debug.printStackTrace(e);
+			}
+		}
+	}
+
+	private void saveFrameworkInfo() throws IOException {
+		StorageManager childStorageManager = null;
+		ManagedOutputStream mos = null;
+		DataOutputStream out = null;
+		boolean success = false;
+		try {
+			childStorageManager = getChildStorageManager();
+			mos = childStorageManager.getOutputStream(FRAMEWORK_INFO);
+			out = new DataOutputStream(new BufferedOutputStream(mos));
+			saveGenerations(out);
+			savePermissionData(out);
+			moduleDatabase.store(out, true);
+			success = true;
 		} finally {
 			if (!success) {
 				if (mos != null) {
@@ -1330,7 +1539,200 @@ public class Storage {
 			if (childStorageManager != null) {
 				childStorageManager.close();
 			}
-			moduleDatabase.readUnlock();
+		}
+	}
+
+	/*
+	 * The journal starts with the timestamp of the module database saved in
+	 * framework.info followed by the size, the CRC-32 checksum and the content
+	 * of each entry.  An entry holds the changed generations followed by the
+	 * delta of the module database.
+	 */
+	private boolean appendJournal() {
+		if (journalEntries < 0 || journalEntries >= journalLimit || permissionData.isDirty()) {
+			return false;
+		}
+		try {
+			Map<Long, Generation> currentGenerations = getCurrentGenerations();
+			List<Generation> changedGenerations = new ArrayList<>();
+			for (Map.Entry<Long, Generation> entry : currentGenerations.entrySet()) {
+				if (savedGenerations.get(entry.getKey()) != entry.getValue()) {
+					changedGenerations.add(entry.getValue());
+				}
+			}
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			DataOutputStream out = new DataOutputStream(bytes);
+			out.writeInt(VERSION);
+			saveGenerationInfos(out, changedGenerations);
+			if (!moduleDatabase.storeDelta(out)) {
+				return false;
+			}
+			out.flush();
+			byte[] entry = bytes.toByteArray();
+			CRC32 checksum = new CRC32();
+			checksum.update(entry);
+			DataOutputStream journalOut = new DataOutputStream(journal);
+			journalOut.writeInt(entry.length);
+			journalOut.writeLong(checksum.getValue());
+			journalOut.write(entry);
+			journalOut.flush();
+			savedGenerations = currentGenerations;
+			journalEntries++;
+			journalSequence++;
+			return true;
+		} catch (IOException e) {
+			if (getConfiguration().getDebug().DEBUG_STORAGE) {
+				Debug.println("Error writing " + FRAMEWORK_JOURNAL + ": " + e.getMessage()); //$NON-NLS-1$ //$NON-NLS-2$
+				Debug.printStackTrace(e);
+			}
+			// fall back to saving framework.info which includes the delta
+			journalEntries = -1;
+			return false;
+		}
+	}
+
+	private void resetJournal() throws IOException {
+		journalEntries = -1;
+		journal = null;
+		if (journalLimit <= 0) {
+			return;
+		}
+		// the old framework.journal is ignored on load because it starts with an older timestamp
+		journal = new ByteArrayOutputStream();
+		new DataOutputStream(journal).writeLong(lastSavedTimestamp);
+		savedGenerations = getCurrentGenerations();
+		journalEntries = 0;
+	}
+
+	private void writeJournal() {
+		synchronized (journalMonitor) {
+			byte[] content;
+			long sequence;
+			synchronized (saveMonitor) {
+				if (journal == null || journalSequence == writtenJournalSequence) {
+					// the latest journal has already been written
+					return;
+				}
+				content = journal.toByteArray();
+				sequence = journalSequence;
+			}
+			StorageManager childStorageManager = null;
+			ManagedOutputStream mos = null;
+			boolean success = false;
+			try {
+				childStorageManager = getChildStorageManager();
+				mos = childStorageManager.getOutputStream(FRAMEWORK_JOURNAL);
+				mos.write(content);
+				mos.close();
+				success = true;
+				writtenJournalSequence = sequence;
+			} catch (IOException e) {
+				if (getConfiguration().getDebug().DEBUG_STORAGE) {
+					Debug.println("Error writing " + FRAMEWORK_JOURNAL + ": " + e.getMessage()); //$NON-NLS-1$ //$NON-NLS-2$
+					Debug.printStackTrace(e);
+				}
+				synchronized (saveMonitor) {
+					// the next save writes framework.info which includes the lost deltas
+					journalEntries = -1;
+					lastSavedTimestamp = -1;
+				}
+			} finally {
+				if (!success && mos != null) {
+					mos.abort();
+				}
+				if (childStorageManager != null) {
+					childStorageManager.close();
+				}
+			}
+		}
+	}
+
+	private byte[] readFrameworkFile(String name) throws IOException {
+		StorageManager childStorageManager = getChildStorageManager();
+		try {
+			InputStream input = childStorageManager.getInputStream(name);
+			if (input == null) {
+				return null;
+			}
+			try (InputStream in = input) {
+				ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+				byte[] buffer = new byte[8192];
+				for (int read = in.read(buffer); read != -1; read = in.read(buffer)) {
+					bytes.write(buffer, 0, read);
+				}
+				return bytes.toByteArray();
+			}
+		} finally {
+			childStorageManager.close();
+		}
+	}
+
+	private int loadJournalEntries(DataInputStream in, Map<Long, Generation> generations, DataOutputStream out) throws IOException {
+		int entries = 0;
+		while (in.available() >= Integer.BYTES + Long.BYTES) {
+			int size = in.readInt();
+			long checksum = in.readLong();
+			if (size < 0 || size > in.available()) {
+				// a torn write; the rest of the journal was never completed
+				break;
+			}
+			byte[] entry = new byte[size];
+			in.readFully(entry);
+			CRC32 crc = new CRC32();
+			crc.update(entry);
+			if (crc.getValue() != checksum) {
+				// a torn or corrupt entry; drop it and everything after it
+				break;
+			}
+			DataInputStream entryIn = new DataInputStream(new ByteArrayInputStream(entry));
+			int version = entryIn.readInt();
+			if (version > VERSION || version < LOWEST_VERSION_SUPPORTED) {
+				throw new IllegalArgumentException("Found persistent version \"" + version + "\" expecting \"" + VERSION + "\""); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+			}
+			for (Generation generation : loadGenerationInfos(entryIn, version)) {
+				generations.put(generation.getBundleInfo().getBundleId(), generation);
+			}
+			moduleDatabase.loadDelta(entryIn);
+			out.writeInt(size);
+			out.writeLong(checksum);
+			out.write(entry);
+			entries++;
+		}
+		return entries;
+	}
+
+	private void loadJournal(Map<Long, Generation> generations) {
+		if (journalLimit <= 0) {
+			return;
+		}
+		ByteArrayOutputStream loaded = new ByteArrayOutputStream();
+		int entries = 0;
+		try {
+			long timestamp = moduleDatabase.getTimestamp();
+			DataOutputStream out = new DataOutputStream(loaded);
+			out.writeLong(timestamp);
+			byte[] content = readFrameworkFile(FRAMEWORK_JOURNAL);
+			// a missing journal or one that belongs to another framework.info is replaced by a new one
+			if (content != null && content.length >= Long.BYTES) {
+				DataInputStream in = new DataInputStream(new ByteArrayInputStream(content));
+				if (in.readLong() == timestamp) {
+					entries = loadJournalEntries(in, generations, out);
+				}
+			}
+			out.flush();
+		} catch (IOException | IllegalArgumentException e) {
+			// the rest of the journal is not usable; the next save writes framework.info
+			if (getConfiguration().getDebug().DEBUG_STORAGE) {
+				Debug.println("Error reading " + FRAMEWORK_JOURNAL + ": " + e.getMessage()); //$NON-NLS-1$ //$NON-NLS-2$
+				Debug.printStackTrace(e);
+			}
+			return;
+		}
+		synchronized (saveMonitor) {
+			// keep the valid entries; the next append writes them without the rejected tail
+			journal = loaded;
+			savedGenerations = getCurrentGenerations();
+			journalEntries = entries;
 		}
 	}
 
@@ -1338,18 +1740,23 @@ public class Storage {
 		permissionData.savePermissionData(out);
 	}
 
-	private void saveGenerations(DataOutputStream out) throws IOException {
+	private Map<Long, Generation> getCurrentGenerations() {
 		List<Module> modules = moduleContainer.getModules();
-		List<Generation> generations = new ArrayList<>();
+		Map<Long, Generation> generations = new LinkedHashMap<>();
 		for (Module module : modules) {
 			ModuleRevision revision = module.getCurrentRevision();
 			if (revision != null) {
 				Generation generation = (Generation) revision.getRevisionInfo();
 				if (generation != null) {
-					generations.add(generation);
+					generations.put(module.getId(), generation);
 				}
 			}
 		}
+		return generations;
+	}
+
+	private void saveGenerations(DataOutputStream out) throws IOException {
+		List<Generation> generations = new ArrayList<>(getCurrentGenerations().values());
 		out.writeInt(VERSION);
 
 		out.writeUTF(runtimeVersion.toString());
@@ -1360,6 +1767,10 @@ public class Storage {
 		saveLongString(out, getSystemExtraCapabilities());
 		saveLongString(out, getSystemExtraPackages());
 
+		saveGenerationInfos(out, generations);
+	}
+
+	private void saveGenerationInfos(DataOutputStream out, List<Generation> generations) throws IOException {
 		out.writeInt(cachedHeaderKeys.size());
 		for (String headerKey : cachedHeaderKeys) {
 			out.writeUTF(headerKey);
@@ -1468,6 +1879,15 @@ public class Storage {
 		cachedInfo[1] = (version >= CACHED_SYSTEM_CAPS_VERION) ? readLongString(in) : null;
 		cachedInfo[2] = (version >= CACHED_SYSTEM_CAPS_VERION) ? readLongString(in) : null;
 
+		List<Generation> generations = loadGenerationInfos(in, version);
+		Map<Long, Generation> result = new HashMap<>(generations.size());
+		for (Generation generation : generations) {
+			result.put(generation.getBundleInfo().getBundleId(), generation);
+		}
+		return result;
+	}
+
+	private List<Generation> loadGenerationInfos(DataInputStream in, int version) throws IOException {
 		int numCachedHeaders = in.readInt();
 		List<String> storedCachedHeaderKeys = new ArrayList<>(numCachedHeaders);
 		for (int i = 0; i < numCachedHeaders; i++) {
@@ -1475,7 +1895,6 @@ public class Storage {
 		}
 
 		int numInfos = in.readInt();
-		Map<Long, Generation> result = new HashMap<>(numInfos);
 		List<Generation> generations = new ArrayList<>(numInfos);
 		Type[] contentTypes = Type.values();
 		for (int i = 0; i < numInfos; i++) {
@@ -1539,13 +1958,12 @@ public class Storage {
 			}
 			BundleInfo info = new BundleInfo(this, infoId, infoLocation, nextGenId);
 			Generation generation = info.restoreGeneration(generationId, content, isDirectory, contentType, hasPackageInfo, cachedHeaders, lastModified, isMRJar);
-			result.put(infoId, generation);
 			generations.add(generation);
 		}
 
 		connectPersistentBundles(generations);
 		loadStorageHookData(generations, in);
-		return result;
+		return generations;
 	}
 
 	private void connectPersistentBundles(List<Generation> generations) {
@@ -42,7 +42,7 @@ abstract public class BundleFile {
 	 * The File object for this BundleFile.
 	 */
 	protected File basefile;
-	private int mruIndex = -1;
+	private volatile int mruIndex = -1;
 
 	/**
 	 * BundleFile constructor
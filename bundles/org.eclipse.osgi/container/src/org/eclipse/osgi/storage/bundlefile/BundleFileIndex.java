@@ -0,0 +1,111 @@
+/*******************************************************************************
+ * Copyright (c) 2026 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.osgi.storage.bundlefile;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An immutable index of the paths of a {@link CloseableBundleFile}. The paths
+ * are kept in the order the bundle file returned them together with a sorted
+ * view of the paths. The sorted view answers prefix queries, such as testing
+ * if a directory exists or finding all paths in a directory, with a binary
+ * search instead of iterating over all the paths.
+ */
+final class BundleFileIndex {
+	private final String[] paths;
+	/* indexes into paths, ordered by the path at that index */
+	private final int[] sorted;
+
+	BundleFileIndex(Iterable<String> allPaths) {
+		List<String> list = new ArrayList<>();
+		for (String path : allPaths) {
+			list.add(path);
+		}
+		paths = list.toArray(new String[list.size()]);
+		Integer[] order = new Integer[paths.length];
+		for (int i = 0; i < order.length; i++) {
+			order[i] = i;
+		}
+		Arrays.sort(order, (i1, i2) -> paths[i1].compareTo(paths[i2]));
+		sorted = new int[order.length];
+		for (int i = 0; i < order.length; i++) {
+			sorted[i] = order[i];
+		}
+	}
+
+	/**
+	 * Returns true if the index contains the specified path.
+	 * @param path the path
+	 * @return true if the path exists
+	 */
+	boolean contains(String path) {
+		int i = lowerBound(path);
+		return i < sorted.length && paths[sorted[i]].equals(path);
+	}
+
+	/**
+	 * Returns true if the index contains a path starting with the prefix.
+	 * @param prefix the prefix
+	 * @return true if a path starts with the prefix
+	 */
+	boolean containsPrefix(String prefix) {
+		int i = lowerBound(prefix);
+		return i < sorted.length && paths[sorted[i]].startsWith(prefix);
+	}
+
+	/**
+	 * Returns all paths starting with the prefix in the order the bundle
+	 * file returned them.
+	 * @param prefix the prefix
+	 * @return the paths starting with the prefix
+	 */
+	List<String> getPaths(String prefix) {
+		if (prefix.length() == 0) {
+			return Collections.unmodifiableList(Arrays.asList(paths));
+		}
+		int start = lowerBound(prefix);
+		int end = start;
+		while (end < sorted.length && paths[sorted[end]].startsWith(prefix)) {
+			end++;
+		}
+		if (start == end) {
+			return Collections.emptyList();
+		}
+		int[] found = Arrays.copyOfRange(sorted, start, end);
+		Arrays.sort(found);
+		List<String> result = new ArrayList<>(found.length);
+		for (int i : found) {
+			result.add(paths[i]);
+		}
+		return result;
+	}
+
+	private int lowerBound(String key) {
+		int low = 0;
+		int high = sorted.length;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (paths[sorted[mid]].compareTo(key) < 0) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+}
@@ -60,6 +60,11 @@ public abstract class CloseableBundleFile<E> extends BundleFile {
 
 	private int referenceCount = 0;
 
+	/**
+	 * The index of the paths; kept when the bundle file is closed
+	 */
+	private volatile BundleFileIndex index;
+
 	public CloseableBundleFile(File basefile, BundleInfo.Generation generation, MRUBundleFileList mruList, Debug debug) {
 		super(basefile);
 		this.debug = debug;
@@ -166,7 +171,8 @@ public abstract class CloseableBundleFile<E> extends BundleFile {
 			return null;
 		}
 		try {
-			for (String path : getPaths()) {
+			BundleFileIndex current = getIndex();
+			for (String path : current != null ? current.getPaths(dirName) : getPaths()) {
 				if (path.startsWith(dirName) && !path.endsWith("/")) //$NON-NLS-1$
 					getFile(path, false);
 			}
@@ -178,6 +184,41 @@ public abstract class CloseableBundleFile<E> extends BundleFile {
 
 	protected abstract Iterable<String> getPaths();
 
+	/**
+	 * Returns true if an index of the paths returned by {@link #getPaths()} can be
+	 * kept for this bundle file. The index is built on first use and is kept when the
+	 * bundle file is closed, so the paths must not change unless {@link #clearIndex()}
+	 * is called. By default no index is kept.
+	 * @return true if the paths can be indexed
+	 */
+	protected boolean isIndexed() {
+		return false;
+	}
+
+	/**
+	 * Discards the index of the paths, for example because the content of the
+	 * bundle file changed.
+	 */
+	protected void clearIndex() {
+		index = null;
+	}
+
+	/**
+	 * Returns the index of the paths, building it if needed. Must be called
+	 * while holding the open lock.
+	 * @return the index or {@code null} if this bundle file is not indexed
+	 */
+	BundleFileIndex getIndex() {
+		if (!isIndexed()) {
+			return null;
+		}
+		BundleFileIndex current = index;
+		if (current == null) {
+			index = current = new BundleFileIndex(getPaths());
+		}
+		return current;
+	}
+
 	private File getExtractFile(String entryName) {
 		if (generation == null)
 			return null;
@@ -258,6 +299,10 @@ public abstract class CloseableBundleFile<E> extends BundleFile {
 			if (dir.length() > 0 && dir.charAt(dir.length() - 1) != '/')
 				dir = dir + '/';
 
+			BundleFileIndex current = getIndex();
+			if (current != null) {
+				return current.containsPrefix(dir);
+			}
 			for (String entry : getPaths()) {
 				if (entry.startsWith(dir)) {
 					return true;
@@ -306,7 +351,8 @@ public abstract class CloseableBundleFile<E> extends BundleFile {
 
 			LinkedHashSet<String> result = new LinkedHashSet<>();
 			// Get all entries and add the ones of interest.
-			for (String entryPath : getPaths()) {
+			BundleFileIndex current = getIndex();
+			for (String entryPath : current != null ? current.getPaths(path) : getPaths()) {
 				// Is the entry of possible interest? Note that
 				// string.startsWith("") == true.
 				if (entryPath.startsWith(path)) {
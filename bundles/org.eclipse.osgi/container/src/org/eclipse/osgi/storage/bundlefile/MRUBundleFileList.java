@@ -19,6 +19,9 @@ import java.util.Collections;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.ReentrantLock;
 import org.eclipse.osgi.framework.eventmgr.EventDispatcher;
@@ -31,23 +34,31 @@ import org.eclipse.osgi.internal.debug.Debug;
  * track of open BundleFiles.  The MRU will use the file limit specified by the property
  * &quot;osgi.bundlefile.limit&quot; by default unless the MRU is constructed with a specific
  * file limit.
+ * <p>
+ * The least recently used bundle file is approximated with the CLOCK algorithm.
+ * Each slot of open bundle files has a reference bit which is set when the bundle
+ * file is used.  When a bundle file is added to a full list a clock hand sweeps the
+ * slots, clearing reference bits until a slot without its bit set is found; the
+ * bundle file in that slot is closed and the slot is reused.  Using a bundle file
+ * and adding one to the list do not lock the list.
  */
 public class MRUBundleFileList implements EventDispatcher<Object, Object, BundleFile> {
 	private static final int MIN = 10;
 	private static final ThreadLocal<BundleFile> closingBundleFile = new ThreadLocal<>();
 
 	// list of open bundle files
-	final private BundleFile[] bundleFileList;
-	// list of open bundle files use stamps
-	final private long[] useStampList;
+	final private AtomicReferenceArray<BundleFile> bundleFileList;
+	// reference bits of the open bundle files
+	final private AtomicIntegerArray referenceList;
 	// the limit of open files to allow before least used bundle file is closed
 	final private int fileLimit; // value < MIN will disable MRU
+	/* @GuardedBy("this") */
 	private EventManager bundleFileCloserManager = null;
 	final private Map<Object, Object> bundleFileCloser;
 	// the current number of open bundle files
-	private int numOpen = 0;
-	// the current use stamp
-	private long curUseStamp = 0;
+	private final AtomicInteger numOpen = new AtomicInteger();
+	// the position of the clock hand
+	private final AtomicInteger clockHand = new AtomicInteger();
 	// used to work around bug 275166
 	private boolean firstDispatch = true;
 
@@ -56,17 +67,21 @@ public class MRUBundleFileList implements EventDispatcher<Object, Object, Bundle
 	private final AtomicInteger pending = new AtomicInteger();
 	private final Debug debug;
 
+	private final AtomicLong openCount = new AtomicLong();
+	private final AtomicLong evictionCount = new AtomicLong();
+	private final AtomicLong backPressureWaitCount = new AtomicLong();
+
 	public MRUBundleFileList(int fileLimit, Debug debug) {
 		// only enable the MRU if the initFileLimit is > MIN
 		this.fileLimit = fileLimit;
 		this.debug = debug;
 		if (fileLimit >= MIN) {
-			this.bundleFileList = new BundleFile[fileLimit];
-			this.useStampList = new long[fileLimit];
+			this.bundleFileList = new AtomicReferenceArray<>(fileLimit);
+			this.referenceList = new AtomicIntegerArray(fileLimit);
 			this.bundleFileCloser = Collections.singletonMap(this, this);
 		} else {
 			this.bundleFileList = null;
-			this.useStampList = null;
+			this.referenceList = null;
 			this.bundleFileCloser = null;
 		}
 	}
@@ -81,54 +96,90 @@ public class MRUBundleFileList implements EventDispatcher<Object, Object, Bundle
 	public boolean add(BundleFile bundleFile) {
 		if (fileLimit < MIN)
 			return false; // MRU is disabled
+		int current = bundleFile.getMruIndex();
+		if (current >= 0 && bundleFileList.get(current) == bundleFile)
+			return false; // do nothing; someone is trying add a bundleFile that is already in an MRU list
+		openCount.incrementAndGet();
 		BundleFile toRemove = null;
-		EventManager manager = null;
-		boolean backpressureNeeded = false;
-		synchronized (this) {
-			if (bundleFile.getMruIndex() >= 0)
-				return false; // do nothing; someone is trying add a bundleFile that is already in an MRU list
-			int index = 0; // default to the first slot
-			if (numOpen < fileLimit) {
-				// numOpen does not exceed the fileLimit
-				// find the first null slot to use in the MRU
-				for (int i = 0; i < fileLimit; i++)
-					if (bundleFileList[i] == null) {
-						index = i;
-						break;
-					}
+		while (true) {
+			int open = numOpen.get();
+			if (open < fileLimit) {
+				// numOpen does not exceed the fileLimit; reserve a free slot
+				if (numOpen.compareAndSet(open, open + 1)) {
+					addToFreeSlot(bundleFile);
+					break;
+				}
 			} else {
 				// numOpen has reached the fileLimit
 				// find the least recently used bundleFile and close it
 				// and use its slot for the new bundleFile to be opened.
-				index = 0;
-				for (int i = 1; i < fileLimit; i++)
-					if (useStampList[i] < useStampList[index])
-						index = i;
-				toRemove = bundleFileList[index];
-				if (toRemove.getMruIndex() != index)
-					throw new IllegalStateException("The BundleFile has the incorrect mru index: " + index + " != " + toRemove.getMruIndex()); //$NON-NLS-1$//$NON-NLS-2$
-				removeInternal(toRemove);
-				backpressureNeeded = isBackPressureNeeded();
-			}
-			// found an index to place to bundleFile to be opened
-			bundleFileList[index] = bundleFile;
-			bundleFile.setMruIndex(index);
-			incUseStamp(index);
-			numOpen++;
-			if (toRemove != null) {
-				if (bundleFileCloserManager == null)
-					bundleFileCloserManager = new EventManager("Bundle File Closer"); //$NON-NLS-1$
-				manager = bundleFileCloserManager;
+				toRemove = replaceVictim(bundleFile);
+				if (toRemove != null) {
+					break;
+				}
 			}
-
 		}
+		if (toRemove == null) {
+			return false;
+		}
+		evictionCount.incrementAndGet();
+		boolean backpressureNeeded = isBackPressureNeeded();
 		// must not close the toRemove bundle file while holding the lock of another bundle file (bug 161976)
 		// This queues the bundle file for close asynchronously.
-		closeBundleFile(toRemove, manager);
+		closeBundleFile(toRemove, getCloserManager());
 
 		return backpressureNeeded;
 	}
 
+	private void addToFreeSlot(BundleFile bundleFile) {
+		// a free slot is guaranteed since slots are cleared before numOpen is decremented
+		int start = clockHand.get();
+		for (int i = 0;; i++) {
+			int index = Math.floorMod(start + i, fileLimit);
+			if (bundleFileList.get(index) == null) {
+				// set the index first in case the bundle file is replaced right after it is added
+				bundleFile.setMruIndex(index);
+				referenceList.set(index, 1);
+				if (bundleFileList.compareAndSet(index, null, bundleFile)) {
+					return;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Sweeps the clock hand to find a slot which has not been used since the
+	 * last sweep and replaces the bundle file in that slot.
+	 * @param bundleFile the bundle file to add
+	 * @return the replaced bundle file or {@code null} if no slot was replaced
+	 * because bundle files were removed concurrently
+	 */
+	private BundleFile replaceVictim(BundleFile bundleFile) {
+		// two full sweeps are enough to clear all reference bits
+		for (int i = 0; i < 2 * fileLimit; i++) {
+			int index = Math.floorMod(clockHand.getAndIncrement(), fileLimit);
+			BundleFile victim = bundleFileList.get(index);
+			if (victim == null) {
+				if (numOpen.get() < fileLimit) {
+					return null; // a slot became free
+				}
+				continue;
+			}
+			if (referenceList.get(index) != 0) {
+				// give it a second chance
+				referenceList.set(index, 0);
+				continue;
+			}
+			bundleFile.setMruIndex(index);
+			referenceList.set(index, 1);
+			if (bundleFileList.compareAndSet(index, victim, bundleFile)) {
+				victim.setMruIndex(-1);
+				return victim;
+			}
+		}
+		return null;
+	}
+
 	/**
 	 * Removes a bundle file which is about to be closed
 	 * @param bundleFile the bundle file about to be closed
@@ -137,48 +188,33 @@ public class MRUBundleFileList implements EventDispatcher<Object, Object, Bundle
 	public boolean remove(BundleFile bundleFile) {
 		if (fileLimit < MIN)
 			return false; // MRU is disabled
-		synchronized (this) {
-			int index = bundleFile.getMruIndex();
-			if ((index >= 0 && index < fileLimit) && bundleFileList[index] == bundleFile) {
-				removeInternal(bundleFile);
-				return true;
-			}
+		int index = bundleFile.getMruIndex();
+		if ((index >= 0 && index < fileLimit) && bundleFileList.compareAndSet(index, bundleFile, null)) {
+			bundleFile.setMruIndex(-1);
+			referenceList.set(index, 0);
+			numOpen.decrementAndGet();
+			return true;
 		}
 		return false;
 	}
 
-	// must be called while synchronizing "this"
-	private void removeInternal(BundleFile bundleFile) {
-		int index = bundleFile.getMruIndex();
-		bundleFile.setMruIndex(-1);
-		bundleFileList[index] = null;
-		useStampList[index] = -1;
-		numOpen--;
-	}
-
 	/**
-	 * Increments the use stamp of a bundle file
-	 * @param bundleFile the bundle file to increment the use stamp for
+	 * Marks a bundle file as recently used
+	 * @param bundleFile the bundle file which is used
 	 */
 	public void use(BundleFile bundleFile) {
 		if (fileLimit < MIN)
 			return; // MRU is disabled
-		synchronized (this) {
-			int index = bundleFile.getMruIndex();
-			if ((index >= 0 && index < fileLimit) && bundleFileList[index] == bundleFile)
-				incUseStamp(index);
-		}
+		int index = bundleFile.getMruIndex();
+		// avoid writing the reference bit if it is already set
+		if ((index >= 0 && index < fileLimit) && referenceList.get(index) == 0 && bundleFileList.get(index) == bundleFile)
+			referenceList.set(index, 1);
 	}
 
-	// must be called while synchronizing "this"
-	private void incUseStamp(int index) {
-		if (curUseStamp == Long.MAX_VALUE) {
-			// we hit the curUseStamp max better reset all the stamps
-			for (int i = 0; i < fileLimit; i++)
-				useStampList[i] = 0;
-			curUseStamp = 0;
-		}
-		useStampList[index] = ++curUseStamp;
+	private synchronized EventManager getCloserManager() {
+		if (bundleFileCloserManager == null)
+			bundleFileCloserManager = new EventManager("Bundle File Closer"); //$NON-NLS-1$
+		return bundleFileCloserManager;
 	}
 
 	@Override
@@ -224,6 +260,7 @@ public class MRUBundleFileList implements EventDispatcher<Object, Object, Bundle
 					Debug.println("MRUBundleFileList: Applying back pressure before opening: " + toString()); //$NON-NLS-1$
 				}
 				// delay to allow the closer to catchup
+				backPressureWaitCount.incrementAndGet();
 				try {
 					pendingCond.await(Math.min(500, pendingNum), TimeUnit.MILLISECONDS);
 				} catch (InterruptedException e) {
@@ -284,4 +321,29 @@ public class MRUBundleFileList implements EventDispatcher<Object, Object, Bundle
 	public boolean isEnabled() {
 		return fileLimit >= MIN;
 	}
+
+	/**
+	 * Returns the number of bundle files added to this MRU list
+	 * @return the number of bundle files opened
+	 */
+	public long getOpenCount() {
+		return openCount.get();
+	}
+
+	/**
+	 * Returns the number of bundle files closed to make room for other bundle files
+	 * @return the number of evicted bundle files
+	 */
+	public long getEvictionCount() {
+		return evictionCount.get();
+	}
+
+	/**
+	 * Returns the number of times opening a bundle file waited for evicted
+	 * bundle files to be closed
+	 * @return the number of back pressure waits
+	 */
+	public long getBackPressureWaitCount() {
+		return backPressureWaitCount.get();
+	}
 }
@@ -37,6 +37,11 @@ public class ZipBundleFile extends CloseableBundleFile<ZipEntry> {
 	 * The zip file
 	 */
 	volatile ZipFile zipFile;
+	/**
+	 * The last modified time and length of the base file when the zip file was last opened
+	 */
+	private long openedLastModified;
+	private long openedLength;
 
 	public ZipBundleFile(File basefile, BundleInfo.Generation generation, MRUBundleFileList mruList, Debug debug,
 			boolean verify) throws IOException {
@@ -49,6 +54,19 @@ public class ZipBundleFile extends CloseableBundleFile<ZipEntry> {
 	@Override
 	protected void doOpen() throws IOException {
 		zipFile = BundleFile.secureAction.getZipFile(this.basefile, verify);
+		long lastModified = BundleFile.secureAction.lastModified(basefile);
+		long length = BundleFile.secureAction.length(basefile);
+		if (lastModified != openedLastModified || length != openedLength) {
+			// the index may have been built from different content
+			clearIndex();
+			openedLastModified = lastModified;
+			openedLength = length;
+		}
+	}
+
+	@Override
+	protected boolean isIndexed() {
+		return true;
 	}
 
 	/**
@@ -64,9 +82,13 @@ public class ZipBundleFile extends CloseableBundleFile<ZipEntry> {
 		ZipEntry entry = zipFile.getEntry(path);
 		if (entry != null && entry.getSize() == 0 && !entry.isDirectory()) {
 			// work around the directory bug see bug 83542
-			ZipEntry dirEntry = zipFile.getEntry(path + '/');
-			if (dirEntry != null)
-				entry = dirEntry;
+			String dirPath = path + '/';
+			BundleFileIndex index = getIndex();
+			if (index == null || index.contains(dirPath)) {
+				ZipEntry dirEntry = zipFile.getEntry(dirPath);
+				if (dirEntry != null)
+					entry = dirEntry;
+			}
 		}
 		return entry;
 	}
@@ -62,6 +62,10 @@ class Candidates
 
     private final OpenHashMapSet<Requirement, Capability> m_delta;
     private final AtomicBoolean m_candidateSelectorsUnmodifiable;
+    // Token identifying the candidate selectors this object may modify in
+    // place; the others are shared with other permutations. The token is
+    // replaced by copy() since the copy then shares all the selectors.
+    private Object m_owner = new Object();
 
     /**
      * Private copy constructor used by the copy() method.
@@ -348,7 +352,7 @@ class Candidates
             {
                 for (Requirement dependent : dependents)
                 {
-                    CandidateSelector candidates = m_candidateMap.get(dependent);
+                    CandidateSelector candidates = getOwnedCandidates(dependent);
                     if (candidates != null)
                     {
                         candidates:
@@ -712,16 +716,41 @@ class Candidates
 
     public void removeFirstCandidate(Requirement req)
     {
-        CandidateSelector candidates = m_candidateMap.get(req);
+        CandidateSelector candidates = getOwnedCandidates(req);
         // Remove the conflicting candidate.
         Capability cap = candidates.removeCurrentCandidate();
         if (candidates.isEmpty())
         {
             m_candidateMap.remove(req);
         }
-        // Update the delta with the removed capability
-        CopyOnWriteSet<Capability> capPath = m_delta.getOrCompute(req);
+        // Update the delta with the removed capability; the set may be
+        // shared with other permutations so it is replaced, not modified
+        CopyOnWriteSet<Capability> capPath = m_delta.get(req);
+        capPath = capPath == null
+            ? new CopyOnWriteSet<Capability>()
+            : new CopyOnWriteSet<Capability>(capPath);
         capPath.add(cap);
+        m_delta.put(req, capPath);
+    }
+
+    /**
+     * Returns the candidate selector of a requirement which this object may
+     * modify. Selectors are shared between permutations until one of them
+     * moves the current candidate of the selector, in which case the
+     * selector is first copied.
+     *
+     * @param req the requirement.
+     * @return the selector owned by this object or null.
+     */
+    private CandidateSelector getOwnedCandidates(Requirement req)
+    {
+        CandidateSelector candidates = m_candidateMap.get(req);
+        if (candidates != null && !candidates.isOwnedBy(m_owner))
+        {
+            candidates = candidates.copy(m_owner);
+            m_candidateMap.put(req, candidates);
+        }
+        return candidates;
     }
 
     public CandidateSelector clearMultipleCardinalityCandidates(Requirement req, Collection<Capability> caps)
@@ -1132,19 +1161,25 @@ class Candidates
      * Creates a copy of the Candidates object. This is used for creating
      * permutations when package space conflicts are discovered.
      *
+     * The candidate selectors and delta sets are shared with the copy
+     * and are copied by the object modifying them.
+     *
      * @return copy of this Candidates object.
      */
+    @SuppressWarnings("unchecked")
     public Candidates copy()
     {
+        // the selectors owned so far are now shared with the copy
+        m_owner = new Object();
         return new Candidates(
                 m_session,
                 m_candidateSelectorsUnmodifiable,
                 m_dependentMap,
-                m_candidateMap.deepClone(),
+                (OpenHashMapList) m_candidateMap.clone(),
                 m_allWrappedHosts,
                 m_populateResultCache,
                 m_subtitutableMap,
-                m_delta.deepClone());
+                (OpenHashMapSet<Requirement, Capability>) m_delta.clone());
     }
 
     public void dump(ResolveContext rc)
@@ -18,6 +18,7 @@
  */
 package org.apache.felix.resolver;
 
+import org.osgi.resource.Capability;
 import org.osgi.resource.Resource;
 
 /**
@@ -131,4 +132,30 @@ public class Logger
     {
         // do nothing by default
     }
+
+    /**
+     * Called each time a candidate permutation was checked for consistency.
+     * The initial permutation of a resolve has the index 0.
+     *
+     * @param index the index of the permutation
+     * @param packageSpacesTime the nanoseconds spent calculating the package spaces
+     * @param checkTime the nanoseconds spent checking the permutation, including
+     * the package space calculation
+     */
+    public void logPermutation(int index, long packageSpacesTime, long checkTime)
+    {
+        // do nothing by default
+    }
+
+    /**
+     * Called when the package space of a resource has a uses conflict for
+     * each of the capabilities involved in the conflict.
+     *
+     * @param resource the resource with the inconsistent package space
+     * @param capability a capability involved in the conflict
+     */
+    public void logUsesConflict(Resource resource, Capability capability)
+    {
+        // do nothing by default
+    }
 }
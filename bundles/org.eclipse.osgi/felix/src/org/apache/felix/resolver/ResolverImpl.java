@@ -22,6 +22,8 @@ import java.security.*;
 import java.util.*;
 import java.util.Map.Entry;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.felix.resolver.reason.ReasonException;
@@ -45,6 +47,8 @@ public class ResolverImpl implements Resolver
 
     private final Executor m_executor;
 
+    private final PackageSpaceCache m_packageSpaceCache;
+
     enum PermutationType {
         USES,
         IMPORT,
@@ -90,6 +94,8 @@ public class ResolverImpl implements Resolver
         private final Set<Requirement> m_sub_mutated = new HashSet<Requirement>();
         private final ConcurrentMap<String, List<String>> m_usesCache = new ConcurrentHashMap<String, List<String>>();
         private ResolutionError m_currentError;
+        // The time spent calculating the package spaces of the last permutation checked
+        private long m_packageSpacesTime;
         volatile private CancellationException m_isCancelled = null;
 
         static ResolveSession createSession(ResolveContext resolveContext, Executor executor, Resource dynamicHost, Requirement dynamicReq, List<Capability> dynamicCandidates)
@@ -268,6 +274,14 @@ public class ResolverImpl implements Resolver
             return m_executor;
         }
 
+        long getPackageSpacesTime() {
+            return m_packageSpacesTime;
+        }
+
+        void setPackageSpacesTime(long packageSpacesTime) {
+            m_packageSpacesTime = packageSpacesTime;
+        }
+
         ResolutionError getCurrentError() {
             return m_currentError;
         }
@@ -358,13 +372,28 @@ public class ResolverImpl implements Resolver
         this.m_logger = logger;
         this.m_parallelism = parallelism;
         this.m_executor = null;
+        this.m_packageSpaceCache = null;
     }
 
     public ResolverImpl(Logger logger, Executor executor)
+    {
+        this(logger, executor, null);
+    }
+
+    /**
+     * Creates a resolver which reuses the package spaces of resolved resources
+     * kept by the specified cache.  The same cache may be used by multiple
+     * resolvers to share package spaces across resolve operations.
+     * @param logger the logger
+     * @param executor the executor, may be {@code null}
+     * @param packageSpaceCache the package space cache, may be {@code null}
+     */
+    public ResolverImpl(Logger logger, Executor executor, PackageSpaceCache packageSpaceCache)
     {
         this.m_logger = logger;
         this.m_parallelism = -1;
         this.m_executor = executor;
+        this.m_packageSpaceCache = packageSpaceCache;
     }
 
     public Map<Resource, List<Wire>> resolve(ResolveContext rc) throws ResolutionException
@@ -417,7 +446,18 @@ public class ResolverImpl implements Resolver
     public Map<Resource, List<Wire>> resolve(ResolveContext rc, Executor executor) throws ResolutionException
     {
         ResolveSession session = ResolveSession.createSession(rc, executor, null, null, null);
-        return doResolve(session);
+        try
+        {
+            return doResolve(session);
+        }
+        finally
+        {
+            if (m_packageSpaceCache != null)
+            {
+                // discard package spaces of resources which are no longer resolved
+                m_packageSpaceCache.retain(rc.getWirings().keySet());
+            }
+        }
     }
 
     private Map<Resource, List<Wire>> doResolve(ResolveSession session) throws ResolutionException {
@@ -558,6 +598,7 @@ public class ResolverImpl implements Resolver
     private Candidates findValidCandidates(ResolveSession session, Map<Resource, ResolutionError> faultyResources) {
         Candidates allCandidates = null;
         boolean foundFaultyResources = false;
+        int permutationIndex = 0;
         do
         {
             allCandidates = session.getNextPermutation();
@@ -570,6 +611,8 @@ public class ResolverImpl implements Resolver
 
             Map<Resource, ResolutionError> currentFaultyResources = new HashMap<Resource, ResolutionError>();
 
+            long start = System.nanoTime();
+            session.setPackageSpacesTime(0);
             session.setCurrentError(
                     checkConsistency(
                             session,
@@ -577,6 +620,7 @@ public class ResolverImpl implements Resolver
                             currentFaultyResources
                     )
             );
+            m_logger.logPermutation(permutationIndex++, session.getPackageSpacesTime(), System.nanoTime() - start);
 
             if (!currentFaultyResources.isEmpty())
             {
@@ -610,9 +654,22 @@ public class ResolverImpl implements Resolver
         }
         Map<Resource, Resource> allhosts = allCandidates.getRootHosts();
         // Calculate package spaces
+        long start = System.nanoTime();
         Map<Resource, Packages> resourcePkgMap =
             calculatePackageSpaces(session, allCandidates, allhosts.values());
+        session.setPackageSpacesTime(System.nanoTime() - start);
         ResolutionError error = null;
+        // Check the package spaces in parallel first; the permutation is
+        // consistent if no package space has a conflict
+        Set<Resource> consistent = null;
+        if (!session.isDynamic())
+        {
+            consistent = Collections.newSetFromMap(new ConcurrentHashMap<Resource, Boolean>());
+            if (!findConflicts(session, resourcePkgMap, consistent))
+            {
+                return null;
+            }
+        }
         // Check package consistency
         Map<Resource, Object> resultCache =
                 new OpenHashMap<Resource, Object>(resourcePkgMap.size());
@@ -620,7 +677,7 @@ public class ResolverImpl implements Resolver
         {
             rethrow = checkPackageSpaceConsistency(
                     session, entry.getValue(),
-                    allCandidates, session.isDynamic(), resourcePkgMap, resultCache);
+                    allCandidates, session.isDynamic(), resourcePkgMap, resultCache, consistent);
             if (session.isCancelled()) {
                 return null;
             }
@@ -645,6 +702,124 @@ public class ResolverImpl implements Resolver
         return error;
     }
 
+    /**
+     * Checks the package spaces of the unresolved resources in parallel
+     * without creating permutations.  The check stops once a conflict is
+     * found; {@link #checkPackageSpaceConsistency} must then check the
+     * resources in order to report the conflict and create the permutations
+     * that are tried next.
+     *
+     * @param consistent the set to add the resources without conflicts to.
+     * @return true if a conflict was found or the session was cancelled.
+     */
+    private boolean findConflicts(
+        final ResolveSession session,
+        final Map<Resource, Packages> resourcePkgMap,
+        final Set<Resource> consistent)
+    {
+        final Map<Resource, Wiring> wirings = session.getContext().getWirings();
+        final AtomicBoolean found = new AtomicBoolean();
+        EnhancedExecutor executor = new EnhancedExecutor(session.getExecutor());
+        for (Map.Entry<Resource, Packages> entry : resourcePkgMap.entrySet())
+        {
+            final Resource resource = entry.getKey();
+            final Packages pkgs = entry.getValue();
+            if (wirings.containsKey(resource))
+            {
+                continue;
+            }
+            executor.execute(new Runnable()
+            {
+                public void run()
+                {
+                    if (found.get() || session.isCancelled())
+                    {
+                        return;
+                    }
+                    if (hasConflicts(pkgs, resourcePkgMap))
+                    {
+                        found.set(true);
+                    }
+                    else
+                    {
+                        consistent.add(resource);
+                    }
+                }
+            });
+        }
+        executor.await();
+        return found.get() || session.isCancelled();
+    }
+
+    /**
+     * Returns true if the package space has any of the conflicts detected by
+     * {@link #checkPackageSpaceConsistency}, without creating permutations.
+     */
+    private static boolean hasConflicts(Packages pkgs, Map<Resource, Packages> resourcePkgMap)
+    {
+        // Check for conflicting imports from fragments.
+        for (Entry<String, List<Blame>> entry : pkgs.m_importedPkgs.fast())
+        {
+            List<Blame> blames = entry.getValue();
+            for (int i = 1; i < blames.size(); i++)
+            {
+                if (!blames.get(0).m_cap.getResource().equals(blames.get(i).m_cap.getResource()))
+                {
+                    return true;
+                }
+            }
+        }
+        // Check for uses conflicts with exported packages.
+        for (Entry<String, Blame> entry : pkgs.m_exportedPkgs.fast())
+        {
+            ArrayMap<Set<Capability>, UsedBlames> pkgBlames = pkgs.m_usedPkgs.get(entry.getKey());
+            if (pkgBlames != null)
+            {
+                for (UsedBlames usedBlames : pkgBlames.values())
+                {
+                    if (!isCompatible(entry.getValue(), usedBlames.m_caps, resourcePkgMap))
+                    {
+                        return true;
+                    }
+                }
+            }
+        }
+        // Check for uses conflicts with imported and required packages;
+        // imported packages shadow the packages from required bundles.
+        for (Entry<String, List<Blame>> entry : pkgs.m_requiredPkgs.fast())
+        {
+            if (!pkgs.m_importedPkgs.containsKey(entry.getKey())
+                && hasConflicts(pkgs, entry.getKey(), entry.getValue(), resourcePkgMap))
+            {
+                return true;
+            }
+        }
+        for (Entry<String, List<Blame>> entry : pkgs.m_importedPkgs.fast())
+        {
+            if (hasConflicts(pkgs, entry.getKey(), entry.getValue(), resourcePkgMap))
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean hasConflicts(Packages pkgs, String pkgName, List<Blame> requirementBlames, Map<Resource, Packages> resourcePkgMap)
+    {
+        ArrayMap<Set<Capability>, UsedBlames> pkgBlames = pkgs.m_usedPkgs.get(pkgName);
+        if (pkgBlames != null)
+        {
+            for (UsedBlames usedBlames : pkgBlames.values())
+            {
+                if (!isCompatible(requirementBlames, usedBlames.m_caps, resourcePkgMap))
+                {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
     public Map<Resource,List<Wire>> resolveDynamic(ResolveContext context,
             Wiring hostWiring, Requirement dynamicRequirement)
             throws ResolutionException
@@ -1039,13 +1214,17 @@ public class ResolverImpl implements Resolver
 
         for (Capability candSourceCap : getPackageSources(mergeCap, resourcePkgMap))
         {
-            List<String> uses;
-// TODO: RFC-112 - Need impl-specific type
-//            if (candSourceCap instanceof FelixCapability)
-//            {
-//                uses = ((FelixCapability) candSourceCap).getUses();
-//            }
-//            else
+            List<String> uses = null;
+            if (session.getContext() instanceof UsesContext)
+            {
+                // Use the uses directive parsed by the context.
+                uses = ((UsesContext) session.getContext()).getUses(candSourceCap);
+                if (uses != null && uses.isEmpty())
+                {
+                    continue;
+                }
+            }
+            if (uses == null)
             {
                 String s = candSourceCap.getDirectives().get(Namespace.CAPABILITY_USES_DIRECTIVE);
                 if (s != null && s.length() > 0)
@@ -1128,6 +1307,10 @@ public class ResolverImpl implements Resolver
             Collection<Resource> hosts)
     {
         final EnhancedExecutor executor = new EnhancedExecutor(session.getExecutor());
+        final PackageSpaceCache cache = m_packageSpaceCache;
+        // The wiring state of resolved resources and their cached package spaces
+        final Map<Resource, PackageSpaceKey> cacheKeys = new ConcurrentHashMap<Resource, PackageSpaceKey>();
+        final Map<Resource, Packages> cachedPackages = new ConcurrentHashMap<Resource, Packages>();
 
         // Parallel compute wire candidates
         final Map<Resource, List<WireCandidate>> allWireCandidates = new ConcurrentHashMap<Resource, List<WireCandidate>>();
@@ -1144,6 +1327,10 @@ public class ResolverImpl implements Resolver
                 {
                     List<WireCandidate> wireCandidates = getWireCandidates(session, allCandidates, resource);
                     allWireCandidates.put(resource, wireCandidates);
+                    if (cache != null)
+                    {
+                        cache.lookup(session, resource, cacheKeys, cachedPackages);
+                    }
                     for (WireCandidate w : wireCandidates)
                     {
                         Resource u = w.capability.getResource();
@@ -1164,11 +1351,22 @@ public class ResolverImpl implements Resolver
             }
             executor.await();
         }
+        if (cache != null)
+        {
+            cache.retainReusable(cachedPackages, allWireCandidates, cacheKeys.size());
+        }
 
         // Parallel get all exported packages
         final OpenHashMap<Resource, Packages> allPackages = new OpenHashMap<Resource, Packages>(allCandidates.getNbResources());
         for (final Resource resource : allWireCandidates.keySet())
         {
+            Packages cached = cachedPackages.get(resource);
+            if (cached != null)
+            {
+                // the package space of a resolved resource is complete
+                allPackages.put(resource, cached);
+                continue;
+            }
             final Packages packages = new Packages(resource);
             allPackages.put(resource, packages);
             executor.execute(new Runnable()
@@ -1185,6 +1383,10 @@ public class ResolverImpl implements Resolver
         // Parallel compute package lists
         for (final Resource resource : allWireCandidates.keySet())
         {
+            if (cachedPackages.containsKey(resource))
+            {
+                continue;
+            }
             executor.execute(new Runnable()
             {
                 public void run()
@@ -1203,7 +1405,7 @@ public class ResolverImpl implements Resolver
         {
             final Resource resource = entry.getKey();
             final Packages packages = entry.getValue();
-            if (!packages.m_requiredPkgs.isEmpty())
+            if (!packages.m_requiredPkgs.isEmpty() && !cachedPackages.containsKey(resource))
             {
                 getPackageSourcesInternal(session, allPackages, resource, packages);
             }
@@ -1214,7 +1416,7 @@ public class ResolverImpl implements Resolver
         {
             final Resource resource = entry.getKey();
             final Packages packages = entry.getValue();
-            if (packages.m_sources.isEmpty())
+            if (packages.m_sources.isEmpty() && !cachedPackages.containsKey(resource))
             {
                 executor.execute(new Runnable()
                 {
@@ -1230,6 +1432,10 @@ public class ResolverImpl implements Resolver
         // Parallel compute uses
         for (final Resource resource : allWireCandidates.keySet())
         {
+            if (cachedPackages.containsKey(resource))
+            {
+                continue;
+            }
             executor.execute(new Runnable()
             {
                 public void run()
@@ -1240,6 +1446,19 @@ public class ResolverImpl implements Resolver
         }
         executor.await();
 
+        if (cache != null)
+        {
+            // The package spaces of resolved resources are not modified
+            // by the remaining resolve operation
+            for (Map.Entry<Resource, PackageSpaceKey> entry : cacheKeys.entrySet())
+            {
+                if (!cachedPackages.containsKey(entry.getKey()))
+                {
+                    cache.put(entry.getKey(), entry.getValue(), allPackages.get(entry.getKey()));
+                }
+            }
+        }
+
         return allPackages;
     }
 
@@ -1320,7 +1539,8 @@ public class ResolverImpl implements Resolver
         Candidates allCandidates,
         boolean dynamic,
         Map<Resource, Packages> resourcePkgMap,
-        Map<Resource, Object> resultCache)
+        Map<Resource, Object> resultCache,
+        Set<Resource> consistent)
     {
         if (!dynamic && session.getContext().getWirings().containsKey(resource))
         {
@@ -1332,6 +1552,61 @@ public class ResolverImpl implements Resolver
             return cache instanceof ResolutionError ? (ResolutionError) cache : null;
         }
 
+        ResolutionError rethrow;
+        // Check the package space unless it was found without conflicts
+        if (consistent == null || !consistent.contains(resource))
+        {
+            rethrow = checkResourceConsistency(session, resource, allCandidates, resourcePkgMap);
+            if (rethrow != null)
+            {
+                return rethrow;
+            }
+        }
+
+        resultCache.put(resource, Boolean.TRUE);
+
+        // Now check the consistency of all resources on which the
+        // current resource depends. Keep track of the current number
+        // of permutations so we know if the lower level check was
+        // able to create a permutation or not in the case of failure.
+        long permCount = session.getPermutationCount();
+        for (Requirement req : resource.getRequirements(null))
+        {
+            Capability cap = allCandidates.getFirstCandidate(req);
+            if (cap != null)
+            {
+                if (!resource.equals(cap.getResource()))
+                {
+                    rethrow = checkPackageSpaceConsistency(
+                            session, cap.getResource(),
+                            allCandidates, false, resourcePkgMap, resultCache, consistent);
+                    if (session.isCancelled()) {
+                        return null;
+                    }
+                    if (rethrow != null)
+                    {
+                        // If the lower level check didn't create any permutations,
+                        // then we should create an import permutation for the
+                        // requirement with the dependency on the failing resource
+                        // to backtrack on our current candidate selection.
+                        if (permCount == session.getPermutationCount())
+                        {
+                            session.addPermutation(PermutationType.IMPORT, allCandidates.permutate(req));
+                        }
+                        return rethrow;
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    private ResolutionError checkResourceConsistency(
+        ResolveSession session,
+        Resource resource,
+        Candidates allCandidates,
+        Map<Resource, Packages> resourcePkgMap)
+    {
         Packages pkgs = resourcePkgMap.get(resource);
 
         ResolutionError rethrow = null;
@@ -1355,6 +1630,8 @@ public class ResolverImpl implements Resolver
                     }
                     else if (!sourceBlame.m_cap.getResource().equals(blame.m_cap.getResource()))
                     {
+                        m_logger.logUsesConflict(resource, sourceBlame.m_cap);
+                        m_logger.logUsesConflict(resource, blame.m_cap);
                         // Try to permutate the conflicting requirement.
                         session.addPermutation(PermutationType.IMPORT, allCandidates.permutate(blame.m_reqs.get(0)));
                         // Try to permutate the source requirement.
@@ -1401,6 +1678,8 @@ public class ResolverImpl implements Resolver
             {
                 if (!isCompatible(exportBlame, usedBlames.m_caps, resourcePkgMap))
                 {
+                    m_logger.logUsesConflict(resource, exportBlame.m_cap);
+                    logUsesConflict(resource, usedBlames.m_caps);
                     mutated = (mutated != null)
                             ? mutated
                             : new HashSet<Requirement>();
@@ -1456,6 +1735,11 @@ public class ResolverImpl implements Resolver
             {
                 if (!isCompatible(requirementBlames, usedBlames.m_caps, resourcePkgMap))
                 {
+                    for (Blame blame : requirementBlames)
+                    {
+                        m_logger.logUsesConflict(resource, blame.m_cap);
+                    }
+                    logUsesConflict(resource, usedBlames.m_caps);
                     mutated = (mutated != null)
                             ? mutated
                             : new HashSet<Requirement>();// Split packages, need to think how to get a good message for split packages (sigh)
@@ -1507,44 +1791,17 @@ public class ResolverImpl implements Resolver
             }
         }
 
-        resultCache.put(resource, Boolean.TRUE);
-
-        // Now check the consistency of all resources on which the
-        // current resource depends. Keep track of the current number
-        // of permutations so we know if the lower level check was
-        // able to create a permutation or not in the case of failure.
-        long permCount = session.getPermutationCount();
-        for (Requirement req : resource.getRequirements(null))
-        {
-            Capability cap = allCandidates.getFirstCandidate(req);
-            if (cap != null)
-            {
-                if (!resource.equals(cap.getResource()))
-                {
-                    rethrow = checkPackageSpaceConsistency(
-                            session, cap.getResource(),
-                            allCandidates, false, resourcePkgMap, resultCache);
-                    if (session.isCancelled()) {
-                        return null;
-                    }
-                    if (rethrow != null)
-                    {
-                        // If the lower level check didn't create any permutations,
-                        // then we should create an import permutation for the
-                        // requirement with the dependency on the failing resource
-                        // to backtrack on our current candidate selection.
-                        if (permCount == session.getPermutationCount())
-                        {
-                            session.addPermutation(PermutationType.IMPORT, allCandidates.permutate(req));
-                        }
-                        return rethrow;
-                    }
-                }
-            }
-        }
         return null;
     }
     
+    private void logUsesConflict(Resource resource, Set<Capability> caps)
+    {
+        for (Capability cap : caps)
+        {
+            m_logger.logUsesConflict(resource, cap);
+        }
+    }
+
     private ResolutionError permuteUsedBlames(ResolveSession session,
           ResolutionError rethrow, Candidates allCandidates, Resource resource,
           String pkgName, Blame requirementBlame, UsedBlames usedBlames,
@@ -2113,6 +2370,184 @@ public class ResolverImpl implements Resolver
         }
     }
 
+    /**
+     * A resolve context which provides the already parsed uses directive of
+     * the capabilities it provides.  The resolver then avoids parsing the
+     * uses directive of the capabilities on each resolve operation.
+     */
+    public interface UsesContext
+    {
+        /**
+         * Returns the package names of the uses directive of the capability.
+         * The returned list must not be modified.
+         *
+         * @param capability the capability, may be a hosted capability.
+         * @return the used package names or {@code null} if the uses
+         *         directive of the capability is not known to the context.
+         */
+        List<String> getUses(Capability capability);
+    }
+
+    /**
+     * A cache of the package spaces of resolved resources.  The package space
+     * of a resolved resource only depends on its wiring and on the wirings of
+     * the resources it is wired to.  A cached package space is reused as long
+     * as the required wires, capabilities and substitution wires of the
+     * resource are unchanged and the package spaces of all the resources it
+     * is wired to are reused as well.  A cache may be shared by resolvers
+     * across resolve operations.
+     */
+    public static class PackageSpaceCache
+    {
+        private final ConcurrentMap<Resource, CachedPackages> m_cache = new ConcurrentHashMap<Resource, CachedPackages>();
+        private final AtomicLong m_hits = new AtomicLong();
+        private final AtomicLong m_misses = new AtomicLong();
+
+        /**
+         * Returns the number of package spaces reused from this cache.
+         * @return the number of cache hits
+         */
+        public long getHits()
+        {
+            return m_hits.get();
+        }
+
+        /**
+         * Returns the number of package spaces of resolved resources that
+         * had to be calculated.
+         * @return the number of cache misses
+         */
+        public long getMisses()
+        {
+            return m_misses.get();
+        }
+
+        /**
+         * Returns the number of cached package spaces.
+         * @return the number of cached package spaces
+         */
+        public int size()
+        {
+            return m_cache.size();
+        }
+
+        /**
+         * Discards all cached package spaces.
+         */
+        public void clear()
+        {
+            m_cache.clear();
+        }
+
+        void retain(Collection<Resource> resolved)
+        {
+            m_cache.keySet().retainAll(resolved);
+        }
+
+        void lookup(ResolveSession session, Resource resource,
+            Map<Resource, PackageSpaceKey> keys, Map<Resource, Packages> found)
+        {
+            Wiring wiring = session.getContext().getWirings().get(resource);
+            if (wiring == null || resource.equals(session.getDynamicHost()))
+            {
+                // only the package spaces of resolved resources which are
+                // not dynamically importing are complete
+                return;
+            }
+            PackageSpaceKey key = new PackageSpaceKey(
+                wiring.getRequiredResourceWires(null),
+                wiring.getResourceCapabilities(null),
+                session.getContext().getSubstitutionWires(wiring));
+            keys.put(resource, key);
+            CachedPackages cached = m_cache.get(resource);
+            if (cached != null && cached.m_key.equals(key))
+            {
+                found.put(resource, cached.m_packages);
+            }
+        }
+
+        void retainReusable(Map<Resource, Packages> found,
+            Map<Resource, List<WireCandidate>> allWireCandidates, int resolved)
+        {
+            // A package space can only be reused if the package spaces of all
+            // the providers are reused
+            boolean changed;
+            do
+            {
+                changed = false;
+                for (Iterator<Resource> iResources = found.keySet().iterator(); iResources.hasNext();)
+                {
+                    for (WireCandidate w : allWireCandidates.get(iResources.next()))
+                    {
+                        if (!found.containsKey(w.capability.getResource()))
+                        {
+                            iResources.remove();
+                            changed = true;
+                            break;
+                        }
+                    }
+                }
+            }
+            while (changed);
+            m_hits.addAndGet(found.size());
+            m_misses.addAndGet(resolved - found.size());
+        }
+
+        void put(Resource resource, PackageSpaceKey key, Packages packages)
+        {
+            m_cache.put(resource, new CachedPackages(key, packages));
+        }
+    }
+
+    private static final class PackageSpaceKey
+    {
+        private final List<Wire> m_requiredWires;
+        private final List<Capability> m_capabilities;
+        private final List<Wire> m_substitutionWires;
+
+        PackageSpaceKey(List<Wire> requiredWires, List<Capability> capabilities, List<Wire> substitutionWires)
+        {
+            m_requiredWires = requiredWires;
+            m_capabilities = capabilities;
+            m_substitutionWires = substitutionWires;
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if (this == o)
+            {
+                return true;
+            }
+            if (!(o instanceof PackageSpaceKey))
+            {
+                return false;
+            }
+            PackageSpaceKey other = (PackageSpaceKey) o;
+            return m_requiredWires.equals(other.m_requiredWires)
+                && m_capabilities.equals(other.m_capabilities)
+                && m_substitutionWires.equals(other.m_substitutionWires);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return m_requiredWires.hashCode() ^ m_capabilities.hashCode();
+        }
+    }
+
+    private static final class CachedPackages
+    {
+        final PackageSpaceKey m_key;
+        final Packages m_packages;
+
+        CachedPackages(PackageSpaceKey key, Packages packages)
+        {
+            m_key = key;
+            m_packages = packages;
+        }
+    }
+
     public static class Packages
     {
         public final OpenHashMap<String, Blame> m_exportedPkgs;
@@ -29,6 +29,7 @@ public class CandidateSelector {
     protected final AtomicBoolean isUnmodifiable;
     protected final List<Capability> unmodifiable;
     private int currentIndex = 0;
+    private Object owner;
 
     public CandidateSelector(List<Capability> candidates, AtomicBoolean isUnmodifiable) {
         this.isUnmodifiable = isUnmodifiable;
@@ -45,6 +46,25 @@ public class CandidateSelector {
         return new CandidateSelector(this);
     }
 
+    /**
+     * Returns a copy of this selector that is owned by the specified owner.
+     * A selector may be shared by several owners as long as none of them
+     * moves the current candidate; an owner copies a selector it does not
+     * own before removing the current candidate.
+     *
+     * @param owner the owner of the copy.
+     * @return the copy.
+     */
+    public CandidateSelector copy(Object owner) {
+        CandidateSelector copy = copy();
+        copy.owner = owner;
+        return copy;
+    }
+
+    public boolean isOwnedBy(Object owner) {
+        return this.owner == owner;
+    }
+
     public int getRemainingCandidateCount() {
         return unmodifiable.size() - currentIndex;
     }
@@ -31,15 +31,4 @@ public class OpenHashMapList extends OpenHashMap<Requirement, CandidateSelector>
         super(initialCapacity);
     }
 
-    public OpenHashMapList deepClone() {
-        OpenHashMapList copy = (OpenHashMapList) super.clone();
-        Object[] values = copy.value;
-        for (int i = values.length; i-- > 0;) {
-            if (values[i] != null) {
-                values[i] = ((CandidateSelector) values[i]).copy();
-            }
-        }
-        return copy;
-    }
-
 }
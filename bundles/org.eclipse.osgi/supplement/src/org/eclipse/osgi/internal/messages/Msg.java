@@ -42,6 +42,7 @@ public class Msg extends NLS {
 	public static String SERVICE_OBJECT_NULL_EXCEPTION;
 	public static String SERVICE_FACTORY_RECURSION;
 	public static String SERVICE_USE_OVERFLOW;
+	public static String SERVICE_EVENT_QUEUE_FULL;
 
 	public static String SERVICE_OBJECTS_UNGET_ARGUMENT_EXCEPTION;
 
@@ -136,6 +137,7 @@ public class Msg extends NLS {
 	public static String ModuleContainer_NameCollision;
 	public static String ModuleContainer_NameCollisionWithLocation;
 	public static String ModuleContainer_NegativeStartLevelError;
+	public static String ModuleContainer_StartLevelTime;
 	public static String ModuleContainer_StateLockError;
 	public static String ModuleContainer_SystemNotActiveError;
 	public static String ModuleContainer_SystemStartLevelError;
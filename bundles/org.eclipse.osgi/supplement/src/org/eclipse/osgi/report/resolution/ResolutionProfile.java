@@ -0,0 +1,89 @@
+/*******************************************************************************
+ * Copyright (c) 2026 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.osgi.report.resolution;
+
+import java.util.List;
+import java.util.Map;
+import org.osgi.resource.Resource;
+
+/**
+ * A resolution profile records where a single resolve process spent its time.
+ * The profile is gathered for every resolve process and is available from
+ * the {@link ResolutionReport#getResolutionProfile() resolution report}.
+ * <p>
+ * The times are the sums over all the batches and candidate permutations of
+ * the resolve process and are measured in nanoseconds.
+ * @since 3.18
+ */
+public interface ResolutionProfile {
+	/**
+	 * Returns the time spent finding and filtering the providers of
+	 * requirements.
+	 * @return the time in nanoseconds
+	 */
+	long getFindProvidersTime();
+
+	/**
+	 * Returns the time spent calculating the package spaces of the candidate
+	 * permutations.
+	 * @return the time in nanoseconds
+	 */
+	long getPackageSpacesTime();
+
+	/**
+	 * Returns the time spent checking the package spaces of the candidate
+	 * permutations for uses constraint violations.
+	 * @return the time in nanoseconds
+	 */
+	long getUsesCheckTime();
+
+	/**
+	 * Returns the time spent checking candidate permutations other than the
+	 * initial permutation of each batch. This is the time spent backtracking
+	 * because of uses constraint violations and includes the package space
+	 * and uses check times of those permutations.
+	 * @return the time in nanoseconds
+	 */
+	long getPermutationsTime();
+
+	/**
+	 * Returns the number of candidate permutations checked, including the
+	 * initial permutation of each batch.
+	 * @return the number of permutations
+	 */
+	int getPermutationCount();
+
+	/**
+	 * Returns the number of revisions resolved by each batch in the order
+	 * the batches were resolved.
+	 * @return the batch sizes
+	 */
+	List<Integer> getBatchSizes();
+
+	/**
+	 * Returns the resources that provided the capabilities involved in the
+	 * most uses constraint violations together with the number of violations
+	 * they were blamed for. The resources are ordered by the number of
+	 * violations, highest first.
+	 * @param max the maximum number of resources to return
+	 * @return the resources mapped to their blame count
+	 */
+	Map<Resource, Integer> getHotspots(int max);
+
+	/**
+	 * Returns the profile as a JSON object.
+	 * @return the JSON representation of this profile
+	 */
+	String toJSON();
+}
@@ -185,4 +185,14 @@ public interface ResolutionReport {
 	 * @return a resolution report message.
 	 */
 	String getResolutionReportMessage(Resource resource);
+
+	/**
+	 * Returns the resolution profile of the resolve process or {@code null}
+	 * if the resolve process was not profiled.
+	 * @return the resolution profile or {@code null}
+	 * @since 3.18
+	 */
+	default ResolutionProfile getResolutionProfile() {
+		return null;
+	}
 }